@@ -0,0 +1,56 @@
+package com.klachkova.locationsystem.load
+
+import com.klachkova.locationsystem.LocationSystemApplication
+import com.klachkova.locationsystem.reactive.ReactiveReadApplication
+import groovy.transform.CompileStatic
+import org.springframework.boot.builder.SpringApplicationBuilder
+import org.springframework.boot.web.context.WebServerApplicationContext
+import org.springframework.context.ConfigurableApplicationContext
+
+/**
+ * Starts the servlet application and the reactive read API in-process on random ports, against a named in-memory H2
+ * database and a Redis server on the loopback interface. Both applications started with the same database name read
+ * the same tables. The settings are passed as command line arguments, which take precedence over the
+ * application.properties of the applications.
+ */
+@CompileStatic
+final class Applications {
+
+    private Applications() {
+
+    }
+
+    /**
+     * Starts the servlet application, which creates the schema.
+     */
+    static ConfigurableApplicationContext startServlet(String database, int redisPort) {
+
+        return new SpringApplicationBuilder(LocationSystemApplication).run(
+            '--server.port=0',
+            "--spring.datasource.url=jdbc:h2:mem:${database};DB_CLOSE_DELAY=-1".toString(),
+            '--spring.jpa.hibernate.ddl-auto=create',
+            '--spring.h2.console.enabled=false',
+            '--spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration',
+            '--spring.redis.host=127.0.0.1',
+            "--spring.redis.port=${redisPort}".toString(),
+            '--logging.level.root=WARN')
+    }
+
+    /**
+     * Starts the reactive read API, on the schema created by the servlet application.
+     */
+    static ConfigurableApplicationContext startReactive(String database, int redisPort) {
+
+        return ReactiveReadApplication.run(
+            '--server.port=0',
+            "--spring.r2dbc.url=r2dbc:h2:mem:///${database}".toString(),
+            '--spring.redis.host=127.0.0.1',
+            "--spring.redis.port=${redisPort}".toString(),
+            '--logging.level.root=WARN')
+    }
+
+    static String baseUrl(ConfigurableApplicationContext context) {
+
+        return "http://127.0.0.1:${((WebServerApplicationContext) context).webServer.port}/api"
+    }
+}
@@ -0,0 +1,94 @@
+package com.klachkova.locationsystem.load
+
+import groovy.transform.CompileStatic
+
+/**
+ * Latencies and failures of the requests sent by one client, per operation. Not thread-safe, each client has its
+ * own recorder and the recorders are merged once the run is over.
+ */
+@CompileStatic
+class LatencyRecorder {
+
+    private final Map<String, long[]> latencies = [:]
+    private final Map<String, Integer> counts = [:]
+    private final Map<String, Integer> failures = [:]
+
+    void record(String operation, long nanos, boolean failed) {
+
+        long[] values = latencies.get(operation)
+        int count = counts.get(operation) ?: 0
+        if (values == null || count == values.length) {
+            values = Arrays.copyOf(values ?: new long[0], Math.max(1024, count * 2))
+            latencies.put(operation, values)
+        }
+        values[count] = nanos
+        counts.put(operation, count + 1)
+        if (failed) {
+            failures.put(operation, (failures.get(operation) ?: 0) + 1)
+        }
+    }
+
+    /**
+     * Merges the recorders of all clients into one summary per operation.
+     *
+     * @param recorders       the recorders of the clients
+     * @param durationSeconds the length of the recording, to compute throughput
+     * @return the summaries, by operation name
+     */
+    static Map<String, OperationSummary> summarize(Collection<LatencyRecorder> recorders, int durationSeconds) {
+
+        Map<String, OperationSummary> summaries = new TreeMap<>()
+        Set<String> operations = new TreeSet<>()
+        recorders.each { operations.addAll(it.latencies.keySet()) }
+        for (String operation : operations) {
+            int total = (int) recorders.sum { LatencyRecorder it -> it.counts.get(operation) ?: 0 }
+            long[] all = new long[total]
+            int position = 0
+            int failed = 0
+            for (LatencyRecorder recorder : recorders) {
+                int count = recorder.counts.get(operation) ?: 0
+                if (count > 0) {
+                    System.arraycopy(recorder.latencies.get(operation), 0, all, position, count)
+                    position += count
+                }
+                failed += recorder.failures.get(operation) ?: 0
+            }
+            Arrays.sort(all)
+            summaries.put(operation, new OperationSummary(
+                requests: total,
+                failures: failed,
+                throughput: total / (double) durationSeconds,
+                p50Millis: percentile(all, 0.50d),
+                p95Millis: percentile(all, 0.95d),
+                p99Millis: percentile(all, 0.99d),
+                maxMillis: all.length == 0 ? 0d : all[all.length - 1] / 1e6d))
+        }
+        return summaries
+    }
+
+    /**
+     * Nearest-rank percentile of sorted latencies.
+     */
+    private static double percentile(long[] sorted, double quantile) {
+
+        if (sorted.length == 0) {
+            return 0d
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length)
+        return sorted[Math.max(0, rank - 1)] / 1e6d
+    }
+
+    /**
+     * Throughput in requests per second and latencies in milliseconds of one operation.
+     */
+    static class OperationSummary {
+
+        int requests
+        int failures
+        double throughput
+        double p50Millis
+        double p95Millis
+        double p99Millis
+        double maxMillis
+    }
+}
@@ -0,0 +1,51 @@
+package com.klachkova.locationsystem.load
+
+import com.klachkova.locationsystem.modeles.AccessLevel
+import com.klachkova.locationsystem.modeles.Location
+import com.klachkova.locationsystem.modeles.LocationAccess
+import com.klachkova.locationsystem.modeles.User
+import com.klachkova.locationsystem.repositories.LocationAccessRepository
+import com.klachkova.locationsystem.repositories.LocationRepository
+import com.klachkova.locationsystem.repositories.UserRepository
+import org.springframework.context.ApplicationContext
+
+/**
+ * Users and locations created before a load test run: {@code users} users owning {@code locationsPerUser} locations
+ * each, each location shared with the next user.
+ */
+class LoadData {
+
+    final List<User> users
+    final List<Location> locations
+
+    private LoadData(List<User> users, List<Location> locations) {
+
+        this.users = users
+        this.locations = locations
+    }
+
+    /**
+     * Creates the users, their locations and the shares through the repositories of the servlet application.
+     */
+    static LoadData seed(ApplicationContext context, LoadSettings settings) {
+
+        List<User> newUsers = (0..<settings.users).collect { new User("User ${it}", "user${it}@example.com") }
+        List<User> users = context.getBean(UserRepository).saveAll(newUsers)
+        List<Location> newLocations = []
+        users.eachWithIndex { User owner, int ownerIndex ->
+            settings.locationsPerUser.times {
+                int index = ownerIndex * settings.locationsPerUser + it
+                String address = String.format('%d Main St, Springfield, IL, %05d', index % 100_000 + 1,
+                    10_000 + index.intdiv(100_000))
+                newLocations << new Location(null, "Location ${index}", address, owner)
+            }
+        }
+        List<Location> locations = context.getBean(LocationRepository).saveAll(newLocations)
+        List<LocationAccess> accesses = locations.withIndex().collect { Location location, int index ->
+            new LocationAccess(users[(index.intdiv(settings.locationsPerUser) + 1) % users.size()], location,
+                AccessLevel.READ_ONLY)
+        }
+        context.getBean(LocationAccessRepository).saveAll(accesses)
+        return new LoadData(users, locations)
+    }
+}
@@ -0,0 +1,115 @@
+package com.klachkova.locationsystem.load
+
+import org.apache.http.client.config.RequestConfig
+import org.apache.http.client.methods.HttpUriRequest
+import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.util.EntityUtils
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sends the mix of a load test run with concurrent clients, each sending its next request once the previous one is
+ * answered, and records the latencies after the warmup. A request not answered within {@link #TIMEOUT_MILLIS} counts
+ * as failed.
+ */
+class LoadDriver {
+
+    static final int TIMEOUT_MILLIS = 30_000
+
+    private final LoadSettings settings
+    private final Closure<HttpUriRequest> requestFactory
+
+    /**
+     * @param settings       the settings of the run
+     * @param requestFactory creates the request of an operation of the mix, called concurrently
+     */
+    LoadDriver(LoadSettings settings, Closure<HttpUriRequest> requestFactory) {
+
+        this.settings = settings
+        this.requestFactory = requestFactory
+    }
+
+    /**
+     * Runs the warmup and the measurement.
+     *
+     * @return the summaries, by operation name
+     */
+    Map<String, LatencyRecorder.OperationSummary> run() {
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager()
+        connectionManager.maxTotal = settings.clients
+        connectionManager.defaultMaxPerRoute = settings.clients
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(TIMEOUT_MILLIS)
+            .setSocketTimeout(TIMEOUT_MILLIS)
+            .build()
+        CloseableHttpClient client = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .build()
+        ExecutorService executor = Executors.newFixedThreadPool(settings.clients)
+        long start = System.nanoTime()
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds)
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds)
+        try {
+            List<Callable<LatencyRecorder>> tasks = (1..settings.clients).collect {
+                { -> drive(client, recordFrom, end) } as Callable<LatencyRecorder>
+            }
+            List<LatencyRecorder> recorders = executor.invokeAll(tasks)*.get()
+            return LatencyRecorder.summarize(recorders, settings.durationSeconds)
+        } finally {
+            executor.shutdownNow()
+            client.close()
+        }
+    }
+
+    private LatencyRecorder drive(CloseableHttpClient client, long recordFrom, long end) {
+
+        LatencyRecorder recorder = new LatencyRecorder()
+        long now = System.nanoTime()
+        while (now < end) {
+            String operation = settings.nextOperation()
+            HttpUriRequest request = requestFactory.call(operation)
+            boolean failed
+            long sent = System.nanoTime()
+            try {
+                def response = client.execute(request)
+                try {
+                    failed = response.statusLine.statusCode >= 300
+                    EntityUtils.consume(response.entity)
+                } finally {
+                    response.close()
+                }
+            } catch (SocketTimeoutException ignored) {
+                failed = true
+            }
+            now = System.nanoTime()
+            if (sent >= recordFrom) {
+                recorder.record(operation, now - sent, failed)
+            }
+        }
+        return recorder
+    }
+
+    /**
+     * Prints one line per operation, with throughput and latency percentiles.
+     */
+    static void printReport(String title, Map<String, LatencyRecorder.OperationSummary> summaries) {
+
+        println String.format('%n%s%n', title)
+        println String.format('%-20s %10s %10s %10s %10s %10s %10s %10s', 'operation', 'requests', 'failures',
+            'req/s', 'p50 ms', 'p95 ms', 'p99 ms', 'max ms')
+        summaries.each { String operation, LatencyRecorder.OperationSummary summary ->
+            println String.format('%-20s %10d %10d %10.1f %10.2f %10.2f %10.2f %10.2f', operation, summary.requests,
+                summary.failures, summary.throughput, summary.p50Millis, summary.p95Millis, summary.p99Millis,
+                summary.maxMillis)
+        }
+        println String.format('%-20s %10d %10s %10.1f', 'total', summaries.values().sum(0) { it.requests } as int, '',
+            summaries.values().sum(0d) { it.throughput } as double)
+    }
+}
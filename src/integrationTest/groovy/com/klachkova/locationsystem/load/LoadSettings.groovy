@@ -0,0 +1,116 @@
+package com.klachkova.locationsystem.load
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Settings of a load test run, read from {@code loadTest.*} system properties.
+ * <p>
+ * The mix is a comma separated list of {@code operation=weight} pairs, each request picks an operation with a
+ * probability proportional to its weight. Operations left out of the mix are not run.
+ * </p>
+ */
+@CompileStatic
+class LoadSettings {
+
+    static final List<String> OPERATIONS =
+        ['registerUser', 'registerLocation', 'share', 'updateAccess', 'availableLocations', 'friends'].asImmutable()
+
+    static final String DEFAULT_MIX = 'registerUser=5,registerLocation=10,share=15,updateAccess=10,availableLocations=60'
+
+    /**
+     * number of concurrent clients, each sends its next request once the previous one is answered
+     */
+    int clients
+
+    /**
+     * seconds of load before latencies are recorded, to let the JIT and the caches warm up
+     */
+    int warmupSeconds
+
+    /**
+     * seconds during which latencies are recorded
+     */
+    int durationSeconds
+
+    /**
+     * number of users created before the run
+     */
+    int users
+
+    /**
+     * number of locations each user owns before the run, each shared with one other user
+     */
+    int locationsPerUser
+
+    /**
+     * where the results are written as JSON, in the {@code loadTest.reportDir} directory
+     */
+    File reportFile
+
+    private final List<String> mixOperations = []
+    private final List<Integer> cumulativeWeights = []
+
+    static LoadSettings fromSystemProperties() {
+
+        return fromSystemProperties(32, DEFAULT_MIX, 'results.json')
+    }
+
+    /**
+     * @param defaultClients the number of clients unless {@code loadTest.clients} is set
+     * @param defaultMix     the mix unless {@code loadTest.mix} is set
+     * @param reportFileName the name of the report file
+     */
+    static LoadSettings fromSystemProperties(int defaultClients, String defaultMix, String reportFileName) {
+
+        LoadSettings settings = new LoadSettings()
+        settings.clients = Integer.getInteger('loadTest.clients', defaultClients)
+        settings.warmupSeconds = Integer.getInteger('loadTest.warmupSeconds', 5)
+        settings.durationSeconds = Integer.getInteger('loadTest.durationSeconds', 30)
+        settings.users = Integer.getInteger('loadTest.users', 500)
+        settings.locationsPerUser = Integer.getInteger('loadTest.locationsPerUser', 10)
+        settings.reportFile = new File(System.getProperty('loadTest.reportDir', 'build/reports/load-test'), reportFileName)
+        settings.parseMix(System.getProperty('loadTest.mix', defaultMix))
+        return settings
+    }
+
+    /**
+     * @return a random operation of the mix
+     */
+    String nextOperation() {
+
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[-1])
+        for (int i = 0; i < cumulativeWeights.size(); i++) {
+            if (value < cumulativeWeights[i]) {
+                return mixOperations[i]
+            }
+        }
+        throw new IllegalStateException('Unreachable')
+    }
+
+    List<String> getMixOperations() {
+
+        return mixOperations.asImmutable()
+    }
+
+    private void parseMix(String mix) {
+
+        int total = 0
+        for (String pair : mix.split(',')) {
+            String[] parts = pair.trim().split('=')
+            if (parts.length != 2 || !OPERATIONS.contains(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid loadTest.mix entry '${pair}', operations are ${OPERATIONS}")
+            }
+            int weight = Integer.parseInt(parts[1].trim())
+            if (weight > 0) {
+                total += weight
+                mixOperations.add(parts[0].trim())
+                cumulativeWeights.add(total)
+            }
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException('loadTest.mix has no operation with a positive weight')
+        }
+    }
+}
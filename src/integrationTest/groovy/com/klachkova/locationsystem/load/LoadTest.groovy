@@ -0,0 +1,133 @@
+package com.klachkova.locationsystem.load
+
+import com.klachkova.locationsystem.modeles.Location
+import com.klachkova.locationsystem.modeles.User
+import groovy.json.JsonOutput
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPatch
+import org.apache.http.client.methods.HttpPost
+import org.apache.http.client.methods.HttpUriRequest
+import org.apache.http.entity.ContentType
+import org.apache.http.entity.StringEntity
+import org.springframework.context.ConfigurableApplicationContext
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Load test of the REST API, run with {@code ./gradlew loadTest}.
+ * <p>
+ * The application is started in-process against an in-memory H2 database and a {@link RedisStandIn}, and seeded with
+ * users owning locations, each shared with one other user. Concurrent clients then send a random mix of requests for
+ * {@code loadTest.durationSeconds} after a warmup. Throughput and p50/p95/p99 latency per operation are printed and
+ * written as JSON to {@code build/reports/load-test/results.json}. See {@link LoadSettings} for the
+ * {@code -PloadTest.*} options.
+ * </p>
+ * <p>
+ * Every request is expected to succeed: new users and addresses are unique, shares pick a (location, user) pair that
+ * is not shared yet and access updates target the seeded shares.
+ * </p>
+ */
+class LoadTest extends Specification {
+
+    @Shared
+    LoadSettings settings = LoadSettings.fromSystemProperties()
+
+    @Shared
+    RedisStandIn redis
+
+    @Shared
+    ConfigurableApplicationContext context
+
+    @Shared
+    String baseUrl
+
+    @Shared
+    LoadData data
+
+    @Shared
+    AtomicLong sequence = new AtomicLong()
+
+    def setupSpec() {
+
+        redis = new RedisStandIn()
+        context = Applications.startServlet('load-test', redis.port)
+        baseUrl = Applications.baseUrl(context)
+        data = LoadData.seed(context, settings)
+    }
+
+    def cleanupSpec() {
+
+        context?.close()
+        redis?.close()
+    }
+
+    def "Sustain the configured mix of requests"() {
+
+        when: "Concurrent clients send the mix during the warmup and the measurement"
+            Map<String, LatencyRecorder.OperationSummary> summaries = new LoadDriver(settings, this.&request).run()
+
+        then: "Every request succeeds"
+            LoadDriver.printReport(String.format('%d clients, %d s measured after %d s warmup', settings.clients,
+                settings.durationSeconds, settings.warmupSeconds), summaries)
+            writeReport(summaries)
+            summaries.keySet() == settings.mixOperations as Set
+            summaries.values().every { it.failures == 0 }
+    }
+
+    private HttpUriRequest request(String operation) {
+
+        List<User> users = data.users
+        List<Location> locations = data.locations
+        ThreadLocalRandom random = ThreadLocalRandom.current()
+        long next = sequence.incrementAndGet()
+        switch (operation) {
+            case 'registerUser':
+                return json(new HttpPost("${baseUrl}/users"), [name: "Load User ${next}", email: "load${next}@example.com"])
+            case 'registerLocation':
+                User owner = users[random.nextInt(users.size())]
+                String address = String.format('%d Load Ave, Springfield, IL, %05d', next % 100_000 + 1,
+                    90_000 + next.intdiv(100_000))
+                return json(new HttpPost("${baseUrl}/locations"),
+                    [name: "Load ${next}", address: address, owner: [name: owner.name, email: owner.email]])
+            case 'share':
+                long share = next - 1
+                int locationIndex = (int) (share % locations.size())
+                int ownerIndex = locationIndex.intdiv(settings.locationsPerUser)
+                int userIndex = (int) ((ownerIndex + 2 + share.intdiv(locations.size())) % users.size())
+                return new HttpPost("${baseUrl}/locations/${locations[locationIndex].id}/share"
+                    + "?userEmail=${users[userIndex].email}&accessLevel=READ_ONLY")
+            case 'updateAccess':
+                int locationIndex = random.nextInt(locations.size())
+                User friend = users[(locationIndex.intdiv(settings.locationsPerUser) + 1) % users.size()]
+                String accessLevel = random.nextBoolean() ? 'READ_ONLY' : 'ADMIN'
+                return new HttpPatch("${baseUrl}/locations/${locations[locationIndex].id}/access"
+                    + "?userEmail=${friend.email}&accessLevel=${accessLevel}")
+            case 'friends':
+                return new HttpGet("${baseUrl}/locations/${locations[random.nextInt(locations.size())].id}/friends")
+            default:
+                return new HttpGet("${baseUrl}/users/${users[random.nextInt(users.size())].id}/availableLocations")
+        }
+    }
+
+    private static HttpUriRequest json(HttpPost post, Map body) {
+
+        post.entity = new StringEntity(JsonOutput.toJson(body), ContentType.APPLICATION_JSON)
+        return post
+    }
+
+    private void writeReport(Map<String, LatencyRecorder.OperationSummary> summaries) {
+
+        settings.reportFile.parentFile?.mkdirs()
+        settings.reportFile.text = JsonOutput.prettyPrint(JsonOutput.toJson([
+            clients        : settings.clients,
+            warmupSeconds  : settings.warmupSeconds,
+            durationSeconds: settings.durationSeconds,
+            users          : settings.users,
+            locationsPerUser: settings.locationsPerUser,
+            operations     : summaries
+        ]))
+    }
+}
@@ -0,0 +1,109 @@
+package com.klachkova.locationsystem.load
+
+import groovy.json.JsonOutput
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpUriRequest
+import org.springframework.context.ConfigurableApplicationContext
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Side-by-side load test of the read endpoints served by the servlet application and by the reactive read API, run
+ * with {@code ./gradlew loadTest}.
+ * <p>
+ * Both applications are started in-process on the same in-memory H2 database and {@link RedisStandIn}, seeded like
+ * {@link LoadTest}. Each stack in turn is sent the read mix, {@code availableLocations} and {@code friends}, by 256
+ * concurrent clients unless {@code loadTest.clients} is set, with an empty Redis at the start of its warmup. The
+ * servlet application also keeps the available locations in its in-process near cache, the reactive read API only
+ * in Redis. Throughput and latency percentiles of both stacks are printed and written as JSON to
+ * {@code build/reports/load-test/read-stacks.json}.
+ * </p>
+ */
+class ReadStackLoadTest extends Specification {
+
+    static final String READ_MIX = 'availableLocations=50,friends=50'
+
+    @Shared
+    LoadSettings settings = LoadSettings.fromSystemProperties(256, READ_MIX, 'read-stacks.json')
+
+    @Shared
+    RedisStandIn redis
+
+    @Shared
+    ConfigurableApplicationContext servletContext
+
+    @Shared
+    ConfigurableApplicationContext reactiveContext
+
+    @Shared
+    LoadData data
+
+    def setupSpec() {
+
+        redis = new RedisStandIn()
+        servletContext = Applications.startServlet('read-stack-load-test', redis.port)
+        reactiveContext = Applications.startReactive('read-stack-load-test', redis.port)
+        data = LoadData.seed(servletContext, settings)
+    }
+
+    def cleanupSpec() {
+
+        reactiveContext?.close()
+        servletContext?.close()
+        redis?.close()
+    }
+
+    def "Serve the read mix with both stacks"() {
+
+        when: "Concurrent clients send the read mix to each stack in turn"
+            Map<String, Map<String, LatencyRecorder.OperationSummary>> summaries = [
+                servlet : run(Applications.baseUrl(servletContext)),
+                reactive: run(Applications.baseUrl(reactiveContext))
+            ]
+
+        then: "Every request succeeds"
+            summaries.each { String stack, Map<String, LatencyRecorder.OperationSummary> stackSummaries ->
+                LoadDriver.printReport(String.format('%s stack, %d clients, %d s measured after %d s warmup', stack,
+                    settings.clients, settings.durationSeconds, settings.warmupSeconds), stackSummaries)
+            }
+            writeReport(summaries)
+            summaries.values().every { it.keySet() == settings.mixOperations as Set }
+            summaries.values().every { it.values().every { it.failures == 0 } }
+    }
+
+    private Map<String, LatencyRecorder.OperationSummary> run(String baseUrl) {
+
+        redis.clear()
+        return new LoadDriver(settings, { String operation -> request(baseUrl, operation) }).run()
+    }
+
+    private HttpUriRequest request(String baseUrl, String operation) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current()
+        switch (operation) {
+            case 'friends':
+                return new HttpGet("${baseUrl}/locations/${data.locations[random.nextInt(data.locations.size())].id}"
+                    + '/friends')
+            case 'availableLocations':
+                return new HttpGet("${baseUrl}/users/${data.users[random.nextInt(data.users.size())].id}"
+                    + '/availableLocations')
+            default:
+                throw new IllegalArgumentException("${operation} is not a read operation, the mix is ${READ_MIX}")
+        }
+    }
+
+    private void writeReport(Map<String, Map<String, LatencyRecorder.OperationSummary>> summaries) {
+
+        settings.reportFile.parentFile?.mkdirs()
+        settings.reportFile.text = JsonOutput.prettyPrint(JsonOutput.toJson([
+            clients         : settings.clients,
+            warmupSeconds   : settings.warmupSeconds,
+            durationSeconds : settings.durationSeconds,
+            users           : settings.users,
+            locationsPerUser: settings.locationsPerUser,
+            stacks          : summaries
+        ]))
+    }
+}
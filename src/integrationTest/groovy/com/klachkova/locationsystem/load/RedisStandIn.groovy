@@ -0,0 +1,417 @@
+package com.klachkova.locationsystem.load
+
+import groovy.transform.CompileStatic
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.regex.Pattern
+
+/**
+ * In-memory stand-in for a Redis server, enough for the cache and the cache invalidation messages of the application.
+ * <p>
+ * It speaks RESP2 on a local port and implements strings with expiry, key scans and pub/sub. Keys, values and
+ * channels are kept as ISO-8859-1 strings, which map one to one to their bytes. Each connection is served by its own
+ * thread, commands of a connection are answered in order, so pipelining clients work.
+ * </p>
+ */
+@CompileStatic
+class RedisStandIn implements Closeable {
+
+    private final ServerSocket serverSocket
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>()
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>()
+    private final Set<Connection> connections = new CopyOnWriteArraySet<>()
+
+    RedisStandIn() {
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+        Thread acceptor = new Thread({ accept() } as Runnable, 'redis-stand-in')
+        acceptor.daemon = true
+        acceptor.start()
+    }
+
+    int getPort() {
+
+        return serverSocket.localPort
+    }
+
+    /**
+     * Removes all keys, as FLUSHALL.
+     */
+    void clear() {
+
+        entries.clear()
+    }
+
+    @Override
+    void close() {
+
+        serverSocket.close()
+        connections.each { it.close() }
+    }
+
+    private void accept() {
+
+        while (!serverSocket.closed) {
+            Socket socket
+            try {
+                socket = serverSocket.accept()
+            } catch (IOException ignored) {
+                return
+            }
+            socket.tcpNoDelay = true
+            Connection connection = new Connection(socket)
+            connections.add(connection)
+            Thread thread = new Thread({ serve(connection) } as Runnable, 'redis-stand-in-' + socket.port)
+            thread.daemon = true
+            thread.start()
+        }
+    }
+
+    private void serve(Connection connection) {
+
+        try {
+            List<String> command
+            while ((command = connection.readCommand()) != null) {
+                if (!command.empty && !execute(connection, command)) {
+                    break
+                }
+            }
+        } catch (IOException ignored) {
+            // the client went away
+        } finally {
+            subscribers.values().each { it.remove(connection) }
+            connections.remove(connection)
+            connection.close()
+        }
+    }
+
+    /**
+     * @return false if the connection is to be closed
+     */
+    private boolean execute(Connection connection, List<String> command) {
+
+        String name = command[0].toUpperCase(Locale.ROOT)
+        List<String> args = command.subList(1, command.size())
+        switch (name) {
+            case 'PING':
+                connection.simple(args.empty ? 'PONG' : args[0])
+                break
+            case 'ECHO':
+                connection.bulk(args[0])
+                break
+            case 'SELECT':
+            case 'CLIENT':
+                connection.simple('OK')
+                break
+            case 'INFO':
+                connection.bulk('# Server\r\nredis_version:6.2.0\r\nredis_mode:standalone\r\n')
+                break
+            case 'GET':
+                Entry entry = live(args[0])
+                connection.bulk(entry == null ? null : entry.value)
+                break
+            case 'SET':
+                set(connection, args)
+                break
+            case 'SETNX':
+                connection.integer(entries.putIfAbsent(args[0], new Entry(args[1], 0L)) == null ? 1 : 0)
+                break
+            case 'DEL':
+            case 'UNLINK':
+                connection.integer(args.count { entries.remove(it) != null } as long)
+                break
+            case 'EXISTS':
+                connection.integer(args.count { live(it) != null } as long)
+                break
+            case 'EXPIRE':
+            case 'PEXPIRE':
+                expire(connection, args[0], Long.parseLong(args[1]) * (name == 'EXPIRE' ? 1000 : 1))
+                break
+            case 'PTTL':
+                Entry ttlEntry = live(args[0])
+                connection.integer(ttlEntry == null ? -2 : ttlEntry.expiresAt == 0
+                    ? -1 : ttlEntry.expiresAt - System.currentTimeMillis())
+                break
+            case 'KEYS':
+                Pattern pattern = globToRegex(args[0])
+                connection.array(entries.keySet().findAll { live(it) != null && pattern.matcher(it).matches() })
+                break
+            case 'DBSIZE':
+                connection.integer(entries.size())
+                break
+            case 'FLUSHDB':
+            case 'FLUSHALL':
+                entries.clear()
+                connection.simple('OK')
+                break
+            case 'PUBLISH':
+                connection.integer(publish(args[0], args[1]))
+                break
+            case 'SUBSCRIBE':
+                args.each {
+                    subscribers.computeIfAbsent(it) { new CopyOnWriteArraySet<Connection>() }.add(connection)
+                    connection.subscription('subscribe', it, subscriptionCount(connection))
+                }
+                break
+            case 'UNSUBSCRIBE':
+                Collection<String> channels = args.empty
+                    ? subscribers.findAll { it.value.contains(connection) }.keySet() : args
+                channels.each {
+                    subscribers.get(it)?.remove(connection)
+                    connection.subscription('unsubscribe', it, subscriptionCount(connection))
+                }
+                break
+            case 'QUIT':
+                connection.simple('OK')
+                return false
+            default:
+                connection.error("ERR unknown command '${command[0]}'")
+        }
+        return true
+    }
+
+    private void set(Connection connection, List<String> args) {
+
+        long ttl = 0
+        boolean onlyIfAbsent = false
+        boolean onlyIfPresent = false
+        for (int i = 2; i < args.size(); i++) {
+            switch (args[i].toUpperCase(Locale.ROOT)) {
+                case 'EX':
+                    ttl = Long.parseLong(args[++i]) * 1000
+                    break
+                case 'PX':
+                    ttl = Long.parseLong(args[++i])
+                    break
+                case 'NX':
+                    onlyIfAbsent = true
+                    break
+                case 'XX':
+                    onlyIfPresent = true
+                    break
+            }
+        }
+        Entry entry = new Entry(args[1], ttl == 0 ? 0L : System.currentTimeMillis() + ttl)
+        boolean present = live(args[0]) != null
+        if ((onlyIfAbsent && present) || (onlyIfPresent && !present)) {
+            connection.bulk(null)
+            return
+        }
+        entries.put(args[0], entry)
+        connection.simple('OK')
+    }
+
+    private void expire(Connection connection, String key, long millis) {
+
+        Entry entry = live(key)
+        if (entry == null) {
+            connection.integer(0)
+            return
+        }
+        entries.put(key, new Entry(entry.value, System.currentTimeMillis() + millis))
+        connection.integer(1)
+    }
+
+    private long publish(String channel, String message) {
+
+        Set<Connection> receivers = subscribers.get(channel)
+        if (receivers == null) {
+            return 0
+        }
+        receivers.each { it.message(channel, message) }
+        return receivers.size()
+    }
+
+    private long subscriptionCount(Connection connection) {
+
+        return subscribers.values().count { it.contains(connection) } as long
+    }
+
+    private Entry live(String key) {
+
+        Entry entry = entries.get(key)
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry)
+            return null
+        }
+        return entry
+    }
+
+    private static Pattern globToRegex(String glob) {
+
+        StringBuilder regex = new StringBuilder()
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*':
+                    regex.append('.*')
+                    break
+                case '?':
+                    regex.append('.')
+                    break
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)))
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL)
+    }
+
+    private static final class Entry {
+
+        final String value
+        final long expiresAt
+
+        Entry(String value, long expiresAt) {
+
+            this.value = value
+            this.expiresAt = expiresAt
+        }
+    }
+
+    /**
+     * One client connection, replies and pushed messages are written under the connection lock.
+     */
+    private static final class Connection implements Closeable {
+
+        private final Socket socket
+        private final InputStream input
+        private final OutputStream output
+
+        Connection(Socket socket) {
+
+            this.socket = socket
+            this.input = new BufferedInputStream(socket.inputStream)
+            this.output = new BufferedOutputStream(socket.outputStream)
+        }
+
+        /**
+         * Reads a command sent as an array of bulk strings, or as an inline command.
+         *
+         * @return the command and its arguments, null at the end of the stream
+         */
+        List<String> readCommand() throws IOException {
+
+            String line = readLine()
+            if (line == null) {
+                return null
+            }
+            if (!line.startsWith('*')) {
+                return line.trim().split(' +').findAll { !it.empty } as List<String>
+            }
+            int count = Integer.parseInt(line.substring(1))
+            List<String> command = new ArrayList<>(count)
+            for (int i = 0; i < count; i++) {
+                String header = readLine()
+                if (header == null) {
+                    throw new EOFException()
+                }
+                int length = Integer.parseInt(header.substring(1))
+                byte[] bytes = new byte[length]
+                int read = 0
+                while (read < length) {
+                    int n = input.read(bytes, read, length - read)
+                    if (n < 0) {
+                        throw new EOFException()
+                    }
+                    read += n
+                }
+                input.read()
+                input.read()
+                command.add(new String(bytes, StandardCharsets.ISO_8859_1))
+            }
+            return command
+        }
+
+        private String readLine() throws IOException {
+
+            StringBuilder line = new StringBuilder()
+            int c
+            while ((c = input.read()) != -1) {
+                if (c == '\r' as char) {
+                    input.read()
+                    return line.toString()
+                }
+                line.append((char) c)
+            }
+            return line.length() == 0 ? null : line.toString()
+        }
+
+        synchronized void simple(String value) {
+
+            write("+${value}\r\n")
+        }
+
+        synchronized void error(String message) {
+
+            write("-${message}\r\n")
+        }
+
+        synchronized void integer(long value) {
+
+            write(":${value}\r\n")
+        }
+
+        synchronized void bulk(String value) {
+
+            appendBulk(value)
+            output.flush()
+        }
+
+        synchronized void array(Collection<String> values) {
+
+            output.write("*${values.size()}\r\n".getBytes(StandardCharsets.ISO_8859_1))
+            values.each { appendBulk(it) }
+            output.flush()
+        }
+
+        synchronized void subscription(String kind, String channel, long count) {
+
+            output.write("*3\r\n".getBytes(StandardCharsets.ISO_8859_1))
+            appendBulk(kind)
+            appendBulk(channel)
+            write(":${count}\r\n")
+        }
+
+        synchronized void message(String channel, String message) {
+
+            try {
+                output.write("*3\r\n".getBytes(StandardCharsets.ISO_8859_1))
+                appendBulk('message')
+                appendBulk(channel)
+                appendBulk(message)
+                output.flush()
+            } catch (IOException ignored) {
+                // the subscriber went away, its connection thread cleans up
+            }
+        }
+
+        private void appendBulk(String value) {
+
+            if (value == null) {
+                output.write('$-1\r\n'.getBytes(StandardCharsets.ISO_8859_1))
+                return
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1)
+            output.write("\$${bytes.length}\r\n".getBytes(StandardCharsets.ISO_8859_1))
+            output.write(bytes)
+            output.write('\r\n'.getBytes(StandardCharsets.ISO_8859_1))
+        }
+
+        private void write(String reply) {
+
+            output.write(reply.getBytes(StandardCharsets.ISO_8859_1))
+            output.flush()
+        }
+
+        @Override
+        void close() {
+
+            try {
+                socket.close()
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+}
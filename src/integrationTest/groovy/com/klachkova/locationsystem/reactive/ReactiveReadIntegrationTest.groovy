@@ -0,0 +1,159 @@
+package com.klachkova.locationsystem.reactive
+
+import com.klachkova.locationsystem.load.Applications
+import com.klachkova.locationsystem.load.LoadData
+import com.klachkova.locationsystem.load.LoadSettings
+import com.klachkova.locationsystem.load.RedisStandIn
+import groovy.json.JsonSlurper
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPost
+import org.apache.http.client.methods.HttpUriRequest
+import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.util.EntityUtils
+import org.springframework.context.ConfigurableApplicationContext
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Checks that the reactive read API answers like the servlet application, both started in-process on the same
+ * database and Redis.
+ */
+class ReactiveReadIntegrationTest extends Specification {
+
+    @Shared
+    RedisStandIn redis
+
+    @Shared
+    ConfigurableApplicationContext servletContext
+
+    @Shared
+    ConfigurableApplicationContext reactiveContext
+
+    @Shared
+    String servletUrl
+
+    @Shared
+    String reactiveUrl
+
+    @Shared
+    LoadData data
+
+    @Shared
+    CloseableHttpClient client = HttpClients.createDefault()
+
+    def setupSpec() {
+
+        redis = new RedisStandIn()
+        servletContext = Applications.startServlet('reactive-read-test', redis.port)
+        reactiveContext = Applications.startReactive('reactive-read-test', redis.port)
+        servletUrl = Applications.baseUrl(servletContext)
+        reactiveUrl = Applications.baseUrl(reactiveContext)
+        data = LoadData.seed(servletContext, new LoadSettings(users: 4, locationsPerUser: 3))
+    }
+
+    def cleanupSpec() {
+
+        client?.close()
+        reactiveContext?.close()
+        servletContext?.close()
+        redis?.close()
+    }
+
+    def "The reactive read API does not start on a database without the schema"() {
+
+        when:
+            Applications.startReactive('reactive-read-empty', redis.port).close()
+
+        then:
+            def e = thrown(IllegalStateException)
+            e.cause.message.startsWith('No location schema at r2dbc:h2:mem:///reactive-read-empty')
+    }
+
+    def "Available locations are answered like the servlet application"() {
+
+        given:
+            def path = "/users/${data.users[1].id}/availableLocations"
+
+        when:
+            def reactive = get(reactiveUrl + path)
+            def cached = get(reactiveUrl + path)
+
+        then:
+            reactive.status == 200
+            reactive.body[0]*.name == ['Location 3', 'Location 4', 'Location 5']
+            reactive.body[1]*.name == ['Location 0', 'Location 1', 'Location 2']
+            reactive.body[1]*.owner*.email == ['user0@example.com'] * 3
+            reactive == get(servletUrl + path)
+            cached == reactive
+    }
+
+    def "An unknown user is answered with 404 like the servlet application"() {
+
+        when:
+            def reactive = get(reactiveUrl + '/users/999999/availableLocations')
+            def servlet = get(servletUrl + '/users/999999/availableLocations')
+
+        then:
+            reactive.status == 404
+            reactive.body.message == 'User not found with ID: 999999'
+            reactive.body.path == '/api/users/999999/availableLocations'
+            reactive.body.subMap('status', 'error', 'message') == servlet.body.subMap('status', 'error', 'message')
+    }
+
+    def "Friends of a location are answered like the servlet application"() {
+
+        given:
+            def path = "/locations/${data.locations[0].id}/friends"
+
+        expect:
+            get(reactiveUrl + path) == get(servletUrl + path)
+            get(reactiveUrl + path).body*.email == ['user1@example.com']
+            get(reactiveUrl + '/locations/999999/friends').status == 204
+    }
+
+    def "A share through the servlet application evicts the cache entry read by the reactive read API"() {
+
+        given:
+            def user = data.users[3]
+            def path = "/users/${user.id}/availableLocations"
+            def before = get(reactiveUrl + path)
+
+        when:
+            execute(new HttpPost("${servletUrl}/locations/${data.locations[3].id}/share"
+                + "?userEmail=${user.email}&accessLevel=READ_ONLY"))
+
+        then:
+            before.body[1]*.name == ['Location 6', 'Location 7', 'Location 8']
+            eventually { get(reactiveUrl + path).body[1]*.name == ['Location 3', 'Location 6', 'Location 7', 'Location 8'] }
+    }
+
+    private Map get(String url) {
+
+        return execute(new HttpGet(url))
+    }
+
+    private Map execute(HttpUriRequest request) {
+
+        def response = client.execute(request)
+        try {
+            String body = response.entity == null ? '' : EntityUtils.toString(response.entity)
+            boolean json = response.getFirstHeader('Content-Type')?.value?.contains('json')
+            return [status: response.statusLine.statusCode, body: json && body ? new JsonSlurper().parseText(body) : body]
+        } finally {
+            response.close()
+        }
+    }
+
+    private static boolean eventually(Closure<Boolean> condition) {
+
+        long deadline = System.currentTimeMillis() + 5000
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false
+            }
+            Thread.sleep(50)
+        }
+        return true
+    }
+}
@@ -0,0 +1,165 @@
+package com.klachkova.locationsystem.services;
+
+import com.klachkova.locationsystem.LocationSystemApplication;
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.modeles.AccessLevel;
+import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.modeles.LocationAccess;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.LocationAccessRepository;
+import com.klachkova.locationsystem.repositories.LocationRepository;
+import com.klachkova.locationsystem.repositories.UserRepository;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.Advised;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LocationService#getAvailableLocations(int)} against an in-memory H2 database seeded with a thousand
+ * users, each owning {@code locationsPerUser} locations and having as many shared with them.
+ * <p>
+ * {@code database} calls the service object behind its proxies, so every call runs the query and converts the rows.
+ * {@code databaseAsync} calls {@link LocationService#getAvailableLocationsAsync(int)} after evicting the user from the
+ * cache, so every call runs the owned and shared location queries in parallel.
+ * {@code cached} calls it through its proxies, with the available locations of every user loaded in the in-memory tier
+ * of the cache during setup, so Redis is not reached during the measurement.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AvailableLocationsBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"10", "100"})
+    private int locationsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private LocationService locationService;
+    private LocationService uncachedLocationService;
+    private int[] userIds;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        context = new SpringApplicationBuilder(LocationSystemApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:available-locations-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN",
+                "cache.local.ttl=3600")
+            .run();
+        locationService = context.getBean(LocationService.class);
+        uncachedLocationService = (LocationService) ((Advised) locationService).getTargetSource().getTarget();
+        seed();
+        for (int userId : userIds) {
+            locationService.getAvailableLocations(userId);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    @Benchmark
+    public List<List<LocationDTO>> database() {
+
+        return uncachedLocationService.getAvailableLocations(randomUserId());
+    }
+
+    @Benchmark
+    public List<List<LocationDTO>> databaseAsync(EvictedUser user) {
+
+        return locationService.getAvailableLocationsAsync(user.userId).join();
+    }
+
+    @Benchmark
+    public List<List<LocationDTO>> cached() {
+
+        return locationService.getAvailableLocations(randomUserId());
+    }
+
+    private int randomUserId() {
+
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    /**
+     * A random user, evicted from the cache before each call.
+     */
+    @State(Scope.Thread)
+    public static class EvictedUser {
+
+        private int userId;
+
+        @Setup(Level.Invocation)
+        public void evict(AvailableLocationsBenchmark benchmark) {
+
+            userId = benchmark.randomUserId();
+            benchmark.context.getBean(CacheManager.class).getCache(CacheNames.AVAILABLE_LOCATIONS).evict(userId);
+        }
+    }
+
+    /**
+     * Gives each user {@code locationsPerUser} locations, shared with the next user at alternating access levels.
+     */
+    private void seed() {
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com"));
+        }
+        users = context.getBean(UserRepository.class).saveAll(users);
+        userIds = users.stream().mapToInt(User::getId).toArray();
+
+        LocationRepository locationRepository = context.getBean(LocationRepository.class);
+        LocationAccessRepository locationAccessRepository = context.getBean(LocationAccessRepository.class);
+        List<Location> locations = new ArrayList<>(BATCH_SIZE);
+        int total = USERS * locationsPerUser;
+        for (int i = 0; i < total; i++) {
+            String address = String.format("%d Main St, Springfield, IL, %05d", i % 100_000 + 1, i / 100_000 + 1);
+            locations.add(new Location(null, "Location " + i, address, users.get(i / locationsPerUser)));
+            if (locations.size() == BATCH_SIZE || i == total - 1) {
+                List<Location> saved = locationRepository.saveAll(locations);
+                List<LocationAccess> accesses = new ArrayList<>(saved.size());
+                int first = i + 1 - saved.size();
+                for (int j = 0; j < saved.size(); j++) {
+                    int owner = (first + j) / locationsPerUser;
+                    accesses.add(new LocationAccess(users.get((owner + 1) % USERS), saved.get(j),
+                        j % 2 == 0 ? AccessLevel.READ_ONLY : AccessLevel.ADMIN));
+                }
+                locationAccessRepository.saveAll(accesses);
+                locations.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.klachkova.locationsystem.services;
+
+import com.klachkova.locationsystem.LocationSystemApplication;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.LocationRepository;
+import com.klachkova.locationsystem.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link LocationImportService} on an import of one million locations.
+ * <p>
+ * The application runs against an in-memory H2 database. Redis is not needed: without it the circuit breaker opens
+ * and cache evictions are only remembered. The input is generated while it is read, so its size does not count
+ * against the heap.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LocationImportBenchmark {
+
+    private static final int LOCATIONS = 1_000_000;
+    private static final int OWNERS = 1_000;
+
+    @Param({"1", "4"})
+    private int validationThreads;
+
+    private ConfigurableApplicationContext context;
+    private LocationImportService locationImportService;
+    private LocationRepository locationRepository;
+
+    @Setup
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(LocationSystemApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:import-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN",
+                "locations.import.validation-threads=" + validationThreads)
+            .run();
+        locationImportService = context.getBean(LocationImportService.class);
+        locationRepository = context.getBean(LocationRepository.class);
+
+        List<User> owners = new ArrayList<>(OWNERS);
+        for (int i = 0; i < OWNERS; i++) {
+            owners.add(new User("Owner " + i, "owner" + i + "@example.com"));
+        }
+        context.getBean(UserRepository.class).saveAll(owners);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteLocations() {
+
+        locationRepository.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOCATIONS)
+    public void importLocations() throws Exception {
+
+        locationImportService.importLocations(new GeneratedLocations(LOCATIONS, OWNERS), new DiscardingOutputStream());
+    }
+
+    /**
+     * Drops the import results, only the time to produce them is measured.
+     */
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+
+        }
+    }
+
+    /**
+     * NDJSON stream of valid locations with distinct addresses, spread over the seeded owners.
+     */
+    private static final class GeneratedLocations extends InputStream {
+
+        private final int count;
+        private final int owners;
+        private int next;
+        private byte[] line = new byte[0];
+        private int position;
+
+        GeneratedLocations(int count, int owners) {
+
+            this.count = count;
+            this.owners = owners;
+        }
+
+        @Override
+        public int read() {
+
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            return line[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+
+            if (length == 0) {
+                return 0;
+            }
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            int read = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        private boolean nextLine() {
+
+            if (next == count) {
+                return false;
+            }
+            int street = next / 100_000 + 1;
+            String address = String.format("%d Main St, Springfield, IL, %05d", next % 100_000 + 1, street);
+            line = ("{\"name\":\"Location " + next + "\",\"address\":\"" + address + "\",\"owner\":{\"email\":\"owner"
+                + next % owners + "@example.com\"}}\n").getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            next++;
+            return true;
+        }
+    }
+}
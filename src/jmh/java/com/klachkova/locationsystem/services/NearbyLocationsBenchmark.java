@@ -0,0 +1,181 @@
+package com.klachkova.locationsystem.services;
+
+import com.klachkova.locationsystem.LocationSystemApplication;
+import com.klachkova.locationsystem.dto.NearbyLocationDTO;
+import com.klachkova.locationsystem.modeles.AccessLevel;
+import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.modeles.LocationAccess;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.LocationAccessRepository;
+import com.klachkova.locationsystem.repositories.LocationRepository;
+import com.klachkova.locationsystem.repositories.UserRepository;
+import com.klachkova.locationsystem.util.geo.ZipCentroids;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search of the available locations near a ZIP code against an in-memory H2 database seeded with one
+ * million locations, owned by a thousand users and each shared with the next user.
+ * <p>
+ * The centroid table holds about as many random ZIP codes as the Census Gazetteer file, spread uniformly over the
+ * contiguous US, and is loaded by the application from a temporary file. Each location is in a random ZIP code of the
+ * table, and every search is centered on the same ZIP code, for a random user.
+ * </p>
+ * <p>
+ * {@code repository} runs the owned and shared location queries of {@link LocationRepository} on the ZIP codes within
+ * the radius, with the {@code zip_code} IN lists of {@link LocationService#getAvailableLocationsNear}: one pair of
+ * queries per {@link LocationService#ZIP_CODES_PER_QUERY} ZIP codes. {@code service} calls that method, which adds the
+ * resolution of the ZIP codes within the radius and the distance check of every candidate.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NearbyLocationsBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int LOCATIONS = 1_000_000;
+    private static final int ZIP_CODES = 33_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"10", "50", "200"})
+    private double radiusKm;
+
+    private Path zipCentroidsFile;
+    private ConfigurableApplicationContext context;
+    private LocationService locationService;
+    private LocationRepository locationRepository;
+    private List<String> zipCodes;
+    private String centerZipCode;
+    private List<String> zipCodesWithin;
+    private int[] userIds;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        Random random = new Random(42);
+        zipCodes = new ArrayList<>(ZIP_CODES);
+        List<String> table = new ArrayList<>(ZIP_CODES + 1);
+        table.add("GEOID\tINTPTLAT\tINTPTLONG");
+        for (int zip = 0; zip < 100_000; zip++) {
+            if (random.nextInt(100_000 - zip) < ZIP_CODES - zipCodes.size()) {
+                String zipCode = String.format("%05d", zip);
+                zipCodes.add(zipCode);
+                table.add(String.format(Locale.ROOT, "%s\t%.6f\t%.6f", zipCode,
+                    25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57));
+            }
+        }
+        zipCentroidsFile = Files.createTempFile("zip-centroids", ".txt");
+        Files.write(zipCentroidsFile, table, StandardCharsets.UTF_8);
+
+        context = new SpringApplicationBuilder(LocationSystemApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:nearby-locations-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN",
+                "locations.geo.zip-centroids=" + zipCentroidsFile.toUri())
+            .run();
+        locationService = context.getBean(LocationService.class);
+        locationRepository = context.getBean(LocationRepository.class);
+        seed(random);
+
+        ZipCentroids zipCentroids = context.getBean(ZipCentroids.class);
+        centerZipCode = zipCodes.get(random.nextInt(zipCodes.size()));
+        zipCodesWithin = zipCentroids.findZipCodesWithin(zipCentroids.find(centerZipCode), radiusKm);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+
+        context.close();
+        Files.deleteIfExists(zipCentroidsFile);
+    }
+
+    @Benchmark
+    public int repository() {
+
+        int userId = randomUserId();
+        int found = 0;
+        for (int from = 0; from < zipCodesWithin.size(); from += LocationService.ZIP_CODES_PER_QUERY) {
+            List<String> batch = zipCodesWithin.subList(from,
+                Math.min(from + LocationService.ZIP_CODES_PER_QUERY, zipCodesWithin.size()));
+            found += locationRepository.findOwnLocationsInZipCodes(userId, batch).size();
+            found += locationRepository.findSharedLocationsInZipCodes(userId, batch).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<NearbyLocationDTO> service() {
+
+        return locationService.getAvailableLocationsNear(randomUserId(), centerZipCode, radiusKm);
+    }
+
+    private int randomUserId() {
+
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    /**
+     * Gives each user {@code LOCATIONS / USERS} locations in random ZIP codes of the table, shared with the next user.
+     */
+    private void seed(Random random) {
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com"));
+        }
+        users = context.getBean(UserRepository.class).saveAll(users);
+        userIds = users.stream().mapToInt(User::getId).toArray();
+
+        LocationAccessRepository locationAccessRepository = context.getBean(LocationAccessRepository.class);
+        int locationsPerUser = LOCATIONS / USERS;
+        List<Location> locations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < LOCATIONS; i++) {
+            String address = String.format("%d Main St, Springfield, IL, %s", i + 1,
+                zipCodes.get(random.nextInt(zipCodes.size())));
+            locations.add(new Location(null, "Location " + i, address, users.get(i / locationsPerUser)));
+            if (locations.size() == BATCH_SIZE || i == LOCATIONS - 1) {
+                List<Location> saved = locationRepository.saveAll(locations);
+                List<LocationAccess> accesses = new ArrayList<>(saved.size());
+                int first = i + 1 - saved.size();
+                for (int j = 0; j < saved.size(); j++) {
+                    int owner = (first + j) / locationsPerUser;
+                    accesses.add(new LocationAccess(users.get((owner + 1) % USERS), saved.get(j),
+                        AccessLevel.READ_ONLY));
+                }
+                locationAccessRepository.saveAll(accesses);
+                locations.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.klachkova.locationsystem.util.address;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link USAddressParser} with the regex it replaced, for validation alone and for extracting the
+ * components.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rates.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class USAddressParserBenchmark {
+
+    private static final Pattern US_ADDRESS_PATTERN = Pattern.compile(
+        "^(\\d+)\\s([\\w\\s]+),\\s([\\w\\s]+),\\s([A-Z]{2}),\\s(\\d{5})(-\\d{4})?$");
+
+    @Param({
+        "123 Main St, Springfield, IL, 62704",
+        "4512 North Lincoln Park West Avenue, Salt Lake City, UT, 84101-1234",
+        "123 Main St, Springfield, Illinois, 62704"
+    })
+    private String address;
+
+    @Benchmark
+    public boolean regexIsValid() {
+
+        return US_ADDRESS_PATTERN.matcher(address).matches();
+    }
+
+    @Benchmark
+    public boolean parserIsValid() {
+
+        return USAddressParser.isValid(address);
+    }
+
+    @Benchmark
+    public ParsedAddress regexParse() {
+
+        Matcher matcher = US_ADDRESS_PATTERN.matcher(address);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String zipCode = matcher.group(6) == null ? matcher.group(5) : matcher.group(5) + matcher.group(6);
+        return new ParsedAddress(matcher.group(1) + " " + matcher.group(2).trim(), matcher.group(3).trim(),
+            matcher.group(4), zipCode);
+    }
+
+    @Benchmark
+    public ParsedAddress parserParse() {
+
+        return USAddressParser.parse(address);
+    }
+}
@@ -0,0 +1,145 @@
+package com.klachkova.locationsystem.util.cache;
+
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and the compact binary format of a cached {@code availableLocations} value.
+ * <p>
+ * The encoded size of each configuration is reported by {@link #encodedSize(EncodedSize)} as its {@code bytes}
+ * secondary result, so it is written to the results file next to the timings and compared across runs.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheValueSerializerBenchmark {
+
+    /**
+     * number of locations in the cached value, half owned and half shared
+     */
+    @Param({"10", "100", "1000"})
+    private int locations;
+
+    /**
+     * number of distinct owners of the shared locations
+     */
+    @Param({"1", "10"})
+    private int owners;
+
+    @Param({"json", "binary", "binary-deflate"})
+    private String format;
+
+    private RedisSerializer<Object> serializer;
+    private List<List<LocationDTO>> value;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        switch (format) {
+            case "json":
+                serializer = jsonSerializer;
+                break;
+            case "binary":
+                serializer = new CompactCacheValueSerializer(jsonSerializer, -1);
+                break;
+            default:
+                serializer = new CompactCacheValueSerializer(jsonSerializer, 512);
+        }
+        value = availableLocations(locations, owners);
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * Encodes the value once. Events are summed over iterations and threads, so a single shot of one iteration on
+     * one thread reports the encoded size itself.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Threads(1)
+    public void encodedSize(EncodedSize encodedSize) {
+
+        encodedSize.bytes = serializer.serialize(value).length;
+    }
+
+    /**
+     * Reports the encoded size of the value as the {@code bytes} secondary result of {@link #encodedSize(EncodedSize)}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public long bytes;
+    }
+
+    private static List<List<LocationDTO>> availableLocations(int locations, int owners) {
+
+        UserDTO user = user(0);
+        List<LocationDTO> ownLocations = new ArrayList<>();
+        List<LocationDTO> sharedLocations = new ArrayList<>();
+        for (int i = 0; i < locations; i++) {
+            if (i % 2 == 0) {
+                ownLocations.add(location(i, user));
+            } else {
+                sharedLocations.add(location(i, user(1 + i % owners)));
+            }
+        }
+        return Arrays.asList(ownLocations, sharedLocations);
+    }
+
+    private static UserDTO user(int index) {
+
+        UserDTO user = new UserDTO();
+        user.setName("User " + index);
+        user.setEmail("user" + index + "@example.com");
+        return user;
+    }
+
+    private static LocationDTO location(int index, UserDTO owner) {
+
+        LocationDTO location = new LocationDTO();
+        location.setName("Location " + index);
+        location.setAddress(index + " Main Street, Springfield, IL 62704");
+        location.setOwner(owner);
+        return location;
+    }
+}
@@ -0,0 +1,122 @@
+package com.klachkova.locationsystem.util.converters;
+
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.projections.LocationView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions between entities, projections and DTOs done on every request, through
+ * {@link LocationMapper} and {@link UserMapper} or by hand for projections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    private LocationConverter locationConverter;
+    private UserConverter userConverter;
+    private User user;
+    private UserDTO userDTO;
+    private Location location;
+    private LocationDTO locationDTO;
+    private LocationView locationView;
+
+    @Setup
+    public void setUp() {
+
+        locationConverter = new LocationConverter();
+        userConverter = new UserConverter();
+        user = new User("Jane Doe", "jane.doe@example.com");
+        user.setId(1);
+        userDTO = new UserDTO("Jane Doe", "jane.doe@example.com");
+        location = new Location(1, "Home", "123 Main St, Springfield, IL, 62704", user);
+        locationDTO = new LocationDTO();
+        locationDTO.setName("Home");
+        locationDTO.setAddress("123 Main St, Springfield, IL, 62704");
+        locationDTO.setOwner(userDTO);
+        locationView = new StaticLocationView();
+    }
+
+    @Benchmark
+    public UserDTO userToDto() {
+
+        return userConverter.convertToDto(user);
+    }
+
+    @Benchmark
+    public User userToEntity() {
+
+        return userConverter.convertToEntity(userDTO);
+    }
+
+    @Benchmark
+    public LocationDTO locationToDto() {
+
+        return locationConverter.convertToDto(location);
+    }
+
+    @Benchmark
+    public Location locationToEntity() {
+
+        return locationConverter.convertToEntity(locationDTO);
+    }
+
+    @Benchmark
+    public LocationDTO locationViewToDto() {
+
+        return locationConverter.convertToDto(locationView);
+    }
+
+    /**
+     * Stands in for the projection Spring Data returns, without its proxy overhead.
+     */
+    private static final class StaticLocationView implements LocationView {
+
+        @Override
+        public Integer getId() {
+
+            return 1;
+        }
+
+        @Override
+        public String getName() {
+
+            return "Home";
+        }
+
+        @Override
+        public String getAddress() {
+
+            return "123 Main St, Springfield, IL, 62704";
+        }
+
+        @Override
+        public String getOwnerName() {
+
+            return "Jane Doe";
+        }
+
+        @Override
+        public String getOwnerEmail() {
+
+            return "jane.doe@example.com";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.klachkova.locationsystem.util.exceptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the error path of a not-found request: an exception thrown deep in the call stack and caught at the top,
+ * like the controller advice does, with the stackless {@link NotFoundException} and with a plain exception that
+ * fills in its stack trace.
+ * <p>
+ * A request through the servlet container, the Spring MVC dispatcher, the proxies and the repositories is well over
+ * 100 frames deep. Run with {@code -prof gc} to compare the allocation rates.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationExceptionBenchmark {
+
+    @Param({"20", "150"})
+    private int depth;
+
+    @Benchmark
+    public String stackless() {
+
+        try {
+            return throwAt(depth, true);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String withStackTrace() {
+
+        try {
+            return throwAt(depth, false);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    private static String throwAt(int depth, boolean stackless) {
+
+        if (depth > 0) {
+            return throwAt(depth - 1, stackless);
+        }
+        String message = "Location with ID " + depth + " not found";
+        if (stackless) {
+            throw new NotFoundException(message);
+        }
+        throw new StackTraceNotFoundException(message);
+    }
+
+    /**
+     * {@link NotFoundException} as it was before it became stackless.
+     */
+    private static class StackTraceNotFoundException extends RuntimeException {
+
+        StackTraceNotFoundException(String message) {
+
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.klachkova.locationsystem.util.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a proximity search over the locations of a user by a scan of every location with the search on ZIP codes
+ * used by {@code LocationService.getAvailableLocationsNear}.
+ * <p>
+ * The centroid table holds about as many random ZIP codes as the Census Gazetteer file, spread uniformly over the
+ * contiguous US, and each location is in a random ZIP code of the table. The ZIP code search resolves the ZIP codes
+ * within the radius from the table, then reads their locations from a map, like the index lookups on the ZIP code,
+ * followed by the exact distance check on the candidates. Both searches run in memory, the database queries of the ZIP
+ * code search are measured by {@code NearbyLocationsBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearbySearchBenchmark {
+
+    private static final GeoPoint CENTER = new GeoPoint(39.772, -89.688);
+
+    @Param({"1000000"})
+    private int locations;
+
+    @Param({"33000"})
+    private int zipCodes;
+
+    @Param({"10", "50", "200"})
+    private double radiusKm;
+
+    private ZipCentroids zipCentroids;
+    private String[] zipCodeOfLocation;
+    private Map<String, List<Integer>> locationsByZipCode;
+
+    @Setup
+    public void setUp() {
+
+        Random random = new Random(42);
+        StringBuilder table = new StringBuilder("GEOID\tINTPTLAT\tINTPTLONG\n");
+        List<String> knownZipCodes = new ArrayList<>(zipCodes);
+        for (int zip = 0; zip < 100_000; zip++) {
+            if (random.nextInt(100_000 - zip) < zipCodes - knownZipCodes.size()) {
+                String zipCode = String.format("%05d", zip);
+                knownZipCodes.add(zipCode);
+                table.append(String.format(Locale.ROOT, "%s\t%.6f\t%.6f\n", zipCode,
+                    25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57));
+            }
+        }
+        zipCentroids = new ZipCentroids(new ByteArrayResource(table.toString().getBytes(StandardCharsets.UTF_8)));
+        zipCodeOfLocation = new String[locations];
+        locationsByZipCode = new HashMap<>();
+        for (int i = 0; i < locations; i++) {
+            zipCodeOfLocation[i] = knownZipCodes.get(random.nextInt(knownZipCodes.size()));
+            locationsByZipCode.computeIfAbsent(zipCodeOfLocation[i], zipCode -> new ArrayList<>()).add(i);
+        }
+        if (scan() != zipCodesWithin()) {
+            throw new IllegalStateException("The searches disagree");
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+
+        int found = 0;
+        for (String zipCode : zipCodeOfLocation) {
+            if (CENTER.distanceKm(zipCentroids.find(zipCode)) <= radiusKm) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int zipCodesWithin() {
+
+        int found = 0;
+        for (String zipCode : zipCentroids.findZipCodesWithin(CENTER, radiusKm)) {
+            for (int location : locationsByZipCode.getOrDefault(zipCode, new ArrayList<>())) {
+                if (CENTER.distanceKm(zipCentroids.find(zipCodeOfLocation[location])) <= radiusKm) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+}
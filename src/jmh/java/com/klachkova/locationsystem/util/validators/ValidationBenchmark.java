@@ -0,0 +1,108 @@
+package com.klachkova.locationsystem.util.validators;
+
+import com.klachkova.locationsystem.modeles.AccessLevel;
+import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.modeles.LocationAccess;
+import com.klachkova.locationsystem.modeles.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the constraint validators on their own and the Bean Validation of whole entities, as done by
+ * {@code LocationService.validateLocation} before a location is saved.
+ * <p>
+ * An invalid location is measured as well, interpolating the messages of its violations is most of the cost.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final String VALID_ADDRESS = "123 Main St, Springfield, IL, 62704";
+    private static final String INVALID_ADDRESS = "123 Main St, Springfield, Illinois";
+
+    private USAddressValidator usAddressValidator;
+    private AccessLevelValidator accessLevelValidator;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private Location validLocation;
+    private Location invalidLocation;
+    private LocationAccess locationAccess;
+
+    @Setup
+    public void setUp() {
+
+        usAddressValidator = new USAddressValidator();
+        accessLevelValidator = new AccessLevelValidator();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        User owner = new User("Jane Doe", "jane.doe@example.com");
+        validLocation = new Location(null, "Home", VALID_ADDRESS, owner);
+        invalidLocation = new Location(null, "H", INVALID_ADDRESS, owner);
+        locationAccess = new LocationAccess(new User("John Doe", "john.doe@example.com"), validLocation,
+            AccessLevel.READ_ONLY);
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean validAddress() {
+
+        return usAddressValidator.isValid(VALID_ADDRESS, null);
+    }
+
+    @Benchmark
+    public boolean invalidAddress() {
+
+        return usAddressValidator.isValid(INVALID_ADDRESS, null);
+    }
+
+    @Benchmark
+    public boolean accessLevel() {
+
+        return accessLevelValidator.isValid(AccessLevel.ADMIN, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Location>> validateValidLocation() {
+
+        return validator.validate(validLocation);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Location>> validateInvalidLocation() {
+
+        return validator.validate(invalidLocation);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<LocationAccess>> validateLocationAccess() {
+
+        return validator.validate(locationAccess);
+    }
+}
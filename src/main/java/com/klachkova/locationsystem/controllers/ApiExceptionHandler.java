@@ -0,0 +1,69 @@
+package com.klachkova.locationsystem.controllers;
+
+import com.klachkova.locationsystem.dto.ErrorDTO;
+import com.klachkova.locationsystem.util.exceptions.ApplicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+/**
+ * Maps the exceptions thrown by the controllers to error responses with an {@link ErrorDTO} body.
+ * <p>
+ * {@link ApplicationException}s are expected client errors and answered with their status without logging. Spring
+ * MVC exceptions, such as a missing request parameter, keep the status chosen by
+ * {@link ResponseEntityExceptionHandler}. Any other exception is logged and answered with 500.
+ * </p>
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    @ExceptionHandler(ApplicationException.class)
+    public ResponseEntity<Object> handleApplicationException(ApplicationException e, WebRequest request) {
+
+        return errorResponse(e.getStatus(), e.getMessage(), request);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Object> handleUnexpectedException(Exception e, WebRequest request) {
+
+        log.error("Unexpected error on {}", path(request), e);
+        return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred", request);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(
+        Exception e,
+        Object body,
+        HttpHeaders headers,
+        HttpStatus status,
+        WebRequest request
+    ) {
+
+        ResponseEntity<Object> response = super.handleExceptionInternal(e, body, headers, status, request);
+        return new ResponseEntity<>(error(status, e.getMessage(), request), response.getHeaders(), status);
+    }
+
+    private static ResponseEntity<Object> errorResponse(HttpStatus status, String message, WebRequest request) {
+
+        return new ResponseEntity<>(error(status, message, request), status);
+    }
+
+    private static ErrorDTO error(HttpStatus status, String message, WebRequest request) {
+
+        return new ErrorDTO(status.value(), status.getReasonPhrase(), message, path(request));
+    }
+
+    private static String path(WebRequest request) {
+
+        return request instanceof ServletWebRequest ? ((ServletWebRequest) request).getRequest().getRequestURI() : null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.klachkova.locationsystem.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams the NDJSON results of a bulk import back to the client.
+ * <p>
+ * A bulk import can take minutes, far longer than the default async request timeout, which has to stay short for
+ * the other asynchronous endpoints. The results are therefore sent through a {@link ResponseBodyEmitter} with its own
+ * timeout, set by {@code imports.timeout}. The import runs on the MVC task executor, like a
+ * {@link StreamingResponseBody} would, and every flush of its output sends the bytes written since the previous one.
+ * </p>
+ */
+@Component
+public class ImportResultStreamer {
+
+    private final TaskExecutor taskExecutor;
+    private final long timeout;
+
+    public ImportResultStreamer(
+        TaskExecutor taskExecutor,
+        @Value("${imports.timeout:600000}") long timeout
+    ) {
+
+        this.taskExecutor = taskExecutor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs an import and streams what it writes as the NDJSON body of the response.
+     *
+     * @param importResults the import, writing one NDJSON result per line to the given output
+     * @return a ResponseEntity emitting the import results
+     */
+    public ResponseEntity<ResponseBodyEmitter> stream(StreamingResponseBody importResults) {
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+        taskExecutor.execute(() -> {
+            try (OutputStream output = new EmitterOutputStream(emitter)) {
+                importResults.writeTo(output);
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+                return;
+            }
+            emitter.complete();
+        });
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(emitter);
+    }
+
+    /**
+     * Buffers the bytes written between two flushes and sends them to the emitter as one NDJSON chunk.
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private EmitterOutputStream(ResponseBodyEmitter emitter) {
+
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) {
+
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+            buffer.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (buffer.size() == 0) {
+                return;
+            }
+            try {
+                emitter.send(buffer.toByteArray(), MediaType.APPLICATION_NDJSON);
+            } catch (IllegalStateException e) {
+                throw new IOException("Import response already completed", e);
+            }
+            buffer.reset();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            flush();
+        }
+    }
+}
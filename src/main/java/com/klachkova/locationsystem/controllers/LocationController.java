@@ -3,12 +3,17 @@ package com.klachkova.locationsystem.controllers;
 import com.klachkova.locationsystem.dto.*;
 import com.klachkova.locationsystem.modeles.*;
 import com.klachkova.locationsystem.services.*;
-import com.klachkova.locationsystem.util.exceptions.ApplicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -16,42 +21,61 @@ import java.util.List;
  * <p>
  * Provides endpoints for registering locations, sharing locations with users,
  * updating access levels, and retrieving all friends associated with a location.
+ * Errors are answered by {@link ApiExceptionHandler}.
  * </p>
  */
 @RestController
 @RequestMapping("/api/locations")
 public class LocationController {
 
+    private static final Logger log = LoggerFactory.getLogger(LocationController.class);
+
     private final LocationService locationService;
     private final LocationAccessService locationAccessService;
+    private final LocationImportService locationImportService;
+    private final ImportResultStreamer importResultStreamer;
 
     @Autowired
     public LocationController(
         LocationService locationService,
-        LocationAccessService locationAccessService
+        LocationAccessService locationAccessService,
+        LocationImportService locationImportService,
+        ImportResultStreamer importResultStreamer
     ) {
 
         this.locationService = locationService;
         this.locationAccessService = locationAccessService;
+        this.locationImportService = locationImportService;
+        this.importResultStreamer = importResultStreamer;
     }
 
     /**
      * Registers a new location.
      *
      * @param locationDTO the location data transfer object containing location details
-     * @return a ResponseEntity with the registered location data or an error message
+     * @return a ResponseEntity with the registered location data
      */
     @PostMapping()
-    public ResponseEntity<?> registerLocation(@RequestBody LocationDTO locationDTO) {
-
-        try {
-            LocationDTO registeredLocationDTO = locationService.registerLocation(locationDTO);
-            return new ResponseEntity<>(registeredLocationDTO, HttpStatus.CREATED);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public ResponseEntity<LocationDTO> registerLocation(@RequestBody LocationDTO locationDTO) {
+
+        LocationDTO registeredLocationDTO = locationService.registerLocation(locationDTO);
+        return new ResponseEntity<>(registeredLocationDTO, HttpStatus.CREATED);
+    }
+
+    /**
+     * Imports locations in bulk from an NDJSON body, one location per line.
+     * <p>
+     * The body is read while the response is written, the result of each line is streamed back as NDJSON, within the
+     * import timeout of {@link ImportResultStreamer}.
+     * </p>
+     *
+     * @param locations the NDJSON stream of locations
+     * @return a ResponseEntity streaming one import result per non-blank line
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> importLocations(InputStream locations) {
+
+        return importResultStreamer.stream(output -> locationImportService.importLocations(locations, output));
     }
 
     /**
@@ -60,25 +84,35 @@ public class LocationController {
      * @param id          the ID of the location to be shared
      * @param userEmail   the email of the user with whom the location is to be shared
      * @param accessLevel the access level to be granted to the user
-     * @return a ResponseEntity with a success message or an error message
+     * @return a ResponseEntity with a success message
      */
     @PostMapping("/{id}/share")
-    public ResponseEntity<?> shareLocation(
+    public ResponseEntity<String> shareLocation(
         @PathVariable("id") int id,
         @RequestParam("userEmail") String userEmail,
         @RequestParam("accessLevel") AccessLevel accessLevel
     ) {
 
-        try {
-            System.out.println("locationController sharing " + id + userEmail + accessLevel);
-            locationAccessService.shareLocation(id, userEmail, accessLevel);
-            return new ResponseEntity<>("Location shared successfully", HttpStatus.OK);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        log.debug("Sharing location locationId={} userEmail={} accessLevel={}", id, userEmail, accessLevel);
+        locationAccessService.shareLocation(id, userEmail, accessLevel);
+        return new ResponseEntity<>("Location shared successfully", HttpStatus.OK);
+    }
+
+    /**
+     * Shares a location with several users at once.
+     *
+     * @param id            the ID of the location to be shared
+     * @param shareRequests the emails of the users and the access levels to be granted
+     * @return a ResponseEntity with the outcome of each entry
+     */
+    @PostMapping("/{id}/share/batch")
+    public ResponseEntity<List<ShareResultDTO>> shareLocationWithUsers(
+        @PathVariable("id") int id,
+        @RequestBody List<ShareRequestDTO> shareRequests
+    ) {
+
+        List<ShareResultDTO> results = locationAccessService.shareLocationWithUsers(id, shareRequests);
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
     /**
@@ -87,7 +121,7 @@ public class LocationController {
      * @param locationId  the ID of the location
      * @param userEmail   the email of the user whose access level is to be updated
      * @param accessLevel the new access level to be granted
-     * @return a ResponseEntity with a success message or an error message
+     * @return a ResponseEntity with a success message
      */
     @PatchMapping("/{id}/access")
     public ResponseEntity<String> updateAccessLevel(
@@ -96,14 +130,8 @@ public class LocationController {
         @RequestParam("accessLevel") AccessLevel accessLevel
     ) {
 
-        try {
-            locationAccessService.updateLocationAccessByAccessLevel(locationId, userEmail, accessLevel);
-            return new ResponseEntity<>("Access level updated successfully.", HttpStatus.OK);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        locationAccessService.updateLocationAccessByAccessLevel(locationId, userEmail, accessLevel);
+        return new ResponseEntity<>("Access level updated successfully.", HttpStatus.OK);
     }
 
     /**
@@ -113,19 +141,51 @@ public class LocationController {
      * @return a ResponseEntity with a list of users or a no content status if no users are found
      */
     @GetMapping("{id}/friends") //all friend users on the location
-    public ResponseEntity<?> getAllFriendUsers(@PathVariable("id") int id) {
-
-        try {
-            List<UserDTO> friends = locationService.getFriendsToLocation(id);
-            if (friends.isEmpty()) {
-                return new ResponseEntity<>(friends, HttpStatus.NO_CONTENT);
-            }
-            return new ResponseEntity<>(friends, HttpStatus.OK);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<List<UserDTO>> getAllFriendUsers(@PathVariable("id") int id) {
+
+        List<UserDTO> friends = locationService.getFriendsToLocation(id);
+        if (friends.isEmpty()) {
+            return new ResponseEntity<>(friends, HttpStatus.NO_CONTENT);
         }
+        return new ResponseEntity<>(friends, HttpStatus.OK);
+    }
+
+    /**
+     * Streams all users who have access to a specific location as a JSON array.
+     * <p>
+     * Unlike {@link #getAllFriendUsers(int)}, the list is never held in memory: users are written while they are
+     * read from the database, so this endpoint suits exports of very large lists.
+     * </p>
+     *
+     * @param id the ID of the location
+     * @return a ResponseEntity streaming the users, an empty array if there are none
+     */
+    @GetMapping("{id}/friends/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllFriendUsers(@PathVariable("id") int id) {
+
+        StreamingResponseBody friends = output -> locationAccessService.writeFriends(id, output);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(friends);
+    }
+
+    /**
+     * Retrieves a page of the users who have access to a specific location.
+     *
+     * @param id     the ID of the location
+     * @param cursor the nextCursor of the previous page, absent for the first page
+     * @param limit  the maximum number of users in the page
+     * @return a ResponseEntity with the page of users
+     */
+    @GetMapping("{id}/friends/page")
+    public ResponseEntity<PageDTO<List<UserDTO>>> getFriendUsersPage(
+        @PathVariable("id") int id,
+        @RequestParam(value = "cursor", required = false) Integer cursor,
+        @RequestParam(value = "limit", defaultValue = "50") int limit
+    ) {
+
+        PageDTO<List<UserDTO>> page = locationService.getFriendsToLocationPage(id, cursor, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
     }
 }
 
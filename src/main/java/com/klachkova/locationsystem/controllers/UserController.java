@@ -3,18 +3,23 @@ package com.klachkova.locationsystem.controllers;
 import com.klachkova.locationsystem.dto.*;
 import com.klachkova.locationsystem.modeles.*;
 import com.klachkova.locationsystem.services.*;
-import com.klachkova.locationsystem.util.exceptions.ApplicationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for managing users in the location system.
  * <p>
  * Provides endpoints for user registration, fetching available locations, and managing user access to locations.
+ * Errors are answered by {@link ApiExceptionHandler}.
  * </p>
  */
 @RestController
@@ -24,60 +29,118 @@ public class UserController {
     private final UserService userService;
     private final LocationService locationService;
     private final LocationAccessService locationAccessService;
+    private final UserImportService userImportService;
+    private final ImportResultStreamer importResultStreamer;
+    private final boolean asyncAvailableLocations;
 
     @Autowired
     public UserController(
         UserService userService,
         LocationService locationService,
-        LocationAccessService locationAccessService
+        LocationAccessService locationAccessService,
+        UserImportService userImportService,
+        ImportResultStreamer importResultStreamer,
+        @Value("${locations.available.async:false}") boolean asyncAvailableLocations
     ) {
 
         this.userService = userService;
         this.locationService = locationService;
         this.locationAccessService = locationAccessService;
+        this.userImportService = userImportService;
+        this.importResultStreamer = importResultStreamer;
+        this.asyncAvailableLocations = asyncAvailableLocations;
+    }
+
+    /**
+     * Imports users in bulk from an NDJSON body, one user per line.
+     * <p>
+     * The body is read while the response is written, the result of each line is streamed back as NDJSON, within the
+     * import timeout of {@link ImportResultStreamer}.
+     * </p>
+     *
+     * @param users the NDJSON stream of users
+     * @return a ResponseEntity streaming one import result per non-blank line
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> importUsers(InputStream users) {
+
+        return importResultStreamer.stream(output -> userImportService.importUsers(users, output));
     }
 
     /**
      * Registers a new user.
      *
      * @param userDTO the user data transfer object containing user details
-     * @return a ResponseEntity with the registered user data or an error message
+     * @return a ResponseEntity with the registered user data
      */
 
     @PostMapping()
-    public ResponseEntity<?> registerUser(@RequestBody UserDTO userDTO) {
-
-        try {
-            UserDTO registeredUserDTO = userService.registerUser(userDTO);
-            return new ResponseEntity<>(registeredUserDTO, HttpStatus.CREATED);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public ResponseEntity<UserDTO> registerUser(@RequestBody UserDTO userDTO) {
+
+        UserDTO registeredUserDTO = userService.registerUser(userDTO);
+        return new ResponseEntity<>(registeredUserDTO, HttpStatus.CREATED);
     }
 
     /**
      * Retrieves available locations for a user (own+shared with user).
      * <p>
-     * This includes locations owned by the user and locations shared with the user.
+     * This includes locations owned by the user and locations shared with the user, read with a single query. When
+     * {@code locations.available.async} is true, the request thread is released while the owned and shared
+     * locations are read in parallel, with the consistency trade-off of
+     * {@link LocationService#getAvailableLocationsAsync(int)}.
      * </p>
      *
      * @param id the user ID
-     * @return a ResponseEntity with a list of available locations or an error message
+     * @return a future ResponseEntity with a list of available locations
      */
-
     @GetMapping("/{id}/availableLocations")
-    public ResponseEntity<?> getAvailableLocations(@PathVariable int id) {
-
-        try {
-            List<List<LocationDTO>> availableLocations = locationService.getAvailableLocations(id);
-            return new ResponseEntity<>(availableLocations, HttpStatus.OK);
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    public CompletableFuture<ResponseEntity<List<List<LocationDTO>>>> getAvailableLocations(@PathVariable int id) {
+
+        if (!asyncAvailableLocations) {
+            return CompletableFuture.completedFuture(
+                new ResponseEntity<>(locationService.getAvailableLocations(id), HttpStatus.OK));
         }
+        return locationService.getAvailableLocationsAsync(id)
+            .thenApply(availableLocations -> new ResponseEntity<>(availableLocations, HttpStatus.OK));
+    }
+
+    /**
+     * Retrieves a page of the available locations for a user (own+shared with user).
+     *
+     * @param id     the user ID
+     * @param cursor the nextCursor of the previous page, absent for the first page
+     * @param limit  the maximum number of locations in the page
+     * @return a ResponseEntity with the page of available locations
+     */
+    @GetMapping("/{id}/availableLocations/page")
+    public ResponseEntity<PageDTO<List<List<LocationDTO>>>> getAvailableLocationsPage(
+        @PathVariable int id,
+        @RequestParam(value = "cursor", required = false) Integer cursor,
+        @RequestParam(value = "limit", defaultValue = "50") int limit
+    ) {
+
+        PageDTO<List<List<LocationDTO>>> page = locationService.getAvailableLocationsPage(id, cursor, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the available locations for a user (own+shared with user) within a radius of a ZIP code, nearest
+     * first.
+     *
+     * @param id       the user ID
+     * @param zip      the ZIP code at the center of the search
+     * @param radiusKm the radius of the search in kilometers
+     * @return a ResponseEntity with the nearby locations and their distances
+     */
+    @GetMapping("/{id}/availableLocations/near")
+    public ResponseEntity<List<NearbyLocationDTO>> getAvailableLocationsNear(
+        @PathVariable int id,
+        @RequestParam("zip") String zip,
+        @RequestParam("radiusKm") double radiusKm
+    ) {
+
+        List<NearbyLocationDTO> nearbyLocations = locationService.getAvailableLocationsNear(id, zip, radiusKm);
+        return new ResponseEntity<>(nearbyLocations, HttpStatus.OK);
     }
 
     /**
@@ -87,7 +150,7 @@ public class UserController {
      * @param friendEmail     the email of the friend to be added
      * @param locationAddress the address of the location to which the friend is being added
      * @param accessLevel     the access level to be granted to the friend
-     * @return a ResponseEntity with a success message or an error message
+     * @return a ResponseEntity with a success message
      */
     @PatchMapping("/{id}/addFriendToLocation")
     public ResponseEntity<String> addFriendToLocation(
@@ -97,13 +160,7 @@ public class UserController {
         @RequestParam("accessLevel") AccessLevel accessLevel
     ) {
 
-        try {
-            locationAccessService.addFriendToLocation(userId, friendEmail, locationAddress, accessLevel);
-            return ResponseEntity.ok("Friend added successfully.");
-        } catch (ApplicationException e) {
-            return new ResponseEntity<>(e.getMessage(), e.getStatus());
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+        locationAccessService.addFriendToLocation(userId, friendEmail, locationAddress, accessLevel);
+        return ResponseEntity.ok("Friend added successfully.");
     }
 }
@@ -0,0 +1,76 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for the body of an error response.
+ */
+public class ErrorDTO {
+
+    /**
+     * The HTTP status code.
+     */
+    private int status;
+    /**
+     * The reason phrase of the HTTP status.
+     */
+    private String error;
+    /**
+     * The description of the error.
+     */
+    private String message;
+    /**
+     * The path of the request.
+     */
+    private String path;
+
+    public ErrorDTO() {
+
+    }
+
+    public ErrorDTO(int status, String error, String message, String path) {
+
+        this.status = status;
+        this.error = error;
+        this.message = message;
+        this.path = path;
+    }
+
+    public int getStatus() {
+
+        return status;
+    }
+
+    public void setStatus(int status) {
+
+        this.status = status;
+    }
+
+    public String getError() {
+
+        return error;
+    }
+
+    public void setError(String error) {
+
+        this.error = error;
+    }
+
+    public String getMessage() {
+
+        return message;
+    }
+
+    public void setMessage(String message) {
+
+        this.message = message;
+    }
+
+    public String getPath() {
+
+        return path;
+    }
+
+    public void setPath(String path) {
+
+        this.path = path;
+    }
+}
@@ -0,0 +1,101 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for the outcome of one line of a location import.
+ * <p>
+ * Results are streamed back as NDJSON, one per non-blank input line, in the order of the input.
+ * </p>
+ */
+public class LocationImportResultDTO {
+
+    /**
+     * Outcome of importing a single location.
+     */
+    public enum Status {
+        /**
+         * The location was registered.
+         */
+        CREATED,
+        /**
+         * A location with the same address already exists, or appears earlier in the same import.
+         */
+        DUPLICATE,
+        /**
+         * No user with the owner email exists.
+         */
+        OWNER_NOT_FOUND,
+        /**
+         * The line is not valid JSON or the location failed validation, see the message.
+         */
+        INVALID
+    }
+
+    /**
+     * The 1-based number of the input line.
+     */
+    private long line;
+    /**
+     * The address read from the line, {@code null} if the line could not be parsed.
+     */
+    private String address;
+    /**
+     * The outcome of the import.
+     */
+    private Status status;
+    /**
+     * A description of the failure, {@code null} for created locations.
+     */
+    private String message;
+
+    public LocationImportResultDTO() {
+
+    }
+
+    public LocationImportResultDTO(long line, String address, Status status, String message) {
+
+        this.line = line;
+        this.address = address;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getLine() {
+
+        return line;
+    }
+
+    public void setLine(long line) {
+
+        this.line = line;
+    }
+
+    public String getAddress() {
+
+        return address;
+    }
+
+    public void setAddress(String address) {
+
+        this.address = address;
+    }
+
+    public Status getStatus() {
+
+        return status;
+    }
+
+    public void setStatus(Status status) {
+
+        this.status = status;
+    }
+
+    public String getMessage() {
+
+        return message;
+    }
+
+    public void setMessage(String message) {
+
+        this.message = message;
+    }
+}
@@ -0,0 +1,46 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for a location found by a proximity search, with its distance from the searched point.
+ */
+public class NearbyLocationDTO {
+
+    /**
+     * The location found.
+     */
+    private LocationDTO location;
+    /**
+     * The distance in kilometers between the centroid of the ZIP code of the location and the searched point.
+     */
+    private double distanceKm;
+
+    public NearbyLocationDTO() {
+
+    }
+
+    public NearbyLocationDTO(LocationDTO location, double distanceKm) {
+
+        this.location = location;
+        this.distanceKm = distanceKm;
+    }
+
+    public LocationDTO getLocation() {
+
+        return location;
+    }
+
+    public void setLocation(LocationDTO location) {
+
+        this.location = location;
+    }
+
+    public double getDistanceKm() {
+
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,52 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for one page of a list read with keyset pagination.
+ * <p>
+ * The next page is requested with {@link #getNextCursor()} as cursor. Pages are read with index range scans, so
+ * reading a page costs the same whatever the length of the list and the position of the page.
+ * </p>
+ *
+ * @param <T> the type of the content of the page
+ */
+public class PageDTO<T> {
+
+    /**
+     * The content of the page.
+     */
+    private T items;
+    /**
+     * The cursor of the next page, {@code null} on the last page.
+     */
+    private Integer nextCursor;
+
+    public PageDTO() {
+
+    }
+
+    public PageDTO(T items, Integer nextCursor) {
+
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public T getItems() {
+
+        return items;
+    }
+
+    public void setItems(T items) {
+
+        this.items = items;
+    }
+
+    public Integer getNextCursor() {
+
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+
+        this.nextCursor = nextCursor;
+    }
+}
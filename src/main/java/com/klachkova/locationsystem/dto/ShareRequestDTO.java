@@ -0,0 +1,51 @@
+package com.klachkova.locationsystem.dto;
+
+import com.klachkova.locationsystem.modeles.AccessLevel;
+
+/**
+ * Data Transfer Object (DTO) for one entry of a batch share request.
+ * <p>
+ * Identifies the user to share a location with by email, together with the access level to grant.
+ * </p>
+ */
+public class ShareRequestDTO {
+
+    /**
+     * The email address of the user to share the location with.
+     */
+    private String userEmail;
+    /**
+     * The access level to grant to the user.
+     */
+    private AccessLevel accessLevel;
+
+    public ShareRequestDTO() {
+
+    }
+
+    public ShareRequestDTO(String userEmail, AccessLevel accessLevel) {
+
+        this.userEmail = userEmail;
+        this.accessLevel = accessLevel;
+    }
+
+    public String getUserEmail() {
+
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+
+        this.userEmail = userEmail;
+    }
+
+    public AccessLevel getAccessLevel() {
+
+        return accessLevel;
+    }
+
+    public void setAccessLevel(AccessLevel accessLevel) {
+
+        this.accessLevel = accessLevel;
+    }
+}
@@ -0,0 +1,86 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for the outcome of one entry of a batch share request.
+ * <p>
+ * Results are returned in the order of the request entries.
+ * </p>
+ */
+public class ShareResultDTO {
+
+    /**
+     * Outcome of a single share.
+     */
+    public enum Status {
+        /**
+         * The location was shared with the user.
+         */
+        SHARED,
+        /**
+         * The location was already shared with the user, or the user appears earlier in the same request.
+         */
+        ALREADY_SHARED,
+        /**
+         * No user with the given email exists.
+         */
+        USER_NOT_FOUND,
+        /**
+         * The entry failed validation, see the message.
+         */
+        INVALID
+    }
+
+    /**
+     * The email address from the request entry.
+     */
+    private String userEmail;
+    /**
+     * The outcome of the share.
+     */
+    private Status status;
+    /**
+     * A description of the failure, {@code null} for shared entries.
+     */
+    private String message;
+
+    public ShareResultDTO() {
+
+    }
+
+    public ShareResultDTO(String userEmail, Status status, String message) {
+
+        this.userEmail = userEmail;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getUserEmail() {
+
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+
+        this.userEmail = userEmail;
+    }
+
+    public Status getStatus() {
+
+        return status;
+    }
+
+    public void setStatus(Status status) {
+
+        this.status = status;
+    }
+
+    public String getMessage() {
+
+        return message;
+    }
+
+    public void setMessage(String message) {
+
+        this.message = message;
+    }
+}
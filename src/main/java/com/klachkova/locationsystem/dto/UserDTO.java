@@ -26,6 +26,16 @@ public class UserDTO {
      */
     private String email;
 
+    public UserDTO() {
+
+    }
+
+    public UserDTO(String name, String email) {
+
+        this.name = name;
+        this.email = email;
+    }
+
     public String getName() {
 
         return name;
@@ -0,0 +1,97 @@
+package com.klachkova.locationsystem.dto;
+
+/**
+ * Data Transfer Object (DTO) for the outcome of one line of a user import.
+ * <p>
+ * Results are streamed back as NDJSON, one per non-blank input line, in the order of the input.
+ * </p>
+ */
+public class UserImportResultDTO {
+
+    /**
+     * Outcome of importing a single user.
+     */
+    public enum Status {
+        /**
+         * The user was registered.
+         */
+        CREATED,
+        /**
+         * A user with the same email already exists, or appears earlier in the same import.
+         */
+        DUPLICATE,
+        /**
+         * The line is not valid JSON or the user failed validation, see the message.
+         */
+        INVALID
+    }
+
+    /**
+     * The 1-based number of the input line.
+     */
+    private long line;
+    /**
+     * The email address read from the line, {@code null} if the line could not be parsed.
+     */
+    private String email;
+    /**
+     * The outcome of the import.
+     */
+    private Status status;
+    /**
+     * A description of the failure, {@code null} for created users.
+     */
+    private String message;
+
+    public UserImportResultDTO() {
+
+    }
+
+    public UserImportResultDTO(long line, String email, Status status, String message) {
+
+        this.line = line;
+        this.email = email;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getLine() {
+
+        return line;
+    }
+
+    public void setLine(long line) {
+
+        this.line = line;
+    }
+
+    public String getEmail() {
+
+        return email;
+    }
+
+    public void setEmail(String email) {
+
+        this.email = email;
+    }
+
+    public Status getStatus() {
+
+        return status;
+    }
+
+    public void setStatus(Status status) {
+
+        this.status = status;
+    }
+
+    public String getMessage() {
+
+        return message;
+    }
+
+    public void setMessage(String message) {
+
+        this.message = message;
+    }
+}
@@ -1,6 +1,14 @@
 package com.klachkova.locationsystem.modeles;
 
+import com.klachkova.locationsystem.util.address.AddressKey;
+import com.klachkova.locationsystem.util.address.ParsedAddress;
+import com.klachkova.locationsystem.util.address.USAddressParser;
 import com.klachkova.locationsystem.util.annotations.USAddress;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -13,9 +21,23 @@ import java.util.List;
  *
  * <p>This class maps to the "Location" table in the database. It contains details about a location,
  * including its name, address, owner, and users with whom the location is shared.</p>
+ *
+ * <p>Locations are never updated once registered, so the copies kept in the second-level cache of each node, by ID
+ * and by address key, never go stale.</p>
  */
 @Entity
-@Table(name = "Location")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheNames.LOCATIONS)
+@NaturalIdCache(region = CacheNames.LOCATIONS_BY_ADDRESS_KEY)
+@Table(
+    name = "Location",
+    uniqueConstraints = @UniqueConstraint(name = "uk_location_address_key", columnNames = "address_key"),
+    indexes = {
+        @Index(name = "idx_location_owner_id", columnList = "userId, id"),
+        @Index(name = "idx_location_zip_code", columnList = "zip_code"),
+        @Index(name = "idx_location_state_city", columnList = "state, city")
+    }
+)
 public class Location {
 
     /**
@@ -23,7 +45,8 @@ public class Location {
      */
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "location_seq")
+    @SequenceGenerator(name = "location_seq", sequenceName = "location_seq", allocationSize = 50)
     private Integer id;
     /**
      * Name of the location.
@@ -40,6 +63,42 @@ public class Location {
     @NotBlank(message = "Address should not be empty")
     @USAddress(message = "Address must be in US format (ex.: '123 Main St, Springfield, IL, 62704')")
     private String address;
+    /**
+     * Lookup key of the address, computed by {@link AddressKey#of(String)} whenever the address is set.
+     * <p>Addresses differing only in letter case or spacing have the same key, so they are the same location. Natural
+     * identifier of the location.</p>
+     */
+    @NaturalId
+    @Column(name = "address_key", length = AddressKey.LENGTH, columnDefinition = "char(" + AddressKey.LENGTH + ")")
+    private String addressKey;
+    /**
+     * Street number and name of the address, parsed by {@link USAddressParser} whenever the address is set.
+     * <p>Null if the address is not in the US format.</p>
+     */
+    @Column(name = "street")
+    private String street;
+    /**
+     * City of the address, parsed whenever the address is set.
+     */
+    @Column(name = "city")
+    private String city;
+    /**
+     * Two-letter state code of the address, parsed whenever the address is set.
+     */
+    @Column(name = "state", length = 2)
+    private String state;
+    /**
+     * Five-digit ZIP code of the address, parsed whenever the address is set.
+     * <p>Kept without its extension, so the locations in a set of ZIP codes are found with an {@code IN} list.</p>
+     */
+    @Column(name = "zip_code", length = 5)
+    private String zipCode;
+    /**
+     * Four-digit ZIP+4 extension of the address, parsed whenever the address is set.
+     * <p>Null if the address has no extension.</p>
+     */
+    @Column(name = "zip_code_extension", length = 4)
+    private String zipCodeExtension;
     /**
      * The user who owns the location.
      * <p>Must not be null.</p>
@@ -73,7 +132,7 @@ public class Location {
 
         this.id = id;
         this.name = name;
-        this.address = address;
+        setAddress(address);
         this.owner = owner;
     }
 
@@ -105,6 +164,44 @@ public class Location {
     public void setAddress(String address) {
 
         this.address = address;
+        this.addressKey = AddressKey.of(address);
+        ParsedAddress parsedAddress = USAddressParser.parse(address);
+        this.street = parsedAddress == null ? null : parsedAddress.getStreet();
+        this.city = parsedAddress == null ? null : parsedAddress.getCity();
+        this.state = parsedAddress == null ? null : parsedAddress.getState();
+        String fullZipCode = parsedAddress == null ? null : parsedAddress.getZipCode();
+        this.zipCode = fullZipCode == null ? null : fullZipCode.substring(0, 5);
+        this.zipCodeExtension = fullZipCode == null || fullZipCode.length() == 5 ? null : fullZipCode.substring(6);
+    }
+
+    public String getAddressKey() {
+
+        return addressKey;
+    }
+
+    public String getStreet() {
+
+        return street;
+    }
+
+    public String getCity() {
+
+        return city;
+    }
+
+    public String getState() {
+
+        return state;
+    }
+
+    public String getZipCode() {
+
+        return zipCode;
+    }
+
+    public String getZipCodeExtension() {
+
+        return zipCodeExtension;
     }
 
     public User getOwner() {
@@ -12,7 +12,10 @@ import javax.validation.constraints.NotNull;
  * which user has access to which location and at what access level.</p>
  */
 @Entity
-@Table(name = "LocationAccess")
+@Table(
+    name = "LocationAccess",
+    uniqueConstraints = @UniqueConstraint(name = "uk_location_access_user_location", columnNames = {"user_id", "location_id"}),
+    indexes = @Index(name = "idx_location_access_location_user", columnList = "location_id, user_id"))
 public class LocationAccess {
 
     /**
@@ -20,7 +23,8 @@ public class LocationAccess {
      */
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "location_access_seq")
+    @SequenceGenerator(name = "location_access_seq", sequenceName = "location_access_seq", allocationSize = 50)
     private Integer id;
     /**
      * The user who has access to the location.
@@ -1,5 +1,11 @@
 package com.klachkova.locationsystem.modeles;
 
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.util.List;
@@ -9,10 +15,16 @@ import java.util.List;
  *
  * <p>This class maps to the "User" table in the database. It contains user details and a list of locations associated
  * with the user.</p>
+ *
+ * <p>Users are never updated once registered, so the copies kept in the second-level cache of each node, by ID and
+ * by email, never go stale.</p>
  */
 
 @Entity
-@Table(name = "User")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheNames.USERS)
+@NaturalIdCache(region = CacheNames.USERS_BY_EMAIL)
+@Table(name = "User", uniqueConstraints = @UniqueConstraint(name = "uk_user_email", columnNames = "email"))
 public class User {
 
     /**
@@ -20,7 +32,8 @@ public class User {
      */
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Integer id;
     /**
      * Name of the user.
@@ -32,8 +45,9 @@ public class User {
     private String name;
     /**
      * Email of the user.
-     * <p>Must not be blank and must be a valid email address.</p>
+     * <p>Must not be blank and must be a valid email address. Natural identifier of the user.</p>
      */
+    @NaturalId
     @Email(message = "Email should be valid")
     @NotBlank(message = "Email should not be empty")
     private String email;
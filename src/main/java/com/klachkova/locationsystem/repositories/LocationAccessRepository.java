@@ -1,13 +1,27 @@
 package com.klachkova.locationsystem.repositories;
 
+import com.klachkova.locationsystem.dto.UserDTO;
+import com.klachkova.locationsystem.modeles.AccessLevel;
 import com.klachkova.locationsystem.modeles.Location;
 import com.klachkova.locationsystem.modeles.LocationAccess;
 import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.projections.FriendView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
 
 /**
  * Repository interface for accessing LocationAccess entities in the database.
@@ -20,12 +34,9 @@ import java.util.Optional;
 public interface LocationAccessRepository extends JpaRepository<LocationAccess, Integer> {
 
     /**
-     * Finds all LocationAccess records associated with a specific user.
-     *
-     * @param user the user whose access records are to be retrieved
-     * @return a list of LocationAccess records associated with the specified user
+     * Number of rows fetched per round trip by {@link #streamFriendsByLocationId(int)}.
      */
-    List<LocationAccess> findByUser(User user);
+    String FRIENDS_STREAM_FETCH_SIZE = "500";
 
     /**
      * Finds all LocationAccess records associated with a specific location ID.
@@ -35,6 +46,53 @@ public interface LocationAccessRepository extends JpaRepository<LocationAccess,
      */
     List<LocationAccess> findByLocationId(int locationId);
 
+    /**
+     * Finds the users with access to a specific location ID, read directly into DTOs with a single query.
+     *
+     * @param locationId the ID of the location whose users are to be retrieved
+     * @return a list of UserDTOs, one per access record of the specified location ID
+     */
+    @Query("select new com.klachkova.locationsystem.dto.UserDTO(u.name, u.email) "
+        + "from LocationAccess a join a.user u where a.location.id = :locationId order by a.id")
+    List<UserDTO> findFriendsByLocationId(@Param("locationId") int locationId);
+
+    /**
+     * Streams the users with access to a specific location ID, read directly into DTOs through a forward-only cursor.
+     * <p>
+     * Rows are fetched {@link #FRIENDS_STREAM_FETCH_SIZE} at a time and nothing is kept in the persistence context,
+     * so memory use does not depend on the number of users. The stream must be consumed inside a transaction and
+     * closed afterwards.
+     * </p>
+     *
+     * @param locationId the ID of the location whose users are to be retrieved
+     * @return a stream of UserDTOs, one per access record of the specified location ID
+     */
+    @QueryHints({
+        @QueryHint(name = FETCH_SIZE, value = FRIENDS_STREAM_FETCH_SIZE),
+        @QueryHint(name = READ_ONLY, value = "true")
+    })
+    @Query("select new com.klachkova.locationsystem.dto.UserDTO(u.name, u.email) "
+        + "from LocationAccess a join a.user u where a.location.id = :locationId order by a.id")
+    Stream<UserDTO> streamFriendsByLocationId(@Param("locationId") int locationId);
+
+    /**
+     * Finds a page of the users with access to a specific location ID, with an index range scan on (location, user).
+     *
+     * @param locationId  the ID of the location
+     * @param afterUserId only users with a greater ID are returned, 0 for the first page
+     * @param pageable    the page size, the page number must be 0
+     * @return the users with access to the location ordered by ID
+     */
+    @Query("select u.id as userId, u.name as name, u.email as email "
+        + "from LocationAccess a join a.user u "
+        + "where a.location.id = :locationId and a.user.id > :afterUserId "
+        + "order by a.user.id")
+    List<FriendView> findFriendsPage(
+        @Param("locationId") int locationId,
+        @Param("afterUserId") int afterUserId,
+        Pageable pageable
+    );
+
     /**
      * Finds a LocationAccess record that matches a specific location and user.
      *
@@ -43,4 +101,28 @@ public interface LocationAccessRepository extends JpaRepository<LocationAccess,
      * @return an Optional containing the LocationAccess record if found, otherwise an empty Optional
      */
     Optional<LocationAccess> findByLocationAndUser(Location location, User user);
+
+    /**
+     * Finds the access level of a user to a location, without loading the access record.
+     *
+     * @param userId     the ID of the user
+     * @param locationId the ID of the location
+     * @return an Optional containing the access level if the user has access to the location, otherwise an empty
+     * Optional
+     */
+    @Query("select a.accessLevel from LocationAccess a where a.user.id = :userId and a.location.id = :locationId")
+    Optional<AccessLevel> findAccessLevel(@Param("userId") int userId, @Param("locationId") int locationId);
+
+    /**
+     * Finds which of the given users already have access to a specific location ID.
+     *
+     * @param locationId the ID of the location
+     * @param userIds    the IDs of the users to check
+     * @return the IDs of the users among {@code userIds} with access to the location
+     */
+    @Query("select a.user.id from LocationAccess a where a.location.id = :locationId and a.user.id in :userIds")
+    List<Integer> findUserIdsByLocationIdAndUserIds(
+        @Param("locationId") int locationId,
+        @Param("userIds") Collection<Integer> userIds
+    );
 }
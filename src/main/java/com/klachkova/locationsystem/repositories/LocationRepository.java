@@ -2,9 +2,16 @@ package com.klachkova.locationsystem.repositories;
 
 import com.klachkova.locationsystem.modeles.Location;
 import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.projections.AvailableLocationView;
+import com.klachkova.locationsystem.repositories.projections.LocationView;
+import com.klachkova.locationsystem.repositories.projections.NearbyLocationView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,23 +24,26 @@ import java.util.Optional;
  * </p>
  */
 @Repository
-public interface LocationRepository extends JpaRepository<Location, Integer> {
+public interface LocationRepository extends JpaRepository<Location, Integer>, NaturalIdRepository {
 
     /**
-     * Checks if a location with the given address exists in the database.
+     * Checks if a location with the given address key exists in the database.
      *
-     * @param address the address of the location
-     * @return true if a location with the given address exists, otherwise false
+     * @param addressKey the key of the address, see {@link com.klachkova.locationsystem.util.address.AddressKey}
+     * @return true if a location with the given address key exists, otherwise false
      */
-    boolean existsByAddress(String address);
+    boolean existsByAddressKey(String addressKey);
 
     /**
-     * Finds a location by its unique address.
+     * Finds a location by its unique address key, through the second-level cache.
      *
-     * @param locationAddress the address of the location
+     * @param addressKey the key of the address, see {@link com.klachkova.locationsystem.util.address.AddressKey}
      * @return an Optional containing the location if found, otherwise an empty Optional
      */
-    Optional<Location> findByAddress(String locationAddress);
+    default Optional<Location> findByAddressKey(String addressKey) {
+
+        return findBySimpleNaturalId(Location.class, addressKey);
+    }
 
     /**
      * Finds all locations that are owned by the specified user.
@@ -42,4 +52,137 @@ public interface LocationRepository extends JpaRepository<Location, Integer> {
      * @return a list of locations owned by the specified user
      */
     List<Location> findAllByOwner(User owner);
+
+    /**
+     * Finds which of the given address keys are already registered.
+     *
+     * @param addressKeys the address keys to check
+     * @return the address keys among {@code addressKeys} that belong to a location
+     */
+    @Query("select l.addressKey from Location l where l.addressKey in :addressKeys")
+    List<String> findExistingAddressKeys(@Param("addressKeys") Collection<String> addressKeys);
+
+    /**
+     * Finds the locations owned by or shared with the specified user, in a single query.
+     * <p>
+     * The owned locations, read with an index range scan on (owner, ID), and the shared locations, read like
+     * {@link #findSharedLocations(int)}, are merged with a UNION ALL and grouped, so the cost grows with the locations
+     * of the user rather than with the whole table. The joins stay inside the two branches: joined outside, H2 would
+     * start from a scan of the users. Locations shared with the user several times are returned once, with the number
+     * of access records in {@link AvailableLocationView#getShareCount()}.
+     * </p>
+     *
+     * @param userId the ID of the user
+     * @return the available locations ordered by ID, an empty list if there are none or the user does not exist
+     */
+    @Query(nativeQuery = true, value = "select s.id as id, s.name as name, s.address as address, "
+        + "s.owner_id as ownerId, s.owner_name as ownerName, s.owner_email as ownerEmail, sum(s.shared) as shareCount "
+        + "from (select l.id, l.name, l.address, o.id as owner_id, o.name as owner_name, o.email as owner_email, "
+        + "0 as shared from location l join user o on o.id = l.user_id where l.user_id = :userId "
+        + "union all select l.id, l.name, l.address, o.id, o.name, o.email, 1 "
+        + "from location l join user o on o.id = l.user_id "
+        + "where l.id in (select a.location_id from location_access a where a.user_id = :userId)) s "
+        + "group by s.id, s.name, s.address, s.owner_id, s.owner_name, s.owner_email "
+        + "order by s.id")
+    List<AvailableLocationView> findAvailableLocations(@Param("userId") int userId);
+
+    /**
+     * Finds the locations owned by the specified user, with an index range scan on (owner, ID).
+     *
+     * @param userId the ID of the user
+     * @return the owned locations ordered by ID
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, o.name as ownerName, o.email as ownerEmail "
+        + "from Location l join l.owner o "
+        + "where l.owner.id = :userId "
+        + "order by l.id")
+    List<LocationView> findOwnLocations(@Param("userId") int userId);
+
+    /**
+     * Finds the locations shared with the specified user, with an index range scan on the unique (user, location)
+     * access key and a primary key lookup per location. As a subquery, the access key drives the query: H2 would
+     * otherwise start a three-way join from a scan of the users.
+     *
+     * @param userId the ID of the user
+     * @return the shared locations ordered by ID
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, o.name as ownerName, o.email as ownerEmail "
+        + "from Location l join l.owner o "
+        + "where l.id in (select a.location.id from LocationAccess a where a.user.id = :userId) "
+        + "order by l.id")
+    List<LocationView> findSharedLocations(@Param("userId") int userId);
+
+    /**
+     * Finds a page of the locations owned by the specified user, with an index range scan on (owner, ID).
+     *
+     * @param userId   the ID of the user
+     * @param afterId  only locations with a greater ID are returned, 0 for the first page
+     * @param pageable the page size, the page number must be 0
+     * @return the owned locations ordered by ID
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, o.name as ownerName, o.email as ownerEmail "
+        + "from Location l join l.owner o "
+        + "where l.owner.id = :userId and l.id > :afterId "
+        + "order by l.id")
+    List<LocationView> findOwnLocationsPage(
+        @Param("userId") int userId,
+        @Param("afterId") int afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Finds a page of the locations shared with the specified user, with an index range scan on the unique
+     * (user, location) access key.
+     *
+     * @param userId   the ID of the user
+     * @param afterId  only locations with a greater ID are returned, 0 for the first page
+     * @param pageable the page size, the page number must be 0
+     * @return the shared locations ordered by ID
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, o.name as ownerName, o.email as ownerEmail "
+        + "from LocationAccess a join a.location l join l.owner o "
+        + "where a.user.id = :userId and a.location.id > :afterId "
+        + "order by a.location.id")
+    List<LocationView> findSharedLocationsPage(
+        @Param("userId") int userId,
+        @Param("afterId") int afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Finds the locations owned by the specified user in any of the given ZIP codes, with one index lookup on the
+     * owner or on the ZIP codes, whichever the database estimates to read fewer rows.
+     *
+     * @param userId   the ID of the user
+     * @param zipCodes the five-digit ZIP codes, not empty
+     * @return the owned locations in the ZIP codes
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, l.zipCode as zipCode, "
+        + "o.name as ownerName, o.email as ownerEmail "
+        + "from Location l join l.owner o "
+        + "where l.owner.id = :userId and l.zipCode in :zipCodes")
+    List<NearbyLocationView> findOwnLocationsInZipCodes(
+        @Param("userId") int userId,
+        @Param("zipCodes") Collection<String> zipCodes
+    );
+
+    /**
+     * Finds the locations shared with the specified user in any of the given ZIP codes.
+     * <p>
+     * The database either reads the access rows of the user and checks the ZIP code of each location, or reads the
+     * locations in the ZIP codes and checks the access of the user to each, whichever it estimates cheaper.
+     * </p>
+     *
+     * @param userId   the ID of the user
+     * @param zipCodes the five-digit ZIP codes, not empty
+     * @return the shared locations in the ZIP codes
+     */
+    @Query("select l.id as id, l.name as name, l.address as address, l.zipCode as zipCode, "
+        + "o.name as ownerName, o.email as ownerEmail "
+        + "from LocationAccess a join a.location l join l.owner o "
+        + "where a.user.id = :userId and l.zipCode in :zipCodes")
+    List<NearbyLocationView> findSharedLocationsInZipCodes(
+        @Param("userId") int userId,
+        @Param("zipCodes") Collection<String> zipCodes
+    );
 }
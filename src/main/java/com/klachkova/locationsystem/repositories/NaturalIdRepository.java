@@ -0,0 +1,24 @@
+package com.klachkova.locationsystem.repositories;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * Repository fragment loading entities by their natural identifier.
+ * <p>
+ * The natural identifier is resolved to the ID through the natural-id cache region of the entity, and the entity is
+ * then loaded through its second-level cache region, so a lookup of a cached entity does not reach the database.
+ * </p>
+ */
+public interface NaturalIdRepository {
+
+    /**
+     * Finds an entity by its single-attribute natural identifier.
+     *
+     * @param entityType the type of the entity, with a single {@code @NaturalId} attribute
+     * @param naturalId  the value of the natural identifier
+     * @param <T>        the type of the entity
+     * @return an Optional containing the entity if found, otherwise an empty Optional
+     */
+    <T> Optional<T> findBySimpleNaturalId(Class<T> entityType, Serializable naturalId);
+}
@@ -0,0 +1,27 @@
+package com.klachkova.locationsystem.repositories;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * Implementation of {@link NaturalIdRepository} on the Hibernate session.
+ */
+@Transactional(readOnly = true)
+public class NaturalIdRepositoryImpl implements NaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public <T> Optional<T> findBySimpleNaturalId(Class<T> entityType, Serializable naturalId) {
+
+        return entityManager.unwrap(Session.class)
+            .bySimpleNaturalId(entityType)
+            .loadOptional(naturalId);
+    }
+}
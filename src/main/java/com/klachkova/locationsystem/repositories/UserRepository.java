@@ -2,8 +2,12 @@ package com.klachkova.locationsystem.repositories;
 
 import com.klachkova.locationsystem.modeles.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,7 +18,7 @@ import java.util.Optional;
  * </p>
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
+public interface UserRepository extends JpaRepository<User, Integer>, NaturalIdRepository {
 
     /**
      * Checks if a user with the given email exists in the database.
@@ -25,11 +29,31 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByEmail(String email);
 
     /**
-     * Finds a user by their unique email address.
+     * Finds a user by their unique email address, through the second-level cache.
      *
      * @param email the email address of the user
      * @return an Optional containing the user if found, otherwise an empty Optional
      */
-    Optional<User> findByEmail(String email);
+    default Optional<User> findByEmail(String email) {
+
+        return findBySimpleNaturalId(User.class, email);
+    }
+
+    /**
+     * Finds all users whose email is one of the given addresses.
+     *
+     * @param emails the email addresses of the users
+     * @return a list of the users found, in no particular order
+     */
+    List<User> findAllByEmailIn(Collection<String> emails);
+
+    /**
+     * Finds which of the given email addresses are already registered.
+     *
+     * @param emails the email addresses to check
+     * @return the email addresses among {@code emails} that belong to a user
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
 
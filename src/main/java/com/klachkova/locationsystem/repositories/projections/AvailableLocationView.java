@@ -0,0 +1,18 @@
+package com.klachkova.locationsystem.repositories.projections;
+
+/**
+ * Flat projection of a location available to a user, together with its owner.
+ * <p>
+ * Returned by {@link com.klachkova.locationsystem.repositories.LocationRepository#findAvailableLocations(int)},
+ * one row per location regardless of how many times it is shared with the user.
+ * </p>
+ */
+public interface AvailableLocationView extends LocationView {
+
+    Integer getOwnerId();
+
+    /**
+     * @return the number of access records granting the location to the user, 0 for locations only owned
+     */
+    Long getShareCount();
+}
@@ -0,0 +1,16 @@
+package com.klachkova.locationsystem.repositories.projections;
+
+/**
+ * Flat projection of a user with access to a location.
+ * <p>
+ * The user ID is only read as the keyset pagination cursor.
+ * </p>
+ */
+public interface FriendView {
+
+    Integer getUserId();
+
+    String getName();
+
+    String getEmail();
+}
@@ -0,0 +1,17 @@
+package com.klachkova.locationsystem.repositories.projections;
+
+/**
+ * Flat projection of a location together with its owner.
+ */
+public interface LocationView {
+
+    Integer getId();
+
+    String getName();
+
+    String getAddress();
+
+    String getOwnerName();
+
+    String getOwnerEmail();
+}
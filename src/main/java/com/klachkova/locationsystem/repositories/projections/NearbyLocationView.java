@@ -0,0 +1,9 @@
+package com.klachkova.locationsystem.repositories.projections;
+
+/**
+ * Flat projection of a location found by a proximity search, together with its owner and its ZIP code.
+ */
+public interface NearbyLocationView extends LocationView {
+
+    String getZipCode();
+}
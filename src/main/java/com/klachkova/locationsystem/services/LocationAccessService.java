@@ -1,19 +1,41 @@
 package com.klachkova.locationsystem.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klachkova.locationsystem.dto.PageDTO;
+import com.klachkova.locationsystem.dto.ShareRequestDTO;
+import com.klachkova.locationsystem.dto.ShareResultDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
 import com.klachkova.locationsystem.modeles.*;
 import com.klachkova.locationsystem.modeles.User;
 import com.klachkova.locationsystem.repositories.LocationAccessRepository;
 import com.klachkova.locationsystem.repositories.LocationRepository;
+import com.klachkova.locationsystem.repositories.projections.FriendView;
+import com.klachkova.locationsystem.util.address.AddressKey;
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor;
+import com.klachkova.locationsystem.util.cache.LocationPermissionMatrix;
+import com.klachkova.locationsystem.util.exceptions.BadRequestException;
+import com.klachkova.locationsystem.util.exceptions.NotCreatedException;
 import com.klachkova.locationsystem.util.exceptions.NotFoundException;
 import com.klachkova.locationsystem.util.exceptions.PermissionDeniedException;
 import com.klachkova.locationsystem.util.exceptions.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 
@@ -31,34 +53,28 @@ public class LocationAccessService {
     private final UserService userService;
     private final LocationRepository locationRepository;
     private final Validator validator;
+    private final AvailableLocationsCacheEvictor availableLocationsCacheEvictor;
+    private final ObjectMapper objectMapper;
+    private final LocationPermissionMatrix permissionMatrix;
 
     @Autowired
     public LocationAccessService(
         LocationAccessRepository locationAccessRepository,
         UserService userService,
         LocationRepository locationRepository,
-        Validator validator
+        Validator validator,
+        AvailableLocationsCacheEvictor availableLocationsCacheEvictor,
+        ObjectMapper objectMapper,
+        LocationPermissionMatrix permissionMatrix
     ) {
 
         this.locationAccessRepository = locationAccessRepository;
         this.userService = userService;
         this.locationRepository = locationRepository;
         this.validator = validator;
-    }
-
-    /**
-     * Retrieves all locations shared with a user.
-     *
-     * @param user the user whose shared locations are to be retrieved
-     * @return a list of locations shared with the user
-     */
-    public List<Location> getAllSharedLocations(User user) {
-
-        List<LocationAccess> locationAccesses = locationAccessRepository.findByUser(user);
-        return locationAccesses.stream()
-            .map(LocationAccess::getLocation)
-            .distinct()
-            .collect(Collectors.toList());
+        this.availableLocationsCacheEvictor = availableLocationsCacheEvictor;
+        this.objectMapper = objectMapper;
+        this.permissionMatrix = permissionMatrix;
     }
 
     /**
@@ -71,6 +87,7 @@ public class LocationAccessService {
      * @param userEmail   the email of the user to share the location with
      * @param accessLevel the access level to grant
      * @throws NotFoundException   if the location or user is not found
+     * @throws NotCreatedException if the location is already shared with the user
      * @throws ValidationException if the LocationAccess data is invalid
      */
     @Transactional
@@ -81,7 +98,93 @@ public class LocationAccessService {
             .orElseThrow(() -> new NotFoundException("Location with ID " + locationId + " not found"));
         LocationAccess locationAccessToSave = new LocationAccess(user, location, accessLevel);
         validateLocationAccess(locationAccessToSave);
-        locationAccessRepository.save(locationAccessToSave);
+        saveNewLocationAccess(locationAccessToSave);
+        permissionMatrix.evictAfterCommit(user.getId(), locationId);
+        availableLocationsCacheEvictor.evictAfterCommit(user.getId(), getOwnerId(location));
+        availableLocationsCacheEvictor.evictFriendsAfterCommit(locationId);
+    }
+
+    /**
+     * Shares a location with several users at once.
+     * <p>
+     * All users are resolved with one query and the already shared ones with another. The new LocationAccess
+     * entries are then inserted together in JDBC batches. Entries that cannot be shared are reported in the result
+     * instead of failing the whole request.
+     * </p>
+     *
+     * @param locationId    the ID of the location to be shared
+     * @param shareRequests the users to share the location with and the access levels to grant
+     * @return the outcome of each entry, in the order of the request
+     * @throws BadRequestException if no entries are given
+     * @throws NotFoundException   if the location is not found
+     * @throws NotCreatedException if the location was shared with one of the users concurrently
+     */
+    @Transactional
+    public List<ShareResultDTO> shareLocationWithUsers(int locationId, List<ShareRequestDTO> shareRequests) {
+
+        if (shareRequests == null || shareRequests.isEmpty()) {
+            throw new BadRequestException("No users to share the location with");
+        }
+        Location location = locationRepository.findById(locationId)
+            .orElseThrow(() -> new NotFoundException("Location with ID " + locationId + " not found"));
+
+        Set<String> emails = shareRequests.stream()
+            .map(ShareRequestDTO::getUserEmail)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<String, User> usersByEmail = userService.findAllByEmails(emails).stream()
+            .collect(Collectors.toMap(User::getEmail, Function.identity()));
+        Set<Integer> sharedUserIds = new HashSet<>();
+        if (!usersByEmail.isEmpty()) {
+            List<Integer> userIds = usersByEmail.values().stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+            sharedUserIds.addAll(locationAccessRepository.findUserIdsByLocationIdAndUserIds(locationId, userIds));
+        }
+
+        List<ShareResultDTO> results = new ArrayList<>(shareRequests.size());
+        List<LocationAccess> locationAccessesToSave = new ArrayList<>();
+        for (ShareRequestDTO shareRequest : shareRequests) {
+            String email = shareRequest.getUserEmail();
+            User user = usersByEmail.get(email);
+            if (user == null) {
+                results.add(new ShareResultDTO(email, ShareResultDTO.Status.USER_NOT_FOUND,
+                    "User with email " + email + " not found"));
+                continue;
+            }
+            if (sharedUserIds.contains(user.getId())) {
+                results.add(new ShareResultDTO(email, ShareResultDTO.Status.ALREADY_SHARED,
+                    "Location is already shared with this user"));
+                continue;
+            }
+            LocationAccess locationAccess = new LocationAccess(user, location, shareRequest.getAccessLevel());
+            try {
+                validateLocationAccess(locationAccess);
+            } catch (ValidationException e) {
+                results.add(new ShareResultDTO(email, ShareResultDTO.Status.INVALID, e.getMessage()));
+                continue;
+            }
+            sharedUserIds.add(user.getId());
+            locationAccessesToSave.add(locationAccess);
+            results.add(new ShareResultDTO(email, ShareResultDTO.Status.SHARED, null));
+        }
+
+        if (!locationAccessesToSave.isEmpty()) {
+            try {
+                locationAccessRepository.saveAll(locationAccessesToSave);
+                locationAccessRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                throw new NotCreatedException("Location was shared with some of these users concurrently, retry");
+            }
+            List<Integer> affectedUserIds = locationAccessesToSave.stream()
+                .map(locationAccess -> locationAccess.getUser().getId())
+                .collect(Collectors.toList());
+            affectedUserIds.forEach(userId -> permissionMatrix.evictAfterCommit(userId, locationId));
+            affectedUserIds.add(getOwnerId(location));
+            availableLocationsCacheEvictor.evictAfterCommit(affectedUserIds.toArray(new Integer[0]));
+            availableLocationsCacheEvictor.evictFriendsAfterCommit(locationId);
+        }
+        return results;
     }
 
     /**
@@ -112,26 +215,81 @@ public class LocationAccessService {
         validateLocationAccess(locationAccess);
 
         locationAccessRepository.save(locationAccess);
+        permissionMatrix.evictAfterCommit(user.getId(), locationId);
+        availableLocationsCacheEvictor.evictAfterCommit(user.getId(), getOwnerId(location));
     }
 
     /**
      * Retrieves all users with access to a specific location.
+     * <p>
+     * The users are read as DTOs with a single query, whatever their number.
+     * </p>
+     *
+     * @param locationId the ID of the location
+     * @return a list of UserDTOs representing the users with access to the location
+     */
+    public List<UserDTO> getFriends(int locationId) {
+
+        return locationAccessRepository.findFriendsByLocationId(locationId);
+    }
+
+    /**
+     * Writes all users with access to a specific location as a JSON array of UserDTOs.
+     * <p>
+     * Rows are read through a forward-only cursor and each one is written as soon as it is read, so memory use does
+     * not depend on the number of users. The opening bracket is flushed before the first row is read, so the client
+     * receives the response headers right away. The transaction stays open until the last row is written.
+     * </p>
      *
      * @param locationId the ID of the location
-     * @return a list of users with access to the location
+     * @param output     the stream the JSON array is written to, left open
+     * @throws IOException if writing the output fails
      */
-    public List<User> getFriends(int locationId) {
+    public void writeFriends(int locationId, OutputStream output) throws IOException {
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        generator.flush();
+        try (Stream<UserDTO> friends = locationAccessRepository.streamFriendsByLocationId(locationId)) {
+            for (UserDTO friend : (Iterable<UserDTO>) friends::iterator) {
+                generator.writeObject(friend);
+            }
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
 
-        List<LocationAccess> accesses = locationAccessRepository.findByLocationId(locationId);
-        return accesses.stream()
-            .map(LocationAccess::getUser)
-            .collect(Collectors.toList());
+    /**
+     * Retrieves a page of the users with access to a specific location, ordered by user ID.
+     * <p>
+     * Reads at most {@code limit + 1} rows, the extra row only tells whether there is a next page.
+     * </p>
+     *
+     * @param locationId  the ID of the location
+     * @param afterUserId only users with a greater ID are returned, 0 for the first page
+     * @param limit       the maximum number of users in the page
+     * @return the page of UserDTOs, its cursor is the ID of its last user
+     */
+    public PageDTO<List<UserDTO>> getFriendsPage(int locationId, int afterUserId, int limit) {
+
+        List<FriendView> rows = locationAccessRepository.findFriendsPage(locationId, afterUserId,
+            PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<FriendView> pageRows = hasMore ? rows.subList(0, limit) : rows;
+        List<UserDTO> friends = new ArrayList<>(pageRows.size());
+        for (FriendView row : pageRows) {
+            friends.add(new UserDTO(row.getName(), row.getEmail()));
+        }
+        return new PageDTO<>(friends, hasMore ? pageRows.get(limit - 1).getUserId() : null);
     }
 
     /**
      * Adds a friend to a location.
      * <p>
-     * Checks if the requesting user has ADMIN access to the location before adding the friend.
+     * Checks if the requesting user has ADMIN access to the location before adding the friend. The access level of
+     * the requesting user is read from the {@link LocationPermissionMatrix}, the database is only queried on a miss
+     * or while Redis is unavailable.
      * </p>
      *
      * @param userId          the ID of the user making the request
@@ -141,20 +299,22 @@ public class LocationAccessService {
      * @throws NotFoundException         if the location or friend is not found, or if the user does not have access
      * to the location
      * @throws PermissionDeniedException if the user does not have ADMIN access to the location
+     * @throws NotCreatedException       if the location is already shared with the friend
      * @throws ValidationException       if the LocationAccess data is invalid
      */
     @Transactional
     public void addFriendToLocation(int userId, String friendEmail, String locationAddress, AccessLevel accessLevel) {
 
         User friendUser = userService.findByEmail(friendEmail);
-        Location location = locationRepository.findByAddress(locationAddress)
+        Location location = locationRepository.findByAddressKey(AddressKey.of(locationAddress))
             .orElseThrow(() -> new NotFoundException("Location with address " + locationAddress + " not found"));
 
-        LocationAccess adminAccess = locationAccessRepository.findByLocationAndUser(location,
-                userService.findById(userId))
-            .orElseThrow(() -> new NotFoundException(
-                "User with ID " + userId + " does not have access to this location"));
-        if (adminAccess.getAccessLevel() != AccessLevel.ADMIN) {
+        AccessLevel requesterAccessLevel = permissionMatrix.getAccessLevel(userId, location.getId(),
+            () -> locationAccessRepository.findAccessLevel(userId, location.getId()).orElse(null));
+        if (requesterAccessLevel == null) {
+            throw new NotFoundException("User with ID " + userId + " does not have access to this location");
+        }
+        if (requesterAccessLevel != AccessLevel.ADMIN) {
             throw new PermissionDeniedException(
                 "User with ID " + userId + " does not have ADMIN access to location with address " + locationAddress);
         }
@@ -163,7 +323,28 @@ public class LocationAccessService {
 
         validateLocationAccess(locationAccess);
 
-        locationAccessRepository.save(locationAccess);
+        saveNewLocationAccess(locationAccess);
+        permissionMatrix.evictAfterCommit(friendUser.getId(), location.getId());
+        availableLocationsCacheEvictor.evictAfterCommit(friendUser.getId(), getOwnerId(location));
+        availableLocationsCacheEvictor.evictFriendsAfterCommit(location.getId());
+    }
+
+    /**
+     * Inserts a new LocationAccess entry.
+     * <p>
+     * The uniqueness of the (user, location) pair is enforced by the database with a single insert.
+     * </p>
+     *
+     * @param locationAccess the LocationAccess entity to insert
+     * @throws NotCreatedException if the location is already shared with the user
+     */
+    private void saveNewLocationAccess(LocationAccess locationAccess) {
+
+        try {
+            locationAccessRepository.saveAndFlush(locationAccess);
+        } catch (DataIntegrityViolationException e) {
+            throw new NotCreatedException("Location is already shared with this user");
+        }
     }
 
     /**
@@ -187,4 +368,16 @@ public class LocationAccessService {
             throw new ValidationException(sb.toString().trim());
         }
     }
+
+    /**
+     * Returns the ID of the location owner, or null if the owner is not set.
+     *
+     * @param location the location
+     * @return the owner ID or null
+     */
+    private Integer getOwnerId(Location location) {
+
+        User owner = location.getOwner();
+        return owner == null ? null : owner.getId();
+    }
 }
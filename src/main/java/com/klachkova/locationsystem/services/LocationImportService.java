@@ -0,0 +1,332 @@
+package com.klachkova.locationsystem.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.LocationImportResultDTO;
+import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.LocationRepository;
+import com.klachkova.locationsystem.repositories.UserRepository;
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor;
+import com.klachkova.locationsystem.util.converters.LocationConverter;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for importing locations in bulk.
+ * <p>
+ * Reads locations as NDJSON, one {@link LocationDTO} per line, and registers them in chunks. The lines of a chunk are
+ * parsed and validated in parallel on a bounded pool shared by all imports. Owners are then resolved with one query
+ * and addresses, de-duplicated in memory, are checked with another, before the chunk is inserted in its own
+ * transaction with JDBC batching. The result of each line is written as soon as its chunk is done, and the persistence
+ * context of each chunk is closed with its transaction.
+ * </p>
+ * <p>
+ * Cached available locations of the owners are evicted once, when the import ends. Evicting them after every chunk
+ * would cost one Redis round trip per owner and chunk, which dominates large imports.
+ * </p>
+ * <p>
+ * The service is deliberately not transactional: a failing chunk does not roll back the chunks before it.
+ * </p>
+ */
+@Service
+public class LocationImportService {
+
+    private final UserRepository userRepository;
+    private final LocationRepository locationRepository;
+    private final LocationConverter locationConverter;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final AvailableLocationsCacheEvictor availableLocationsCacheEvictor;
+    private final ObjectReader locationReader;
+    private final NdjsonChunkedImport ndjsonImport;
+    private final int batchSize;
+    private final int validationThreads;
+    private final ExecutorService validationExecutor;
+
+    @Autowired
+    public LocationImportService(
+        UserRepository userRepository,
+        LocationRepository locationRepository,
+        LocationConverter locationConverter,
+        Validator validator,
+        PlatformTransactionManager transactionManager,
+        EntityManager entityManager,
+        AvailableLocationsCacheEvictor availableLocationsCacheEvictor,
+        ObjectMapper objectMapper,
+        @Value("${locations.import.batch-size:1000}") int batchSize,
+        @Value("${locations.import.validation-threads:4}") int validationThreads
+    ) {
+
+        this.userRepository = userRepository;
+        this.locationRepository = locationRepository;
+        this.locationConverter = locationConverter;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.availableLocationsCacheEvictor = availableLocationsCacheEvictor;
+        this.locationReader = objectMapper.readerFor(LocationDTO.class);
+        this.ndjsonImport = new NdjsonChunkedImport(objectMapper, batchSize);
+        this.batchSize = batchSize;
+        this.validationThreads = validationThreads;
+        this.validationExecutor = createValidationExecutor(validationThreads);
+    }
+
+    /**
+     * Imports the locations read from an NDJSON stream and writes one NDJSON result per non-blank line.
+     * <p>
+     * The output is flushed after each chunk, so the caller sees progress while the import runs.
+     * </p>
+     *
+     * @param input  the NDJSON stream of locations
+     * @param output the stream the {@link LocationImportResultDTO} lines are written to
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public void importLocations(InputStream input, OutputStream output) throws IOException {
+
+        Set<Integer> ownerIds = new HashSet<>();
+        try {
+            ndjsonImport.run(input, output, ImportLine::new, chunk -> importChunk(chunk, ownerIds), this::toResult);
+        } finally {
+            availableLocationsCacheEvictor.evictAfterCommit(ownerIds.toArray(new Integer[0]));
+        }
+    }
+
+    /**
+     * Registers the valid locations of a chunk.
+     *
+     * @param chunk    the lines of the chunk, their results are set
+     * @param ownerIds the IDs of the owners of registered locations, added to
+     * @throws IOException if the validation is interrupted
+     */
+    private void importChunk(List<ImportLine> chunk, Set<Integer> ownerIds) throws IOException {
+
+        parseInParallel(chunk);
+
+        Set<String> ownerEmails = chunk.stream()
+            .filter(importLine -> !importLine.hasResult())
+            .map(importLine -> importLine.locationDTO.getOwner().getEmail())
+            .collect(Collectors.toSet());
+        if (ownerEmails.isEmpty()) {
+            return;
+        }
+        Map<String, User> ownersByEmail = userRepository.findAllByEmailIn(ownerEmails).stream()
+            .collect(Collectors.toMap(User::getEmail, Function.identity()));
+
+        Set<String> addressKeys = new HashSet<>();
+        for (ImportLine importLine : chunk) {
+            if (importLine.hasResult()) {
+                continue;
+            }
+            if (!ownersByEmail.containsKey(importLine.locationDTO.getOwner().getEmail())) {
+                importLine.setResult(LocationImportResultDTO.Status.OWNER_NOT_FOUND, "No such user in the database");
+            } else if (!addressKeys.add(importLine.location.getAddressKey())) {
+                importLine.setResult(LocationImportResultDTO.Status.DUPLICATE,
+                    "Location with that address already exists");
+            }
+        }
+        if (addressKeys.isEmpty()) {
+            return;
+        }
+        Set<String> takenAddressKeys = new HashSet<>(locationRepository.findExistingAddressKeys(addressKeys));
+        List<ImportLine> linesToInsert = new ArrayList<>();
+        for (ImportLine importLine : chunk) {
+            if (importLine.hasResult()) {
+                continue;
+            }
+            if (takenAddressKeys.contains(importLine.location.getAddressKey())) {
+                importLine.setResult(LocationImportResultDTO.Status.DUPLICATE,
+                    "Location with that address already exists");
+                continue;
+            }
+            importLine.location.setOwner(ownersByEmail.get(importLine.locationDTO.getOwner().getEmail()));
+            linesToInsert.add(importLine);
+        }
+        if (linesToInsert.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                List<Location> locations = linesToInsert.stream()
+                    .map(importLine -> importLine.location)
+                    .collect(Collectors.toList());
+                locationRepository.saveAll(locations);
+                locationRepository.flush();
+            });
+            for (ImportLine importLine : linesToInsert) {
+                importLine.setResult(LocationImportResultDTO.Status.CREATED, null);
+                ownerIds.add(importLine.location.getOwner().getId());
+            }
+        } catch (DataIntegrityViolationException e) {
+            for (ImportLine importLine : linesToInsert) {
+                if (importOne(importLine)) {
+                    ownerIds.add(importLine.location.getOwner().getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the location of a single line in its own transaction, after a concurrent registration made the batch
+     * insert of its chunk fail.
+     *
+     * @param importLine the line, its result is set
+     * @return whether the location was registered
+     */
+    private boolean importOne(ImportLine importLine) {
+
+        Location location = locationConverter.convertToEntity(importLine.locationDTO);
+        location.setOwner(importLine.location.getOwner());
+        try {
+            transactionTemplate.executeWithoutResult(status -> locationRepository.saveAndFlush(location));
+            importLine.setResult(LocationImportResultDTO.Status.CREATED, null);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            importLine.setResult(LocationImportResultDTO.Status.DUPLICATE, "Location with that address already exists");
+            return false;
+        }
+    }
+
+    /**
+     * Parses and validates the lines of a chunk, split in one slice per validation thread.
+     *
+     * @param chunk the lines of the chunk
+     * @throws IOException if the validation is interrupted
+     */
+    private void parseInParallel(List<ImportLine> chunk) throws IOException {
+
+        int sliceSize = (chunk.size() + validationThreads - 1) / validationThreads;
+        List<Future<?>> slices = new ArrayList<>(validationThreads);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<ImportLine> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(validationExecutor.submit(() -> slice.forEach(this::parseLine)));
+        }
+        try {
+            for (Future<?> slice : slices) {
+                slice.get();
+            }
+        } catch (InterruptedException e) {
+            slices.forEach(slice -> slice.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Location import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Location validation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and validates a single line. Runs on the validation pool.
+     *
+     * @param importLine the line, an INVALID result is set if it cannot be imported
+     */
+    private void parseLine(ImportLine importLine) {
+
+        LocationDTO locationDTO;
+        try {
+            locationDTO = locationReader.readValue(importLine.text);
+        } catch (JsonProcessingException e) {
+            importLine.setResult(LocationImportResultDTO.Status.INVALID, "Malformed JSON");
+            return;
+        }
+        if (locationDTO == null) {
+            importLine.setResult(LocationImportResultDTO.Status.INVALID, "Malformed JSON");
+            return;
+        }
+        importLine.locationDTO = locationDTO;
+        Location location = locationConverter.convertToEntity(locationDTO);
+        Set<ConstraintViolation<Location>> violations = validator.validate(location);
+        if (!violations.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (ConstraintViolation<Location> violation : violations) {
+                sb.append(violation.getMessage()).append(" ");
+            }
+            importLine.setResult(LocationImportResultDTO.Status.INVALID, sb.toString().trim());
+            return;
+        }
+        if (locationDTO.getOwner().getEmail() == null) {
+            importLine.setResult(LocationImportResultDTO.Status.INVALID, "Owner email should not be empty");
+            return;
+        }
+        importLine.location = location;
+    }
+
+    private LocationImportResultDTO toResult(ImportLine importLine) {
+
+        String address = importLine.locationDTO == null ? null : importLine.locationDTO.getAddress();
+        return new LocationImportResultDTO(importLine.getLineNumber(), address, importLine.getStatus(),
+            importLine.getMessage());
+    }
+
+    /**
+     * Creates the pool validating the lines of all imports. Each chunk submits one task per thread, so the queue
+     * only needs to hold the slices of the chunks waiting for a thread. When it is full, the importing thread
+     * validates the slice itself.
+     */
+    private static ExecutorService createValidationExecutor(int threads) {
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 4),
+            runnable -> {
+                Thread thread = new Thread(runnable, "location-import-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        validationExecutor.shutdownNow();
+    }
+
+    /**
+     * A line of the location import, parsed on the validation pool when its chunk is imported.
+     */
+    private static final class ImportLine extends NdjsonChunkedImport.Line<LocationImportResultDTO.Status> {
+
+        private final String text;
+        private LocationDTO locationDTO;
+        private Location location;
+
+        ImportLine(long lineNumber, String text) {
+
+            super(lineNumber);
+            this.text = text;
+        }
+    }
+}
@@ -4,19 +4,42 @@ import com.klachkova.locationsystem.dto.*;
 import com.klachkova.locationsystem.modeles.*;
 import com.klachkova.locationsystem.repositories.LocationRepository;
 import com.klachkova.locationsystem.repositories.UserRepository;
+import com.klachkova.locationsystem.repositories.projections.AvailableLocationView;
+import com.klachkova.locationsystem.repositories.projections.LocationView;
+import com.klachkova.locationsystem.repositories.projections.NearbyLocationView;
+import com.klachkova.locationsystem.util.address.AddressKey;
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import com.klachkova.locationsystem.util.cache.FutureCache;
+import com.klachkova.locationsystem.util.cache.PageCache;
 import com.klachkova.locationsystem.util.converters.*;
+import com.klachkova.locationsystem.util.exceptions.BadRequestException;
 import com.klachkova.locationsystem.util.exceptions.NotCreatedException;
 import com.klachkova.locationsystem.util.exceptions.NotFoundException;
+import com.klachkova.locationsystem.util.exceptions.ServiceUnavailableException;
 import com.klachkova.locationsystem.util.exceptions.ValidationException;
+import com.klachkova.locationsystem.util.geo.GeoPoint;
+import com.klachkova.locationsystem.util.geo.ZipCentroids;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service class for managing Location entities.
@@ -29,36 +52,68 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class LocationService {
 
+    /**
+     * The largest page size accepted by the paginated methods.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * The largest radius in kilometers accepted by {@link #getAvailableLocationsNear(int, String, double)}.
+     */
+    public static final double MAX_RADIUS_KM = 1000;
+
+    /**
+     * The largest number of ZIP codes in the {@code IN} list of a query of
+     * {@link #getAvailableLocationsNear(int, String, double)}.
+     */
+    static final int ZIP_CODES_PER_QUERY = 1000;
+
     private final UserRepository userRepository;
-    private final UserConverter userConverter;
     private final LocationRepository locationRepository;
     private final LocationConverter locationConverter;
     private final LocationAccessService locationAccessService;
     private final Validator validator;
+    private final AvailableLocationsCacheEvictor availableLocationsCacheEvictor;
+    private final PageCache pageCache;
+    private final ZipCentroids zipCentroids;
+    private final FutureCache futureCache;
+    private final ExecutorService availableLocationsExecutor;
 
     @Autowired
     public LocationService(
         UserRepository userRepository,
-        UserConverter userConverter,
         com.klachkova.locationsystem.repositories.LocationRepository locationRepository,
         LocationConverter locationConverter,
         LocationAccessService locationAccessService,
-        Validator validator
+        Validator validator,
+        AvailableLocationsCacheEvictor availableLocationsCacheEvictor,
+        PageCache pageCache,
+        ZipCentroids zipCentroids,
+        FutureCache futureCache,
+        @Value("${locations.available.threads:8}") int availableLocationsThreads,
+        @Value("${locations.available.queue-capacity:256}") int availableLocationsQueueCapacity
     ) {
 
         this.userRepository = userRepository;
-        this.userConverter = userConverter;
         this.locationRepository = locationRepository;
         this.locationConverter = locationConverter;
         this.locationAccessService = locationAccessService;
         this.validator = validator;
+        this.availableLocationsCacheEvictor = availableLocationsCacheEvictor;
+        this.pageCache = pageCache;
+        this.zipCentroids = zipCentroids;
+        this.futureCache = futureCache;
+        this.availableLocationsExecutor =
+            createAvailableLocationsExecutor(availableLocationsThreads, availableLocationsQueueCapacity);
     }
 
     /**
      * Registers a new location.
      * <p>
      * Converts the provided LocationDTO to a Location entity, validates it, and saves it to the repository.
-     * Associates the location with the user specified in the DTO.
+     * Associates the location with the user specified in the DTO. Address uniqueness is enforced by the database with
+     * a single insert, on the {@link AddressKey} of the address, so an address differing from a registered one only
+     * in letter case or spacing is rejected.
      * </p>
      *
      * @param locationDTO the data transfer object representing the location to register
@@ -74,10 +129,13 @@ public class LocationService {
         User existingUser = userRepository.findByEmail(locationDTO.getOwner().getEmail())
             .orElseThrow(() -> new NotCreatedException("No such user in the database"));
         locationToRegister.setOwner(existingUser);
-        if (existsByAddress(locationToRegister.getAddress())) {
+        Location registeredLocation;
+        try {
+            registeredLocation = locationRepository.saveAndFlush(locationToRegister);
+        } catch (DataIntegrityViolationException e) {
             throw new NotCreatedException("Location with that address already exists");
         }
-        Location registeredLocation = locationRepository.save(locationToRegister);
+        availableLocationsCacheEvictor.evictAfterCommit(existingUser.getId());
         return locationConverter.convertToDto(registeredLocation);
     }
 
@@ -106,7 +164,8 @@ public class LocationService {
     /**
      * Retrieves a location by its unique address.
      * <p>
-     * Throws an exception if no location with the given address is found.
+     * The address is looked up by its {@link AddressKey}, so letter case and spacing do not matter. Throws an
+     * exception if no location with the given address is found.
      * </p>
      *
      * @param address the address of the location to retrieve
@@ -115,7 +174,7 @@ public class LocationService {
      */
     public Location findByAddress(String address) {
 
-        return locationRepository.findByAddress(address)
+        return locationRepository.findByAddressKey(AddressKey.of(address))
             .orElseThrow(() -> new NotFoundException("Location with address " + address + " not found"));
     }
 
@@ -133,40 +192,247 @@ public class LocationService {
     }
 
     /**
-     * Checks if a location with the given address exists.
+     * Checks if a location with the given address exists, whatever its letter case and spacing.
      *
      * @param address the address to check
      * @return true if a location with the given address exists, otherwise false
      */
     public boolean existsByAddress(String address) {
 
-        return locationRepository.existsByAddress(address);
+        return locationRepository.existsByAddressKey(AddressKey.of(address));
     }
 
     /**
      * Retrieves available locations for a user.
      * <p>
-     * This includes locations owned by the user and locations shared with the user.
+     * This includes locations owned by the user and locations shared with the user, both loaded with a single
+     * query. The user is only looked up when the query returns nothing.
      * </p>
      *
      * @param userId the ID of the user for whom to retrieve available locations
      * @return a list of lists containing DTOs for the user's owned and shared locations
      * @throws NotFoundException if no user with the given ID is found
      */
-    @Cacheable(value = "availableLocations", key = "#userId")
+    @Cacheable(value = CacheNames.AVAILABLE_LOCATIONS, key = "#userId")
     public List<List<LocationDTO>> getAvailableLocations(int userId) {
 
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new NotFoundException("User not found with ID: " + userId));
+        List<AvailableLocationView> availableLocations = locationRepository.findAvailableLocations(userId);
+        if (availableLocations.isEmpty() && !userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found with ID: " + userId);
+        }
+
+        List<LocationDTO> ownLocations = new ArrayList<>();
+        List<LocationDTO> sharedLocations = new ArrayList<>();
+        for (AvailableLocationView availableLocation : availableLocations) {
+            LocationDTO locationDTO = locationConverter.convertToDto(availableLocation);
+            if (availableLocation.getOwnerId() == userId) {
+                ownLocations.add(locationDTO);
+            }
+            if (availableLocation.getShareCount() > 0) {
+                sharedLocations.add(locationDTO);
+            }
+        }
+        List<List<LocationDTO>> result = new ArrayList<>(2);
+        result.add(ownLocations);
+        result.add(sharedLocations);
+        return result;
+    }
+
+    /**
+     * Retrieves available locations for a user without blocking the caller.
+     * <p>
+     * Returns the same lists as {@link #getAvailableLocations(int)}, from the same cache. On a miss, the owned and the
+     * shared locations are read in parallel on a bounded pool, with an index range scan each, so the latency is that
+     * of the slower query rather than their sum. When the pool is saturated, the caller runs the query itself. The
+     * user is only looked up when both queries return nothing.
+     * </p>
+     * <p>
+     * The two queries run in separate transactions, so unlike the single query of {@link #getAvailableLocations(int)}
+     * the result is not read from one snapshot: the owned and the shared lists can reflect different commits. For
+     * example, a location registered by the user after the owned locations were read is missing, while a share
+     * committed at the same time already appears in the shared list.
+     * </p>
+     *
+     * @param userId the ID of the user for whom to retrieve available locations
+     * @return a future of the DTOs for the user's owned and shared locations, failing with a
+     * {@link NotFoundException} if no user with the given ID is found
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<List<List<LocationDTO>>> getAvailableLocationsAsync(int userId) {
+
+        return futureCache.get(CacheNames.AVAILABLE_LOCATIONS, userId, () -> {
+            CompletableFuture<List<LocationView>> ownLocations = CompletableFuture.supplyAsync(
+                () -> locationRepository.findOwnLocations(userId), availableLocationsExecutor);
+            CompletableFuture<List<LocationView>> sharedLocations = CompletableFuture.supplyAsync(
+                () -> locationRepository.findSharedLocations(userId), availableLocationsExecutor);
+            return ownLocations.thenCombine(sharedLocations, (own, shared) -> {
+                if (own.isEmpty() && shared.isEmpty() && !userRepository.existsById(userId)) {
+                    throw new NotFoundException("User not found with ID: " + userId);
+                }
+                List<List<LocationDTO>> result = new ArrayList<>(2);
+                result.add(convertToDtos(own));
+                result.add(convertToDtos(shared));
+                return result;
+            });
+        });
+    }
+
+    private List<LocationDTO> convertToDtos(List<LocationView> views) {
+
+        List<LocationDTO> locationDTOs = new ArrayList<>(views.size());
+        for (LocationView view : views) {
+            locationDTOs.add(locationConverter.convertToDto(view));
+        }
+        return locationDTOs;
+    }
+
+    /**
+     * Retrieves a page of the available locations of a user.
+     * <p>
+     * Pages hold up to {@code limit} distinct locations ordered by ID, split like
+     * {@link #getAvailableLocations(int)} into owned and shared locations. Owned and shared locations are read with
+     * two index range scans of at most {@code limit + 1} rows and merged, so a page costs the same wherever it is in
+     * the list. Pages are cached until the available locations of the user change.
+     * </p>
+     *
+     * @param userId the ID of the user for whom to retrieve available locations
+     * @param cursor the {@link PageDTO#getNextCursor()} of the previous page, null for the first page
+     * @param limit  the maximum number of locations in the page
+     * @return the page, with the owned and the shared locations as items
+     * @throws BadRequestException if the limit is not between 1 and {@link #MAX_PAGE_SIZE}
+     * @throws NotFoundException   if no user with the given ID is found
+     */
+    public PageDTO<List<List<LocationDTO>>> getAvailableLocationsPage(int userId, Integer cursor, int limit) {
+
+        validatePageSize(limit);
+        int afterId = cursor == null ? 0 : cursor;
+        return pageCache.get(CacheNames.AVAILABLE_LOCATION_PAGES, userId, afterId + ":" + limit,
+            () -> loadAvailableLocationsPage(userId, afterId, limit));
+    }
+
+    private PageDTO<List<List<LocationDTO>>> loadAvailableLocationsPage(int userId, int afterId, int limit) {
+
+        Pageable firstRows = PageRequest.of(0, limit + 1);
+        List<LocationView> own = locationRepository.findOwnLocationsPage(userId, afterId, firstRows);
+        List<LocationView> shared = locationRepository.findSharedLocationsPage(userId, afterId, firstRows);
+        if (own.isEmpty() && shared.isEmpty() && !userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found with ID: " + userId);
+        }
+
+        List<LocationDTO> ownLocations = new ArrayList<>();
+        List<LocationDTO> sharedLocations = new ArrayList<>();
+        int ownIndex = 0;
+        int sharedIndex = 0;
+        int lastId = afterId;
+        for (int count = 0; count < limit && (ownIndex < own.size() || sharedIndex < shared.size()); count++) {
+            int ownId = ownIndex < own.size() ? own.get(ownIndex).getId() : Integer.MAX_VALUE;
+            int sharedId = sharedIndex < shared.size() ? shared.get(sharedIndex).getId() : Integer.MAX_VALUE;
+            lastId = Math.min(ownId, sharedId);
+            if (ownId == lastId) {
+                ownLocations.add(locationConverter.convertToDto(own.get(ownIndex++)));
+            }
+            if (sharedId == lastId) {
+                sharedLocations.add(locationConverter.convertToDto(shared.get(sharedIndex++)));
+            }
+        }
+        boolean hasMore = ownIndex < own.size() || sharedIndex < shared.size();
+
+        List<List<LocationDTO>> items = new ArrayList<>(2);
+        items.add(ownLocations);
+        items.add(sharedLocations);
+        return new PageDTO<>(items, hasMore ? lastId : null);
+    }
+
+    /**
+     * Retrieves the available locations of a user within a radius of a ZIP code, nearest first.
+     * <p>
+     * Distances are measured between the centroids of the ZIP codes, from the offline {@link ZipCentroids} table.
+     * The ZIP codes within the radius are resolved from the table, then the owned and the shared locations in these
+     * ZIP codes are read on the owner, access or ZIP code indexes, by batches of {@link #ZIP_CODES_PER_QUERY} ZIP
+     * codes. Nothing derived from the table is stored with the locations, so a location is found as soon as its ZIP
+     * code is in the table, and locations in an unknown ZIP code are never found.
+     * </p>
+     *
+     * @param userId   the ID of the user for whom to retrieve available locations
+     * @param zipCode  the five-digit ZIP code at the center of the search, a "-1234" extension is ignored
+     * @param radiusKm the radius of the search in kilometers
+     * @return the owned and shared locations within the radius, ordered by distance then ID
+     * @throws ServiceUnavailableException if no ZIP centroid table is loaded
+     * @throws BadRequestException         if the radius is not between 0 and {@link #MAX_RADIUS_KM} or the ZIP code
+     *                                     is malformed
+     * @throws NotFoundException           if the ZIP code is unknown or no user with the given ID is found
+     */
+    public List<NearbyLocationDTO> getAvailableLocationsNear(int userId, String zipCode, double radiusKm) {
 
-        List<Location> allOwnLocations = locationRepository.findAllByOwner(user);
-        List<Location> allSharedLocations = locationAccessService.getAllSharedLocations(user);
-        List<List<Location>> availableLocations = Arrays.asList(allOwnLocations, allSharedLocations);
-        return availableLocations.stream()
-            .map(locationList -> locationList.stream()
-                .map(locationConverter::convertToDto)
-                .collect(Collectors.toList()))
-            .collect(Collectors.toList());
+        if (!zipCentroids.isLoaded()) {
+            throw new ServiceUnavailableException(
+                "Searching locations near a ZIP code is unavailable: no ZIP centroid table is loaded");
+        }
+        if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+            throw new BadRequestException("Radius must be greater than 0 and at most " + MAX_RADIUS_KM + " km");
+        }
+        if (!ZipCentroids.isWellFormed(zipCode)) {
+            throw new BadRequestException("ZIP code must be 5 digits, optionally followed by a 4-digit extension");
+        }
+        GeoPoint center = zipCentroids.find(zipCode);
+        if (center == null) {
+            throw new NotFoundException("ZIP code " + zipCode + " not found");
+        }
+
+        List<String> zipCodes = zipCentroids.findZipCodesWithin(center, radiusKm);
+        List<NearbyLocationView> candidates = new ArrayList<>();
+        for (int from = 0; from < zipCodes.size(); from += ZIP_CODES_PER_QUERY) {
+            List<String> batch = zipCodes.subList(from, Math.min(from + ZIP_CODES_PER_QUERY, zipCodes.size()));
+            candidates.addAll(locationRepository.findOwnLocationsInZipCodes(userId, batch));
+            candidates.addAll(locationRepository.findSharedLocationsInZipCodes(userId, batch));
+        }
+        if (candidates.isEmpty() && !userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found with ID: " + userId);
+        }
+
+        candidates.sort(Comparator.comparingInt(NearbyLocationView::getId));
+        Set<Integer> seenIds = new HashSet<>();
+        List<NearbyLocationDTO> nearby = new ArrayList<>();
+        for (NearbyLocationView candidate : candidates) {
+            GeoPoint centroid = zipCentroids.find(candidate.getZipCode());
+            if (centroid == null || !seenIds.add(candidate.getId())) {
+                continue;
+            }
+            double distanceKm = center.distanceKm(centroid);
+            if (distanceKm <= radiusKm) {
+                nearby.add(new NearbyLocationDTO(locationConverter.convertToDto(candidate), distanceKm));
+            }
+        }
+        // stable, so equal distances stay ordered by ID
+        nearby.sort(Comparator.comparingDouble(NearbyLocationDTO::getDistanceKm));
+        return nearby;
+    }
+
+    /**
+     * Retrieves a page of the users with access to a specific location, ordered by user ID.
+     * <p>
+     * Pages are read with one index range scan and cached until the location is shared again.
+     * </p>
+     *
+     * @param locationId the ID of the location
+     * @param cursor     the {@link PageDTO#getNextCursor()} of the previous page, null for the first page
+     * @param limit      the maximum number of users in the page
+     * @return the page of UserDTOs
+     * @throws BadRequestException if the limit is not between 1 and {@link #MAX_PAGE_SIZE}
+     */
+    public PageDTO<List<UserDTO>> getFriendsToLocationPage(int locationId, Integer cursor, int limit) {
+
+        validatePageSize(limit);
+        int afterUserId = cursor == null ? 0 : cursor;
+        return pageCache.get(CacheNames.FRIEND_PAGES, locationId, afterUserId + ":" + limit,
+            () -> locationAccessService.getFriendsPage(locationId, afterUserId, limit));
+    }
+
+    private static void validatePageSize(int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
     }
 
     /**
@@ -177,9 +443,31 @@ public class LocationService {
      */
     public List<UserDTO> getFriendsToLocation(int locationId) {
 
-        return locationAccessService.getFriends(locationId)
-            .stream()
-            .map(userConverter::convertToDto)
-            .collect(Collectors.toList());
+        return locationAccessService.getFriends(locationId);
+    }
+
+    /**
+     * Creates the pool reading the owned and shared locations of {@link #getAvailableLocationsAsync(int)}, so the
+     * queries do not hold request threads. When the queue is full, the calling thread runs the query itself, which
+     * needs {@code spring.jpa.open-in-view} off: a query on a request thread would otherwise keep its connection until
+     * the response is written, while the response waits for the other query to get a connection.
+     */
+    private static ExecutorService createAvailableLocationsExecutor(int threads, int queueCapacity) {
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "available-locations-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        availableLocationsExecutor.shutdownNow();
     }
 }
@@ -0,0 +1,146 @@
+package com.klachkova.locationsystem.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads an NDJSON stream in chunks of lines and writes one NDJSON result per non-blank line, for the bulk imports.
+ * <p>
+ * Blank lines are skipped but still counted, so the line numbers of the results match the input. The results of a
+ * chunk are written and flushed as soon as the chunk is imported, so the caller sees progress while the import runs
+ * and memory use depends on the chunk size only, not on the input size.
+ * </p>
+ */
+final class NdjsonChunkedImport {
+
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    NdjsonChunkedImport(ObjectMapper objectMapper, int chunkSize) {
+
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Runs an import.
+     *
+     * @param input         the NDJSON stream to import
+     * @param output        the stream the results are written to
+     * @param lineFactory   creates the line of the import for the text of a non-blank line
+     * @param chunkImporter imports the lines of a chunk and sets their results
+     * @param resultMapper  maps a line to the result written for it
+     * @param <L>           the type of the lines of the import
+     * @throws IOException if reading the input, importing a chunk or writing the output fails
+     */
+    <L extends Line<?>> void run(
+        InputStream input,
+        OutputStream output,
+        LineFactory<L> lineFactory,
+        ChunkImporter<L> chunkImporter,
+        Function<L, ?> resultMapper
+    ) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        List<L> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            chunk.add(lineFactory.create(lineNumber, line));
+            if (chunk.size() == chunkSize) {
+                chunkImporter.importChunk(chunk);
+                writeResults(chunk, resultMapper, generator);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkImporter.importChunk(chunk);
+            writeResults(chunk, resultMapper, generator);
+        }
+        generator.close();
+    }
+
+    private static <L> void writeResults(List<L> chunk, Function<L, ?> resultMapper, JsonGenerator generator)
+        throws IOException {
+
+        for (L line : chunk) {
+            generator.writeObject(resultMapper.apply(line));
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    @FunctionalInterface
+    interface LineFactory<L> {
+
+        L create(long lineNumber, String text);
+    }
+
+    @FunctionalInterface
+    interface ChunkImporter<L> {
+
+        void importChunk(List<L> chunk) throws IOException;
+    }
+
+    /**
+     * A line of an import and its result, kept only until its chunk is written. A line without a status is still to
+     * be imported.
+     *
+     * @param <S> the type of the result status
+     */
+    abstract static class Line<S> {
+
+        private final long lineNumber;
+        private S status;
+        private String message;
+
+        Line(long lineNumber) {
+
+            this.lineNumber = lineNumber;
+        }
+
+        long getLineNumber() {
+
+            return lineNumber;
+        }
+
+        S getStatus() {
+
+            return status;
+        }
+
+        String getMessage() {
+
+            return message;
+        }
+
+        boolean hasResult() {
+
+            return status != null;
+        }
+
+        void setResult(S status, String message) {
+
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.klachkova.locationsystem.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.klachkova.locationsystem.dto.UserDTO;
+import com.klachkova.locationsystem.dto.UserImportResultDTO;
+import com.klachkova.locationsystem.modeles.User;
+import com.klachkova.locationsystem.repositories.UserRepository;
+import com.klachkova.locationsystem.util.converters.UserConverter;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for importing users in bulk.
+ * <p>
+ * Reads users as NDJSON, one {@link UserDTO} per line, and registers them in chunks. Each chunk is validated, checked
+ * for existing emails with a single query and inserted in its own transaction with JDBC batching. The result of each
+ * line is written as soon as its chunk is done, so memory use depends on the chunk size only, not on the input size:
+ * each transaction closes its own persistence context, so no entity outlives its chunk.
+ * </p>
+ * <p>
+ * The service is deliberately not transactional: a failing chunk does not roll back the chunks before it.
+ * </p>
+ */
+@Service
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final UserConverter userConverter;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectReader userReader;
+    private final NdjsonChunkedImport ndjsonImport;
+    private final int batchSize;
+
+    @Autowired
+    public UserImportService(
+        UserRepository userRepository,
+        UserConverter userConverter,
+        Validator validator,
+        PlatformTransactionManager transactionManager,
+        EntityManager entityManager,
+        ObjectMapper objectMapper,
+        @Value("${users.import.batch-size:500}") int batchSize
+    ) {
+
+        this.userRepository = userRepository;
+        this.userConverter = userConverter;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.userReader = objectMapper.readerFor(UserDTO.class);
+        this.ndjsonImport = new NdjsonChunkedImport(objectMapper, batchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the users read from an NDJSON stream and writes one NDJSON result per non-blank line.
+     * <p>
+     * The output is flushed after each chunk, so the caller sees progress while the import runs.
+     * </p>
+     *
+     * @param input  the NDJSON stream of users
+     * @param output the stream the {@link UserImportResultDTO} lines are written to
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public void importUsers(InputStream input, OutputStream output) throws IOException {
+
+        ndjsonImport.run(input, output, this::parseLine, this::importChunk, this::toResult);
+    }
+
+    /**
+     * Parses and validates a single line.
+     *
+     * @param lineNumber the 1-based number of the line
+     * @param line       the line
+     * @return the parsed line, with an INVALID result if it cannot be imported
+     */
+    private ImportLine parseLine(long lineNumber, String line) {
+
+        UserDTO userDTO;
+        try {
+            userDTO = userReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            userDTO = null;
+        }
+        ImportLine importLine = new ImportLine(lineNumber, userDTO);
+        if (userDTO == null) {
+            importLine.setResult(UserImportResultDTO.Status.INVALID, "Malformed JSON");
+            return importLine;
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(userConverter.convertToEntity(userDTO));
+        if (!violations.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (ConstraintViolation<User> violation : violations) {
+                sb.append(violation.getMessage()).append(" ");
+            }
+            importLine.setResult(UserImportResultDTO.Status.INVALID, sb.toString().trim());
+        }
+        return importLine;
+    }
+
+    /**
+     * Registers the valid users of a chunk.
+     * <p>
+     * Emails already registered, or repeated within the chunk, are checked with one query before the insert. If the
+     * batch insert still hits the unique constraint, because of a concurrent registration, the users of the chunk
+     * are inserted one by one instead.
+     * </p>
+     *
+     * @param chunk the lines of the chunk, their results are set
+     */
+    private void importChunk(List<ImportLine> chunk) {
+
+        Set<String> emails = chunk.stream()
+            .filter(importLine -> !importLine.hasResult())
+            .map(importLine -> importLine.userDTO.getEmail())
+            .collect(Collectors.toSet());
+        if (emails.isEmpty()) {
+            return;
+        }
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+        List<ImportLine> linesToInsert = new ArrayList<>();
+        for (ImportLine importLine : chunk) {
+            if (importLine.hasResult()) {
+                continue;
+            }
+            if (!takenEmails.add(importLine.userDTO.getEmail())) {
+                importLine.setResult(UserImportResultDTO.Status.DUPLICATE, "User with this email already exists.");
+                continue;
+            }
+            linesToInsert.add(importLine);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                userRepository.saveAll(linesToInsert.stream()
+                    .map(importLine -> userConverter.convertToEntity(importLine.userDTO))
+                    .collect(Collectors.toList()));
+                userRepository.flush();
+            });
+            linesToInsert.forEach(importLine -> importLine.setResult(UserImportResultDTO.Status.CREATED, null));
+        } catch (DataIntegrityViolationException e) {
+            linesToInsert.forEach(this::importOne);
+        }
+    }
+
+    /**
+     * Registers the user of a single line in its own transaction.
+     *
+     * @param importLine the line, its result is set
+     */
+    private void importOne(ImportLine importLine) {
+
+        try {
+            transactionTemplate.executeWithoutResult(
+                status -> userRepository.saveAndFlush(userConverter.convertToEntity(importLine.userDTO)));
+            importLine.setResult(UserImportResultDTO.Status.CREATED, null);
+        } catch (DataIntegrityViolationException e) {
+            importLine.setResult(UserImportResultDTO.Status.DUPLICATE, "User with this email already exists.");
+        }
+    }
+
+    private UserImportResultDTO toResult(ImportLine importLine) {
+
+        String email = importLine.userDTO == null ? null : importLine.userDTO.getEmail();
+        return new UserImportResultDTO(importLine.getLineNumber(), email, importLine.getStatus(),
+            importLine.getMessage());
+    }
+
+    /**
+     * A line of the user import and the user read from it, null if it is malformed.
+     */
+    private static final class ImportLine extends NdjsonChunkedImport.Line<UserImportResultDTO.Status> {
+
+        private final UserDTO userDTO;
+
+        ImportLine(long lineNumber, UserDTO userDTO) {
+
+            super(lineNumber);
+            this.userDTO = userDTO;
+        }
+    }
+}
@@ -8,11 +8,14 @@ import com.klachkova.locationsystem.util.exceptions.NotCreatedException;
 import com.klachkova.locationsystem.util.exceptions.NotFoundException;
 import com.klachkova.locationsystem.util.exceptions.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -41,7 +44,8 @@ public class UserService {
     /**
      * Registers a new user.
      * <p>
-     * Converts the provided UserDTO to a User entity, validates it, and saves it to the repository.
+     * Converts the provided UserDTO to a User entity, validates it, and saves it to the repository. Email uniqueness
+     * is enforced by the database with a single insert.
      * </p>
      *
      * @param userDTO the data transfer object representing the user to register
@@ -54,11 +58,12 @@ public class UserService {
 
         User userToRegister = userConverter.convertToEntity(userDTO);
         validateUser(userToRegister);
-        String email = userToRegister.getEmail();
-        if (userRepository.existsByEmail(email)) {
+        User registeredUser;
+        try {
+            registeredUser = userRepository.saveAndFlush(userToRegister);
+        } catch (DataIntegrityViolationException e) {
             throw new NotCreatedException("User with this email already exists.");
         }
-        User registeredUser = userRepository.save(userToRegister);
         return userConverter.convertToDto(registeredUser);
     }
 
@@ -125,4 +130,18 @@ public class UserService {
         return userRepository.findByEmail(email)
             .orElseThrow(() -> new NotFoundException("User with email " + email + " not found"));
     }
+
+    /**
+     * Retrieves the users with any of the given emails, with a single query.
+     *
+     * @param emails the emails of the users to retrieve
+     * @return the User entities found, emails without a user are skipped
+     */
+    public List<User> findAllByEmails(Collection<String> emails) {
+
+        if (emails.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return userRepository.findAllByEmailIn(emails);
+    }
 }
\ No newline at end of file
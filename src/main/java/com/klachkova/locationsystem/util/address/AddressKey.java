@@ -0,0 +1,91 @@
+package com.klachkova.locationsystem.util.address;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Computes the lookup key of an address.
+ * <p>
+ * The address is canonicalized first: letters are upper-cased, runs of whitespace are collapsed to a single space
+ * and the parts between commas are trimmed and joined with {@code ", "}. So "123  main st,Springfield, IL, 62704" and
+ * "123 Main St, Springfield, IL, 62704" have the same key. The key is the first 128 bits of the SHA-256 digest of
+ * the canonical form, as {@value #LENGTH} hex characters, which keeps the indexed column short and fixed-width.
+ * </p>
+ */
+public final class AddressKey {
+
+    /**
+     * Length of a key in characters.
+     */
+    public static final int LENGTH = 32;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private AddressKey() {
+
+    }
+
+    /**
+     * Computes the lookup key of an address.
+     *
+     * @param address the address, in any letter case and spacing
+     * @return the key of the address, or null if the address is null
+     */
+    public static String of(String address) {
+
+        if (address == null) {
+            return null;
+        }
+        byte[] digest = sha256().digest(canonicalize(address).getBytes(StandardCharsets.UTF_8));
+        char[] key = new char[LENGTH];
+        for (int i = 0; i < LENGTH / 2; i++) {
+            key[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            key[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Returns the canonical form of an address, the one its key is computed from.
+     *
+     * @param address the address, in any letter case and spacing
+     * @return the canonical form of the address
+     */
+    public static String canonicalize(String address) {
+
+        StringBuilder canonical = new StringBuilder(address.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = canonical.length() > 0;
+            } else if (c == ',') {
+                canonical.append(", ");
+                pendingSpace = false;
+            } else {
+                if (pendingSpace && canonical.charAt(canonical.length() - 1) != ' ') {
+                    canonical.append(' ');
+                }
+                pendingSpace = false;
+                canonical.append(c);
+            }
+        }
+        int end = canonical.length();
+        while (end > 0 && canonical.charAt(end - 1) == ' ') {
+            end--;
+        }
+        canonical.setLength(end);
+        return canonical.toString().toUpperCase(Locale.ROOT);
+    }
+
+    private static MessageDigest sha256() {
+
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.klachkova.locationsystem.util.address;
+
+/**
+ * Components of a US address, as returned by {@link USAddressParser#parse(String)}.
+ */
+public final class ParsedAddress {
+
+    private final String street;
+    private final String city;
+    private final String state;
+    private final String zipCode;
+
+    ParsedAddress(String street, String city, String state, String zipCode) {
+
+        this.street = street;
+        this.city = city;
+        this.state = state;
+        this.zipCode = zipCode;
+    }
+
+    /**
+     * @return the street number and name, e.g. "123 Main St"
+     */
+    public String getStreet() {
+
+        return street;
+    }
+
+    /**
+     * @return the city, e.g. "Springfield"
+     */
+    public String getCity() {
+
+        return city;
+    }
+
+    /**
+     * @return the two-letter state code, e.g. "IL"
+     */
+    public String getState() {
+
+        return state;
+    }
+
+    /**
+     * @return the five-digit ZIP code, with the "-1234" extension if the address has one
+     */
+    public String getZipCode() {
+
+        return zipCode;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ParsedAddress{" +
+            "street='" + street + '\'' +
+            ", city='" + city + '\'' +
+            ", state='" + state + '\'' +
+            ", zipCode='" + zipCode + '\'' +
+            '}';
+    }
+}
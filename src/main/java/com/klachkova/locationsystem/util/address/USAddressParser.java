@@ -0,0 +1,169 @@
+package com.klachkova.locationsystem.util.address;
+
+/**
+ * Single-pass parser of US addresses in the format '123 Main St, Springfield, IL, 62704' or
+ * '123 Main St, Springfield, IL, 62704-1234'.
+ * <p>
+ * Accepts exactly the addresses matched by the former validation pattern
+ * {@code ^(\d+)\s([\w\s]+),\s([\w\s]+),\s([A-Z]{2}),\s(\d{5})(-\d{4})?$}, with ASCII character classes, but walks
+ * the characters once without a regex engine. {@link #isValid(CharSequence)} allocates nothing,
+ * {@link #parse(String)} only allocates the components of a valid address.
+ * </p>
+ */
+public final class USAddressParser {
+
+    private static final int STREET_END = 0;
+    private static final int CITY_START = 1;
+    private static final int CITY_END = 2;
+    private static final int STATE_START = 3;
+    private static final int ZIP_START = 4;
+
+    private USAddressParser() {
+
+    }
+
+    /**
+     * Checks whether an address is in the US format.
+     *
+     * @param address the address to check
+     * @return true if the address is in the US format, false if it is not or is null
+     */
+    public static boolean isValid(CharSequence address) {
+
+        return address != null && scan(address, null);
+    }
+
+    /**
+     * Parses an address in the US format into its components. Whitespace around the street and the city is dropped.
+     *
+     * @param address the address to parse
+     * @return the components of the address, or null if the address is not in the US format or is null
+     */
+    public static ParsedAddress parse(String address) {
+
+        if (address == null) {
+            return null;
+        }
+        int[] bounds = new int[5];
+        if (!scan(address, bounds)) {
+            return null;
+        }
+        return new ParsedAddress(
+            trim(address, 0, bounds[STREET_END]),
+            trim(address, bounds[CITY_START], bounds[CITY_END]),
+            address.substring(bounds[STATE_START], bounds[STATE_START] + 2),
+            address.substring(bounds[ZIP_START]));
+    }
+
+    /**
+     * Walks the address once, recording the bounds of the components into {@code bounds} unless it is null.
+     */
+    private static boolean scan(CharSequence s, int[] bounds) {
+
+        int n = s.length();
+        int i = 0;
+        while (i < n && isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == n || !isSpace(s.charAt(i))) {
+            return false;
+        }
+        int streetEnd = skipWordsAndSpaces(s, i + 1);
+        if (streetEnd == i + 1 || !isSeparator(s, streetEnd)) {
+            return false;
+        }
+        int cityStart = streetEnd + 2;
+        int cityEnd = skipWordsAndSpaces(s, cityStart);
+        if (cityEnd == cityStart || !isSeparator(s, cityEnd)) {
+            return false;
+        }
+        int stateStart = cityEnd + 2;
+        if (stateStart + 2 > n || !isUpper(s.charAt(stateStart)) || !isUpper(s.charAt(stateStart + 1))
+            || !isSeparator(s, stateStart + 2)) {
+            return false;
+        }
+        int zipStart = stateStart + 4;
+        if (!isDigits(s, zipStart, 5)) {
+            return false;
+        }
+        int zipEnd = zipStart + 5;
+        if (zipEnd != n && (zipEnd + 5 != n || s.charAt(zipEnd) != '-' || !isDigits(s, zipEnd + 1, 4))) {
+            return false;
+        }
+        if (bounds != null) {
+            bounds[STREET_END] = streetEnd;
+            bounds[CITY_START] = cityStart;
+            bounds[CITY_END] = cityEnd;
+            bounds[STATE_START] = stateStart;
+            bounds[ZIP_START] = zipStart;
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first character from {@code from} that is neither a word character nor whitespace
+     */
+    private static int skipWordsAndSpaces(CharSequence s, int from) {
+
+        int i = from;
+        while (i < s.length() && (isWord(s.charAt(i)) || isSpace(s.charAt(i)))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return true if a comma followed by a whitespace character starts at {@code i}
+     */
+    private static boolean isSeparator(CharSequence s, int i) {
+
+        return i + 1 < s.length() && s.charAt(i) == ',' && isSpace(s.charAt(i + 1));
+    }
+
+    private static boolean isDigits(CharSequence s, int from, int count) {
+
+        if (from + count > s.length()) {
+            return false;
+        }
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUpper(char c) {
+
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isWord(char c) {
+
+        return isDigit(c) || isUpper(c) || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    /**
+     * Same characters as {@code \s}: space, tab, line feed, vertical tab, form feed and carriage return.
+     */
+    private static boolean isSpace(char c) {
+
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static String trim(String s, int from, int to) {
+
+        while (from < to && isSpace(s.charAt(from))) {
+            from++;
+        }
+        while (to > from && isSpace(s.charAt(to - 1))) {
+            to--;
+        }
+        return s.substring(from, to);
+    }
+}
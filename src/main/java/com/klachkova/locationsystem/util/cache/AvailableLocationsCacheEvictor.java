@@ -0,0 +1,162 @@
+package com.klachkova.locationsystem.util.cache;
+
+import com.klachkova.locationsystem.util.datasource.ReplicaLagMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Evicts entries of the {@link CacheNames#AVAILABLE_LOCATIONS} cache for the users affected by a change, together
+ * with their cached pages, and the cached {@link CacheNames#FRIEND_PAGES} of the locations affected by a change.
+ * <p>
+ * When called inside a transaction, eviction is deferred until the transaction commits, so a concurrent reader
+ * cannot re-populate the cache with data that is about to change. Rolled back transactions leave the cache intact.
+ * </p>
+ * <p>
+ * With a read replica, a read right after the commit can still see the old data on the replica and cache it. The
+ * entries are therefore evicted a second time once the largest staleness of a replica read,
+ * {@link ReplicaLagMonitor#getMaxStaleness()}, has passed.
+ * </p>
+ */
+@Component
+public class AvailableLocationsCacheEvictor {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailableLocationsCacheEvictor.class);
+
+    private final CacheManager cacheManager;
+    private final Duration replicaStaleness;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public AvailableLocationsCacheEvictor(
+        CacheManager cacheManager,
+        ObjectProvider<ReplicaLagMonitor> replicaLagMonitor
+    ) {
+
+        this(cacheManager, replicaLagMonitor.getIfAvailable());
+    }
+
+    private AvailableLocationsCacheEvictor(CacheManager cacheManager, ReplicaLagMonitor replicaLagMonitor) {
+
+        this(cacheManager, replicaLagMonitor == null ? null : replicaLagMonitor.getMaxStaleness(),
+            replicaLagMonitor == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-stale-eviction");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    }
+
+    /**
+     * @param replicaStaleness the delay of the second eviction, null without a replica
+     * @param scheduler        runs the second evictions, null without a replica
+     */
+    AvailableLocationsCacheEvictor(
+        CacheManager cacheManager,
+        Duration replicaStaleness,
+        ScheduledExecutorService scheduler
+    ) {
+
+        this.cacheManager = cacheManager;
+        this.replicaStaleness = replicaStaleness;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Evicts cached available locations of the given users once the current transaction commits,
+     * or immediately if there is no transaction.
+     *
+     * @param userIds the IDs of the affected users; null IDs are ignored
+     */
+    public void evictAfterCommit(Integer... userIds) {
+
+        evictAfterCommit(userIds, CacheNames.AVAILABLE_LOCATIONS, CacheNames.AVAILABLE_LOCATION_PAGES);
+    }
+
+    /**
+     * Evicts cached friend pages of the given locations once the current transaction commits,
+     * or immediately if there is no transaction.
+     *
+     * @param locationIds the IDs of the affected locations; null IDs are ignored
+     */
+    public void evictFriendsAfterCommit(Integer... locationIds) {
+
+        evictAfterCommit(locationIds, CacheNames.FRIEND_PAGES);
+    }
+
+    private void evictAfterCommit(Integer[] ids, String... cacheNames) {
+
+        Set<Integer> keys = Arrays.stream(ids)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+
+                    evictNowAndAfterReplicaLag(keys, cacheNames);
+                }
+            });
+        } else {
+            evictNowAndAfterReplicaLag(keys, cacheNames);
+        }
+    }
+
+    private void evictNowAndAfterReplicaLag(Collection<Integer> ids, String... cacheNames) {
+
+        evict(ids, cacheNames);
+        if (scheduler != null) {
+            scheduler.schedule(() -> evict(ids, cacheNames), replicaStaleness.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void evict(Collection<Integer> ids, String... cacheNames) {
+
+        for (String cacheName : cacheNames) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                continue;
+            }
+            for (Integer id : ids) {
+                try {
+                    cache.evict(id);
+                } catch (RuntimeException e) {
+                    // the data is already committed, a failed eviction must not fail the request
+                    log.warn("Failed to evict {} entry {}", cacheName, id, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the delayed evictions.
+     */
+    @PreDestroy
+    public void shutdown() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Applies {@link CacheInvalidationMessage}s published by other nodes to the local tier of this node, and to its
+ * {@link LocationPermissionMatrix}.
+ */
+public class CacheInvalidationListener implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    private final TwoTierCacheManager cacheManager;
+    private final LocationPermissionMatrix permissionMatrix;
+    private final String nodeId;
+
+    public CacheInvalidationListener(
+        TwoTierCacheManager cacheManager,
+        LocationPermissionMatrix permissionMatrix,
+        String nodeId
+    ) {
+
+        this.cacheManager = cacheManager;
+        this.permissionMatrix = permissionMatrix;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        CacheInvalidationMessage invalidation;
+        try {
+            invalidation = CacheInvalidationMessage.parse(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring cache invalidation: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(invalidation.getNodeId())) {
+            return;
+        }
+        if (CacheNames.LOCATION_PERMISSIONS.equals(invalidation.getCacheName())) {
+            applyToPermissionMatrix(invalidation);
+            return;
+        }
+        TwoTierCache cache = cacheManager.getExistingCache(invalidation.getCacheName());
+        if (cache == null) {
+            return;
+        }
+        if (invalidation.isClear()) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(invalidation.getKey());
+        }
+    }
+
+    private void applyToPermissionMatrix(CacheInvalidationMessage invalidation) {
+
+        if (invalidation.isClear()) {
+            permissionMatrix.clearLocal();
+            return;
+        }
+        try {
+            permissionMatrix.evictLocal(Long.parseLong(invalidation.getKey()));
+        } catch (NumberFormatException e) {
+            log.warn("Unreadable permission invalidation key {}, clearing the matrix", invalidation.getKey());
+            permissionMatrix.clearLocal();
+        }
+    }
+}
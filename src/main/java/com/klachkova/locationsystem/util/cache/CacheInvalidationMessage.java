@@ -0,0 +1,103 @@
+package com.klachkova.locationsystem.util.cache;
+
+/**
+ * Message sent over Redis pub/sub to drop entries from the local tier of other nodes.
+ * <p>
+ * The wire format is {@code nodeId|operation|cacheName|key}, where the key is empty for a clear.
+ * </p>
+ */
+public class CacheInvalidationMessage {
+
+    private static final String SEPARATOR = "|";
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final String nodeId;
+    private final String cacheName;
+    private final String key;
+
+    private CacheInvalidationMessage(String nodeId, String cacheName, String key) {
+
+        this.nodeId = nodeId;
+        this.cacheName = cacheName;
+        this.key = key;
+    }
+
+    /**
+     * Creates a message that evicts a single key.
+     *
+     * @param nodeId    the ID of the sending node
+     * @param cacheName the name of the cache
+     * @param key       the local key to evict
+     * @return the message
+     */
+    public static CacheInvalidationMessage evict(String nodeId, String cacheName, String key) {
+
+        return new CacheInvalidationMessage(nodeId, cacheName, key);
+    }
+
+    /**
+     * Creates a message that clears a whole cache.
+     *
+     * @param nodeId    the ID of the sending node
+     * @param cacheName the name of the cache
+     * @return the message
+     */
+    public static CacheInvalidationMessage clear(String nodeId, String cacheName) {
+
+        return new CacheInvalidationMessage(nodeId, cacheName, null);
+    }
+
+    /**
+     * Parses a message from its wire format.
+     *
+     * @param payload the message payload
+     * @return the message
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    public static CacheInvalidationMessage parse(String payload) {
+
+        String[] parts = payload.split("\\|", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cache invalidation message: " + payload);
+        }
+        if (CLEAR.equals(parts[1])) {
+            return clear(parts[0], parts[2]);
+        }
+        if (EVICT.equals(parts[1])) {
+            return evict(parts[0], parts[2], parts[3]);
+        }
+        throw new IllegalArgumentException("Unknown cache invalidation operation: " + parts[1]);
+    }
+
+    /**
+     * Serializes the message to its wire format.
+     *
+     * @return the message payload
+     */
+    public String toPayload() {
+
+        return nodeId + SEPARATOR + (isClear() ? CLEAR : EVICT) + SEPARATOR + cacheName + SEPARATOR +
+            (isClear() ? "" : key);
+    }
+
+    public String getNodeId() {
+
+        return nodeId;
+    }
+
+    public String getCacheName() {
+
+        return cacheName;
+    }
+
+    public String getKey() {
+
+        return key;
+    }
+
+    public boolean isClear() {
+
+        return key == null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+/**
+ * Publishes {@link CacheInvalidationMessage}s to the other nodes through a Redis channel.
+ * <p>
+ * Every publisher has a random node ID, so a node can ignore its own messages.
+ * </p>
+ */
+public class CacheInvalidationPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationPublisher.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationPublisher(
+        StringRedisTemplate redisTemplate,
+        String channel,
+        RedisCircuitBreaker circuitBreaker
+    ) {
+
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Tells the other nodes to drop a key from their local tier.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the local key
+     */
+    public void publishEvict(String cacheName, String key) {
+
+        publish(CacheInvalidationMessage.evict(nodeId, cacheName, key));
+    }
+
+    /**
+     * Tells the other nodes to clear their local tier of a cache.
+     *
+     * @param cacheName the name of the cache
+     */
+    public void publishClear(String cacheName) {
+
+        publish(CacheInvalidationMessage.clear(nodeId, cacheName));
+    }
+
+    private void publish(CacheInvalidationMessage message) {
+
+        // while Redis is unavailable, other nodes fall back to the local tier TTL
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, message.toPayload());
+            circuitBreaker.onSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            log.warn("Failed to publish cache invalidation {}: {}", message.toPayload(), e.getMessage());
+        }
+    }
+
+    public String getChannel() {
+
+        return channel;
+    }
+
+    public String getNodeId() {
+
+        return nodeId;
+    }
+}
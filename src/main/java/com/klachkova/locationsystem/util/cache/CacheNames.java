@@ -0,0 +1,52 @@
+package com.klachkova.locationsystem.util.cache;
+
+/**
+ * Names of the caches used by the application.
+ */
+public final class CacheNames {
+
+    /**
+     * Cache of own and shared locations per user, keyed by user ID.
+     */
+    public static final String AVAILABLE_LOCATIONS = "availableLocations";
+
+    /**
+     * Cache of pages of own and shared locations, see {@link PageCache}. Owners are user IDs.
+     */
+    public static final String AVAILABLE_LOCATION_PAGES = "availableLocationPages";
+
+    /**
+     * Cache of pages of users with access to a location, see {@link PageCache}. Owners are location IDs.
+     */
+    public static final String FRIEND_PAGES = "friendPages";
+
+    /**
+     * Name under which {@link LocationPermissionMatrix} invalidations travel between nodes. Keys are packed
+     * (user ID, location ID) pairs.
+     */
+    public static final String LOCATION_PERMISSIONS = "locationPermissions";
+
+    /**
+     * Second-level cache region of the {@link com.klachkova.locationsystem.modeles.User} entities, keyed by ID.
+     */
+    public static final String USERS = "users";
+
+    /**
+     * Second-level cache region resolving user emails to user IDs.
+     */
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+
+    /**
+     * Second-level cache region of the {@link com.klachkova.locationsystem.modeles.Location} entities, keyed by ID.
+     */
+    public static final String LOCATIONS = "locations";
+
+    /**
+     * Second-level cache region resolving address keys to location IDs.
+     */
+    public static final String LOCATIONS_BY_ADDRESS_KEY = "locationsByAddressKey";
+
+    private CacheNames() {
+
+    }
+}
@@ -0,0 +1,93 @@
+package com.klachkova.locationsystem.util.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counters of a {@link TwoTierCache}, kept separately for the local and the remote tier, and its put
+ * and eviction counters.
+ * <p>
+ * A remote lookup only happens after a local miss, so {@code localMisses == remoteHits + remoteMisses}.
+ * </p>
+ */
+public class CacheTierStatistics {
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    void recordLocalHit() {
+
+        localHits.increment();
+    }
+
+    void recordLocalMiss() {
+
+        localMisses.increment();
+    }
+
+    void recordRemoteHit() {
+
+        remoteHits.increment();
+    }
+
+    void recordRemoteMiss() {
+
+        remoteMisses.increment();
+    }
+
+    void recordPut() {
+
+        puts.increment();
+    }
+
+    void recordEviction() {
+
+        evictions.increment();
+    }
+
+    public long getLocalHits() {
+
+        return localHits.sum();
+    }
+
+    public long getLocalMisses() {
+
+        return localMisses.sum();
+    }
+
+    public long getRemoteHits() {
+
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMisses() {
+
+        return remoteMisses.sum();
+    }
+
+    public long getPuts() {
+
+        return puts.sum();
+    }
+
+    public long getEvictions() {
+
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+
+        return "CacheTierStatistics{" +
+            "localHits=" + getLocalHits() +
+            ", localMisses=" + getLocalMisses() +
+            ", remoteHits=" + getRemoteHits() +
+            ", remoteMisses=" + getRemoteMisses() +
+            ", puts=" + getPuts() +
+            ", evictions=" + getEvictions() +
+            '}';
+    }
+}
@@ -0,0 +1,225 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * {@link Cache} decorator that guards a Redis cache with a {@link RedisCircuitBreaker}.
+ * <p>
+ * While the circuit is open, reads are misses and writes are skipped, so callers fall back to the database
+ * immediately. Evictions that could not reach Redis are remembered and replayed before any other call reaches Redis,
+ * either by the first permitted call or before the circuit closes, so no stale entry survives the outage or a single
+ * failed call. If too many evictions pile up, the whole cache is cleared instead.
+ * </p>
+ */
+public class CircuitBreakingCache implements Cache {
+
+    private final Cache delegate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final int maxPendingEvictions;
+    private final Set<Object> pendingEvictions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingClear = new AtomicBoolean();
+
+    public CircuitBreakingCache(Cache delegate, RedisCircuitBreaker circuitBreaker, int maxPendingEvictions) {
+
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.maxPendingEvictions = maxPendingEvictions;
+        circuitBreaker.addRecoveryAction(this::replayPendingEvictions);
+    }
+
+    @Override
+    public String getName() {
+
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+
+        if (!tryAcquirePermission()) {
+            return null;
+        }
+        return call(() -> delegate.get(key));
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+
+        if (!tryAcquirePermission()) {
+            return null;
+        }
+        return call(() -> delegate.get(key, type));
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        if (!tryAcquirePermission()) {
+            try {
+                return valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+        return call(() -> delegate.get(key, valueLoader));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+
+        if (!tryAcquirePermission()) {
+            return;
+        }
+        call(() -> {
+            delegate.put(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+
+        if (!tryAcquirePermission()) {
+            return null;
+        }
+        return call(() -> delegate.putIfAbsent(key, value));
+    }
+
+    @Override
+    public void evict(Object key) {
+
+        if (!tryAcquirePermission()) {
+            rememberEviction(key);
+            return;
+        }
+        try {
+            call(() -> {
+                delegate.evict(key);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            rememberEviction(key);
+            throw e;
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        if (!tryAcquirePermission()) {
+            pendingClear.set(true);
+            return;
+        }
+        try {
+            call(() -> {
+                delegate.clear();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            pendingClear.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether Redis may be called, replaying the pending evictions first. While they cannot be replayed, the
+     * call is handled as if the circuit were open, so an entry whose eviction failed is never read back.
+     */
+    private boolean tryAcquirePermission() {
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return false;
+        }
+        if (!pendingClear.get() && pendingEvictions.isEmpty()) {
+            return true;
+        }
+        try {
+            call(() -> {
+                replayPendingEvictions();
+                return null;
+            });
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private <T> T call(Supplier<T> redisCall) {
+
+        try {
+            T result = redisCall.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (ValueRetrievalException e) {
+            // the value loader failed, not Redis
+            throw e;
+        } catch (SerializationException e) {
+            // Redis answered, the entry could not be read or written
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+    }
+
+    private void rememberEviction(Object key) {
+
+        if (pendingClear.get()) {
+            return;
+        }
+        pendingEvictions.add(key);
+        if (pendingEvictions.size() > maxPendingEvictions) {
+            pendingClear.set(true);
+            pendingEvictions.clear();
+        }
+    }
+
+    /**
+     * Applies the evictions missed during an outage or by a failed call. Runs on the probe thread before the circuit
+     * closes, and before the next call while it is closed.
+     */
+    void replayPendingEvictions() {
+
+        if (pendingClear.getAndSet(false)) {
+            pendingEvictions.clear();
+            try {
+                delegate.clear();
+            } catch (RuntimeException e) {
+                pendingClear.set(true);
+                throw e;
+            }
+            return;
+        }
+        List<Object> keys = new ArrayList<>(pendingEvictions);
+        for (Object key : keys) {
+            delegate.evict(key);
+            pendingEvictions.remove(key);
+        }
+    }
+
+    int getPendingEvictionCount() {
+
+        return pendingEvictions.size();
+    }
+
+    boolean isClearPending() {
+
+        return pendingClear.get();
+    }
+}
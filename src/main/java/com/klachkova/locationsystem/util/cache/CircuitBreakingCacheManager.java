@@ -0,0 +1,52 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CacheManager} that wraps every cache of a Redis cache manager in a {@link CircuitBreakingCache}
+ * sharing one {@link RedisCircuitBreaker}.
+ */
+public class CircuitBreakingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final int maxPendingEvictions;
+    private final ConcurrentMap<String, CircuitBreakingCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate            the Redis cache manager
+     * @param circuitBreaker      the circuit breaker guarding Redis
+     * @param maxPendingEvictions the number of evictions remembered per cache during an outage before falling back
+     *                            to clearing the cache on recovery
+     */
+    public CircuitBreakingCacheManager(
+        CacheManager delegate,
+        RedisCircuitBreaker circuitBreaker,
+        int maxPendingEvictions
+    ) {
+
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.maxPendingEvictions = maxPendingEvictions;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+
+        return caches.computeIfAbsent(name, cacheName -> {
+            Cache cache = delegate.getCache(cacheName);
+            return cache == null ? null : new CircuitBreakingCache(cache, circuitBreaker, maxPendingEvictions);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+
+        return delegate.getCacheNames();
+    }
+}
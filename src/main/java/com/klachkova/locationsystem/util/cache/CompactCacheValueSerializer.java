@@ -0,0 +1,359 @@
+package com.klachkova.locationsystem.util.cache;
+
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.PageDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact, versioned binary {@link RedisSerializer} for cached {@link LocationDTO} and {@link UserDTO} graphs, and
+ * {@link PageDTO pages} of them.
+ * <p>
+ * Values are written as a 3-byte header ({@code MAGIC}, {@code VERSION}, flags) followed by a tagged body.
+ * Lists, locations and users are encoded without type hints, and every distinct user is written once: later
+ * occurrences, typically the owner repeated on each of their locations, are back-references to the first one.
+ * Bodies of at least {@code compressionThreshold} bytes are deflated.
+ * </p>
+ * <p>
+ * Values of any other type are written by the fallback serializer. Since JSON never starts with {@code MAGIC},
+ * entries written by the fallback serializer, including those cached before this format existed, stay readable.
+ * Conversely, a serializer writing every value with the fallback serializer still reads the entries in this format,
+ * see {@link #forFormat(String, int)}.
+ * </p>
+ */
+public class CompactCacheValueSerializer implements RedisSerializer<Object> {
+
+    static final int MAGIC = 0xB1;
+    static final int VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LIST = 1;
+    private static final int TAG_LOCATION = 2;
+    private static final int TAG_USER = 3;
+    private static final int TAG_USER_REF = 4;
+    private static final int TAG_PAGE = 5;
+
+    private final RedisSerializer<Object> fallbackSerializer;
+    private final int compressionThreshold;
+    private final boolean writesCompact;
+
+    /**
+     * @param fallbackSerializer   the serializer for values this format does not support
+     * @param compressionThreshold the body size in bytes from which bodies are deflated, or a negative value to
+     *                             disable compression
+     */
+    public CompactCacheValueSerializer(RedisSerializer<Object> fallbackSerializer, int compressionThreshold) {
+
+        this(fallbackSerializer, compressionThreshold, true);
+    }
+
+    private CompactCacheValueSerializer(
+        RedisSerializer<Object> fallbackSerializer,
+        int compressionThreshold,
+        boolean writesCompact
+    ) {
+
+        this.fallbackSerializer = fallbackSerializer;
+        this.compressionThreshold = compressionThreshold;
+        this.writesCompact = writesCompact;
+    }
+
+    /**
+     * Creates the serializer of the cached values for a {@code cache.redis.serializer} setting. Both formats read
+     * the entries of the other one, told apart by their first byte, so existing entries remain readable after
+     * switching formats in either direction.
+     *
+     * @param format               {@code binary} or {@code json}
+     * @param compressionThreshold the body size in bytes from which binary bodies are deflated, or a negative value
+     *                             to disable compression
+     * @return the serializer
+     * @throws IllegalStateException if the format is unknown
+     */
+    public static RedisSerializer<Object> forFormat(String format, int compressionThreshold) {
+
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        switch (format) {
+            case "binary":
+                return new CompactCacheValueSerializer(jsonSerializer, compressionThreshold);
+            case "json":
+                return new CompactCacheValueSerializer(jsonSerializer, compressionThreshold, false);
+            default:
+                throw new IllegalStateException("Unknown cache.redis.serializer: " + format);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!writesCompact) {
+            return fallbackSerializer.serialize(value);
+        }
+        Encoder encoder = new Encoder();
+        try {
+            encoder.writeValue(value);
+        } catch (UnsupportedValueException e) {
+            return fallbackSerializer.serialize(value);
+        }
+        byte[] body = encoder.toByteArray();
+        boolean deflate = compressionThreshold >= 0 && body.length >= compressionThreshold;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + HEADER_LENGTH + 5);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(deflate ? FLAG_DEFLATED : 0);
+        if (deflate) {
+            writeVarInt(out, body.length);
+            deflate(body, out);
+        } else {
+            out.write(body, 0, body.length);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if ((bytes[0] & 0xFF) != MAGIC) {
+            return fallbackSerializer.deserialize(bytes);
+        }
+        try {
+            int version = bytes[1] & 0xFF;
+            if (version != VERSION) {
+                throw new SerializationException("Unsupported cache value format version " + version);
+            }
+            boolean deflated = (bytes[2] & FLAG_DEFLATED) != 0;
+            Decoder decoder = new Decoder(bytes, HEADER_LENGTH);
+            if (deflated) {
+                int length = decoder.readVarInt();
+                decoder = new Decoder(inflate(bytes, decoder.position, length), 0);
+            }
+            return decoder.readValue();
+        } catch (IndexOutOfBoundsException | ClassCastException e) {
+            throw new SerializationException("Corrupted cache value", e);
+        }
+    }
+
+    private static void deflate(byte[] body, ByteArrayOutputStream out) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(body.length, 8192)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) {
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int count = inflater.inflate(body, read, length - read);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new SerializationException("Truncated cache value");
+                }
+                read += count;
+            }
+            return body;
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupted cache value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes the tagged body, remembering the users already written.
+     */
+    private static final class Encoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private final Map<List<String>, Integer> userIndexes = new HashMap<>();
+
+        void writeValue(Object value) {
+
+            if (value == null) {
+                out.write(TAG_NULL);
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                out.write(TAG_LIST);
+                writeVarInt(out, list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (value.getClass() == LocationDTO.class) {
+                LocationDTO location = (LocationDTO) value;
+                out.write(TAG_LOCATION);
+                writeString(location.getName());
+                writeString(location.getAddress());
+                writeValue(location.getOwner());
+            } else if (value.getClass() == UserDTO.class) {
+                writeUser((UserDTO) value);
+            } else if (value.getClass() == PageDTO.class) {
+                PageDTO<?> page = (PageDTO<?>) value;
+                out.write(TAG_PAGE);
+                writeVarInt(out, page.getNextCursor() == null ? 0 : page.getNextCursor() + 1);
+                writeValue(page.getItems());
+            } else {
+                throw new UnsupportedValueException();
+            }
+        }
+
+        private void writeUser(UserDTO user) {
+
+            List<String> key = Arrays.asList(user.getName(), user.getEmail());
+            Integer index = userIndexes.get(key);
+            if (index != null) {
+                out.write(TAG_USER_REF);
+                writeVarInt(out, index);
+                return;
+            }
+            userIndexes.put(key, userIndexes.size());
+            out.write(TAG_USER);
+            writeString(user.getName());
+            writeString(user.getEmail());
+        }
+
+        private void writeString(String value) {
+
+            if (value == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Reads the tagged body, resolving user back-references.
+     */
+    private static final class Decoder {
+
+        private final byte[] bytes;
+        private final List<UserDTO> users = new ArrayList<>();
+        private int position;
+
+        Decoder(byte[] bytes, int position) {
+
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        Object readValue() {
+
+            int tag = bytes[position++];
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_LIST:
+                    int size = readVarInt();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                case TAG_LOCATION:
+                    LocationDTO location = new LocationDTO();
+                    location.setName(readString());
+                    location.setAddress(readString());
+                    location.setOwner((UserDTO) readValue());
+                    return location;
+                case TAG_USER:
+                    UserDTO user = new UserDTO();
+                    user.setName(readString());
+                    user.setEmail(readString());
+                    users.add(user);
+                    return user;
+                case TAG_USER_REF:
+                    return users.get(readVarInt());
+                case TAG_PAGE:
+                    int nextCursor = readVarInt() - 1;
+                    return new PageDTO<>(readValue(), nextCursor < 0 ? null : nextCursor);
+                default:
+                    throw new SerializationException("Unknown cache value tag " + tag);
+            }
+        }
+
+        int readVarInt() {
+
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[position++] & 0xFF;
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private String readString() {
+
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * Signals a value that has to be written by the fallback serializer.
+     */
+    private static final class UnsupportedValueException extends RuntimeException {
+
+        UnsupportedValueException() {
+
+            super(null, null, false, false);
+        }
+    }
+}
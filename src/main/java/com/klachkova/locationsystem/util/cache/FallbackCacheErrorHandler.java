@@ -0,0 +1,74 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CacheErrorHandler} that treats a failing cache as a miss instead of failing the request.
+ * <p>
+ * A failed get makes the cached method run against the database, failed writes are dropped.
+ * The number of fallbacks is counted per operation.
+ * </p>
+ */
+public class FallbackCacheErrorHandler implements CacheErrorHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(FallbackCacheErrorHandler.class);
+
+    private final LongAdder getFallbacks = new LongAdder();
+    private final LongAdder putFallbacks = new LongAdder();
+    private final LongAdder evictFallbacks = new LongAdder();
+    private final LongAdder clearFallbacks = new LongAdder();
+
+    @Override
+    public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+
+        getFallbacks.increment();
+        log.warn("Cache get failed for {}::{}, reading from the database: {}", cache.getName(), key,
+            exception.getMessage());
+    }
+
+    @Override
+    public void handleCachePutError(RuntimeException exception, Cache cache, Object key, Object value) {
+
+        putFallbacks.increment();
+        log.warn("Cache put failed for {}::{}: {}", cache.getName(), key, exception.getMessage());
+    }
+
+    @Override
+    public void handleCacheEvictError(RuntimeException exception, Cache cache, Object key) {
+
+        evictFallbacks.increment();
+        log.warn("Cache evict failed for {}::{}: {}", cache.getName(), key, exception.getMessage());
+    }
+
+    @Override
+    public void handleCacheClearError(RuntimeException exception, Cache cache) {
+
+        clearFallbacks.increment();
+        log.warn("Cache clear failed for {}: {}", cache.getName(), exception.getMessage());
+    }
+
+    public long getGetFallbackCount() {
+
+        return getFallbacks.sum();
+    }
+
+    public long getPutFallbackCount() {
+
+        return putFallbacks.sum();
+    }
+
+    public long getEvictFallbackCount() {
+
+        return evictFallbacks.sum();
+    }
+
+    public long getClearFallbackCount() {
+
+        return clearFallbacks.sum();
+    }
+}
@@ -0,0 +1,68 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caches the values of asynchronous loaders, for methods returning a {@link CompletableFuture}, which the cache
+ * annotations would cache as is.
+ * <p>
+ * The completed value is cached under the same name and key as an annotated method would use, so both can share a
+ * cache. Cache failures are reported to the {@link FallbackCacheErrorHandler} and the value is loaded, as for
+ * annotated cached methods. Failed loads are not cached.
+ * </p>
+ */
+@Component
+public class FutureCache {
+
+    private final CacheManager cacheManager;
+    private final FallbackCacheErrorHandler cacheErrorHandler;
+
+    @Autowired
+    public FutureCache(CacheManager cacheManager, FallbackCacheErrorHandler cacheErrorHandler) {
+
+        this.cacheManager = cacheManager;
+        this.cacheErrorHandler = cacheErrorHandler;
+    }
+
+    /**
+     * Returns a completed future of the cached value, or starts the loader on a miss and caches its value once
+     * loaded.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the key of the value
+     * @param loader    starts loading the value from the database
+     * @param <T>       the type of the value
+     * @return the future value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(String cacheName, Object key, Supplier<CompletableFuture<T>> loader) {
+
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return loader.get();
+        }
+        try {
+            Cache.ValueWrapper cached = cache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture((T) cached.get());
+            }
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCacheGetError(e, cache, key);
+            return loader.get();
+        }
+        return loader.get().thenApply(value -> {
+            try {
+                cache.put(key, value);
+            } catch (RuntimeException e) {
+                cacheErrorHandler.handleCachePutError(e, cache, key, value);
+            }
+            return value;
+        });
+    }
+}
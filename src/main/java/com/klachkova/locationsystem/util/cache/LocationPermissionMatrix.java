@@ -0,0 +1,157 @@
+package com.klachkova.locationsystem.util.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.klachkova.locationsystem.modeles.AccessLevel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * In-memory matrix of the access levels of users to locations, used for permission checks.
+ * <p>
+ * Entries are keyed by the (user ID, location ID) pair packed into a single {@code long} and hold a one-byte access
+ * level, including the absence of access, so repeated checks cost no database round trip. Access mutations evict
+ * the pair once their transaction commits, on this node directly and on the other nodes through the cache
+ * invalidation channel. Caffeine blocks an eviction while the same pair is being loaded, so a load that read the old
+ * access level cannot outlive the eviction.
+ * </p>
+ * <p>
+ * While the Redis circuit of this node is open, invalidations from other nodes may be lost, so the matrix is
+ * bypassed and every check reads the database. Once Redis is reachable again, the matrix is cleared before the circuit
+ * closes, dropping any entry that missed an invalidation. An invalidation can still be lost while this node's circuit
+ * is closed, if the publishing node fails to reach Redis or this node's subscription drops unnoticed. Other nodes then
+ * keep the old access level, a revoked ADMIN included, for up to {@code cache.permissions.ttl}.
+ * </p>
+ */
+public class LocationPermissionMatrix {
+
+    private static final byte NO_ACCESS = 0;
+    private static final AccessLevel[] ACCESS_LEVELS = AccessLevel.values();
+
+    private final Cache<Long, Byte> accessLevels;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    public LocationPermissionMatrix(
+        CacheInvalidationPublisher invalidationPublisher,
+        RedisCircuitBreaker circuitBreaker,
+        long maxSize,
+        Duration ttl
+    ) {
+
+        this.invalidationPublisher = invalidationPublisher;
+        this.circuitBreaker = circuitBreaker;
+        this.accessLevels = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        circuitBreaker.addRecoveryAction(this::clearLocal);
+    }
+
+    /**
+     * Exposes the hits, misses, evictions and size of the matrix as the metrics of the
+     * {@value CacheNames#LOCATION_PERMISSIONS} cache.
+     *
+     * @param registry the registry to add the metrics to
+     */
+    public void bindTo(MeterRegistry registry) {
+
+        new CaffeineCacheMetrics<>(accessLevels, CacheNames.LOCATION_PERMISSIONS, Tags.empty()).bindTo(registry);
+    }
+
+    /**
+     * Packs a (user ID, location ID) pair into the key of the matrix.
+     *
+     * @param userId     the ID of the user, in the high 32 bits
+     * @param locationId the ID of the location, in the low 32 bits
+     * @return the key of the pair
+     */
+    public static long key(int userId, int locationId) {
+
+        return ((long) userId << 32) | (locationId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the access level of a user to a location, loading it on a miss. While the Redis circuit is open, the
+     * access level is always loaded and not kept.
+     *
+     * @param userId     the ID of the user
+     * @param locationId the ID of the location
+     * @param loader     reads the access level from the database, returns null if the user has no access
+     * @return the access level, or null if the user has no access to the location
+     */
+    public AccessLevel getAccessLevel(int userId, int locationId, Supplier<AccessLevel> loader) {
+
+        if (circuitBreaker.getState() == RedisCircuitBreaker.State.OPEN) {
+            return loader.get();
+        }
+        byte code = accessLevels.get(key(userId, locationId), key -> encode(loader.get()));
+        return code == NO_ACCESS ? null : ACCESS_LEVELS[code - 1];
+    }
+
+    /**
+     * Evicts the access level of a user to a location once the current transaction commits,
+     * or immediately if there is no transaction.
+     *
+     * @param userId     the ID of the user
+     * @param locationId the ID of the location
+     */
+    public void evictAfterCommit(int userId, int locationId) {
+
+        long key = key(userId, locationId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+    }
+
+    private void evict(long key) {
+
+        evictLocal(key);
+        invalidationPublisher.publishEvict(CacheNames.LOCATION_PERMISSIONS, Long.toString(key));
+    }
+
+    /**
+     * Evicts a pair on this node only, on behalf of another node.
+     *
+     * @param key the packed key of the pair
+     */
+    public void evictLocal(long key) {
+
+        accessLevels.invalidate(key);
+    }
+
+    /**
+     * Empties the matrix on this node only, on behalf of another node.
+     */
+    public void clearLocal() {
+
+        accessLevels.invalidateAll();
+    }
+
+    long size() {
+
+        accessLevels.cleanUp();
+        return accessLevels.estimatedSize();
+    }
+
+    private static byte encode(AccessLevel accessLevel) {
+
+        return accessLevel == null ? NO_ACCESS : (byte) (accessLevel.ordinal() + 1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Caches the pages of a paginated list, and invalidates all pages of a list with a single eviction.
+ * <p>
+ * Each list, identified by its owner (for example a user ID), has a generation stored in the cache under the owner
+ * itself. Pages are keyed by owner, generation and page key. Evicting the owner, as
+ * {@link AvailableLocationsCacheEvictor} does, drops the generation: a new one is drawn on the next read and the
+ * pages of the old one are no longer reachable, they expire with the cache TTL. A page loaded from stale data and
+ * written after the eviction lands under the old generation, so it is never served. While Redis is unavailable, the
+ * generation and the pages are kept in the local tier of the {@link TwoTierCache}.
+ * </p>
+ * <p>
+ * Cache failures are reported to the {@link FallbackCacheErrorHandler} and the page is read from the database, as
+ * for annotated cached methods.
+ * </p>
+ */
+@Component
+public class PageCache {
+
+    private final CacheManager cacheManager;
+    private final FallbackCacheErrorHandler cacheErrorHandler;
+
+    @Autowired
+    public PageCache(CacheManager cacheManager, FallbackCacheErrorHandler cacheErrorHandler) {
+
+        this.cacheManager = cacheManager;
+        this.cacheErrorHandler = cacheErrorHandler;
+    }
+
+    /**
+     * Returns a cached page, loading and caching it on a miss.
+     *
+     * @param cacheName the name of the cache
+     * @param owner     the owner of the paginated list, evicting it invalidates all its pages
+     * @param pageKey   identifies the page within the list, typically the cursor and the page size
+     * @param loader    loads the page from the database
+     * @param <T>       the type of the page
+     * @return the page
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, Object owner, String pageKey, Supplier<T> loader) {
+
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return loader.get();
+        }
+        String generation = getGeneration(cache, owner);
+        if (generation == null) {
+            return loader.get();
+        }
+        String key = owner + ":" + generation + ":" + pageKey;
+        try {
+            Cache.ValueWrapper cached = cache.get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCacheGetError(e, cache, key);
+            return loader.get();
+        }
+        T page = loader.get();
+        try {
+            cache.put(key, page);
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCachePutError(e, cache, key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the current generation of the owner, drawing a new one if there is none.
+     *
+     * @return the generation, or null if the cache failed
+     */
+    private String getGeneration(Cache cache, Object owner) {
+
+        try {
+            String generation = cache.get(owner, String.class);
+            if (generation != null) {
+                return generation;
+            }
+            generation = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            Cache.ValueWrapper existing = cache.putIfAbsent(owner, generation);
+            if (existing != null && existing.get() instanceof String) {
+                return (String) existing.get();
+            }
+            return generation;
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCacheGetError(e, cache, owner);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.klachkova.locationsystem.util.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the state of the {@link RedisCircuitBreaker} and the cache fallback counts as metrics.
+ */
+public class RedisCacheMetrics implements MeterBinder {
+
+    private final RedisCircuitBreaker circuitBreaker;
+    private final FallbackCacheErrorHandler errorHandler;
+
+    public RedisCacheMetrics(RedisCircuitBreaker circuitBreaker, FallbackCacheErrorHandler errorHandler) {
+
+        this.circuitBreaker = circuitBreaker;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("cache.redis.circuit.open", circuitBreaker,
+                breaker -> breaker.getState() == RedisCircuitBreaker.State.OPEN ? 1 : 0)
+            .description("1 while Redis calls are short-circuited, 0 otherwise")
+            .register(registry);
+        FunctionCounter.builder("cache.redis.circuit.failures", circuitBreaker,
+                RedisCircuitBreaker::getFailureCount)
+            .description("Failed calls to Redis")
+            .register(registry);
+        FunctionCounter.builder("cache.redis.circuit.rejected", circuitBreaker,
+                RedisCircuitBreaker::getRejectedCallCount)
+            .description("Cache calls that skipped Redis because the circuit was open")
+            .register(registry);
+        bindFallbackCounter(registry, "get", errorHandler, FallbackCacheErrorHandler::getGetFallbackCount);
+        bindFallbackCounter(registry, "put", errorHandler, FallbackCacheErrorHandler::getPutFallbackCount);
+        bindFallbackCounter(registry, "evict", errorHandler, FallbackCacheErrorHandler::getEvictFallbackCount);
+        bindFallbackCounter(registry, "clear", errorHandler, FallbackCacheErrorHandler::getClearFallbackCount);
+    }
+
+    private static void bindFallbackCounter(
+        MeterRegistry registry,
+        String operation,
+        FallbackCacheErrorHandler errorHandler,
+        ToDoubleFunction<FallbackCacheErrorHandler> count
+    ) {
+
+        FunctionCounter.builder("cache.redis.fallbacks", errorHandler, count)
+            .tag("operation", operation)
+            .description("Cache operations that failed and fell back to the database")
+            .register(registry);
+    }
+}
@@ -0,0 +1,183 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker that stops calling Redis after repeated failures.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the circuit opens and callers skip Redis entirely instead of
+ * waiting for a timeout. While the circuit is open, a background task probes Redis every {@code probeInterval};
+ * after a successful probe the registered recovery actions run and the circuit closes again.
+ * </p>
+ */
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    /**
+     * State of the circuit.
+     */
+    public enum State {
+        /**
+         * Redis is called normally.
+         */
+        CLOSED,
+        /**
+         * Redis is skipped until a probe succeeds.
+         */
+        OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration probeInterval;
+    private final Runnable probe;
+    private final ScheduledExecutorService scheduler;
+    private final List<Runnable> recoveryActions = new CopyOnWriteArrayList<>();
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private volatile ScheduledFuture<?> probeTask;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that opens the circuit
+     * @param probeInterval    the delay between two probes while the circuit is open
+     * @param probe            a call to Redis that throws if Redis is unavailable
+     */
+    public RedisCircuitBreaker(int failureThreshold, Duration probeInterval, Runnable probe) {
+
+        this(failureThreshold, probeInterval, probe, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-circuit-probe");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    RedisCircuitBreaker(
+        int failureThreshold,
+        Duration probeInterval,
+        Runnable probe,
+        ScheduledExecutorService scheduler
+    ) {
+
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+        this.probe = probe;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Checks whether Redis may be called. A rejected call is counted as a fallback.
+     *
+     * @return true if the circuit is closed
+     */
+    public boolean tryAcquirePermission() {
+
+        if (state.get() == State.CLOSED) {
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    /**
+     * Records a successful call to Redis.
+     */
+    public void onSuccess() {
+
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Records a failed call to Redis, opening the circuit once the threshold is reached.
+     *
+     * @param e the failure
+     */
+    public void onFailure(RuntimeException e) {
+
+        failures.increment();
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            trip(e);
+        }
+    }
+
+    /**
+     * Registers an action that runs after Redis became reachable again and before the circuit closes.
+     * If the action throws, the circuit stays open until the next probe.
+     *
+     * @param action the recovery action
+     */
+    public void addRecoveryAction(Runnable action) {
+
+        recoveryActions.add(action);
+    }
+
+    private void trip(RuntimeException cause) {
+
+        if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+            log.warn("Redis circuit opened after {} consecutive failures, serving without Redis: {}",
+                failureThreshold, cause.getMessage());
+            long interval = probeInterval.toMillis();
+            probeTask = scheduler.scheduleWithFixedDelay(this::probe, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Probes Redis and closes the circuit if it is reachable and all recovery actions succeed.
+     */
+    void probe() {
+
+        try {
+            probe.run();
+            for (Runnable action : recoveryActions) {
+                action.run();
+            }
+        } catch (RuntimeException e) {
+            log.debug("Redis is still unavailable: {}", e.getMessage());
+            return;
+        }
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.OPEN, State.CLOSED)) {
+            log.info("Redis is reachable again, circuit closed");
+        }
+        ScheduledFuture<?> task = probeTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Stops the background probe.
+     */
+    public void shutdown() {
+
+        scheduler.shutdownNow();
+    }
+
+    public State getState() {
+
+        return state.get();
+    }
+
+    public long getFailureCount() {
+
+        return failures.sum();
+    }
+
+    public long getRejectedCallCount() {
+
+        return rejectedCalls.sum();
+    }
+}
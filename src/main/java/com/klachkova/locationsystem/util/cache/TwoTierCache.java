@@ -0,0 +1,179 @@
+package com.klachkova.locationsystem.util.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * {@link Cache} with a bounded in-process local tier in front of a shared remote tier.
+ * <p>
+ * Reads are served from the local tier when possible, and fall back to the remote tier on a local miss.
+ * Writes and evictions go to the remote tier first, then to the local tier, and are published to the other nodes
+ * so they drop the key from their local tier. An eviction reaches the local tiers even when the remote tier fails,
+ * which then retries it itself. A lost invalidation message is bounded by the local tier TTL.
+ * </p>
+ * <p>
+ * Local keys are the string form of the cache keys, which is also how they travel between nodes.
+ * </p>
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final Cache localCache;
+    private final Cache remoteCache;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final CacheTierStatistics statistics = new CacheTierStatistics();
+
+    public TwoTierCache(
+        String name,
+        Cache localCache,
+        Cache remoteCache,
+        CacheInvalidationPublisher invalidationPublisher
+    ) {
+
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+
+        String localKey = toLocalKey(key);
+        ValueWrapper value = localCache.get(localKey);
+        if (value != null) {
+            statistics.recordLocalHit();
+            return value;
+        }
+        statistics.recordLocalMiss();
+        value = remoteCache.get(key);
+        if (value != null) {
+            statistics.recordRemoteHit();
+            localCache.put(localKey, value.get());
+        } else {
+            statistics.recordRemoteMiss();
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+
+        String localKey = toLocalKey(key);
+        remoteCache.put(key, value);
+        localCache.put(localKey, value);
+        statistics.recordPut();
+        invalidationPublisher.publishEvict(name, localKey);
+    }
+
+    /**
+     * Writes the value to the remote tier if it holds none, and keeps the value of the remote tier locally. While the
+     * remote tier is unavailable, the value is kept in the local tier only, so the key still has a single value on
+     * this node.
+     */
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+
+        String localKey = toLocalKey(key);
+        ValueWrapper existing = remoteCache.putIfAbsent(key, value);
+        localCache.put(localKey, existing == null ? value : existing.get());
+        invalidationPublisher.publishEvict(name, localKey);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+
+        String localKey = toLocalKey(key);
+        try {
+            remoteCache.evict(key);
+        } finally {
+            localCache.evict(localKey);
+            statistics.recordEviction();
+            invalidationPublisher.publishEvict(name, localKey);
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        try {
+            remoteCache.clear();
+        } finally {
+            localCache.clear();
+            invalidationPublisher.publishClear(name);
+        }
+    }
+
+    /**
+     * Drops a key from the local tier only, on request of another node.
+     *
+     * @param localKey the local key
+     */
+    public void evictLocal(String localKey) {
+
+        localCache.evict(localKey);
+    }
+
+    /**
+     * Clears the local tier only, on request of another node.
+     */
+    public void clearLocal() {
+
+        localCache.clear();
+    }
+
+    public CacheTierStatistics getStatistics() {
+
+        return statistics;
+    }
+
+    private static String toLocalKey(Object key) {
+
+        return String.valueOf(key);
+    }
+}
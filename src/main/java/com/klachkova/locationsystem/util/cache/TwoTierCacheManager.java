@@ -0,0 +1,81 @@
+package com.klachkova.locationsystem.util.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CacheManager} that layers a bounded, TTL-aware Caffeine cache over each cache of a remote cache manager.
+ *
+ * @see TwoTierCache
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param remoteCacheManager    the cache manager of the shared remote tier
+     * @param invalidationPublisher the publisher of invalidations for the other nodes
+     * @param localMaxSize          the maximum number of entries in the local tier of each cache
+     * @param localTtl              the time an entry stays in the local tier after it was written
+     */
+    public TwoTierCacheManager(
+        CacheManager remoteCacheManager,
+        CacheInvalidationPublisher invalidationPublisher,
+        long localMaxSize,
+        Duration localTtl
+    ) {
+
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationPublisher = invalidationPublisher;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * Returns a cache only if it was already created on this node.
+     *
+     * @param name the name of the cache
+     * @return the cache, or null if it does not exist yet
+     */
+    public TwoTierCache getExistingCache(String name) {
+
+        return caches.get(name);
+    }
+
+    private TwoTierCache createCache(String name) {
+
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        CaffeineCache localCache = new CaffeineCache(name, Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(localTtl)
+            .build());
+        return new TwoTierCache(name, localCache, remoteCache, invalidationPublisher);
+    }
+}
@@ -0,0 +1,81 @@
+package com.klachkova.locationsystem.util.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the {@link CacheTierStatistics} of a {@link TwoTierCache} as the standard cache metrics, with the hits and
+ * misses of each tier on top.
+ * <p>
+ * A get is a hit if either tier has the key, so {@code cache.gets{result=miss}} counts the loads from the database.
+ * The size is not reported, the remote tier cannot count its entries cheaply.
+ * </p>
+ */
+public class TwoTierCacheMetrics extends CacheMeterBinder<TwoTierCache> {
+
+    private final CacheTierStatistics statistics;
+
+    public TwoTierCacheMetrics(TwoTierCache cache) {
+
+        super(cache, cache.getName(), Tags.empty());
+        this.statistics = cache.getStatistics();
+    }
+
+    @Override
+    protected Long size() {
+
+        return null;
+    }
+
+    @Override
+    protected long hitCount() {
+
+        return statistics.getLocalHits() + statistics.getRemoteHits();
+    }
+
+    @Override
+    protected Long missCount() {
+
+        return statistics.getRemoteMisses();
+    }
+
+    @Override
+    protected Long evictionCount() {
+
+        return statistics.getEvictions();
+    }
+
+    @Override
+    protected long putCount() {
+
+        return statistics.getPuts();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+
+        bindTierCounter(registry, "local", "hit", CacheTierStatistics::getLocalHits);
+        bindTierCounter(registry, "local", "miss", CacheTierStatistics::getLocalMisses);
+        bindTierCounter(registry, "remote", "hit", CacheTierStatistics::getRemoteHits);
+        bindTierCounter(registry, "remote", "miss", CacheTierStatistics::getRemoteMisses);
+    }
+
+    private void bindTierCounter(
+        MeterRegistry registry,
+        String tier,
+        String result,
+        ToDoubleFunction<CacheTierStatistics> count
+    ) {
+
+        FunctionCounter.builder("cache.tier.gets", statistics, count)
+            .tags(getTagsWithCacheName())
+            .tag("tier", tier)
+            .tag("result", result)
+            .description("Lookups in one tier of a two-tier cache")
+            .register(registry);
+    }
+}
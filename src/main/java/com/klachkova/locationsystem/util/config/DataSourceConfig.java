@@ -0,0 +1,135 @@
+package com.klachkova.locationsystem.util.config;
+
+import com.klachkova.locationsystem.util.datasource.ReadWriteRoutingDataSource;
+import com.klachkova.locationsystem.util.datasource.ReplicaDataSourceMetrics;
+import com.klachkova.locationsystem.util.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Data sources of a deployment with a read replica, enabled when {@code datasource.replica.enabled} is true.
+ * <p>
+ * The primary pool is configured by the usual {@code spring.datasource.*} properties, the replica pool by
+ * {@code datasource.replica.*}, its credentials defaulting to those of the primary. Transactions marked
+ * {@code @Transactional(readOnly = true)} read from the replica while its lag is within
+ * {@code datasource.replica.max-lag}, see {@link ReadWriteRoutingDataSource}. Without a replica, the single data
+ * source of Spring Boot is used.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    /**
+     * JDBC URL of the replica
+     */
+    @Value("${datasource.replica.url}")
+    private String replicaUrl;
+
+    /**
+     * user name on the replica, defaults to the one of the primary
+     */
+    @Value("${datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    /**
+     * password on the replica, defaults to the one of the primary
+     */
+    @Value("${datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    /**
+     * largest replication lag in milliseconds at which the replica still serves reads
+     */
+    @Value("${datasource.replica.max-lag:5000}")
+    private long maxLag;
+
+    /**
+     * query returning the replication lag of the replica in seconds, required so that replica reads are at most
+     * {@code max-lag} behind the primary
+     */
+    @Value("${datasource.replica.lag-query:}")
+    private String lagQuery;
+
+    /**
+     * delay in milliseconds between two probes of the replica
+     */
+    @Value("${datasource.replica.probe-interval:1000}")
+    private long probeInterval;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource) {
+
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, Duration.ofMillis(maxLag),
+                Duration.ofMillis(probeInterval));
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor
+    ) {
+
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+
+    /**
+     * The data source used by JPA. The connection is taken from the routing data source on the first statement,
+     * once the transaction is marked read-only.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaDataSourceMetrics replicaDataSourceMetrics(
+            ReplicaLagMonitor replicaLagMonitor,
+            ReadWriteRoutingDataSource routingDataSource
+    ) {
+
+        return new ReplicaDataSourceMetrics(replicaLagMonitor, routingDataSource);
+    }
+}
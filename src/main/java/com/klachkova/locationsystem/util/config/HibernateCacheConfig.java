@@ -0,0 +1,84 @@
+package com.klachkova.locationsystem.util.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.CacheManagerImpl;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.OptionalLong;
+import java.util.Properties;
+
+/**
+ * In-process second-level cache of Hibernate, used when {@code hibernate.cache.use_second_level_cache} is true.
+ * <p>
+ * Each region of the {@code @Cache} and {@code @NaturalIdCache} entities is a Caffeine cache bounded to
+ * {@code cache.hibernate.max-size} entries, and Hibernate fails to start with a cached entity whose region is not
+ * listed here. Hit and miss counts are reported by the Hibernate statistics, the size and evictions of the regions as
+ * {@code cache.*} metrics tagged {@code cacheManager=hibernate}.
+ * </p>
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    private static final String[] REGIONS = {
+        CacheNames.USERS, CacheNames.USERS_BY_EMAIL, CacheNames.LOCATIONS, CacheNames.LOCATIONS_BY_ADDRESS_KEY
+    };
+
+    /**
+     * largest number of entries of each second-level cache region
+     */
+    @Value("${cache.hibernate.max-size:10000}")
+    private long maxSize;
+
+    /**
+     * The cache manager belongs to a caching provider of its own, so every application context in the JVM has its
+     * own regions, and closing it leaves the other contexts alone.
+     */
+    @Bean
+    public CacheManager hibernateCacheManager() {
+
+        CaffeineCachingProvider cachingProvider = new CaffeineCachingProvider();
+        CacheManager cacheManager = new CacheManagerImpl(cachingProvider, cachingProvider.getDefaultURI(),
+                getClass().getClassLoader(), new Properties());
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setStoreByValue(false);
+            configuration.setNativeStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY,
+                    MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+
+        return registry -> {
+            for (String region : REGIONS) {
+                Cache<?, ?> cache = hibernateCacheManager.getCache(region).unwrap(Cache.class);
+                CaffeineCacheMetrics.monitor(registry, cache, region, Tags.of("cacheManager", "hibernate"));
+            }
+        };
+    }
+}
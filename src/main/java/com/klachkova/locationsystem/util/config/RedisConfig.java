@@ -1,20 +1,42 @@
 package com.klachkova.locationsystem.util.config;
 
+import com.klachkova.locationsystem.util.cache.CacheInvalidationListener;
+import com.klachkova.locationsystem.util.cache.CacheInvalidationPublisher;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import com.klachkova.locationsystem.util.cache.CircuitBreakingCacheManager;
+import com.klachkova.locationsystem.util.cache.CompactCacheValueSerializer;
+import com.klachkova.locationsystem.util.cache.FallbackCacheErrorHandler;
+import com.klachkova.locationsystem.util.cache.LocationPermissionMatrix;
+import com.klachkova.locationsystem.util.cache.RedisCacheMetrics;
+import com.klachkova.locationsystem.util.cache.RedisCircuitBreaker;
+import com.klachkova.locationsystem.util.cache.TwoTierCache;
+import com.klachkova.locationsystem.util.cache.TwoTierCacheManager;
+import com.klachkova.locationsystem.util.cache.TwoTierCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import java.time.Duration;
 
 @Configuration
 @EnableCaching
-public class RedisConfig {
+public class RedisConfig extends CachingConfigurerSupport {
 
     /**
      * get cache TTL from application.properties
@@ -22,16 +44,186 @@ public class RedisConfig {
     @Value("${cache.redis.ttl}")
     private long ttl;
 
+    /**
+     * format of the cached values, {@code binary} or {@code json}
+     */
+    @Value("${cache.redis.serializer:binary}")
+    private String valueSerializer;
+
+    /**
+     * size in bytes from which binary cache values are compressed, negative to disable compression
+     */
+    @Value("${cache.redis.compression-threshold:512}")
+    private int compressionThreshold;
+
+    /**
+     * maximum number of entries per cache kept in memory on each node
+     */
+    @Value("${cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    /**
+     * TTL of the in-memory entries in seconds, bounds staleness if an invalidation message is lost
+     */
+    @Value("${cache.local.ttl:60}")
+    private long localTtl;
+
+    /**
+     * maximum number of (user, location) access levels kept in memory on each node
+     */
+    @Value("${cache.permissions.max-size:100000}")
+    private long permissionsMaxSize;
+
+    /**
+     * TTL of the in-memory access levels in seconds, bounds staleness if an invalidation message is lost
+     */
+    @Value("${cache.permissions.ttl:60}")
+    private long permissionsTtl;
+
+    /**
+     * Redis channel used to invalidate in-memory entries on the other nodes
+     */
+    @Value("${cache.invalidation.channel:locationsystem:cache-invalidation}")
+    private String invalidationChannel;
+
+    /**
+     * number of consecutive Redis failures after which Redis is skipped
+     */
+    @Value("${cache.redis.circuit-breaker.failure-threshold:3}")
+    private int failureThreshold;
+
+    /**
+     * delay in milliseconds between background checks of Redis while it is skipped
+     */
+    @Value("${cache.redis.circuit-breaker.probe-interval:5000}")
+    private long probeInterval;
+
+    /**
+     * number of evictions per cache remembered while Redis is skipped, beyond that the cache is cleared on recovery
+     */
+    @Value("${cache.redis.circuit-breaker.max-pending-evictions:10000}")
+    private int maxPendingEvictions;
+
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
 
         RedisCacheConfiguration cacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(ttl))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                        .fromSerializer(cacheValueSerializer()));
 
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(cacheConfiguration)
                 .build();
     }
-}
\ No newline at end of file
+
+    private RedisSerializer<Object> cacheValueSerializer() {
+
+        return CompactCacheValueSerializer.forFormat(valueSerializer, compressionThreshold);
+    }
+
+    @Bean
+    @Primary
+    public TwoTierCacheManager cacheManager(
+            RedisCacheManager redisCacheManager,
+            RedisCircuitBreaker redisCircuitBreaker,
+            CacheInvalidationPublisher cacheInvalidationPublisher
+    ) {
+
+        return new TwoTierCacheManager(
+                new CircuitBreakingCacheManager(redisCacheManager, redisCircuitBreaker, maxPendingEvictions),
+                cacheInvalidationPublisher, localMaxSize, Duration.ofSeconds(localTtl));
+    }
+
+    /**
+     * The connection factory is resolved lazily, it depends on the meter registry which in turn binds the
+     * circuit breaker metrics.
+     */
+    @Bean
+    public RedisCircuitBreaker redisCircuitBreaker(ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+
+        return new RedisCircuitBreaker(failureThreshold, Duration.ofMillis(probeInterval), () -> {
+            try (RedisConnection connection = redisConnectionFactory.getObject().getConnection()) {
+                connection.ping();
+            }
+        });
+    }
+
+    @Bean
+    public FallbackCacheErrorHandler cacheErrorHandler() {
+
+        return new FallbackCacheErrorHandler();
+    }
+
+    @Override
+    public CacheErrorHandler errorHandler() {
+
+        return cacheErrorHandler();
+    }
+
+    @Bean
+    public RedisCacheMetrics redisCacheMetrics(
+            RedisCircuitBreaker redisCircuitBreaker,
+            FallbackCacheErrorHandler cacheErrorHandler
+    ) {
+
+        return new RedisCacheMetrics(redisCircuitBreaker, cacheErrorHandler);
+    }
+
+    /**
+     * Binds the metrics of the two-tier caches and of the permission matrix once all singletons exist. As meter
+     * binder beans, they would be created with the meter registry, which the Redis connection factory they depend on
+     * needs. The caches are created up front, so their metrics are reported before their first use.
+     */
+    @Bean
+    public SmartInitializingSingleton cacheMetricsBinder(
+            MeterRegistry meterRegistry,
+            TwoTierCacheManager cacheManager,
+            LocationPermissionMatrix locationPermissionMatrix
+    ) {
+
+        return () -> {
+            for (String name : new String[] {
+                    CacheNames.AVAILABLE_LOCATIONS, CacheNames.AVAILABLE_LOCATION_PAGES, CacheNames.FRIEND_PAGES}) {
+                new TwoTierCacheMetrics((TwoTierCache) cacheManager.getCache(name)).bindTo(meterRegistry);
+            }
+            locationPermissionMatrix.bindTo(meterRegistry);
+        };
+    }
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(
+            StringRedisTemplate stringRedisTemplate,
+            RedisCircuitBreaker redisCircuitBreaker
+    ) {
+
+        return new CacheInvalidationPublisher(stringRedisTemplate, invalidationChannel, redisCircuitBreaker);
+    }
+
+    @Bean
+    public LocationPermissionMatrix locationPermissionMatrix(
+            CacheInvalidationPublisher cacheInvalidationPublisher,
+            RedisCircuitBreaker redisCircuitBreaker
+    ) {
+
+        return new LocationPermissionMatrix(cacheInvalidationPublisher, redisCircuitBreaker, permissionsMaxSize,
+                Duration.ofSeconds(permissionsTtl));
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory redisConnectionFactory,
+            TwoTierCacheManager cacheManager,
+            LocationPermissionMatrix locationPermissionMatrix,
+            CacheInvalidationPublisher cacheInvalidationPublisher
+    ) {
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(
+                new CacheInvalidationListener(cacheManager, locationPermissionMatrix,
+                        cacheInvalidationPublisher.getNodeId()),
+                new ChannelTopic(cacheInvalidationPublisher.getChannel()));
+        return container;
+    }
+}
@@ -1,7 +1,9 @@
 package com.klachkova.locationsystem.util.converters;
 
 import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
 import com.klachkova.locationsystem.modeles.Location;
+import com.klachkova.locationsystem.repositories.projections.LocationView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -43,4 +45,22 @@ public class LocationConverter {
 
         return locationMapper.convertToDto(location);
     }
+
+    /**
+     * Converts a LocationView projection to a LocationDTO, including its owner.
+     *
+     * @param view the projection to convert
+     * @return the converted LocationDTO object
+     */
+    public LocationDTO convertToDto(LocationView view) {
+
+        UserDTO owner = new UserDTO();
+        owner.setName(view.getOwnerName());
+        owner.setEmail(view.getOwnerEmail());
+        LocationDTO locationDTO = new LocationDTO();
+        locationDTO.setName(view.getName());
+        locationDTO.setAddress(view.getAddress());
+        locationDTO.setOwner(owner);
+        return locationDTO;
+    }
 }
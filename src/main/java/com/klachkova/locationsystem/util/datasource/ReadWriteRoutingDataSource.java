@@ -0,0 +1,82 @@
+package com.klachkova.locationsystem.util.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions to the read replica and everything else to the primary.
+ * <p>
+ * A connection is taken from the replica when it is requested inside a transaction marked
+ * {@code @Transactional(readOnly = true)} and the {@link ReplicaLagMonitor} reports the replica available; otherwise,
+ * and for connections requested outside a transaction, from the primary. The read-only flag of a transaction is
+ * only set after the transaction manager opened its connection, so this data source must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, which routes on the first statement.
+ * </p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The target of a connection.
+     */
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    /**
+     * @param primary           the primary, for writes and for reads while the replica is unavailable
+     * @param replica           the replica, for read-only transactions
+     * @param replicaLagMonitor tells whether the replica may serve reads
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor) {
+
+        this.replicaLagMonitor = replicaLagMonitor;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        if (!replicaLagMonitor.isAvailable()) {
+            primaryReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    /**
+     * @return the number of connections of read-only transactions taken from the replica
+     */
+    public long getReplicaReadCount() {
+
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return the number of connections of read-only transactions taken from the primary, the replica being
+     * unavailable
+     */
+    public long getPrimaryReadCount() {
+
+        return primaryReads.sum();
+    }
+}
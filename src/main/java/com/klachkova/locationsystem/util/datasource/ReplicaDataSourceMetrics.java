@@ -0,0 +1,50 @@
+package com.klachkova.locationsystem.util.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes the state of the read replica and where read-only transactions were sent as metrics.
+ */
+public class ReplicaDataSourceMetrics implements MeterBinder {
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    public ReplicaDataSourceMetrics(
+        ReplicaLagMonitor replicaLagMonitor,
+        ReadWriteRoutingDataSource routingDataSource
+    ) {
+
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("datasource.replica.available", replicaLagMonitor, monitor -> monitor.isAvailable() ? 1 : 0)
+            .description("1 while read-only transactions may use the replica, 0 otherwise")
+            .register(registry);
+        Gauge.builder("datasource.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagMillis)
+            .baseUnit("milliseconds")
+            .description("Replication lag measured by the last probe, NaN if the probe failed")
+            .register(registry);
+        FunctionCounter.builder("datasource.replica.probe.failures", replicaLagMonitor,
+                ReplicaLagMonitor::getFailureCount)
+            .description("Failed probes of the replica")
+            .register(registry);
+        FunctionCounter.builder("datasource.reads", routingDataSource,
+                ReadWriteRoutingDataSource::getReplicaReadCount)
+            .tag("target", "replica")
+            .description("Connections of read-only transactions, by the data source they were taken from")
+            .register(registry);
+        FunctionCounter.builder("datasource.reads", routingDataSource,
+                ReadWriteRoutingDataSource::getPrimaryReadCount)
+            .tag("target", "primary")
+            .description("Connections of read-only transactions, by the data source they were taken from")
+            .register(registry);
+    }
+}
@@ -0,0 +1,174 @@
+package com.klachkova.locationsystem.util.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Probes the read replica in the background and tells whether it may serve reads.
+ * <p>
+ * Every {@code probeInterval} the monitor runs {@code lagQuery} on the replica, which must return the replication
+ * lag in seconds as a single number. The replica is available while the last probe succeeded and returned a lag of
+ * at most {@code maxLag}. The lag query is required: a replica that is merely reachable may be arbitrarily far
+ * behind, which would make {@link #getMaxStaleness()} meaningless. The replica is unavailable until the first probe
+ * completed, and after a failed probe or a null lag.
+ * </p>
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final int PROBE_TIMEOUT_SECONDS = 5;
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final Duration probeInterval;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean available;
+    private volatile double lagMillis = Double.NaN;
+
+    /**
+     * @param replica       the replica
+     * @param lagQuery      a query returning the replication lag in seconds
+     * @param maxLag        the largest lag at which the replica still serves reads
+     * @param probeInterval the delay between two probes
+     * @throws IllegalArgumentException if the lag query is null or blank
+     */
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration probeInterval) {
+
+        this(replica, lagQuery, maxLag, probeInterval, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ReplicaLagMonitor(
+        DataSource replica,
+        String lagQuery,
+        Duration maxLag,
+        Duration probeInterval,
+        ScheduledExecutorService scheduler
+    ) {
+
+        if (lagQuery == null || lagQuery.trim().isEmpty()) {
+            throw new IllegalArgumentException("A replica lag query is required, set datasource.replica.lag-query");
+        }
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.probeInterval = probeInterval;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts probing the replica, the first probe runs immediately.
+     */
+    public void start() {
+
+        scheduler.scheduleWithFixedDelay(this::probe, 0, probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Probes the replica and updates its availability.
+     */
+    void probe() {
+
+        double lag;
+        try (Connection connection = replica.getConnection()) {
+            lag = queryLagMillis(connection);
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            lagMillis = Double.NaN;
+            update(false, "the probe failed: " + e.getMessage());
+            return;
+        }
+        lagMillis = lag;
+        if (Double.isNaN(lag)) {
+            update(false, "the lag query returned null");
+        } else if (lag > maxLag.toMillis()) {
+            update(false, String.format("the lag of %.0f ms exceeds %d ms", lag, maxLag.toMillis()));
+        } else {
+            update(true, null);
+        }
+    }
+
+    private double queryLagMillis(Connection connection) throws SQLException {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(PROBE_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (!resultSet.next()) {
+                    return Double.NaN;
+                }
+                double seconds = resultSet.getDouble(1);
+                return resultSet.wasNull() ? Double.NaN : seconds * 1000;
+            }
+        }
+    }
+
+    private void update(boolean nowAvailable, String reason) {
+
+        boolean wasAvailable = available;
+        available = nowAvailable;
+        if (wasAvailable && !nowAvailable) {
+            log.warn("Read replica unavailable, reading from the primary: {}", reason);
+        } else if (!wasAvailable && nowAvailable) {
+            log.info("Read replica available, serving read-only transactions");
+        } else if (!nowAvailable) {
+            log.debug("Read replica is still unavailable: {}", reason);
+        }
+    }
+
+    /**
+     * Stops the background probe.
+     */
+    public void shutdown() {
+
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return true if the replica may serve reads
+     */
+    public boolean isAvailable() {
+
+        return available;
+    }
+
+    /**
+     * @return the lag measured by the last probe in milliseconds, NaN if it failed or returned null
+     */
+    public double getLagMillis() {
+
+        return lagMillis;
+    }
+
+    public long getFailureCount() {
+
+        return failures.sum();
+    }
+
+    /**
+     * Returns how old the data read from the replica can be: the lag tolerance, plus the probe interval during which
+     * the lag may grow unnoticed.
+     *
+     * @return the largest staleness of a replica read
+     */
+    public Duration getMaxStaleness() {
+
+        return maxLag.plus(probeInterval);
+    }
+}
@@ -2,6 +2,13 @@ package com.klachkova.locationsystem.util.exceptions;
 
 import org.springframework.http.HttpStatus;
 
+/**
+ * Base class of the exceptions thrown on expected client errors, mapped to a response with their HTTP status.
+ * <p>
+ * These exceptions are control flow, not bugs, so they carry no stack trace and no suppressed exceptions: filling
+ * in the stack of a deep Spring call chain costs more than the rest of a not-found request.
+ * </p>
+ */
 public abstract class ApplicationException extends RuntimeException {
 
     private final HttpStatus status;
@@ -9,7 +16,7 @@ public abstract class ApplicationException extends RuntimeException {
 
     public ApplicationException(HttpStatus status, String errorMessage) {
 
-        super(errorMessage);
+        super(errorMessage, null, false, false);
         this.status = status;
         this.errorMessage = errorMessage;
     }
@@ -1,9 +1,11 @@
 package com.klachkova.locationsystem.util.exceptions;
 
-public class NotFoundException extends RuntimeException {
+import org.springframework.http.HttpStatus;
+
+public class NotFoundException extends ApplicationException {
 
     public NotFoundException(String message) {
 
-        super(message);
+        super(HttpStatus.NOT_FOUND, message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.klachkova.locationsystem.util.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends ApplicationException {
+
+    public ServiceUnavailableException(String message) {
+
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
\ No newline at end of file
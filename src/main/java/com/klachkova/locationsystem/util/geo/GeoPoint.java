@@ -0,0 +1,56 @@
+package com.klachkova.locationsystem.util.geo;
+
+/**
+ * A point on the Earth, in decimal degrees.
+ */
+public final class GeoPoint {
+
+    /**
+     * Mean radius of the Earth in kilometers.
+     */
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double latitude;
+    private final double longitude;
+
+    public GeoPoint(double latitude, double longitude) {
+
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() {
+
+        return latitude;
+    }
+
+    public double getLongitude() {
+
+        return longitude;
+    }
+
+    /**
+     * Returns the great-circle distance to another point, with the haversine formula.
+     *
+     * @param other the other point
+     * @return the distance in kilometers
+     */
+    public double distanceKm(GeoPoint other) {
+
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+            * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public String toString() {
+
+        return "GeoPoint{" +
+            "latitude=" + latitude +
+            ", longitude=" + longitude +
+            '}';
+    }
+}
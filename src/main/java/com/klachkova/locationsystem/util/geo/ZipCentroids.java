@@ -0,0 +1,247 @@
+package com.klachkova.locationsystem.util.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Offline table of the centroids of US ZIP codes, loaded once at startup.
+ * <p>
+ * The table is read from a tab-separated file in the format of the US Census Bureau ZCTA Gazetteer file, where the
+ * {@code GEOID}, {@code INTPTLAT} and {@code INTPTLONG} columns hold the ZIP code, and the latitude and longitude of
+ * its internal point. Other columns are ignored, and lines starting with {@code #} are comments.
+ * </p>
+ * <p>
+ * {@code locations.geo.zip-centroids} points at {@code geo/2020_Gaz_zcta_national.txt} on the classpath by default,
+ * the public domain Gazetteer file vendored into {@code src/main/resources} by {@code ./gradlew downloadZipCentroids}.
+ * When the property is unset or its file is missing, the table is empty and {@link #isLoaded()} is false. A table with
+ * fewer than {@link #MIN_ZIP_CODES} ZIP codes, such as a development sample, is loaded with a warning, since every
+ * ZIP code missing from it is unknown.
+ * </p>
+ * <p>
+ * Coordinates are kept in two {@code float} arrays indexed by the five-digit ZIP code, about 800 KB whatever the
+ * number of ZIP codes, and float precision is within a few meters. The known ZIP codes are also kept sorted by
+ * latitude, so the ZIP codes within a radius are found by a binary search on the latitude band of the radius.
+ * </p>
+ */
+@Component
+public class ZipCentroids {
+
+    private static final Logger log = LoggerFactory.getLogger(ZipCentroids.class);
+
+    private static final int ZIP_CODES = 100_000;
+
+    /**
+     * Fewer ZIP codes than this are not a full table: the 2020 ZCTA Gazetteer file has 33,791.
+     */
+    static final int MIN_ZIP_CODES = 30_000;
+
+    private final float[] latitudes = new float[ZIP_CODES];
+    private final float[] longitudes = new float[ZIP_CODES];
+    private int size;
+    private int[] zipsByLatitude;
+    private float[] sortedLatitudes;
+
+    public ZipCentroids(@Value("${locations.geo.zip-centroids:#{null}}") Resource resource) {
+
+        Arrays.fill(latitudes, Float.NaN);
+        if (resource == null) {
+            sortByLatitude();
+            log.warn("locations.geo.zip-centroids is not set, searching locations near a ZIP code is unavailable");
+            return;
+        }
+        if (!resource.exists()) {
+            sortByLatitude();
+            log.warn("The ZIP centroids {} are missing, searching locations near a ZIP code is unavailable: run "
+                + "./gradlew downloadZipCentroids to vendor the ZCTA Gazetteer file", resource);
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            load(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the ZIP centroids from " + resource, e);
+        }
+        sortByLatitude();
+        if (size < MIN_ZIP_CODES) {
+            log.warn("Loaded the centroids of only {} ZIP codes from {}, all other ZIP codes are unknown to the nearby "
+                + "search: point locations.geo.zip-centroids at the full ZCTA Gazetteer file", size, resource);
+        } else {
+            log.info("Loaded the centroids of {} ZIP codes from {}", size, resource);
+        }
+    }
+
+    private void load(BufferedReader reader) throws IOException {
+
+        String line = reader.readLine();
+        while (line != null && line.startsWith("#")) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return;
+        }
+        String[] header = line.split("\t");
+        int zipColumn = column(header, "GEOID");
+        int latitudeColumn = column(header, "INTPTLAT");
+        int longitudeColumn = column(header, "INTPTLONG");
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            int zip = zipIndex(fields[zipColumn].trim());
+            if (zip < 0) {
+                throw new IllegalStateException("Invalid ZIP code on line " + lineNumber + ": " + fields[zipColumn]);
+            }
+            if (Float.isNaN(latitudes[zip])) {
+                size++;
+            }
+            latitudes[zip] = Float.parseFloat(fields[latitudeColumn].trim());
+            longitudes[zip] = Float.parseFloat(fields[longitudeColumn].trim());
+        }
+    }
+
+    private void sortByLatitude() {
+
+        Integer[] zips = new Integer[size];
+        int count = 0;
+        for (int zip = 0; zip < ZIP_CODES; zip++) {
+            if (!Float.isNaN(latitudes[zip])) {
+                zips[count++] = zip;
+            }
+        }
+        Arrays.sort(zips, (a, b) -> Float.compare(latitudes[a], latitudes[b]));
+        zipsByLatitude = new int[size];
+        sortedLatitudes = new float[size];
+        for (int i = 0; i < size; i++) {
+            zipsByLatitude[i] = zips[i];
+            sortedLatitudes[i] = latitudes[zips[i]];
+        }
+    }
+
+    private static int column(String[] header, String name) {
+
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("The ZIP centroids have no " + name + " column");
+    }
+
+    /**
+     * Finds the centroid of a ZIP code.
+     *
+     * @param zipCode a five-digit ZIP code, a "-1234" extension is ignored
+     * @return the centroid, or null if the ZIP code is malformed or not in the table
+     */
+    public GeoPoint find(String zipCode) {
+
+        int zip = zipIndex(zipCode);
+        if (zip < 0 || Float.isNaN(latitudes[zip])) {
+            return null;
+        }
+        return new GeoPoint(latitudes[zip], longitudes[zip]);
+    }
+
+    /**
+     * Finds the ZIP codes of the table whose centroid is within a radius of a point.
+     *
+     * @param center   the center of the search
+     * @param radiusKm the radius of the search in kilometers
+     * @return the five-digit ZIP codes within the radius, in ascending order
+     */
+    public List<String> findZipCodesWithin(GeoPoint center, double radiusKm) {
+
+        // on a sphere, a point within the radius is at most this many degrees of latitude away from the center
+        double latitudeDelta = Math.toDegrees(radiusKm / GeoPoint.EARTH_RADIUS_KM);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedLatitudes[middle] < center.getLatitude() - latitudeDelta) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<Integer> zips = new ArrayList<>();
+        for (int i = low; i < size && sortedLatitudes[i] <= center.getLatitude() + latitudeDelta; i++) {
+            int zip = zipsByLatitude[i];
+            if (center.distanceKm(new GeoPoint(latitudes[zip], longitudes[zip])) <= radiusKm) {
+                zips.add(zip);
+            }
+        }
+        Collections.sort(zips);
+        List<String> zipCodes = new ArrayList<>(zips.size());
+        for (int zip : zips) {
+            zipCodes.add(String.valueOf(ZIP_CODES + zip).substring(1));
+        }
+        return zipCodes;
+    }
+
+    /**
+     * @return the number of ZIP codes in the table
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * @return true if a table with at least one ZIP code is configured
+     */
+    public boolean isLoaded() {
+
+        return size > 0;
+    }
+
+    /**
+     * Checks that a ZIP code has five digits, optionally followed by a "-1234" extension.
+     *
+     * @param zipCode the ZIP code to check
+     * @return true if the ZIP code is well formed, whether or not it is in the table
+     */
+    public static boolean isWellFormed(String zipCode) {
+
+        return zipIndex(zipCode) >= 0;
+    }
+
+    /**
+     * @return the five leading digits of a ZIP code as a number, or -1 if there are not five leading digits or more
+     * characters follow them other than a "-1234" extension
+     */
+    private static int zipIndex(String zipCode) {
+
+        if (zipCode == null || (zipCode.length() != 5 && (zipCode.length() != 10 || zipCode.charAt(5) != '-'))) {
+            return -1;
+        }
+        int zip = 0;
+        for (int i = 0; i < zipCode.length(); i++) {
+            if (i == 5) {
+                continue;
+            }
+            char c = zipCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            if (i < 5) {
+                zip = zip * 10 + (c - '0');
+            }
+        }
+        return zip;
+    }
+}
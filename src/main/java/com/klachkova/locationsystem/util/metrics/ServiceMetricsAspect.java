@@ -0,0 +1,86 @@
+package com.klachkova.locationsystem.util.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the services, as the {@value #METRIC_NAME} timer tagged with the service, the method
+ * and the exception thrown, like Spring Data does for repositories with {@code spring.data.repository.invocations}.
+ * <p>
+ * The aspect wraps the cache and transaction interceptors, so the time of a call includes the cache lookup and the
+ * commit. Calls returning a {@link CompletionStage} are timed until it completes. Timers of successful calls are
+ * looked up once per method.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+    public static final String METRIC_NAME = "service.invocations";
+
+    private static final String NO_EXCEPTION = "None";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceMetricsAspect(MeterRegistry registry) {
+
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.klachkova.locationsystem.services..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        long start = registry.config().clock().monotonicTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            record(method, start, e);
+            throw e;
+        }
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, e) ->
+                record(method, start, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+        } else {
+            record(method, start, null);
+        }
+        return result;
+    }
+
+    private void record(Method method, long start, Throwable exception) {
+
+        Timer timer = exception == null
+            ? successTimers.computeIfAbsent(method, m -> timer(m, NO_EXCEPTION))
+            : timer(method, exception.getClass().getSimpleName());
+        timer.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Method method, String exception) {
+
+        return Timer.builder(METRIC_NAME)
+            .description("Duration of service method invocations")
+            .tag("service", method.getDeclaringClass().getSimpleName())
+            .tag("method", method.getName())
+            .tag("exception", exception)
+            .register(registry);
+    }
+}
@@ -0,0 +1,110 @@
+package com.klachkova.locationsystem.reactive;
+
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads locations and users through R2DBC, with the same queries as the servlet application's repositories, mapped
+ * directly to DTOs.
+ */
+public class ReactiveLocationRepository {
+
+    private static final String LOCATION_COLUMNS =
+        "select l.name, l.address, o.name as owner_name, o.email as owner_email "
+            + "from location l join user o on o.id = l.user_id ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLocationRepository(DatabaseClient databaseClient) {
+
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Finds the locations owned by the specified user, with an index range scan on (owner, ID).
+     *
+     * @param userId the ID of the user
+     * @return the owned locations ordered by ID
+     */
+    public Flux<LocationDTO> findOwnLocations(int userId) {
+
+        return databaseClient.sql(LOCATION_COLUMNS + "where l.user_id = :userId order by l.id")
+            .bind("userId", userId)
+            .map(ReactiveLocationRepository::toLocationDto)
+            .all();
+    }
+
+    /**
+     * Finds the locations shared with the specified user, with an index range scan on the unique (user, location)
+     * access key and a primary key lookup per location.
+     *
+     * @param userId the ID of the user
+     * @return the shared locations ordered by ID
+     */
+    public Flux<LocationDTO> findSharedLocations(int userId) {
+
+        return databaseClient.sql(LOCATION_COLUMNS
+                + "where l.id in (select a.location_id from location_access a where a.user_id = :userId) "
+                + "order by l.id")
+            .bind("userId", userId)
+            .map(ReactiveLocationRepository::toLocationDto)
+            .all();
+    }
+
+    /**
+     * Finds the users with access to a specific location, in the order they were given access.
+     *
+     * @param locationId the ID of the location
+     * @return the users with access to the location
+     */
+    public Flux<UserDTO> findFriendsByLocationId(int locationId) {
+
+        return databaseClient.sql("select u.name, u.email from location_access a join user u on u.id = a.user_id "
+                + "where a.location_id = :locationId order by a.id")
+            .bind("locationId", locationId)
+            .map(row -> new UserDTO(row.get("name", String.class), row.get("email", String.class)))
+            .all();
+    }
+
+    /**
+     * Checks if a user with the given ID exists.
+     *
+     * @param userId the ID of the user
+     * @return true if the user exists, otherwise false
+     */
+    public Mono<Boolean> existsUserById(int userId) {
+
+        return databaseClient.sql("select 1 from user where id = :userId")
+            .bind("userId", userId)
+            .fetch()
+            .first()
+            .hasElement();
+    }
+
+    /**
+     * Checks that the tables read by this repository exist, without reading any row.
+     *
+     * @return a Mono completing empty if they exist, or with the error of the query otherwise
+     */
+    public Mono<Void> checkSchema() {
+
+        return databaseClient.sql("select 1 from location l join user u on u.id = l.user_id "
+                + "join location_access a on a.location_id = l.id where 1 = 0")
+            .fetch()
+            .all()
+            .then();
+    }
+
+    private static LocationDTO toLocationDto(Row row) {
+
+        LocationDTO locationDTO = new LocationDTO();
+        locationDTO.setName(row.get("name", String.class));
+        locationDTO.setAddress(row.get("address", String.class));
+        locationDTO.setOwner(new UserDTO(row.get("owner_name", String.class), row.get("owner_email", String.class)));
+        return locationDTO;
+    }
+}
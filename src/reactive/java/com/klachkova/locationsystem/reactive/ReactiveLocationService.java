@@ -0,0 +1,112 @@
+package com.klachkova.locationsystem.reactive;
+
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import com.klachkova.locationsystem.util.cache.CacheNames;
+import com.klachkova.locationsystem.util.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the read methods of the servlet application's location services.
+ * <p>
+ * Available locations are cached in Redis under the same keys, in the same format and with the same TTL as the
+ * servlet application's {@link CacheNames#AVAILABLE_LOCATIONS} cache, so both share entries and the evictions of
+ * the servlet application apply here too. A failing Redis is treated as a miss.
+ * </p>
+ */
+public class ReactiveLocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveLocationService.class);
+
+    private static final String AVAILABLE_LOCATIONS_PREFIX =
+        CacheKeyPrefix.simple().compute(CacheNames.AVAILABLE_LOCATIONS);
+
+    private final ReactiveLocationRepository locationRepository;
+    private final ReactiveRedisTemplate<String, Object> cacheRedisTemplate;
+    private final Duration ttl;
+
+    public ReactiveLocationService(
+        ReactiveLocationRepository locationRepository,
+        ReactiveRedisTemplate<String, Object> cacheRedisTemplate,
+        Duration ttl
+    ) {
+
+        this.locationRepository = locationRepository;
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Retrieves available locations for a user.
+     * <p>
+     * On a miss, the owned and the shared locations are read concurrently, with an index range scan each, and
+     * cached. The user is only looked up when both queries return nothing.
+     * </p>
+     *
+     * @param userId the ID of the user for whom to retrieve available locations
+     * @return the DTOs for the user's owned and shared locations, failing with a {@link NotFoundException} if no
+     * user with the given ID is found
+     */
+    @SuppressWarnings("unchecked")
+    public Mono<List<List<LocationDTO>>> getAvailableLocations(int userId) {
+
+        String key = AVAILABLE_LOCATIONS_PREFIX + userId;
+        return cacheRedisTemplate.opsForValue().get(key)
+            .onErrorResume(e -> {
+                log.warn("Cache get failed for {}, reading from the database: {}", key, e.getMessage());
+                return Mono.empty();
+            })
+            .map(cached -> (List<List<LocationDTO>>) cached)
+            .switchIfEmpty(Mono.defer(() -> loadAvailableLocations(userId)
+                .flatMap(availableLocations -> put(key, availableLocations))));
+    }
+
+    /**
+     * Retrieves all users with access to a specific location.
+     *
+     * @param locationId the ID of the location
+     * @return the users with access to the location
+     */
+    public Flux<UserDTO> getFriendsToLocation(int locationId) {
+
+        return locationRepository.findFriendsByLocationId(locationId);
+    }
+
+    private Mono<List<List<LocationDTO>>> loadAvailableLocations(int userId) {
+
+        return Mono.zip(
+                locationRepository.findOwnLocations(userId).collectList(),
+                locationRepository.findSharedLocations(userId).collectList())
+            .flatMap(locations -> {
+                List<List<LocationDTO>> result = new ArrayList<>(2);
+                result.add(locations.getT1());
+                result.add(locations.getT2());
+                if (!result.get(0).isEmpty() || !result.get(1).isEmpty()) {
+                    return Mono.just(result);
+                }
+                return locationRepository.existsUserById(userId)
+                    .flatMap(exists -> exists
+                        ? Mono.just(result)
+                        : Mono.error(new NotFoundException("User not found with ID: " + userId)));
+            });
+    }
+
+    private Mono<List<List<LocationDTO>>> put(String key, List<List<LocationDTO>> availableLocations) {
+
+        return cacheRedisTemplate.opsForValue().set(key, availableLocations, ttl)
+            .onErrorResume(e -> {
+                log.warn("Cache put failed for {}: {}", key, e.getMessage());
+                return Mono.empty();
+            })
+            .thenReturn(availableLocations);
+    }
+}
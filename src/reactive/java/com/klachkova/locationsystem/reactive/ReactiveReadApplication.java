@@ -0,0 +1,113 @@
+package com.klachkova.locationsystem.reactive;
+
+import com.klachkova.locationsystem.util.cache.CompactCacheValueSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * Optional read-only API serving the available locations of a user and the friends of a location on WebFlux, run
+ * with {@code ./gradlew bootRunReactive} and configured by {@code reactive-read.properties}.
+ * <p>
+ * It answers the same requests as the servlet application with the same bodies, from the same database through
+ * R2DBC and from the same Redis cache through the reactive Lettuce client. Writes stay with the servlet application,
+ * whose evictions keep the shared cache entries fresh. {@code spring.r2dbc.url} has to point at the database of the
+ * servlet application: the in-memory default is only shared within one JVM, so {@code bootRunReactive} needs it set
+ * to a database the servlet application serves. The startup fails when the tables of the servlet application are
+ * missing, instead of answering every request with a server error.
+ * </p>
+ * <p>
+ * Only the Redis I/O is non-blocking. The embedded H2 engine behind r2dbc-h2 runs each query on the subscribing
+ * thread, so a cache miss still blocks an event loop thread for the duration of its database reads. The database
+ * path stops blocking only once {@code spring.r2dbc.url} points at a networked database with a non-blocking R2DBC
+ * driver.
+ * </p>
+ * <p>
+ * The servlet application scans this package too. This configuration and {@link ReactiveReadController} only apply
+ * to a reactive web application, so they are skipped there.
+ * </p>
+ */
+@SpringBootApplication
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReadApplication {
+
+    public static void main(String[] args) {
+
+        run(args);
+    }
+
+    /**
+     * Starts the reactive read API.
+     *
+     * @param args the command line arguments, {@code --property=value} arguments override reactive-read.properties
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext run(String... args) {
+
+        return new SpringApplicationBuilder(ReactiveReadApplication.class)
+            .web(WebApplicationType.REACTIVE)
+            .properties("spring.config.name=reactive-read")
+            .run(args);
+    }
+
+    @Bean
+    public ReactiveLocationRepository reactiveLocationRepository(DatabaseClient databaseClient) {
+
+        return new ReactiveLocationRepository(databaseClient);
+    }
+
+    /**
+     * Fails the startup when {@code spring.r2dbc.url} has no schema of the servlet application.
+     */
+    @Bean
+    public ApplicationRunner schemaCheck(
+        ReactiveLocationRepository reactiveLocationRepository,
+        @Value("${spring.r2dbc.url}") String url
+    ) {
+
+        return args -> reactiveLocationRepository.checkSchema()
+            .onErrorMap(e -> new IllegalStateException("No location schema at " + url
+                + ", spring.r2dbc.url has to point at the database of the servlet application", e))
+            .block(Duration.ofSeconds(30));
+    }
+
+    /**
+     * Reads and writes the cache entries in the format of the servlet application, set by
+     * {@code cache.redis.serializer}.
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> cacheRedisTemplate(
+        ReactiveRedisConnectionFactory redisConnectionFactory,
+        @Value("${cache.redis.serializer:binary}") String valueSerializer,
+        @Value("${cache.redis.compression-threshold:512}") int compressionThreshold
+    ) {
+
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+            .<String, Object>newSerializationContext(RedisSerializer.string())
+            .value(CompactCacheValueSerializer.forFormat(valueSerializer, compressionThreshold))
+            .build();
+        return new ReactiveRedisTemplate<>(redisConnectionFactory, serializationContext);
+    }
+
+    @Bean
+    public ReactiveLocationService reactiveLocationService(
+        ReactiveLocationRepository reactiveLocationRepository,
+        ReactiveRedisTemplate<String, Object> cacheRedisTemplate,
+        @Value("${cache.redis.ttl}") long ttl
+    ) {
+
+        return new ReactiveLocationService(reactiveLocationRepository, cacheRedisTemplate, Duration.ofMinutes(ttl));
+    }
+}
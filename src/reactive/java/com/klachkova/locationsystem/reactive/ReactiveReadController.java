@@ -0,0 +1,75 @@
+package com.klachkova.locationsystem.reactive;
+
+import com.klachkova.locationsystem.dto.ErrorDTO;
+import com.klachkova.locationsystem.dto.LocationDTO;
+import com.klachkova.locationsystem.dto.UserDTO;
+import com.klachkova.locationsystem.util.exceptions.ApplicationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * REST controller of the reactive read API, answering like the endpoints of the servlet application with the same
+ * paths.
+ * <p>
+ * Errors are answered with an {@link ErrorDTO} body, as by the servlet application's ApiExceptionHandler.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReadController {
+
+    private final ReactiveLocationService locationService;
+
+    @Autowired
+    public ReactiveReadController(ReactiveLocationService locationService) {
+
+        this.locationService = locationService;
+    }
+
+    /**
+     * Retrieves available locations for a user (own+shared with user).
+     *
+     * @param id the user ID
+     * @return a ResponseEntity with a list of available locations
+     */
+    @GetMapping("/users/{id}/availableLocations")
+    public Mono<ResponseEntity<List<List<LocationDTO>>>> getAvailableLocations(@PathVariable int id) {
+
+        return locationService.getAvailableLocations(id)
+            .map(availableLocations -> new ResponseEntity<>(availableLocations, HttpStatus.OK));
+    }
+
+    /**
+     * Retrieves all users who have access to a specific location.
+     *
+     * @param id the ID of the location
+     * @return a ResponseEntity with a list of users or a no content status if no users are found
+     */
+    @GetMapping("/locations/{id}/friends")
+    public Mono<ResponseEntity<List<UserDTO>>> getAllFriendUsers(@PathVariable int id) {
+
+        return locationService.getFriendsToLocation(id)
+            .collectList()
+            .map(friends -> new ResponseEntity<>(friends, friends.isEmpty() ? HttpStatus.NO_CONTENT : HttpStatus.OK));
+    }
+
+    @ExceptionHandler(ApplicationException.class)
+    public ResponseEntity<ErrorDTO> handleApplicationException(ApplicationException e, ServerHttpRequest request) {
+
+        HttpStatus status = e.getStatus();
+        return new ResponseEntity<>(
+            new ErrorDTO(status.value(), status.getReasonPhrase(), e.getMessage(), request.getPath().value()), status);
+    }
+}
@@ -0,0 +1,95 @@
+package com.klachkova.locationsystem.controllers
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.klachkova.locationsystem.services.LocationAccessService
+import com.klachkova.locationsystem.services.LocationService
+import com.klachkova.locationsystem.services.UserImportService
+import com.klachkova.locationsystem.services.UserService
+import com.klachkova.locationsystem.util.exceptions.NotFoundException
+import com.klachkova.locationsystem.util.exceptions.PermissionDeniedException
+import org.springframework.http.HttpStatus
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.setup.MockMvcBuilders
+import spock.lang.Specification
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch
+
+class ApiExceptionHandlerSpec extends Specification {
+
+    LocationService locationService = Mock()
+    LocationAccessService locationAccessService = Mock()
+    ObjectMapper objectMapper = new ObjectMapper()
+
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+        new UserController(Mock(UserService), locationService, locationAccessService, Mock(UserImportService), false))
+        .setControllerAdvice(new ApiExceptionHandler())
+        .build()
+
+    def "test an ApplicationException is answered with its status and an error body"() {
+
+        given:
+            locationService.getAvailableLocations(9) >> { throw new NotFoundException("User not found with ID: 9") }
+
+        when:
+            def response = mockMvc.perform(get("/api/users/9/availableLocations")).andReturn().response
+            def body = objectMapper.readValue(response.contentAsString, Map)
+
+        then:
+            response.status == 404
+            body == [status: 404, error: "Not Found", message: "User not found with ID: 9", path: "/api/users/9/availableLocations"]
+    }
+
+    def "test a PermissionDeniedException is answered with FORBIDDEN"() {
+
+        given:
+            locationAccessService.addFriendToLocation(1, "friend@example.com", "1 Main St, Springfield, IL, 62704", _) >> {
+                throw new PermissionDeniedException("User does not have ADMIN access to this location")
+            }
+
+        when:
+            def response = mockMvc.perform(patch("/api/users/1/addFriendToLocation")
+                .param("friendEmail", "friend@example.com")
+                .param("locationAddress", "1 Main St, Springfield, IL, 62704")
+                .param("accessLevel", "READ_ONLY"))
+                .andReturn().response
+
+        then:
+            response.status == 403
+            objectMapper.readValue(response.contentAsString, Map).message == "User does not have ADMIN access to this location"
+    }
+
+    def "test a missing request parameter is answered with BAD_REQUEST and an error body"() {
+
+        when:
+            def response = mockMvc.perform(get("/api/users/1/availableLocations/near").param("zip", "62704"))
+                .andReturn().response
+            def body = objectMapper.readValue(response.contentAsString, Map)
+
+        then:
+            response.status == 400
+            body.error == "Bad Request"
+            body.message.contains("radiusKm")
+            body.path == "/api/users/1/availableLocations/near"
+    }
+
+    def "test an unexpected exception is answered with INTERNAL_SERVER_ERROR without its message"() {
+
+        given:
+            locationService.getAvailableLocations(1) >> { throw new IllegalStateException("connection refused") }
+
+        when:
+            def response = mockMvc.perform(get("/api/users/1/availableLocations")).andReturn().response
+            def body = objectMapper.readValue(response.contentAsString, Map)
+
+        then:
+            response.status == HttpStatus.INTERNAL_SERVER_ERROR.value()
+            body.message == "An unexpected error occurred"
+    }
+
+    def "test application exceptions carry no stack trace"() {
+
+        expect:
+            new NotFoundException("not found").stackTrace.length == 0
+    }
+}
@@ -1,25 +1,58 @@
 package com.klachkova.locationsystem.controllers
 
 import com.klachkova.locationsystem.dto.LocationDTO
+import com.klachkova.locationsystem.dto.PageDTO
+import com.klachkova.locationsystem.dto.ShareRequestDTO
+import com.klachkova.locationsystem.dto.ShareResultDTO
 import com.klachkova.locationsystem.dto.UserDTO
 import com.klachkova.locationsystem.modeles.AccessLevel
 import com.klachkova.locationsystem.services.LocationAccessService
+import com.klachkova.locationsystem.services.LocationImportService
 import com.klachkova.locationsystem.services.LocationService
+import com.klachkova.locationsystem.util.exceptions.BadRequestException
+import org.springframework.core.task.SyncTaskExecutor
 import org.springframework.http.HttpStatus
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.setup.MockMvcBuilders
 import spock.lang.Specification
 import spock.lang.Subject
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+
 class LocationControllerSpec extends Specification {
 
     LocationService locationService = Mock()
     LocationAccessService locationAccessService = Mock()
+    LocationImportService locationImportService = Mock()
 
     @Subject
     def locationController = new LocationController(
         locationService,
-        locationAccessService
+        locationAccessService,
+        locationImportService,
+        new ImportResultStreamer(new SyncTaskExecutor(), 600000)
     )
 
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(locationController)
+        .setControllerAdvice(new ApiExceptionHandler())
+        .build()
+
+    def "test importLocations should stream the import results as NDJSON"() {
+
+        when:
+            def response = mockMvc.perform(post("/api/locations/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content('{"name":"Home","address":"123 Main St, Springfield, IL, 62704"}\n'))
+                .andReturn().response
+
+        then:
+            1 * locationImportService.importLocations(_, _) >> { args -> args[1].write("result\n".bytes) }
+            response.status == HttpStatus.OK.value()
+            response.contentType == MediaType.APPLICATION_NDJSON_VALUE
+            response.contentAsString == "result\n"
+    }
+
     def "test registerLocation should return CREATED status and LocationDTO"() {
 
         given:
@@ -51,6 +84,40 @@ class LocationControllerSpec extends Specification {
             response.body == "Location shared successfully"
     }
 
+    def "test shareLocationWithUsers should return OK status and the result of each entry"() {
+
+        given:
+            def locationId = 1
+            def shareRequests = [new ShareRequestDTO("name@example.com", AccessLevel.READ_ONLY)]
+            def results = [new ShareResultDTO("name@example.com", ShareResultDTO.Status.SHARED, null)]
+
+        and:
+            locationAccessService.shareLocationWithUsers(locationId, shareRequests) >> results
+
+        when:
+            def response = locationController.shareLocationWithUsers(locationId, shareRequests)
+
+        then:
+            response.statusCode == HttpStatus.OK
+            response.body == results
+    }
+
+    def "test shareLocationWithUsers should return BAD REQUEST status for an empty request"() {
+
+        given:
+            locationAccessService.shareLocationWithUsers(1, []) >> { throw new BadRequestException("No users to share the location with") }
+
+        when:
+            def response = mockMvc.perform(post("/api/locations/1/share/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andReturn().response
+
+        then:
+            response.status == HttpStatus.BAD_REQUEST.value()
+            response.contentAsString.contains('"message":"No users to share the location with"')
+    }
+
     def "test updateAccessLevel should return OK status on successful update"() {
 
         given:
@@ -101,5 +168,37 @@ class LocationControllerSpec extends Specification {
             response.statusCode == HttpStatus.NO_CONTENT
             response.body.size() == 0
     }
+
+    def "test streamAllFriendUsers should stream the users as JSON"() {
+
+        given:
+            def output = new ByteArrayOutputStream()
+
+        when:
+            def response = locationController.streamAllFriendUsers(1)
+            response.body.writeTo(output)
+
+        then:
+            response.statusCode == HttpStatus.OK
+            response.headers.getContentType() == MediaType.APPLICATION_JSON
+            1 * locationAccessService.writeFriends(1, output) >> { args -> args[1].write("[]".bytes) }
+            output.toString() == "[]"
+    }
+
+    def "test getFriendUsersPage should return OK status and the page"() {
+
+        given:
+            def page = new PageDTO<List<UserDTO>>([new UserDTO("Friend", "friend@example.com")], null)
+
+        and:
+            locationService.getFriendsToLocationPage(1, 4, 20) >> page
+
+        when:
+            def response = locationController.getFriendUsersPage(1, 4, 20)
+
+        then:
+            response.statusCode == HttpStatus.OK
+            response.body.is(page)
+    }
 }
 
@@ -2,25 +2,72 @@ package com.klachkova.locationsystem.controllers
 
 import com.klachkova.locationsystem.dto.UserDTO
 import com.klachkova.locationsystem.dto.LocationDTO
+import com.klachkova.locationsystem.dto.NearbyLocationDTO
+import com.klachkova.locationsystem.dto.PageDTO
 import com.klachkova.locationsystem.modeles.AccessLevel
 import com.klachkova.locationsystem.services.LocationAccessService
 import com.klachkova.locationsystem.services.LocationService
+import com.klachkova.locationsystem.services.UserImportService
 import com.klachkova.locationsystem.services.UserService
+import com.klachkova.locationsystem.util.exceptions.BadRequestException
+import com.klachkova.locationsystem.util.exceptions.NotFoundException
+import org.springframework.core.task.SyncTaskExecutor
 import org.springframework.http.HttpStatus
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.setup.MockMvcBuilders
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.util.concurrent.CompletableFuture
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+
 class UserControllerSpec extends Specification {
 
     UserService userService = Mock()
     LocationService locationService = Mock()
     LocationAccessService locationAccessService = Mock()
+    UserImportService userImportService = Mock()
 
     @Subject
     def userController = new UserController(
         userService,
         locationService,
-        locationAccessService)
+        locationAccessService,
+        userImportService,
+        new ImportResultStreamer(new SyncTaskExecutor(), 600000),
+        true)
+
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(userController)
+        .setControllerAdvice(new ApiExceptionHandler())
+        .build()
+
+    def "test importUsers should stream the import results as NDJSON"() {
+
+        when:
+            def response = mockMvc.perform(post("/api/users/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content('{"name":"Name","email":"name@example.com"}\n'))
+                .andReturn().response
+
+        then:
+            1 * userImportService.importUsers(_, _) >> { args -> args[1].write("result\n".bytes) }
+            response.status == HttpStatus.OK.value()
+            response.contentType == MediaType.APPLICATION_NDJSON_VALUE
+            response.contentAsString == "result\n"
+    }
+
+    def "test importUsers should use the import timeout instead of the default async timeout"() {
+
+        when:
+            def response = userController.importUsers(new ByteArrayInputStream(new byte[0]))
+
+        then:
+            response.body.timeout == 600000
+    }
 
     def "test registerUser should create a user and return CREATED status and UserDTO"() {
 
@@ -49,15 +96,111 @@ class UserControllerSpec extends Specification {
             def sharedLocationsDTOs = [locationDTO3]
             def availableLocations = [ownLocationsDTOs, sharedLocationsDTOs]
         and:
-            locationService.getAvailableLocations(userId) >> availableLocations
+            locationService.getAvailableLocationsAsync(userId) >> CompletableFuture.completedFuture(availableLocations)
         when:
-            def response = userController.getAvailableLocations(userId)
+            def response = userController.getAvailableLocations(userId).get()
 
         then:
             response.statusCode == HttpStatus.OK
             response.body.size() == 2
             response.body[0] == [locationDTO1, locationDTO2]
             response.body[1] == [locationDTO3]
+            0 * locationService.getAvailableLocations(_)
+    }
+
+    def "test getAvailableLocations reads synchronously when the async mode is off"() {
+
+        given:
+            def syncController = new UserController(userService, locationService, locationAccessService,
+                userImportService, new ImportResultStreamer(new SyncTaskExecutor(), 600000), false)
+            def availableLocations = [[new LocationDTO()], []]
+
+        when:
+            def response = syncController.getAvailableLocations(1)
+
+        then:
+            response.done
+            response.get().body == availableLocations
+            1 * locationService.getAvailableLocations(1) >> availableLocations
+            0 * locationService.getAvailableLocationsAsync(_)
+    }
+
+    def "test getAvailableLocations answers a failed read with the status of its exception"() {
+
+        given:
+            def failed = new CompletableFuture<List<List<LocationDTO>>>()
+            failed.completeExceptionally(new NotFoundException("User not found with ID: 9"))
+            locationService.getAvailableLocationsAsync(9) >> failed
+
+        when:
+            def started = mockMvc.perform(get("/api/users/9/availableLocations")).andReturn()
+            def response = mockMvc.perform(asyncDispatch(started)).andReturn().response
+
+        then:
+            started.asyncResult instanceof NotFoundException
+            response.status == HttpStatus.NOT_FOUND.value()
+            response.contentAsString.contains("User not found with ID: 9")
+    }
+
+    def "test getAvailableLocationsPage returns the page"() {
+
+        given:
+            def page = new PageDTO<List<List<LocationDTO>>>([[new LocationDTO()], []], 7)
+
+        and:
+            locationService.getAvailableLocationsPage(1, 3, 10) >> page
+
+        when:
+            def response = userController.getAvailableLocationsPage(1, 3, 10)
+
+        then:
+            response.statusCode == HttpStatus.OK
+            response.body.is(page)
+    }
+
+    def "test getAvailableLocationsPage returns BAD_REQUEST for an invalid page size"() {
+
+        given:
+            locationService.getAvailableLocationsPage(1, null, 0) >> { throw new BadRequestException("Page size must be between 1 and 500") }
+
+        when:
+            def response = mockMvc.perform(get("/api/users/1/availableLocations/page").param("limit", "0")).andReturn().response
+
+        then:
+            response.status == HttpStatus.BAD_REQUEST.value()
+            response.contentAsString.contains('"message":"Page size must be between 1 and 500"')
+    }
+
+    def "test getAvailableLocationsNear returns the nearby locations"() {
+
+        given:
+            def nearby = [new NearbyLocationDTO(new LocationDTO(), 1.5d)]
+
+        and:
+            locationService.getAvailableLocationsNear(1, "62704", 10d) >> nearby
+
+        when:
+            def response = userController.getAvailableLocationsNear(1, "62704", 10d)
+
+        then:
+            response.statusCode == HttpStatus.OK
+            response.body.is(nearby)
+    }
+
+    def "test getAvailableLocationsNear returns BAD_REQUEST for an invalid radius"() {
+
+        given:
+            locationService.getAvailableLocationsNear(1, "62704", 0d) >> { throw new BadRequestException("Radius must be greater than 0 and at most 1000.0 km") }
+
+        when:
+            def response = mockMvc.perform(get("/api/users/1/availableLocations/near")
+                .param("zip", "62704")
+                .param("radiusKm", "0"))
+                .andReturn().response
+
+        then:
+            response.status == HttpStatus.BAD_REQUEST.value()
+            response.contentAsString.contains('"message":"Radius must be greater than 0 and at most 1000.0 km"')
     }
 
     def "addFriendToLocation should add a friend to the location and return OK status"() {
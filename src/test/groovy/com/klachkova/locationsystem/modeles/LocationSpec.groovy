@@ -27,6 +27,36 @@ class LocationSpec extends Specification {
             location.getId() == 1
     }
 
+    def "test setting the address fills in its components"() {
+
+        when:
+            def location = new Location(address: "123  Main St, Springfield, IL, 62704-1234")
+
+        then:
+            location.street == "123  Main St"
+            location.city == "Springfield"
+            location.state == "IL"
+            location.zipCode == "62704"
+            location.zipCodeExtension == "1234"
+
+        when:
+            location.address = "nowhere"
+
+        then:
+            location.street == null
+            location.city == null
+            location.state == null
+            location.zipCode == null
+            location.zipCodeExtension == null
+
+        when:
+            location.address = "123 Main St, Springfield, IL, 62704"
+
+        then:
+            location.zipCode == "62704"
+            location.zipCodeExtension == null
+    }
+
     @Unroll
     def "test Location should return validation errors for name '#name'"() {
 
@@ -5,12 +5,27 @@ import com.klachkova.locationsystem.modeles.Location
 import com.klachkova.locationsystem.modeles.LocationAccess
 import com.klachkova.locationsystem.modeles.User
 import org.springframework.beans.factory.annotation.Autowired
+import org.hibernate.Session
+import org.hibernate.SessionFactory
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.data.domain.PageRequest
 import spock.lang.Specification
+import spock.lang.Unroll
 
-@DataJpaTest
+import javax.persistence.EntityManagerFactory
+import java.util.stream.Collectors
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class LocationAccessRepositorySpec extends Specification {
 
+    @Autowired
+    TestEntityManager entityManager
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
     @Autowired
     LocationAccessRepository locationAccessRepository
 
@@ -20,27 +35,6 @@ class LocationAccessRepositorySpec extends Specification {
     @Autowired
     UserRepository userRepository
 
-    def "test findByUser should return location accesses for a specific user"() {
-
-        given:
-            def owner = new User(name: "name", email: "name@example.com")
-            userRepository.save(owner)
-            def location = new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner)
-            locationRepository.save(location)
-            def user = new User(name: "name1", email: "name1@example.com")
-            userRepository.save(user)
-            def access1 = new LocationAccess(user: user, location: location, accessLevel: AccessLevel.READ_ONLY)
-            def access2 = new LocationAccess(user: user, location: location, accessLevel: AccessLevel.ADMIN)
-            locationAccessRepository.saveAll([access1, access2])
-
-        when:
-            def accesses = locationAccessRepository.findByUser(user)
-
-        then:
-            accesses.size() == 2
-            accesses.every { it.user == user }
-    }
-
     def "test findByLocationId should return location accesses for a specific location"() {
 
         given:
@@ -100,4 +94,172 @@ class LocationAccessRepositorySpec extends Specification {
         then:
             result == Optional.empty()
     }
+
+    def "test findAccessLevel should return the access level of a user to a location"() {
+
+        given:
+            def owner = new User(name: "name", email: "name@example.com")
+            userRepository.save(owner)
+            def location = new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner)
+            locationRepository.save(location)
+            def user1 = new User(name: "name1", email: "name1@example.com")
+            userRepository.save(user1)
+            def user2 = new User(name: "name2", email: "name2@example.com")
+            userRepository.save(user2)
+            locationAccessRepository.save(new LocationAccess(user: user1, location: location, accessLevel: AccessLevel.ADMIN))
+
+        expect:
+            locationAccessRepository.findAccessLevel(user1.id, location.id) == Optional.of(AccessLevel.ADMIN)
+            locationAccessRepository.findAccessLevel(user2.id, location.id) == Optional.empty()
+    }
+
+    def "test findFriendsByLocationId should return the users with access to a specific location"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def otherLocation = locationRepository.save(new Location(name: "Location 2", address: "456 Main St, Springfield, IL, 62704", owner: owner))
+            def user1 = userRepository.save(new User(name: "name1", email: "name1@example.com"))
+            def user2 = userRepository.save(new User(name: "name2", email: "name2@example.com"))
+            locationAccessRepository.saveAll([
+                new LocationAccess(user: user1, location: location, accessLevel: AccessLevel.READ_ONLY),
+                new LocationAccess(user: user2, location: location, accessLevel: AccessLevel.ADMIN),
+                new LocationAccess(user: user2, location: otherLocation, accessLevel: AccessLevel.ADMIN)])
+
+        when:
+            def friends = locationAccessRepository.findFriendsByLocationId(location.id)
+
+        then:
+            friends*.name == ["name1", "name2"]
+            friends*.email == ["name1@example.com", "name2@example.com"]
+    }
+
+    @Unroll
+    def "test findFriendsByLocationId should run a single statement for #friendCount friends"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            (1..friendCount).each {
+                def friend = userRepository.save(new User(name: "name" + it, email: "name" + it + "@example.com"))
+                locationAccessRepository.save(new LocationAccess(user: friend, location: location, accessLevel: AccessLevel.READ_ONLY))
+            }
+            entityManager.flush()
+            entityManager.clear()
+            def statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+            statistics.clear()
+
+        when:
+            def friends = locationAccessRepository.findFriendsByLocationId(location.id)
+
+        then:
+            friends.size() == friendCount
+            statistics.prepareStatementCount == 1
+
+        where:
+            friendCount << [1, 5, 50]
+    }
+
+    def "test saveAndFlush rejects a second access for the same user and location"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def user = userRepository.save(new User(name: "name1", email: "name1@example.com"))
+            locationAccessRepository.saveAndFlush(new LocationAccess(user: user, location: location, accessLevel: AccessLevel.READ_ONLY))
+
+        when:
+            locationAccessRepository.saveAndFlush(new LocationAccess(user: user, location: location, accessLevel: AccessLevel.ADMIN))
+
+        then:
+            thrown(DataIntegrityViolationException)
+    }
+
+    def "test findUserIdsByLocationIdAndUserIds should return the given users with access to a specific location"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def user1 = userRepository.save(new User(name: "name1", email: "name1@example.com"))
+            def user2 = userRepository.save(new User(name: "name2", email: "name2@example.com"))
+            def user3 = userRepository.save(new User(name: "name3", email: "name3@example.com"))
+            locationAccessRepository.saveAll([
+                new LocationAccess(user: user1, location: location, accessLevel: AccessLevel.READ_ONLY),
+                new LocationAccess(user: user3, location: location, accessLevel: AccessLevel.ADMIN)])
+
+        when:
+            def result = locationAccessRepository.findUserIdsByLocationIdAndUserIds(location.id, [user1.id, user2.id])
+
+        then:
+            result == [user1.id]
+    }
+
+    def "test saveAll should insert location accesses in JDBC batches"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def friends = (1..40).collect { userRepository.save(new User(name: "name" + it, email: "name" + it + "@example.com")) }
+            entityManager.flush()
+            def statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+            statistics.clear()
+
+        when:
+            locationAccessRepository.saveAll(friends.collect {
+                new LocationAccess(user: it, location: location, accessLevel: AccessLevel.READ_ONLY)
+            })
+            entityManager.flush()
+
+        then:
+            statistics.entityInsertCount == 40
+            statistics.prepareStatementCount <= 2
+    }
+
+    def "test findFriendsPage should return the users after the cursor ordered by ID"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def other = locationRepository.save(new Location(name: "Location 2", address: "456 Main St, Springfield, IL, 62704", owner: owner))
+            def friends = (1..5).collect { userRepository.save(new User(name: "name" + it, email: "name" + it + "@example.com")) }
+            locationAccessRepository.saveAll(friends.reverse().collect {
+                new LocationAccess(user: it, location: location, accessLevel: AccessLevel.READ_ONLY)
+            })
+            locationAccessRepository.save(new LocationAccess(user: owner, location: other, accessLevel: AccessLevel.ADMIN))
+
+        when:
+            def firstPage = locationAccessRepository.findFriendsPage(location.id, 0, PageRequest.of(0, 2))
+            def secondPage = locationAccessRepository.findFriendsPage(location.id, firstPage[1].userId, PageRequest.of(0, 2))
+            def lastPage = locationAccessRepository.findFriendsPage(location.id, friends[3].id, PageRequest.of(0, 2))
+
+        then:
+            firstPage*.userId == [friends[0].id, friends[1].id]
+            firstPage*.name == ["name1", "name2"]
+            firstPage*.email == ["name1@example.com", "name2@example.com"]
+            secondPage*.userId == [friends[2].id, friends[3].id]
+            lastPage*.userId == [friends[4].id]
+    }
+
+    def "test streamFriendsByLocationId should stream the users with access to a specific location in access order"() {
+
+        given:
+            def owner = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def location = locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: owner))
+            def friends = (1..3).collect { userRepository.save(new User(name: "name" + it, email: "name" + it + "@example.com")) }
+            locationAccessRepository.saveAll(friends.reverse().collect {
+                new LocationAccess(user: it, location: location, accessLevel: AccessLevel.READ_ONLY)
+            })
+            entityManager.flush()
+            entityManager.clear()
+
+        when:
+            def stream = locationAccessRepository.streamFriendsByLocationId(location.id)
+            def result = stream.collect(Collectors.toList())
+            stream.close()
+
+        then:
+            result*.name == ["name3", "name2", "name1"]
+            result*.email == ["name3@example.com", "name2@example.com", "name1@example.com"]
+            entityManager.entityManager.unwrap(Session).statistics.entityCount == 0
+    }
 }
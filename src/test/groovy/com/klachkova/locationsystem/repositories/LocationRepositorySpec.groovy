@@ -1,9 +1,14 @@
 package com.klachkova.locationsystem.repositories
 
+import com.klachkova.locationsystem.modeles.AccessLevel
 import com.klachkova.locationsystem.modeles.Location
+import com.klachkova.locationsystem.modeles.LocationAccess
 import com.klachkova.locationsystem.modeles.User
+import com.klachkova.locationsystem.util.address.AddressKey
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.data.domain.PageRequest
 import spock.lang.Specification
 
 @DataJpaTest
@@ -13,6 +18,8 @@ class LocationRepositorySpec extends Specification {
     LocationRepository locationRepository
     @Autowired
     UserRepository userRepository
+    @Autowired
+    LocationAccessRepository locationAccessRepository
 
     def "test findAllByOwner should return locations owned by a specific user"() {
 
@@ -45,7 +52,7 @@ class LocationRepositorySpec extends Specification {
             locations.isEmpty()
     }
 
-    def "test existsByAddress should return true if a location exists with the specified address"() {
+    def "test existsByAddressKey should return true if a location exists with the specified address"() {
 
         given:
             def user = new User(name: "name", email: "name@example.com")
@@ -55,25 +62,25 @@ class LocationRepositorySpec extends Specification {
             locationRepository.save(location)
 
         when:
-            def exists = locationRepository.existsByAddress(address)
+            def exists = locationRepository.existsByAddressKey(AddressKey.of(address))
 
         then: "it should return true"
             exists == true
     }
 
-    def "test existsByAddress should return false if no location exists with the specified address"() {
+    def "test existsByAddressKey should return false if no location exists with the specified address"() {
 
         given:
             def address = "123 Main St, Springfield, IL, 62704"
 
         when:
-            def exists = locationRepository.existsByAddress(address)
+            def exists = locationRepository.existsByAddressKey(AddressKey.of(address))
 
         then:
             exists == false
     }
 
-    def "test findByAddress should return a location if it exists by the specified address"() {
+    def "test findByAddressKey should return a location if it exists by the specified address"() {
 
         given:
             def user = new User(name: "name", email: "name@example.com")
@@ -83,22 +90,190 @@ class LocationRepositorySpec extends Specification {
             locationRepository.save(location)
 
         when:
-            def result = locationRepository.findByAddress(address)
+            def result = locationRepository.findByAddressKey(AddressKey.of(address))
 
         then:
             result.isPresent()
             result.get().address == address
     }
 
-    def "test findByAddress should return an empty Optional if no location exists by the specified address"() {
+    def "test findByAddressKey should find a location whatever the letter case and spacing of its address"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            locationRepository.save(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: user))
+
+        when:
+            def result = locationRepository.findByAddressKey(AddressKey.of("123  main st,  SPRINGFIELD, IL, 62704"))
+
+        then:
+            result.isPresent()
+            result.get().address == "123 Main St, Springfield, IL, 62704"
+    }
+
+    def "test findByAddressKey should return an empty Optional if no location exists by the specified address"() {
 
         given:
             def address = "123 Main St, Springfield, IL, 62704"
 
         when:
-            def result = locationRepository.findByAddress(address)
+            def result = locationRepository.findByAddressKey(AddressKey.of(address))
 
         then:
             !result.isPresent()
     }
+
+    def "test findAvailableLocations should return own and shared locations with their owners"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def friend = userRepository.save(new User(name: "friend", email: "friend@example.com"))
+            def own = locationRepository.save(new Location(name: "Own", address: "123 Main St, Springfield, IL, 62704", owner: user))
+            def shared = locationRepository.save(new Location(name: "Shared", address: "456 Main St, Springfield, IL, 62704", owner: friend))
+            locationRepository.save(new Location(name: "Other", address: "789 Main St, Springfield, IL, 62704", owner: friend))
+            locationAccessRepository.save(new LocationAccess(user, shared, AccessLevel.READ_ONLY))
+
+        when:
+            def result = locationRepository.findAvailableLocations(user.id)
+
+        then:
+            result.size() == 2
+            result[0].id == own.id
+            result[0].ownerId == user.id
+            result[0].shareCount == 0
+            result[1].id == shared.id
+            result[1].name == "Shared"
+            result[1].address == "456 Main St, Springfield, IL, 62704"
+            result[1].ownerName == "friend"
+            result[1].ownerEmail == "friend@example.com"
+            result[1].shareCount == 1
+    }
+
+    def "test findAvailableLocations should return an owned location also shared with the user once"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def own = locationRepository.save(new Location(name: "Own", address: "123 Main St, Springfield, IL, 62704", owner: user))
+            locationAccessRepository.save(new LocationAccess(user, own, AccessLevel.ADMIN))
+
+        when:
+            def result = locationRepository.findAvailableLocations(user.id)
+
+        then:
+            result.size() == 1
+            result[0].id == own.id
+            result[0].ownerId == user.id
+            result[0].shareCount == 1
+    }
+
+    def "test findAvailableLocations should return an empty list if the user has no locations"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+
+        expect:
+            locationRepository.findAvailableLocations(user.id).isEmpty()
+    }
+
+    def "test saveAndFlush rejects a second location with the same address"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def address = "123 Main St, Springfield, IL, 62704"
+            locationRepository.saveAndFlush(new Location(name: "Location 1", address: address, owner: user))
+
+        when:
+            locationRepository.saveAndFlush(new Location(name: "Location 2", address: address, owner: user))
+
+        then:
+            thrown(DataIntegrityViolationException)
+    }
+
+    def "test saveAndFlush rejects a second location whose address only differs in letter case and spacing"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            locationRepository.saveAndFlush(new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: user))
+
+        when:
+            locationRepository.saveAndFlush(new Location(name: "Location 2", address: "123  MAIN ST, Springfield, IL, 62704", owner: user))
+
+        then:
+            thrown(DataIntegrityViolationException)
+    }
+
+    def "test findExistingAddressKeys returns only the registered address keys"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            locationRepository.saveAll([
+                new Location(name: "Location 1", address: "123 Main St, Springfield, IL, 62704", owner: user),
+                new Location(name: "Location 2", address: "456 Main St, Springfield, IL, 62704", owner: user)])
+
+        when:
+            def result = locationRepository.findExistingAddressKeys([
+                AddressKey.of("456 Main St, Springfield, IL, 62704"),
+                AddressKey.of("789 Main St, Springfield, IL, 62704")])
+
+        then:
+            result == [AddressKey.of("456 Main St, Springfield, IL, 62704")]
+    }
+
+    def "test findOwnLocationsPage and findSharedLocationsPage should return the locations after the cursor"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def friend = userRepository.save(new User(name: "friend", email: "friend@example.com"))
+            def own = (1..3).collect {
+                locationRepository.save(new Location(name: "Own " + it, address: it + " Main St, Springfield, IL, 62704", owner: user))
+            }
+            def shared = (1..3).collect {
+                locationRepository.save(new Location(name: "Shared " + it, address: it + " Oak St, Springfield, IL, 62704", owner: friend))
+            }
+            shared.each { locationAccessRepository.save(new LocationAccess(user, it, AccessLevel.READ_ONLY)) }
+            locationRepository.save(new Location(name: "Other", address: "1 Elm St, Springfield, IL, 62704", owner: friend))
+
+        when:
+            def ownFirstPage = locationRepository.findOwnLocationsPage(user.id, 0, PageRequest.of(0, 2))
+            def ownNextPage = locationRepository.findOwnLocationsPage(user.id, own[1].id, PageRequest.of(0, 2))
+            def sharedFirstPage = locationRepository.findSharedLocationsPage(user.id, 0, PageRequest.of(0, 2))
+            def sharedNextPage = locationRepository.findSharedLocationsPage(user.id, shared[1].id, PageRequest.of(0, 2))
+
+        then:
+            ownFirstPage*.id == [own[0].id, own[1].id]
+            ownFirstPage*.name == ["Own 1", "Own 2"]
+            ownFirstPage*.ownerEmail == ["name@example.com", "name@example.com"]
+            ownNextPage*.id == [own[2].id]
+            sharedFirstPage*.id == [shared[0].id, shared[1].id]
+            sharedFirstPage*.address == ["1 Oak St, Springfield, IL, 62704", "2 Oak St, Springfield, IL, 62704"]
+            sharedFirstPage*.ownerName == ["friend", "friend"]
+            sharedNextPage*.id == [shared[2].id]
+    }
+
+    def "test findOwnLocationsInZipCodes and findSharedLocationsInZipCodes should return the locations in the ZIP codes"() {
+
+        given:
+            def user = userRepository.save(new User(name: "name", email: "name@example.com"))
+            def friend = userRepository.save(new User(name: "friend", email: "friend@example.com"))
+            def own = locationRepository.save(new Location(name: "Own", address: "1 Main St, Springfield, IL, 62704-1234", owner: user))
+            locationRepository.save(new Location(name: "Far", address: "2 Main St, Chicago, IL, 60601", owner: user))
+            def shared = locationRepository.save(new Location(name: "Shared", address: "4 Oak St, Springfield, IL, 62703", owner: friend))
+            locationRepository.save(new Location(name: "Other", address: "5 Oak St, Springfield, IL, 62703", owner: friend))
+            def farShared = locationRepository.save(new Location(name: "Far shared", address: "6 Oak St, Chicago, IL, 60601", owner: friend))
+            locationAccessRepository.save(new LocationAccess(user, shared, AccessLevel.READ_ONLY))
+            locationAccessRepository.save(new LocationAccess(user, farShared, AccessLevel.READ_ONLY))
+            def zipCodes = ["62701", "62703", "62704"]
+
+        when:
+            def ownNear = locationRepository.findOwnLocationsInZipCodes(user.id, zipCodes)
+            def sharedNear = locationRepository.findSharedLocationsInZipCodes(user.id, zipCodes)
+
+        then:
+            ownNear*.id == [own.id]
+            ownNear*.zipCode == ["62704"]
+            ownNear*.ownerEmail == ["name@example.com"]
+            sharedNear*.id == [shared.id]
+            sharedNear*.zipCode == ["62703"]
+            sharedNear*.ownerName == ["friend"]
+    }
 }
@@ -0,0 +1,92 @@
+package com.klachkova.locationsystem.repositories
+
+import com.klachkova.locationsystem.modeles.Location
+import com.klachkova.locationsystem.modeles.User
+import com.klachkova.locationsystem.util.address.AddressKey
+import com.klachkova.locationsystem.util.cache.CacheNames
+import com.klachkova.locationsystem.util.config.HibernateCacheConfig
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.context.annotation.Import
+import org.springframework.test.context.transaction.TestTransaction
+import spock.lang.Specification
+
+import javax.persistence.EntityManagerFactory
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(HibernateCacheConfig)
+class NaturalIdRepositorySpec extends Specification {
+
+    @Autowired
+    TestEntityManager entityManager
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    @Autowired
+    UserRepository userRepository
+
+    @Autowired
+    LocationRepository locationRepository
+
+    Statistics statistics
+
+    def setup() {
+
+        statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+    }
+
+    def "test findByEmail loads a cached user without querying the database"() {
+
+        given:
+            def user = entityManager.persist(new User(name: "name", email: "cached@example.com"))
+            commit()
+
+        when:
+            def result = userRepository.findByEmail("cached@example.com")
+
+        then:
+            result.get().id == user.id
+            statistics.prepareStatementCount == 0
+            statistics.naturalIdCacheHitCount == 1
+            statistics.getDomainDataRegionStatistics(CacheNames.USERS).hitCount == 1
+    }
+
+    def "test findByAddressKey loads a cached location and its owner without querying the database"() {
+
+        given:
+            def owner = entityManager.persist(new User(name: "name", email: "owner@example.com"))
+            def address = "123 Main St, Springfield, IL, 62704"
+            def location = entityManager.persist(new Location(name: "Location 1", address: address, owner: owner))
+            commit()
+
+        when:
+            def result = locationRepository.findByAddressKey(AddressKey.of(" 123 MAIN st, springfield, IL, 62704"))
+
+        then:
+            result.get().id == location.id
+            result.get().owner.email == "owner@example.com"
+            statistics.prepareStatementCount == 0
+            statistics.naturalIdCacheHitCount == 1
+    }
+
+    def "test findByEmail returns an empty Optional for an unknown email"() {
+
+        expect:
+            !userRepository.findByEmail("unknown@example.com").isPresent()
+    }
+
+    /**
+     * Commits the test transaction, which caches the inserted entities, and starts a new one.
+     */
+    private void commit() {
+
+        TestTransaction.flagForCommit()
+        TestTransaction.end()
+        TestTransaction.start()
+        statistics.clear()
+    }
+}
@@ -3,6 +3,7 @@ package com.klachkova.locationsystem.repositories
 import com.klachkova.locationsystem.modeles.User
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.dao.DataIntegrityViolationException
 import spock.lang.Specification
 
 @DataJpaTest
@@ -64,4 +65,45 @@ class UserRepositorySpec extends Specification {
         then:
             !result.isPresent()
     }
+
+    def "test saveAndFlush rejects a second user with the same email"() {
+
+        given:
+            userRepository.saveAndFlush(new User(name: "name", email: "existingUser@example.com"))
+
+        when:
+            userRepository.saveAndFlush(new User(name: "other", email: "existingUser@example.com"))
+
+        then:
+            thrown(DataIntegrityViolationException)
+    }
+
+    def "test findAllByEmailIn returns the users with the given emails"() {
+
+        given:
+            userRepository.saveAll([
+                new User(name: "name1", email: "name1@example.com"),
+                new User(name: "name2", email: "name2@example.com"),
+                new User(name: "name3", email: "name3@example.com")])
+
+        when:
+            def result = userRepository.findAllByEmailIn(["name1@example.com", "name3@example.com", "missing@example.com"])
+
+        then:
+            result*.email as Set == ["name1@example.com", "name3@example.com"] as Set
+    }
+
+    def "test findExistingEmails returns only the registered emails"() {
+
+        given:
+            userRepository.saveAll([
+                new User(name: "name1", email: "name1@example.com"),
+                new User(name: "name2", email: "name2@example.com")])
+
+        when:
+            def result = userRepository.findExistingEmails(["name2@example.com", "missing@example.com"])
+
+        then:
+            result == ["name2@example.com"]
+    }
 }
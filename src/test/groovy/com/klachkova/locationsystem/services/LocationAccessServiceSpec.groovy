@@ -1,19 +1,35 @@
 package com.klachkova.locationsystem.services
 
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.klachkova.locationsystem.dto.ShareRequestDTO
+import com.klachkova.locationsystem.dto.ShareResultDTO
+import com.klachkova.locationsystem.dto.UserDTO
 import com.klachkova.locationsystem.modeles.AccessLevel
 import com.klachkova.locationsystem.modeles.Location
 import com.klachkova.locationsystem.modeles.LocationAccess
 import com.klachkova.locationsystem.modeles.User
 import com.klachkova.locationsystem.repositories.LocationAccessRepository
 import com.klachkova.locationsystem.repositories.LocationRepository
+import com.klachkova.locationsystem.repositories.projections.FriendView
+import com.klachkova.locationsystem.util.address.AddressKey
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor
+import com.klachkova.locationsystem.util.cache.CacheInvalidationPublisher
+import com.klachkova.locationsystem.util.cache.LocationPermissionMatrix
+import com.klachkova.locationsystem.util.cache.RedisCircuitBreaker
+import com.klachkova.locationsystem.util.exceptions.BadRequestException
+import com.klachkova.locationsystem.util.exceptions.NotCreatedException
 import com.klachkova.locationsystem.util.exceptions.NotFoundException
 import com.klachkova.locationsystem.util.exceptions.PermissionDeniedException
 import com.klachkova.locationsystem.util.exceptions.ValidationException
+import org.springframework.dao.DataIntegrityViolationException
 import spock.lang.Specification
 import spock.lang.Subject
 
 import javax.validation.ConstraintViolation
 import javax.validation.Validator
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.stream.Stream
 
 class LocationAccessServiceSpec extends Specification {
 
@@ -21,61 +37,156 @@ class LocationAccessServiceSpec extends Specification {
     UserService userService = Mock(UserService)
     LocationRepository locationRepository = Mock(LocationRepository)
     Validator validator = Mock()
+    AvailableLocationsCacheEvictor availableLocationsCacheEvictor = Mock()
+    CacheInvalidationPublisher invalidationPublisher = Mock()
+    LocationPermissionMatrix permissionMatrix = new LocationPermissionMatrix(invalidationPublisher,
+        new RedisCircuitBreaker(3, Duration.ofSeconds(1), {}, Mock(ScheduledExecutorService)), 100, Duration.ofMinutes(1))
 
     @Subject
     LocationAccessService locationAccessService = new LocationAccessService(
         locationAccessRepository,
         userService,
         locationRepository,
-        validator)
+        validator,
+        availableLocationsCacheEvictor,
+        new ObjectMapper(),
+        permissionMatrix)
 
-    def "test getAllSharedLocations returns shared locations for a user"() {
+    def "test shareLocation saves new LocationAccess"() {
+
+        given:
+            def friendEmail = "name@example.com"
+            def friend = new User(id: 2, email: friendEmail)
+            def locationId = 1
+            def location = new Location(id: locationId, owner: new User(id: 3))
+            def accessLevel = AccessLevel.READ_ONLY
+
+        when:
+            validator.validate(_ as LocationAccess) >> []
+            locationAccessService.shareLocation(locationId, friendEmail, accessLevel)
+
+        then:
+            1 * userService.findByEmail(friendEmail) >> friend
+            1 * locationRepository.findById(locationId) >> Optional.of(location)
+            1 * locationAccessRepository.saveAndFlush(_ as LocationAccess)
+            1 * availableLocationsCacheEvictor.evictAfterCommit(2, 3)
+            1 * availableLocationsCacheEvictor.evictFriendsAfterCommit(locationId)
+    }
+
+    def "test shareLocation throws NotCreatedException if the location is already shared with the user"() {
 
         given:
-            def user = new User()
-            def location1 = new Location()
-            def location2 = new Location()
-            def locationAccess1 = new LocationAccess(user: user, location: location1)
-            def locationAccess2 = new LocationAccess(user: user, location: location2)
+            def friendEmail = "name@example.com"
+            def locationId = 1
 
         and:
-            locationAccessRepository.findByUser(user) >> [locationAccess1, locationAccess2]
+            validator.validate(_ as LocationAccess) >> []
+            userService.findByEmail(friendEmail) >> new User(id: 2, email: friendEmail)
+            locationRepository.findById(locationId) >> Optional.of(new Location(id: locationId, owner: new User(id: 3)))
+            locationAccessRepository.saveAndFlush(_ as LocationAccess) >> {
+                throw new DataIntegrityViolationException("uk_location_access_user_location")
+            }
 
         when:
-            def result = locationAccessService.getAllSharedLocations(user)
+            locationAccessService.shareLocation(locationId, friendEmail, AccessLevel.READ_ONLY)
 
         then:
-            result.size() == 2
-            result.contains(location1)
-            result.contains(location2)
+            thrown(NotCreatedException)
+            0 * availableLocationsCacheEvictor._
     }
 
-    def "test shareLocation saves new LocationAccess"() {
+    def "test shareLocationWithUsers saves new accesses in one batch and reports each entry"() {
 
         given:
-            def friendEmail = "name@example.com"
-            def friend = new User(email: friendEmail)
             def locationId = 1
-            def location = new Location(id: locationId)
-            def accessLevel = AccessLevel.READ_ONLY
+            def location = new Location(id: locationId, owner: new User(id: 3))
+            def newFriend = new User(id: 4, email: "new@example.com")
+            def sharedFriend = new User(id: 5, email: "shared@example.com")
+            def invalidFriend = new User(id: 6, email: "invalid@example.com")
+            def shareRequests = [
+                new ShareRequestDTO("new@example.com", AccessLevel.READ_ONLY),
+                new ShareRequestDTO("shared@example.com", AccessLevel.ADMIN),
+                new ShareRequestDTO("missing@example.com", AccessLevel.ADMIN),
+                new ShareRequestDTO("invalid@example.com", null),
+                new ShareRequestDTO("new@example.com", AccessLevel.ADMIN)]
+            def violation = Mock(ConstraintViolation) {
+                getMessage() >> "Access level must not be null"
+            }
+
+        and:
+            locationRepository.findById(locationId) >> Optional.of(location)
+            userService.findAllByEmails({ it.sort() == ["invalid@example.com", "missing@example.com", "new@example.com", "shared@example.com"] }) >>
+                [newFriend, sharedFriend, invalidFriend]
+            locationAccessRepository.findUserIdsByLocationIdAndUserIds(locationId, { it.sort() == [4, 5, 6] }) >> [5]
+            validator.validate(_ as LocationAccess) >> { args -> args[0].user.is(invalidFriend) ? [violation] as Set : [] as Set }
 
         when:
-            validator.validate(_ as LocationAccess) >> []
-            locationAccessService.shareLocation(locationId, friendEmail, accessLevel)
+            def results = locationAccessService.shareLocationWithUsers(locationId, shareRequests)
 
         then:
-            1 * userService.findByEmail(friendEmail) >> friend
-            1 * locationRepository.findById(locationId) >> Optional.of(location)
-            1 * locationAccessRepository.save(_ as LocationAccess)
+            results*.userEmail == ["new@example.com", "shared@example.com", "missing@example.com", "invalid@example.com", "new@example.com"]
+            results*.status == [
+                ShareResultDTO.Status.SHARED,
+                ShareResultDTO.Status.ALREADY_SHARED,
+                ShareResultDTO.Status.USER_NOT_FOUND,
+                ShareResultDTO.Status.INVALID,
+                ShareResultDTO.Status.ALREADY_SHARED]
+            results[3].message == "Access level must not be null"
+            1 * locationAccessRepository.saveAll({ it*.user == [newFriend] && it[0].accessLevel == AccessLevel.READ_ONLY })
+            1 * locationAccessRepository.flush()
+            1 * availableLocationsCacheEvictor.evictAfterCommit(4, 3)
+            1 * availableLocationsCacheEvictor.evictFriendsAfterCommit(locationId)
+    }
+
+    def "test shareLocationWithUsers saves nothing when no entry can be shared"() {
+
+        given:
+            def locationId = 1
+
+        and:
+            locationRepository.findById(locationId) >> Optional.of(new Location(id: locationId))
+            userService.findAllByEmails({ it.toList() == ["missing@example.com"] }) >> []
+
+        when:
+            def results = locationAccessService.shareLocationWithUsers(locationId,
+                [new ShareRequestDTO("missing@example.com", AccessLevel.ADMIN)])
+
+        then:
+            results*.status == [ShareResultDTO.Status.USER_NOT_FOUND]
+            0 * locationAccessRepository.findUserIdsByLocationIdAndUserIds(_, _)
+            0 * locationAccessRepository.saveAll(_)
+            0 * availableLocationsCacheEvictor._
+    }
+
+    def "test shareLocationWithUsers throws BadRequestException for an empty request"() {
+
+        when:
+            locationAccessService.shareLocationWithUsers(1, [])
+
+        then:
+            thrown(BadRequestException)
+            0 * locationRepository._
+    }
+
+    def "test shareLocationWithUsers throws NotFoundException if the location does not exist"() {
+
+        given:
+            locationRepository.findById(1) >> Optional.empty()
+
+        when:
+            locationAccessService.shareLocationWithUsers(1, [new ShareRequestDTO("name@example.com", AccessLevel.ADMIN)])
+
+        then:
+            thrown(NotFoundException)
     }
 
     def "test updateLocationAccessByAccessLevel updates access level"() {
 
         given:
             def email = "name@example.com"
-            def friend = new User(email: email)
+            def friend = new User(id: 2, email: email)
             def locationId = 1
-            def location = new Location(id: locationId)
+            def location = new Location(id: locationId, owner: new User(id: 3))
             def locationAccess = new LocationAccess(user: friend, location: location, accessLevel: AccessLevel.READ_ONLY)
 
         and:
@@ -90,6 +201,7 @@ class LocationAccessServiceSpec extends Specification {
         then:
             locationAccess.accessLevel == AccessLevel.ADMIN
             1 * locationAccessRepository.save(locationAccess)
+            1 * availableLocationsCacheEvictor.evictAfterCommit(2, 3)
     }
 
     def "test updateLocationAccessByAccessLevel throws NotFoundException if no LocationAccess found"() {
@@ -110,20 +222,18 @@ class LocationAccessServiceSpec extends Specification {
 
         then:
             thrown(NotFoundException)
+            0 * availableLocationsCacheEvictor._
     }
 
     def "test getFriends returns list of users with access to location"() {
 
         given:
-            def friend1 = new User()
-            def friend2 = new User()
+            def friend1 = new UserDTO(name: "friend1", email: "friend1@example.com")
+            def friend2 = new UserDTO(name: "friend2", email: "friend2@example.com")
             def locationId = 1
-            def location = new Location(id: locationId)
-            def access1 = new LocationAccess(user: friend1, location: location)
-            def access2 = new LocationAccess(user: friend2, location: location)
 
         and:
-            locationAccessRepository.findByLocationId(locationId) >> [access1, access2]
+            locationAccessRepository.findFriendsByLocationId(locationId) >> [friend1, friend2]
 
         when:
             def result = locationAccessService.getFriends(locationId)
@@ -134,52 +244,183 @@ class LocationAccessServiceSpec extends Specification {
             result.contains(friend2)
     }
 
+    def "test writeFriends writes the streamed users as a JSON array and closes the stream"() {
+
+        given:
+            def closed = false
+            def friends = Stream.of(new UserDTO("friend1", "friend1@example.com"), new UserDTO("friend2", "friend2@example.com"))
+                .onClose { closed = true }
+            def output = new ByteArrayOutputStream()
+
+        and:
+            locationAccessRepository.streamFriendsByLocationId(1) >> friends
+
+        when:
+            locationAccessService.writeFriends(1, output)
+
+        then:
+            output.toString("UTF-8") == '[{"name":"friend1","email":"friend1@example.com"},{"name":"friend2","email":"friend2@example.com"}]'
+            closed
+    }
+
+    def "test writeFriends writes an empty array when nobody has access"() {
+
+        given:
+            def output = new ByteArrayOutputStream()
+
+        and:
+            locationAccessRepository.streamFriendsByLocationId(1) >> Stream.empty()
+
+        when:
+            locationAccessService.writeFriends(1, output)
+
+        then:
+            output.toString("UTF-8") == "[]"
+    }
+
+    def "test getFriendsPage returns up to limit users and the cursor of the next page"() {
+
+        given:
+            def rows = [friend(3, "a"), friend(5, "b"), friend(9, "c")]
+
+        and:
+            locationAccessRepository.findFriendsPage(1, 2, { it.pageNumber == 0 && it.pageSize == 3 }) >> rows
+
+        when:
+            def page = locationAccessService.getFriendsPage(1, 2, 2)
+
+        then:
+            page.items*.name == ["a", "b"]
+            page.items*.email == ["a@example.com", "b@example.com"]
+            page.nextCursor == 5
+    }
+
+    def "test getFriendsPage returns no cursor on the last page"() {
+
+        given:
+            locationAccessRepository.findFriendsPage(1, 0, _) >> [friend(3, "a")]
+
+        when:
+            def page = locationAccessService.getFriendsPage(1, 0, 2)
+
+        then:
+            page.items*.name == ["a"]
+            page.nextCursor == null
+    }
+
     def "test addFriendToLocation adds a friend if user has ADMIN access"() {
 
         given:
             def userId = 1
-            def user = new User(id: userId)
             def friendEmail = "name2@example.com"
-            def friend = new User(email: friendEmail)
+            def friend = new User(id: 2, email: friendEmail)
             def locationAddress = "123 Main St, Springfield, IL, 62704"
-            def location = new Location(address: locationAddress)
-            def adminAccess = new LocationAccess(user: user, location: location, accessLevel: AccessLevel.ADMIN)
+            def location = new Location(id: 10, address: locationAddress, owner: new User(id: 3))
 
         and:
             validator.validate(_ as LocationAccess) >> []
-            userService.findById(userId) >> user
             userService.findByEmail(friendEmail) >> friend
-            locationRepository.findByAddress(locationAddress) >> Optional.of(location)
-            locationAccessRepository.findByLocationAndUser(location, user) >> Optional.of(adminAccess)
+            locationRepository.findByAddressKey(AddressKey.of(locationAddress)) >> Optional.of(location)
 
         when:
             locationAccessService.addFriendToLocation(userId, friendEmail, locationAddress, AccessLevel.READ_ONLY)
 
         then:
-            1 * locationAccessRepository.save(_ as LocationAccess)
+            1 * locationAccessRepository.findAccessLevel(userId, 10) >> Optional.of(AccessLevel.ADMIN)
+            0 * userService.findById(_)
+            1 * locationAccessRepository.saveAndFlush(_ as LocationAccess)
+            1 * availableLocationsCacheEvictor.evictAfterCommit(2, 3)
+            1 * invalidationPublisher.publishEvict("locationPermissions", Long.toString(LocationPermissionMatrix.key(2, 10)))
+    }
+
+    def "test addFriendToLocation reads the access level of the requesting user from the database only once"() {
+
+        given:
+            def locationAddress = "123 Main St, Springfield, IL, 62704"
+            def location = new Location(id: 10, address: locationAddress, owner: new User(id: 3))
+
+        and:
+            validator.validate(_ as LocationAccess) >> []
+            userService.findByEmail("name2@example.com") >> new User(id: 2, email: "name2@example.com")
+            userService.findByEmail("name4@example.com") >> new User(id: 4, email: "name4@example.com")
+            locationRepository.findByAddressKey(AddressKey.of(locationAddress)) >> Optional.of(location)
+
+        when:
+            locationAccessService.addFriendToLocation(1, "name2@example.com", locationAddress, AccessLevel.READ_ONLY)
+            locationAccessService.addFriendToLocation(1, "name4@example.com", locationAddress, AccessLevel.READ_ONLY)
+
+        then:
+            1 * locationAccessRepository.findAccessLevel(1, 10) >> Optional.of(AccessLevel.ADMIN)
+            2 * locationAccessRepository.saveAndFlush(_ as LocationAccess)
+    }
+
+    def "test addFriendToLocation sees an access level change made through updateLocationAccessByAccessLevel"() {
+
+        given:
+            def requester = new User(id: 1, email: "name1@example.com")
+            def locationAddress = "123 Main St, Springfield, IL, 62704"
+            def location = new Location(id: 10, address: locationAddress, owner: new User(id: 3))
+            def requesterAccess = new LocationAccess(user: requester, location: location,
+                accessLevel: AccessLevel.ADMIN)
+
+        and:
+            validator.validate(_ as LocationAccess) >> []
+            userService.findByEmail("name1@example.com") >> requester
+            userService.findByEmail("name2@example.com") >> new User(id: 2, email: "name2@example.com")
+            locationRepository.findById(10) >> Optional.of(location)
+            locationRepository.findByAddressKey(AddressKey.of(locationAddress)) >> Optional.of(location)
+            locationAccessRepository.findByLocationAndUser(location, requester) >> Optional.of(requesterAccess)
+            locationAccessRepository.findAccessLevel(1, 10) >>> [Optional.of(AccessLevel.ADMIN),
+                                                                 Optional.of(AccessLevel.READ_ONLY)]
+
+        when:
+            locationAccessService.addFriendToLocation(1, "name2@example.com", locationAddress, AccessLevel.READ_ONLY)
+            locationAccessService.updateLocationAccessByAccessLevel(10, "name1@example.com", AccessLevel.READ_ONLY)
+            locationAccessService.addFriendToLocation(1, "name2@example.com", locationAddress, AccessLevel.READ_ONLY)
+
+        then:
+            thrown(PermissionDeniedException)
+    }
+
+    def "test addFriendToLocation throws NotFoundException if user has no access to the location"() {
+
+        given:
+            def locationAddress = "123 Main St, Springfield, IL, 62704"
+            def location = new Location(id: 10, address: locationAddress)
+
+        and:
+            userService.findByEmail("name2@example.com") >> new User(id: 2, email: "name2@example.com")
+            locationRepository.findByAddressKey(AddressKey.of(locationAddress)) >> Optional.of(location)
+            locationAccessRepository.findAccessLevel(1, 10) >> Optional.empty()
+
+        when:
+            locationAccessService.addFriendToLocation(1, "name2@example.com", locationAddress, AccessLevel.READ_ONLY)
+
+        then:
+            thrown(NotFoundException)
+            0 * locationAccessRepository.saveAndFlush(_)
     }
 
     def "test addFriendToLocation throws PermissionDeniedException if user does not have ADMIN access"() {
 
         given:
-            def user = new User(id: 1)
             def friendEmail = "name2@example.com"
             def friend = new User(email: friendEmail)
             def locationAddress = "123 Main St, Springfield, IL, 62704"
-            def location = new Location(address: locationAddress)
-            def readAccess = new LocationAccess(user: user, location: location, accessLevel: AccessLevel.READ_ONLY)
+            def location = new Location(id: 10, address: locationAddress)
 
         and:
-            userService.findById(1) >> user
             userService.findByEmail(friendEmail) >> friend
-            locationRepository.findByAddress(locationAddress) >> Optional.of(location)
-            locationAccessRepository.findByLocationAndUser(location, user) >> Optional.of(readAccess)
+            locationRepository.findByAddressKey(AddressKey.of(locationAddress)) >> Optional.of(location)
+            locationAccessRepository.findAccessLevel(1, 10) >> Optional.of(AccessLevel.READ_ONLY)
 
         when:
             locationAccessService.addFriendToLocation(1, friendEmail, locationAddress, AccessLevel.READ_ONLY)
 
         then:
             thrown(PermissionDeniedException)
+            0 * locationAccessRepository.saveAndFlush(_)
+            0 * availableLocationsCacheEvictor._
     }
 
     def "test validateLocationAccess throws ValidationException for invalid LocationAccess"() {
@@ -199,4 +440,13 @@ class LocationAccessServiceSpec extends Specification {
         then:
             thrown(ValidationException)
     }
-}
\ No newline at end of file
+
+    private FriendView friend(int userId, String name) {
+
+        Stub(FriendView) {
+            getUserId() >> userId
+            getName() >> name
+            getEmail() >> name + "@example.com"
+        }
+    }
+}
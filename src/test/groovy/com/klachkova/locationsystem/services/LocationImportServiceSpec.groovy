@@ -0,0 +1,173 @@
+package com.klachkova.locationsystem.services
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.klachkova.locationsystem.modeles.Location
+import com.klachkova.locationsystem.modeles.User
+import com.klachkova.locationsystem.repositories.LocationRepository
+import com.klachkova.locationsystem.repositories.UserRepository
+import com.klachkova.locationsystem.util.address.AddressKey
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor
+import com.klachkova.locationsystem.util.converters.LocationConverter
+import org.hibernate.Session
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.transaction.PlatformTransactionManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import javax.persistence.EntityManager
+import javax.validation.Validation
+import java.nio.charset.StandardCharsets
+
+class LocationImportServiceSpec extends Specification {
+
+    UserRepository userRepository = Mock()
+    LocationRepository locationRepository = Mock()
+    PlatformTransactionManager transactionManager = Mock()
+    AvailableLocationsCacheEvictor availableLocationsCacheEvictor = Mock()
+    Session session = Mock()
+    EntityManager entityManager = Mock() {
+        unwrap(Session) >> session
+    }
+    ObjectMapper objectMapper = new ObjectMapper()
+    User existingOwner = new User(id: 7, name: "Owner", email: "owner@example.com")
+
+    @Subject
+    LocationImportService locationImportService = new LocationImportService(
+        userRepository,
+        locationRepository,
+        new LocationConverter(),
+        Validation.buildDefaultValidatorFactory().validator,
+        transactionManager,
+        entityManager,
+        availableLocationsCacheEvictor,
+        objectMapper,
+        2,
+        2)
+
+    def cleanup() {
+
+        locationImportService.shutdown()
+    }
+
+    def "test importLocations registers valid locations in batches and reports each line"() {
+
+        given:
+            def input = lines(
+                location("One", "1 Main St, Springfield, IL, 62704"),
+                '',
+                location("Two", "2 Main St, Springfield, IL, 62704"),
+                location("Three", "3 Main St, Springfield, IL, 62704"))
+
+        when:
+            def results = importLocations(input)
+
+        then:
+            2 * userRepository.findAllByEmailIn({ it.toList() == ["owner@example.com"] }) >> [existingOwner]
+            1 * locationRepository.findExistingAddressKeys({ it.sort() == keys("1 Main St, Springfield, IL, 62704", "2 Main St, Springfield, IL, 62704").sort() }) >> []
+            1 * locationRepository.findExistingAddressKeys({ it.toList() == keys("3 Main St, Springfield, IL, 62704") }) >> []
+            1 * locationRepository.saveAll({ it*.name == ["One", "Two"] && it*.owner*.id == [7, 7] }) >> { args -> args[0] }
+            1 * locationRepository.saveAll({ it*.name == ["Three"] }) >> { args -> args[0] }
+            2 * session.setJdbcBatchSize(2)
+            1 * availableLocationsCacheEvictor.evictAfterCommit(7)
+            results*.line == [1, 3, 4]
+            results*.address == ["1 Main St, Springfield, IL, 62704", "2 Main St, Springfield, IL, 62704", "3 Main St, Springfield, IL, 62704"]
+            results*.status == ["CREATED", "CREATED", "CREATED"]
+    }
+
+    def "test importLocations reports malformed, invalid, unknown owner and duplicate lines without inserting them"() {
+
+        given:
+            def input = lines(
+                'not json',
+                '{"name":"X","address":"nowhere","owner":{"email":"owner@example.com"}}',
+                location("Stranger", "1 Main St, Springfield, IL, 62704", "stranger@example.com"),
+                location("Taken", "2 Main St, Springfield, IL, 62704"),
+                location("New", "3 Main St, Springfield, IL, 62704"),
+                location("Again", "3  main st, Springfield, IL, 62704"),
+                'null')
+            def registeredAddressKeys = keys("2 MAIN ST, Springfield, IL, 62704") as Set
+
+        when:
+            def results = importLocations(input, 100)
+
+        then:
+            userRepository.findAllByEmailIn(_) >> [existingOwner]
+            locationRepository.findExistingAddressKeys(_) >> { args -> args[0].findAll { registeredAddressKeys.contains(it) }.toList() }
+            1 * locationRepository.saveAll({ it*.name == ["New"] }) >> { args -> args[0] }
+            1 * availableLocationsCacheEvictor.evictAfterCommit(7)
+            results*.status == ["INVALID", "INVALID", "OWNER_NOT_FOUND", "DUPLICATE", "CREATED", "DUPLICATE", "INVALID"]
+            results[0].message == "Malformed JSON"
+            results[0].address == null
+            results[1].message.contains("Name should be between 2 and 30 characters")
+            results[1].message.contains("Address must be in US format")
+    }
+
+    def "test importLocations falls back to single inserts when the batch hits the unique constraint"() {
+
+        given:
+            def input = lines(
+                location("One", "1 Main St, Springfield, IL, 62704"),
+                location("Two", "2 Main St, Springfield, IL, 62704"))
+
+        when:
+            def results = importLocations(input)
+
+        then:
+            userRepository.findAllByEmailIn(_) >> [existingOwner]
+            locationRepository.findExistingAddressKeys(_) >> []
+            1 * locationRepository.saveAll(_)
+            1 * locationRepository.flush() >> { throw new DataIntegrityViolationException("uk_location_address") }
+            1 * locationRepository.saveAndFlush({ it.name == "One" && it.owner.is(existingOwner) }) >> new Location()
+            1 * locationRepository.saveAndFlush({ it.name == "Two" }) >> {
+                throw new DataIntegrityViolationException("uk_location_address")
+            }
+            1 * availableLocationsCacheEvictor.evictAfterCommit(7)
+            results*.status == ["CREATED", "DUPLICATE"]
+    }
+
+    def "test importLocations writes nothing for an empty input"() {
+
+        when:
+            def results = importLocations("")
+
+        then:
+            results.isEmpty()
+            0 * userRepository._
+            0 * locationRepository._
+            1 * availableLocationsCacheEvictor.evictAfterCommit()
+    }
+
+    private static String location(String name, String address, String ownerEmail = "owner@example.com") {
+
+        "{\"name\":\"${name}\",\"address\":\"${address}\",\"owner\":{\"email\":\"${ownerEmail}\"}}"
+    }
+
+    private static List<String> keys(String... addresses) {
+
+        addresses.collect { AddressKey.of(it) }
+    }
+
+    private static String lines(String... lines) {
+
+        lines.join("\n") + "\n"
+    }
+
+    private List<Map> importLocations(String input, int batchSize = 2) {
+
+        def service = locationImportService
+        if (batchSize != 2) {
+            service = new LocationImportService(userRepository, locationRepository, new LocationConverter(),
+                Validation.buildDefaultValidatorFactory().validator, transactionManager, entityManager,
+                availableLocationsCacheEvictor, objectMapper, batchSize, 2)
+        }
+        def output = new ByteArrayOutputStream()
+        try {
+            service.importLocations(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output)
+        } finally {
+            if (!service.is(locationImportService)) {
+                service.shutdown()
+            }
+        }
+        output.toString("UTF-8").readLines().collect { objectMapper.readValue(it, Map) }
+    }
+}
@@ -1,39 +1,72 @@
 package com.klachkova.locationsystem.services
 
 import com.klachkova.locationsystem.dto.LocationDTO
+import com.klachkova.locationsystem.dto.PageDTO
 import com.klachkova.locationsystem.dto.UserDTO
 import com.klachkova.locationsystem.modeles.Location
 import com.klachkova.locationsystem.modeles.User
 import com.klachkova.locationsystem.repositories.LocationRepository
 import com.klachkova.locationsystem.repositories.UserRepository
+import com.klachkova.locationsystem.repositories.projections.AvailableLocationView
+import com.klachkova.locationsystem.repositories.projections.LocationView
+import com.klachkova.locationsystem.repositories.projections.NearbyLocationView
+import com.klachkova.locationsystem.util.address.AddressKey
+import com.klachkova.locationsystem.util.cache.AvailableLocationsCacheEvictor
+import com.klachkova.locationsystem.util.cache.CacheNames
+import com.klachkova.locationsystem.util.cache.FutureCache
+import com.klachkova.locationsystem.util.cache.PageCache
 import com.klachkova.locationsystem.util.converters.LocationConverter
-import com.klachkova.locationsystem.util.converters.UserConverter
+import com.klachkova.locationsystem.util.exceptions.BadRequestException
 import com.klachkova.locationsystem.util.exceptions.NotCreatedException
 import com.klachkova.locationsystem.util.exceptions.NotFoundException
+import com.klachkova.locationsystem.util.exceptions.ServiceUnavailableException
 import com.klachkova.locationsystem.util.exceptions.ValidationException
+import com.klachkova.locationsystem.util.geo.ZipCentroids
+import org.springframework.core.io.ByteArrayResource
+import org.springframework.core.io.ClassPathResource
+import org.springframework.dao.DataIntegrityViolationException
 import spock.lang.Specification
 import spock.lang.Subject
 import spock.lang.Unroll
 import javax.validation.ConstraintViolation
 import javax.validation.Validator
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
 
 class LocationServiceSpec extends Specification {
 
     UserRepository userRepository = Mock()
-    UserConverter userConverter = Mock()
     LocationRepository locationRepository = Mock()
     LocationConverter locationConverter = Mock()
     LocationAccessService locationAccessService = Mock()
     Validator validator = Mock()
+    AvailableLocationsCacheEvictor availableLocationsCacheEvictor = Mock()
+    PageCache pageCache = Mock()
+    FutureCache futureCache = Mock() {
+        get(CacheNames.AVAILABLE_LOCATIONS, _, _) >> { args -> args[2].get() }
+    }
+    ZipCentroids zipCentroids = new ZipCentroids(new ClassPathResource("geo/zcta_centroids.txt"))
 
     @Subject
     LocationService locationService = new LocationService(
         userRepository,
-        userConverter,
         locationRepository,
         locationConverter,
         locationAccessService,
-        validator)
+        validator,
+        availableLocationsCacheEvictor,
+        pageCache,
+        zipCentroids,
+        futureCache,
+        2,
+        16)
+
+    def cleanup() {
+
+        locationService.shutdown()
+    }
 
     def "test registerLocation saves location when all conditions are met"() {
 
@@ -42,7 +75,7 @@ class LocationServiceSpec extends Specification {
             def email = "owner@example.com"
             def address = "123 Main St, Springfield, IL, 62704"
             def locationDTO = new LocationDTO(name: "Location Name", address: address, owner: new UserDTO(name: "Owner", email: email))
-            def user = new User()
+            def user = new User(id: 7)
             def userDTO = new UserDTO()
             def location = new Location(name: "Location Name", address: address, owner: user)
             def savedLocation = new Location(id: 1, name: "Location Name", address: address, owner: user)
@@ -52,9 +85,7 @@ class LocationServiceSpec extends Specification {
             locationConverter.convertToEntity(locationDTO) >> location
             validator.validate(location) >> []
             userRepository.findByEmail(email) >> Optional.of(user)
-            locationRepository.existsByAddress(address) >> false
-            locationRepository.save(location) >> savedLocation
-            userConverter.convertToDto(user) >> userDTO
+            locationRepository.saveAndFlush(location) >> savedLocation
             locationConverter.convertToDto(savedLocation) >> locationDTOAfterSave
 
         when:
@@ -62,6 +93,7 @@ class LocationServiceSpec extends Specification {
 
         then:
             result == locationDTOAfterSave
+            1 * availableLocationsCacheEvictor.evictAfterCommit(7)
     }
 
     def "test registerLocation should throw NotCreatedException if user does not exist"() {
@@ -98,13 +130,14 @@ class LocationServiceSpec extends Specification {
             locationConverter.convertToEntity(locationDTO) >> location
             validator.validate(location) >> []
             userRepository.findByEmail(email) >> Optional.of(user)
-            locationRepository.existsByAddress(address) >> true
+            locationRepository.saveAndFlush(location) >> { throw new DataIntegrityViolationException("uk_location_address") }
 
         when:
             locationService.registerLocation(locationDTO)
 
         then:
             thrown(NotCreatedException)
+            0 * availableLocationsCacheEvictor._
     }
 
     def "test registerLocation should throw ValidationException if location is invalid"() {
@@ -135,7 +168,7 @@ class LocationServiceSpec extends Specification {
 
         and:
             locationConverter.convertToEntity(locationDTO) >> location
-            locationRepository.findByAddress(address) >> Optional.of(location)
+            locationRepository.findByAddressKey(AddressKey.of(address)) >> Optional.of(location)
 
         when:
             def result = locationService.findByAddress(address)
@@ -153,7 +186,7 @@ class LocationServiceSpec extends Specification {
 
         and:
             locationConverter.convertToEntity(locationDTO) >> location
-            locationRepository.findByAddress(address) >> Optional.empty()
+            locationRepository.findByAddressKey(AddressKey.of(address)) >> Optional.empty()
 
         when:
             locationService.findByAddress(address)
@@ -207,7 +240,7 @@ class LocationServiceSpec extends Specification {
 
         and:
             locationConverter.convertToEntity(locationDTO) >> location
-            locationRepository.existsByAddress(address) >> expectedResult
+            locationRepository.existsByAddressKey(AddressKey.of(address)) >> expectedResult
 
         expect:
             locationService.existsByAddress(address) == expectedResult
@@ -222,39 +255,52 @@ class LocationServiceSpec extends Specification {
 
         given:
             def userId = 1
-            def user = new User(id: userId, name: "User1")
-            def ownLocations = [new Location(id: 1, name: "Location1", owner: user)]
-            def sharedLocations = [new Location(id: 2, name: "SharedLocation", owner: new User())]
-            def ownLocationDTOs = [new LocationDTO(name: "Location1")]
-            def sharedLocationDTOs = [new LocationDTO(name: "SharedLocation")]
-
-            userRepository.findById(userId) >> Optional.of(user)
-            locationRepository.findAllByOwner(user) >> ownLocations
-            locationAccessService.getAllSharedLocations(user) >> sharedLocations
-            locationConverter.convertToDto(ownLocations[0]) >> ownLocationDTOs[0]
-            locationConverter.convertToDto(sharedLocations[0]) >> sharedLocationDTOs[0]
+            def ownLocation = availableLocation(1, userId, 0)
+            def sharedLocation = availableLocation(2, 2, 1)
+            def ownLocationDTO = new LocationDTO(name: "Location1")
+            def sharedLocationDTO = new LocationDTO(name: "SharedLocation")
+
+            locationRepository.findAvailableLocations(userId) >> [ownLocation, sharedLocation]
+            locationConverter.convertToDto(ownLocation) >> ownLocationDTO
+            locationConverter.convertToDto(sharedLocation) >> sharedLocationDTO
 
         when:
             def result = locationService.getAvailableLocations(userId)
 
         then:
             result.size() == 2
-            result[0] == ownLocationDTOs
-            result[1] == sharedLocationDTOs
+            result[0] == [ownLocationDTO]
+            result[1] == [sharedLocationDTO]
+            0 * userRepository._
+    }
+
+    def "test getAvailableLocations returns own locations shared back with the owner in both lists"() {
+
+        given:
+            def userId = 1
+            def location = availableLocation(1, userId, 2)
+            def locationDTO = new LocationDTO(name: "Location1")
+
+            locationRepository.findAvailableLocations(userId) >> [location]
+            locationConverter.convertToDto(location) >> locationDTO
+
+        when:
+            def result = locationService.getAvailableLocations(userId)
+
+        then:
+            result[0] == [locationDTO]
+            result[1] == [locationDTO]
     }
 
     def "test getAvailableLocations returns only shared locations when user has no own locations"() {
 
         given:
             def userId = 1
-            def user = new User(id: userId, name: "User1")
-            def sharedLocations = [new Location(id: 2, name: "SharedLocation", owner: new User())]
-            def sharedLocationDTOs = [new LocationDTO(name: "SharedLocation")]
+            def sharedLocation = availableLocation(2, 2, 1)
+            def sharedLocationDTO = new LocationDTO(name: "SharedLocation")
 
-            userRepository.findById(userId) >> Optional.of(user)
-            locationRepository.findAllByOwner(user) >> []
-            locationAccessService.getAllSharedLocations(user) >> sharedLocations
-            locationConverter.convertToDto(sharedLocations[0]) >> sharedLocationDTOs[0]
+            locationRepository.findAvailableLocations(userId) >> [sharedLocation]
+            locationConverter.convertToDto(sharedLocation) >> sharedLocationDTO
 
         when:
             def result = locationService.getAvailableLocations(userId)
@@ -262,18 +308,16 @@ class LocationServiceSpec extends Specification {
         then:
             result.size() == 2
             result[0].isEmpty()
-            result[1] == sharedLocationDTOs
+            result[1] == [sharedLocationDTO]
     }
 
     def "test getAvailableLocations returns empty lists when user has no own or shared locations"() {
 
         given:
             def userId = 1
-            def user = new User(id: userId, name: "User1")
 
-            userRepository.findById(userId) >> Optional.of(user)
-            locationRepository.findAllByOwner(user) >> []
-            locationAccessService.getAllSharedLocations(user) >> []
+            locationRepository.findAvailableLocations(userId) >> []
+            userRepository.existsById(userId) >> true
 
         when:
             def result = locationService.getAvailableLocations(userId)
@@ -289,7 +333,8 @@ class LocationServiceSpec extends Specification {
         given:
             def userId = 1
 
-            userRepository.findById(userId) >> Optional.empty()
+            locationRepository.findAvailableLocations(userId) >> []
+            userRepository.existsById(userId) >> false
 
         when:
             locationService.getAvailableLocations(userId)
@@ -298,18 +343,82 @@ class LocationServiceSpec extends Specification {
             thrown(NotFoundException)
     }
 
+    def "test getAvailableLocationsAsync runs the own and shared location queries in parallel"() {
+
+        given: "queries that only return once both are running, the repository mock would run them one at a time"
+            def userId = 1
+            def ownLocation = location(1)
+            def sharedLocation = location(2)
+            def ownLocationDTO = new LocationDTO(name: "Location1")
+            def sharedLocationDTO = new LocationDTO(name: "Location2")
+            def bothQueriesRunning = new CountDownLatch(2)
+            def awaitBothQueries = { List<LocationView> rows ->
+                bothQueriesRunning.countDown()
+                bothQueriesRunning.await(5, TimeUnit.SECONDS) ? rows : null
+            }
+            LocationRepository parallelRepository = [
+                findOwnLocations   : { int id -> awaitBothQueries([ownLocation]) },
+                findSharedLocations: { int id -> awaitBothQueries([sharedLocation]) }
+            ] as LocationRepository
+            def parallelService = new LocationService(userRepository, parallelRepository, locationConverter,
+                locationAccessService, validator, availableLocationsCacheEvictor, pageCache, zipCentroids,
+                futureCache, 2, 16)
+
+            locationConverter.convertToDto(ownLocation) >> ownLocationDTO
+            locationConverter.convertToDto(sharedLocation) >> sharedLocationDTO
+
+        when:
+            def result = parallelService.getAvailableLocationsAsync(userId).get(10, TimeUnit.SECONDS)
+
+        then:
+            result == [[ownLocationDTO], [sharedLocationDTO]]
+            0 * userRepository._
+
+        cleanup:
+            parallelService.shutdown()
+    }
+
+    def "test getAvailableLocationsAsync returns empty lists when user has no own or shared locations"() {
+
+        given:
+            def userId = 1
+
+            locationRepository.findOwnLocations(userId) >> []
+            locationRepository.findSharedLocations(userId) >> []
+            userRepository.existsById(userId) >> true
+
+        when:
+            def result = locationService.getAvailableLocationsAsync(userId).get(10, TimeUnit.SECONDS)
+
+        then:
+            result == [[], []]
+    }
+
+    def "test getAvailableLocationsAsync fails with NotFoundException when user does not exist"() {
+
+        given:
+            def userId = 1
+
+            locationRepository.findOwnLocations(userId) >> []
+            locationRepository.findSharedLocations(userId) >> []
+            userRepository.existsById(userId) >> false
+
+        when:
+            locationService.getAvailableLocationsAsync(userId).get(10, TimeUnit.SECONDS)
+
+        then:
+            def e = thrown(ExecutionException)
+            e.cause instanceof NotFoundException
+    }
+
     def "test getFriendsToLocation should return users with access to the location"() {
 
         given:
             def locationId = 1
-            def user1 = new User()
-            def user2 = new User()
             def user1DTO = new UserDTO()
             def user2DTO = new UserDTO()
         and:
-            locationAccessService.getFriends(locationId) >> [user1, user2]
-            userConverter.convertToDto(user1) >> user1DTO
-            userConverter.convertToDto(user2) >> user2DTO
+            locationAccessService.getFriends(locationId) >> [user1DTO, user2DTO]
 
         when:
             def result = locationService.getFriendsToLocation(locationId)
@@ -319,4 +428,235 @@ class LocationServiceSpec extends Specification {
             result.contains(user1DTO)
             result.contains(user2DTO)
     }
-}
\ No newline at end of file
+
+    def "test getAvailableLocationsPage merges own and shared locations up to the limit"() {
+
+        given:
+            def userId = 1
+
+        and:
+            pageCache.get(CacheNames.AVAILABLE_LOCATION_PAGES, userId, "10:3", _) >> { args -> args[3].get() }
+            locationConverter.convertToDto(_ as LocationView) >> { args -> new LocationDTO(name: "L" + args[0].id) }
+
+        when:
+            def page = locationService.getAvailableLocationsPage(userId, 10, 3)
+
+        then:
+            1 * locationRepository.findOwnLocationsPage(userId, 10, { it.pageSize == 4 }) >> [location(11), location(13), location(20)]
+            1 * locationRepository.findSharedLocationsPage(userId, 10, { it.pageSize == 4 }) >> [location(12), location(13), location(14)]
+            0 * userRepository.existsById(_)
+            page.items[0]*.name == ["L11", "L13"]
+            page.items[1]*.name == ["L12", "L13"]
+            page.nextCursor == 13
+    }
+
+    def "test getAvailableLocationsPage returns no cursor on the last page"() {
+
+        given:
+            pageCache.get(_, _, _, _) >> { args -> args[3].get() }
+            locationConverter.convertToDto(_ as LocationView) >> { args -> new LocationDTO(name: "L" + args[0].id) }
+            locationRepository.findOwnLocationsPage(1, 0, _) >> [location(1)]
+            locationRepository.findSharedLocationsPage(1, 0, _) >> [location(2)]
+
+        when:
+            def page = locationService.getAvailableLocationsPage(1, null, 2)
+
+        then:
+            page.items[0]*.name == ["L1"]
+            page.items[1]*.name == ["L2"]
+            page.nextCursor == null
+    }
+
+    def "test getAvailableLocationsPage throws NotFoundException when user does not exist"() {
+
+        given:
+            pageCache.get(_, _, _, _) >> { args -> args[3].get() }
+            locationRepository.findOwnLocationsPage(1, 0, _) >> []
+            locationRepository.findSharedLocationsPage(1, 0, _) >> []
+            userRepository.existsById(1) >> false
+
+        when:
+            locationService.getAvailableLocationsPage(1, null, 50)
+
+        then:
+            thrown(NotFoundException)
+    }
+
+    @Unroll
+    def "test getAvailableLocationsPage and getFriendsToLocationPage reject a limit of #limit"() {
+
+        when:
+            locationService.getAvailableLocationsPage(1, null, limit)
+
+        then:
+            thrown(BadRequestException)
+
+        when:
+            locationService.getFriendsToLocationPage(1, null, limit)
+
+        then:
+            thrown(BadRequestException)
+            0 * pageCache._
+
+        where:
+            limit << [0, -1, LocationService.MAX_PAGE_SIZE + 1]
+    }
+
+    def "test getAvailableLocationsNear returns the locations within the radius nearest first"() {
+
+        given:
+            locationConverter.convertToDto(_ as LocationView) >> { args -> new LocationDTO(name: "L" + args[0].id) }
+
+        when:
+            def result = locationService.getAvailableLocationsNear(1, "62704", 10)
+
+        then:
+            1 * locationRepository.findOwnLocationsInZipCodes(1, _) >>
+                [nearbyLocation(3, "62701"), nearbyLocation(4, "60601"), nearbyLocation(5, "62999")]
+            1 * locationRepository.findSharedLocationsInZipCodes(1, _) >> [nearbyLocation(2, "62703"), nearbyLocation(3, "62701")]
+            0 * userRepository.existsById(_)
+            result*.location*.name == ["L3", "L2"]
+            result[0].distanceKm < result[1].distanceKm
+            result[1].distanceKm < 10
+    }
+
+    def "test getAvailableLocationsNear searches the ZIP codes within the radius"() {
+
+        given:
+            def zipCodes = ["62701", "62702", "62703", "62704"]
+
+        when:
+            locationService.getAvailableLocationsNear(1, "62704-1234", 10)
+
+        then:
+            1 * locationRepository.findOwnLocationsInZipCodes(1, zipCodes) >> [nearbyLocation(1, "62704")]
+            1 * locationRepository.findSharedLocationsInZipCodes(1, zipCodes) >> []
+    }
+
+    def "test getAvailableLocationsNear queries the ZIP codes by batches"() {
+
+        given:
+            def lines = ["GEOID\tINTPTLAT\tINTPTLONG"] + (10000..12499).collect { "${it}\t39.772\t-89.688" }
+            def denseCentroids = new ZipCentroids(new ByteArrayResource(lines.join("\n").getBytes(StandardCharsets.UTF_8)))
+            def denseService = new LocationService(userRepository, locationRepository, locationConverter,
+                locationAccessService, validator, availableLocationsCacheEvictor, pageCache, denseCentroids,
+                futureCache, 2, 16)
+            userRepository.existsById(1) >> true
+
+        when:
+            def result = denseService.getAvailableLocationsNear(1, "10000", 10)
+
+        then:
+            1 * locationRepository.findOwnLocationsInZipCodes(1, { it.size() == LocationService.ZIP_CODES_PER_QUERY && it[0] == "10000" }) >> []
+            1 * locationRepository.findOwnLocationsInZipCodes(1, { it.size() == LocationService.ZIP_CODES_PER_QUERY && it[0] == "11000" }) >> []
+            1 * locationRepository.findOwnLocationsInZipCodes(1, { it.size() == 500 && it[0] == "12000" }) >> []
+            3 * locationRepository.findSharedLocationsInZipCodes(1, _) >> []
+            result.isEmpty()
+
+        cleanup:
+            denseService.shutdown()
+    }
+
+    @Unroll
+    def "test getAvailableLocationsNear rejects the ZIP code #zipCode with a radius of #radiusKm"() {
+
+        when:
+            locationService.getAvailableLocationsNear(1, zipCode, radiusKm)
+
+        then:
+            thrown(BadRequestException)
+            0 * locationRepository._
+
+        where:
+            zipCode  | radiusKm
+            "62704"  | 0
+            "62704"  | -1
+            "62704"  | LocationService.MAX_RADIUS_KM + 1
+            "62704"  | Double.NaN
+            "6270"   | 10
+            "62704a" | 10
+            null     | 10
+    }
+
+    def "test getAvailableLocationsNear throws NotFoundException for an unknown ZIP code"() {
+
+        when:
+            locationService.getAvailableLocationsNear(1, "62999", 10)
+
+        then:
+            thrown(NotFoundException)
+            0 * locationRepository._
+    }
+
+    def "test getAvailableLocationsNear throws ServiceUnavailableException when no ZIP centroid table is loaded"() {
+
+        given:
+            def emptyService = new LocationService(userRepository, locationRepository, locationConverter,
+                locationAccessService, validator, availableLocationsCacheEvictor, pageCache, new ZipCentroids(null),
+                futureCache, 2, 16)
+
+        when:
+            emptyService.getAvailableLocationsNear(1, "62704", 10)
+
+        then:
+            thrown(ServiceUnavailableException)
+            0 * locationRepository._
+
+        cleanup:
+            emptyService.shutdown()
+    }
+
+    def "test getAvailableLocationsNear throws NotFoundException when user does not exist"() {
+
+        given:
+            locationRepository.findOwnLocationsInZipCodes(1, _) >> []
+            locationRepository.findSharedLocationsInZipCodes(1, _) >> []
+            userRepository.existsById(1) >> false
+
+        when:
+            locationService.getAvailableLocationsNear(1, "62704", 10)
+
+        then:
+            thrown(NotFoundException)
+    }
+
+    def "test getFriendsToLocationPage reads cached pages of the location"() {
+
+        given:
+            def page = new PageDTO<List<UserDTO>>([new UserDTO("Friend", "friend@example.com")], 8)
+
+        and:
+            pageCache.get(CacheNames.FRIEND_PAGES, 5, "0:1", _) >> { args -> args[3].get() }
+
+        when:
+            def result = locationService.getFriendsToLocationPage(5, null, 1)
+
+        then:
+            1 * locationAccessService.getFriendsPage(5, 0, 1) >> page
+            result.is(page)
+    }
+
+    private LocationView location(int id) {
+
+        Stub(LocationView) {
+            getId() >> id
+        }
+    }
+
+    private NearbyLocationView nearbyLocation(int id, String zipCode) {
+
+        Stub(NearbyLocationView) {
+            getId() >> id
+            getZipCode() >> zipCode
+        }
+    }
+
+    private AvailableLocationView availableLocation(int id, int ownerId, long shareCount) {
+
+        Stub(AvailableLocationView) {
+            getId() >> id
+            getOwnerId() >> ownerId
+            getShareCount() >> shareCount
+        }
+    }
+}
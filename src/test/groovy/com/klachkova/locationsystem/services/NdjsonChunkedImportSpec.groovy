@@ -0,0 +1,61 @@
+package com.klachkova.locationsystem.services
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.nio.charset.StandardCharsets
+
+class NdjsonChunkedImportSpec extends Specification {
+
+    @Subject
+    NdjsonChunkedImport ndjsonImport = new NdjsonChunkedImport(new ObjectMapper(), 2)
+
+    def "test run imports non-blank lines in chunks and writes one result per line"() {
+
+        given:
+            def input = new ByteArrayInputStream("a\n\nb\n  \nc\n".getBytes(StandardCharsets.UTF_8))
+            def output = new ByteArrayOutputStream()
+            def chunks = []
+
+        when:
+            ndjsonImport.run(input, output,
+                { lineNumber, text -> new TestLine(lineNumber, text) } as NdjsonChunkedImport.LineFactory,
+                { chunk -> chunks << chunk*.text; chunk.each { it.setResult("DONE", null) } } as NdjsonChunkedImport.ChunkImporter,
+                { line -> [line: line.lineNumber, text: line.text, status: line.status] })
+
+        then:
+            chunks == [["a", "b"], ["c"]]
+            output.toString(StandardCharsets.UTF_8.name()).readLines() == [
+                '{"line":1,"text":"a","status":"DONE"}',
+                '{"line":3,"text":"b","status":"DONE"}',
+                '{"line":5,"text":"c","status":"DONE"}']
+    }
+
+    def "test run writes nothing for an empty input"() {
+
+        given:
+            def output = new ByteArrayOutputStream()
+            def chunkImporter = Mock(NdjsonChunkedImport.ChunkImporter)
+
+        when:
+            ndjsonImport.run(new ByteArrayInputStream("\n\n".bytes), output,
+                { lineNumber, text -> new TestLine(lineNumber, text) } as NdjsonChunkedImport.LineFactory,
+                chunkImporter, { line -> line.text })
+
+        then:
+            0 * chunkImporter.importChunk(_)
+            output.size() == 0
+    }
+
+    static class TestLine extends NdjsonChunkedImport.Line<String> {
+
+        final String text
+
+        TestLine(long lineNumber, String text) {
+
+            super(lineNumber)
+            this.text = text
+        }
+    }
+}
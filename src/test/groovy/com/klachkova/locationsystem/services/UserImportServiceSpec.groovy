@@ -0,0 +1,127 @@
+package com.klachkova.locationsystem.services
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.klachkova.locationsystem.modeles.User
+import com.klachkova.locationsystem.repositories.UserRepository
+import com.klachkova.locationsystem.util.converters.UserConverter
+import org.hibernate.Session
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.transaction.PlatformTransactionManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import javax.persistence.EntityManager
+import javax.validation.Validation
+import java.nio.charset.StandardCharsets
+
+class UserImportServiceSpec extends Specification {
+
+    UserRepository userRepository = Mock()
+    PlatformTransactionManager transactionManager = Mock()
+    Session session = Mock()
+    EntityManager entityManager = Mock() {
+        unwrap(Session) >> session
+    }
+    ObjectMapper objectMapper = new ObjectMapper()
+
+    @Subject
+    UserImportService userImportService = new UserImportService(
+        userRepository,
+        new UserConverter(),
+        Validation.buildDefaultValidatorFactory().validator,
+        transactionManager,
+        entityManager,
+        objectMapper,
+        2)
+
+    def "test importUsers registers valid users in batches and reports each line"() {
+
+        given:
+            def input = lines(
+                '{"name":"User One","email":"one@example.com"}',
+                '',
+                '{"name":"User Two","email":"two@example.com"}',
+                '{"name":"User Three","email":"three@example.com"}')
+
+        when:
+            def results = importUsers(input)
+
+        then:
+            1 * userRepository.findExistingEmails({ it.sort() == ["one@example.com", "two@example.com"] }) >> []
+            1 * userRepository.findExistingEmails({ it.toList() == ["three@example.com"] }) >> []
+            1 * userRepository.saveAll({ it*.email == ["one@example.com", "two@example.com"] })
+            1 * userRepository.saveAll({ it*.email == ["three@example.com"] })
+            2 * session.setJdbcBatchSize(2)
+            results*.line == [1, 3, 4]
+            results*.email == ["one@example.com", "two@example.com", "three@example.com"]
+            results*.status == ["CREATED", "CREATED", "CREATED"]
+    }
+
+    def "test importUsers reports malformed, invalid and duplicate lines without inserting them"() {
+
+        given:
+            def input = lines(
+                'not json',
+                '{"name":"U","email":"invalid"}',
+                '{"name":"Taken","email":"taken@example.com"}',
+                '{"name":"New","email":"new@example.com"}',
+                '{"name":"Again","email":"new@example.com"}',
+                'null')
+            def registeredEmails = ["taken@example.com"] as Set
+
+        when:
+            def results = importUsers(input)
+
+        then:
+            userRepository.findExistingEmails(_) >> { args -> args[0].findAll { registeredEmails.contains(it) }.toList() }
+            1 * userRepository.saveAll({ it*.email == ["new@example.com"] }) >> { args -> registeredEmails.addAll(args[0]*.email); args[0] }
+            results*.status == ["INVALID", "INVALID", "DUPLICATE", "CREATED", "DUPLICATE", "INVALID"]
+            results[0].message == "Malformed JSON"
+            results[0].email == null
+            results[1].message.contains("Email should be valid")
+            results[1].message.contains("Name should be between 2 and 30 characters")
+    }
+
+    def "test importUsers falls back to single inserts when the batch hits the unique constraint"() {
+
+        given:
+            def input = lines(
+                '{"name":"User One","email":"one@example.com"}',
+                '{"name":"User Two","email":"two@example.com"}')
+
+        when:
+            def results = importUsers(input)
+
+        then:
+            userRepository.findExistingEmails(_) >> []
+            1 * userRepository.saveAll(_)
+            1 * userRepository.flush() >> { throw new DataIntegrityViolationException("uk_user_email") }
+            1 * userRepository.saveAndFlush({ it.email == "one@example.com" }) >> new User()
+            1 * userRepository.saveAndFlush({ it.email == "two@example.com" }) >> {
+                throw new DataIntegrityViolationException("uk_user_email")
+            }
+            results*.status == ["CREATED", "DUPLICATE"]
+    }
+
+    def "test importUsers writes nothing for an empty input"() {
+
+        when:
+            def results = importUsers("")
+
+        then:
+            results.isEmpty()
+            0 * userRepository._
+    }
+
+    private static String lines(String... lines) {
+
+        lines.join("\n") + "\n"
+    }
+
+    private List<Map> importUsers(String input) {
+
+        def output = new ByteArrayOutputStream()
+        userImportService.importUsers(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output)
+        output.toString("UTF-8").readLines().collect { objectMapper.readValue(it, Map) }
+    }
+}
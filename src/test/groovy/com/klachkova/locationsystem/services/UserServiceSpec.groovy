@@ -6,6 +6,7 @@ import com.klachkova.locationsystem.repositories.UserRepository
 import com.klachkova.locationsystem.util.converters.UserConverter
 import com.klachkova.locationsystem.util.exceptions.NotFoundException
 import com.klachkova.locationsystem.util.exceptions.ValidationException
+import org.springframework.dao.DataIntegrityViolationException
 import spock.lang.Specification
 import spock.lang.Subject
 import com.klachkova.locationsystem.util.exceptions.NotCreatedException
@@ -34,8 +35,7 @@ class UserServiceSpec extends Specification {
         and:
             userConverter.convertToEntity(userDTO) >> user
             validator.validate(user) >> []
-            userRepository.existsByEmail(email) >> false
-            userRepository.save(user) >> savedUser
+            userRepository.saveAndFlush(user) >> savedUser
             userConverter.convertToDto(savedUser) >> userDTOAfterSave
 
         when:
@@ -55,7 +55,7 @@ class UserServiceSpec extends Specification {
         and:
             userConverter.convertToEntity(userDTO) >> user
             validator.validate(user) >> []
-            userRepository.existsByEmail(email) >> true
+            userRepository.saveAndFlush(user) >> { throw new DataIntegrityViolationException("uk_user_email") }
 
         when:
             userService.registerUser(userDTO)
@@ -160,4 +160,30 @@ class UserServiceSpec extends Specification {
         then:
             thrown(NotFoundException)
     }
-}
\ No newline at end of file
+
+    def "test findAllByEmails should return users found by email"() {
+
+        given:
+            def emails = ["name1@example.com", "name2@example.com"]
+            def user = new User(email: "name1@example.com")
+
+        and:
+            userRepository.findAllByEmailIn(emails) >> [user]
+
+        when:
+            def result = userService.findAllByEmails(emails)
+
+        then:
+            result == [user]
+    }
+
+    def "test findAllByEmails should not query the repository for no emails"() {
+
+        when:
+            def result = userService.findAllByEmails([])
+
+        then:
+            result.isEmpty()
+            0 * userRepository._
+    }
+}
@@ -0,0 +1,39 @@
+package com.klachkova.locationsystem.util.address
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AddressKeySpec extends Specification {
+
+    @Unroll
+    def "test canonicalize turns '#address' into the canonical form"() {
+
+        expect:
+            AddressKey.canonicalize(address) == "123 MAIN ST, SPRINGFIELD, IL, 62704"
+
+        where:
+            address << [
+                "123 Main St, Springfield, IL, 62704",
+                "123  main st, Springfield, IL, 62704",
+                " 123 Main St,Springfield , IL,\t62704 ",
+                "123 MAIN ST, SPRINGFIELD, IL, 62704"]
+    }
+
+    def "test of returns the same fixed-width key for addresses differing only in letter case and spacing"() {
+
+        when:
+            def key = AddressKey.of("123 Main St, Springfield, IL, 62704")
+
+        then:
+            key.length() == AddressKey.LENGTH
+            key ==~ /[0-9a-f]{32}/
+            AddressKey.of("123  main st,Springfield, IL, 62704") == key
+            AddressKey.of("124 Main St, Springfield, IL, 62704") != key
+    }
+
+    def "test of returns null for a null address"() {
+
+        expect:
+            AddressKey.of(null) == null
+    }
+}
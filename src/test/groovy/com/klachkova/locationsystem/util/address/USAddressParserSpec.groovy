@@ -0,0 +1,114 @@
+package com.klachkova.locationsystem.util.address
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.regex.Pattern
+
+class USAddressParserSpec extends Specification {
+
+    static final Pattern US_ADDRESS_PATTERN = Pattern.compile(
+        '^(\\d+)\\s([\\w\\s]+),\\s([\\w\\s]+),\\s([A-Z]{2}),\\s(\\d{5})(-\\d{4})?$')
+
+    def "test parse returns the components of an address"() {
+
+        when:
+            def parsed = USAddressParser.parse("123 Main St, Springfield, IL, 62704")
+
+        then:
+            parsed.street == "123 Main St"
+            parsed.city == "Springfield"
+            parsed.state == "IL"
+            parsed.zipCode == "62704"
+    }
+
+    def "test parse keeps the ZIP+4 extension and drops whitespace around the street and the city"() {
+
+        when:
+            def parsed = USAddressParser.parse("7 Elm Rd ,  New York , NY, 10001-0001")
+
+        then:
+            parsed.street == "7 Elm Rd"
+            parsed.city == "New York"
+            parsed.state == "NY"
+            parsed.zipCode == "10001-0001"
+    }
+
+    @Unroll
+    def "test isValid agrees with the former validation pattern for '#address'"() {
+
+        expect:
+            USAddressParser.isValid(address) == US_ADDRESS_PATTERN.matcher(address).matches()
+            (USAddressParser.parse(address) != null) == US_ADDRESS_PATTERN.matcher(address).matches()
+
+        where:
+            address << [
+                "123 Main St, Springfield, IL, 62704",
+                "123 Main St, Springfield, IL, 62704-1234",
+                "123  Main St, Springfield, IL, 62704",
+                "123 Main St,\tSpringfield, IL, 62704",
+                "123 Main_St 4, Spring field, IL, 62704",
+                "",
+                " 123 Main St, Springfield, IL, 62704",
+                "123 Main St, Springfield, IL, 62704 ",
+                "123 Main St, Springfield, IL, 62704\n",
+                "123Main St, Springfield, IL, 62704",
+                "123 , Springfield, IL, 62704",
+                "123 Main St, , IL, 62704",
+                "123 Main St,Springfield, IL, 62704",
+                "123 Main St, Springfield, Il, 62704",
+                "123 Main St, Springfield, ILL, 62704",
+                "123 Main St, Springfield, IL, 6270",
+                "123 Main St, Springfield, IL, 627041",
+                "123 Main St, Springfield, IL, 62704-123",
+                "123 Main St, Springfield, IL, 62704-12345",
+                "123 Main St, Springfield, IL, 62704-",
+                "123 Main St., Springfield, IL, 62704",
+                "123 Main Street, Springfield, 62704",
+                "Main St, Springfield, IL, 62704",
+                "123 Main St, Springfield, IL",
+                "123 Main St, Springfield, IL,",
+                "123 Main St, Springfield, IL, 62704, USA",
+                "123 Mäin St, Springfield, IL, 62704",
+                "١٢٣ Main St, Springfield, IL, 62704"]
+    }
+
+    def "test isValid agrees with the former validation pattern on random mutations of valid addresses"() {
+
+        given:
+            def random = new Random(42)
+            def alphabet = "0123456789 ,-_aZ\tIL".toCharArray()
+            def seeds = ["123 Main St, Springfield, IL, 62704", "9 A, B, NY, 10001-0001"]
+
+        expect:
+            (1..20000).every {
+                def chars = seeds[random.nextInt(seeds.size())].toCharArray().toList()
+                (1..random.nextInt(3) + 1).each {
+                    def position = random.nextInt(chars.size() + 1)
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            chars.add(position, alphabet[random.nextInt(alphabet.length)])
+                            break
+                        case 1:
+                            if (position < chars.size()) {
+                                chars.remove(position)
+                            }
+                            break
+                        default:
+                            if (position < chars.size()) {
+                                chars[position] = alphabet[random.nextInt(alphabet.length)]
+                            }
+                    }
+                }
+                def address = chars.join("")
+                USAddressParser.isValid(address) == US_ADDRESS_PATTERN.matcher(address).matches()
+            }
+    }
+
+    def "test null addresses are invalid"() {
+
+        expect:
+            !USAddressParser.isValid(null)
+            USAddressParser.parse(null) == null
+    }
+}
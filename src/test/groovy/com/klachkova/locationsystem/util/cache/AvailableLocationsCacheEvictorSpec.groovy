@@ -0,0 +1,121 @@
+package com.klachkova.locationsystem.util.cache
+
+import org.springframework.cache.Cache
+import org.springframework.cache.CacheManager
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class AvailableLocationsCacheEvictorSpec extends Specification {
+
+    Cache cache = Mock()
+    Cache pageCache = Mock()
+    Cache friendPageCache = Mock()
+    CacheManager cacheManager = Mock() {
+        getCache(CacheNames.AVAILABLE_LOCATIONS) >> cache
+        getCache(CacheNames.AVAILABLE_LOCATION_PAGES) >> pageCache
+        getCache(CacheNames.FRIEND_PAGES) >> friendPageCache
+    }
+
+    @Subject
+    AvailableLocationsCacheEvictor evictor = new AvailableLocationsCacheEvictor(cacheManager, null, null)
+
+    def cleanup() {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+
+    def "test evictAfterCommit evicts immediately when there is no transaction"() {
+
+        when:
+            evictor.evictAfterCommit(1, 2)
+
+        then:
+            1 * cache.evict(1)
+            1 * cache.evict(2)
+            1 * pageCache.evict(1)
+            1 * pageCache.evict(2)
+            0 * friendPageCache._
+    }
+
+    def "test evictFriendsAfterCommit evicts only the friend pages of the locations"() {
+
+        when:
+            evictor.evictFriendsAfterCommit(5, null)
+
+        then:
+            1 * friendPageCache.evict(5)
+            0 * cache._
+            0 * pageCache._
+    }
+
+    def "test evictAfterCommit ignores null and duplicate user IDs"() {
+
+        when:
+            evictor.evictAfterCommit(1, null, 1)
+
+        then:
+            1 * cache.evict(1)
+            0 * cache.evict(_)
+    }
+
+    def "test evictAfterCommit defers eviction until the transaction commits"() {
+
+        given:
+            TransactionSynchronizationManager.initSynchronization()
+
+        when:
+            evictor.evictAfterCommit(1, 2)
+
+        then:
+            0 * cache.evict(_)
+
+        when:
+            TransactionSynchronizationManager.synchronizations.each { it.afterCommit() }
+
+        then:
+            1 * cache.evict(1)
+            1 * cache.evict(2)
+    }
+
+    def "test evictAfterCommit does not fail when the cache is unavailable"() {
+
+        when:
+            evictor.evictAfterCommit(1)
+
+        then:
+            1 * cache.evict(1) >> { throw new IllegalStateException("Redis is down") }
+            1 * pageCache.evict(1)
+            noExceptionThrown()
+    }
+
+    def "test with a read replica the entries are evicted again once a replica read cannot be stale anymore"() {
+
+        given:
+            ScheduledExecutorService scheduler = Mock()
+            evictor = new AvailableLocationsCacheEvictor(cacheManager, Duration.ofSeconds(6), scheduler)
+            Runnable secondEviction = null
+            TransactionSynchronizationManager.initSynchronization()
+
+        when:
+            evictor.evictAfterCommit(1)
+            TransactionSynchronizationManager.synchronizations.each { it.afterCommit() }
+
+        then:
+            1 * cache.evict(1)
+            1 * scheduler.schedule(_, 6000, TimeUnit.MILLISECONDS) >> { args -> secondEviction = args[0]; null }
+
+        when:
+            secondEviction.run()
+
+        then:
+            1 * cache.evict(1)
+            1 * pageCache.evict(1)
+    }
+}
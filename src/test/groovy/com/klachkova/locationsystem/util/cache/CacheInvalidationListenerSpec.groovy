@@ -0,0 +1,98 @@
+package com.klachkova.locationsystem.util.cache
+
+import org.springframework.data.redis.connection.DefaultMessage
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CacheInvalidationListenerSpec extends Specification {
+
+    TwoTierCacheManager cacheManager = Mock()
+    TwoTierCache cache = Mock()
+    LocationPermissionMatrix permissionMatrix = Mock()
+
+    @Subject
+    CacheInvalidationListener listener = new CacheInvalidationListener(cacheManager, permissionMatrix, "this-node")
+
+    def "test evict message from another node evicts the local entry"() {
+
+        given:
+            def payload = CacheInvalidationMessage.evict("other-node", "availableLocations", "5").toPayload()
+
+        when:
+            listener.onMessage(message(payload), null)
+
+        then:
+            1 * cacheManager.getExistingCache("availableLocations") >> cache
+            1 * cache.evictLocal("5")
+    }
+
+    def "test clear message from another node clears the local tier"() {
+
+        given:
+            def payload = CacheInvalidationMessage.clear("other-node", "availableLocations").toPayload()
+
+        when:
+            listener.onMessage(message(payload), null)
+
+        then:
+            1 * cacheManager.getExistingCache("availableLocations") >> cache
+            1 * cache.clearLocal()
+    }
+
+    def "test permission messages from another node are applied to the permission matrix"() {
+
+        given:
+            def evict = CacheInvalidationMessage.evict("other-node", CacheNames.LOCATION_PERMISSIONS,
+                Long.toString(LocationPermissionMatrix.key(1, 10))).toPayload()
+            def clear = CacheInvalidationMessage.clear("other-node", CacheNames.LOCATION_PERMISSIONS).toPayload()
+
+        when:
+            listener.onMessage(message(evict), null)
+            listener.onMessage(message(clear), null)
+
+        then:
+            1 * permissionMatrix.evictLocal(LocationPermissionMatrix.key(1, 10))
+            1 * permissionMatrix.clearLocal()
+            0 * cacheManager._
+    }
+
+    def "test messages from this node are ignored"() {
+
+        given:
+            def payload = CacheInvalidationMessage.evict("this-node", "availableLocations", "5").toPayload()
+
+        when:
+            listener.onMessage(message(payload), null)
+
+        then:
+            0 * cacheManager._
+    }
+
+    def "test malformed messages are ignored"() {
+
+        when:
+            listener.onMessage(message("garbage"), null)
+
+        then:
+            0 * cacheManager._
+            noExceptionThrown()
+    }
+
+    def "test keys containing the separator survive the round trip"() {
+
+        when:
+            def parsed = CacheInvalidationMessage.parse(
+                CacheInvalidationMessage.evict("node", "cache", "a|b").toPayload())
+
+        then:
+            parsed.nodeId == "node"
+            parsed.cacheName == "cache"
+            parsed.key == "a|b"
+            !parsed.clear
+    }
+
+    private static DefaultMessage message(String payload) {
+
+        new DefaultMessage("channel".bytes, payload.getBytes("UTF-8"))
+    }
+}
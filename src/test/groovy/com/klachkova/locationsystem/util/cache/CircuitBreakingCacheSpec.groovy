@@ -0,0 +1,169 @@
+package com.klachkova.locationsystem.util.cache
+
+import org.springframework.cache.Cache
+import org.springframework.cache.support.SimpleValueWrapper
+import org.springframework.data.redis.serializer.SerializationException
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+
+class CircuitBreakingCacheSpec extends Specification {
+
+    Cache delegate = Mock()
+    RedisCircuitBreaker circuitBreaker = Mock()
+
+    @Subject
+    CircuitBreakingCache cache = new CircuitBreakingCache(delegate, circuitBreaker, 2)
+
+    def "test calls reach Redis while the circuit is closed"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> true
+
+        when:
+            def result = cache.get(1)
+
+        then:
+            1 * delegate.get(1) >> new SimpleValueWrapper("value")
+            1 * circuitBreaker.onSuccess()
+            result.get() == "value"
+    }
+
+    def "test failures are reported to the circuit breaker and rethrown"() {
+
+        given:
+            def failure = new IllegalStateException("timeout")
+            circuitBreaker.tryAcquirePermission() >> true
+            delegate.get(1) >> { throw failure }
+
+        when:
+            cache.get(1)
+
+        then:
+            1 * circuitBreaker.onFailure(failure)
+            thrown(IllegalStateException)
+    }
+
+    def "test unreadable entries do not count as Redis failures"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> true
+            delegate.get(1) >> { throw new SerializationException("corrupted") }
+
+        when:
+            cache.get(1)
+
+        then:
+            1 * circuitBreaker.onSuccess()
+            0 * circuitBreaker.onFailure(_)
+            thrown(SerializationException)
+    }
+
+    def "test reads miss and writes are skipped while the circuit is open"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> false
+
+        when:
+            def result = cache.get(1)
+            cache.put(1, "value")
+
+        then:
+            result == null
+            0 * delegate._
+    }
+
+    def "test evictions missed while the circuit is open are replayed on recovery"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> false
+
+        when:
+            cache.evict(1)
+            cache.evict(2)
+
+        then:
+            0 * delegate._
+            cache.pendingEvictionCount == 2
+
+        when:
+            cache.replayPendingEvictions()
+
+        then:
+            1 * delegate.evict(1)
+            1 * delegate.evict(2)
+            cache.pendingEvictionCount == 0
+    }
+
+    def "test too many missed evictions clear the cache on recovery"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> false
+
+        when:
+            (1..3).each { cache.evict(it) }
+
+        then:
+            cache.clearPending
+            cache.pendingEvictionCount == 0
+
+        when:
+            cache.replayPendingEvictions()
+
+        then:
+            1 * delegate.clear()
+            0 * delegate.evict(_)
+            !cache.clearPending
+    }
+
+    def "test an eviction that fails below the threshold is replayed before the next call"() {
+
+        given:
+            def breaker = new RedisCircuitBreaker(3, Duration.ofSeconds(1), {}, Mock(ScheduledExecutorService))
+            cache = new CircuitBreakingCache(delegate, breaker, 2)
+
+        when:
+            cache.evict(1)
+
+        then:
+            1 * delegate.evict(1) >> { throw new IllegalStateException("timeout") }
+            thrown(IllegalStateException)
+            breaker.state == RedisCircuitBreaker.State.CLOSED
+            cache.pendingEvictionCount == 1
+
+        when:
+            def result = cache.get(1)
+
+        then:
+            1 * delegate.evict(1)
+
+        then:
+            1 * delegate.get(1) >> null
+            result == null
+            cache.pendingEvictionCount == 0
+    }
+
+    def "test a read misses while a pending eviction cannot be replayed"() {
+
+        given:
+            circuitBreaker.tryAcquirePermission() >> true
+            delegate.evict(1) >> { throw new IllegalStateException("timeout") }
+
+        when:
+            cache.evict(1)
+
+        then:
+            thrown(IllegalStateException)
+
+        when:
+            def result = cache.get(1)
+
+        then:
+            notThrown(IllegalStateException)
+            result == null
+            0 * delegate.get(_)
+            cache.pendingEvictionCount == 1
+    }
+}
@@ -0,0 +1,215 @@
+package com.klachkova.locationsystem.util.cache
+
+import com.klachkova.locationsystem.dto.LocationDTO
+import com.klachkova.locationsystem.dto.PageDTO
+import com.klachkova.locationsystem.dto.UserDTO
+import org.springframework.cache.support.NullValue
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer
+import org.springframework.data.redis.serializer.SerializationException
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CompactCacheValueSerializerSpec extends Specification {
+
+    GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer()
+
+    @Subject
+    CompactCacheValueSerializer serializer = new CompactCacheValueSerializer(jsonSerializer, 512)
+
+    def "test available locations round trip"() {
+
+        given:
+            def value = availableLocations(3, 2)
+
+        when:
+            def result = serializer.deserialize(serializer.serialize(value))
+
+        then:
+            result.size() == 2
+            result[0].collect { it.name } == ["Location 0", "Location 1", "Location 2"]
+            result[0].every { it.owner.email == "owner@example.com" && it.owner.name == "Owner" }
+            result[1].collect { it.address } == ["Address 0", "Address 1"]
+            result[1][0].owner.is(result[0][0].owner)
+    }
+
+    def "test pages round trip"() {
+
+        given:
+            def page = new PageDTO(availableLocations(2, 1), nextCursor)
+
+        when:
+            PageDTO result = serializer.deserialize(serializer.serialize(page))
+
+        then:
+            result.nextCursor == nextCursor
+            result.items[0].collect { it.name } == ["Location 0", "Location 1"]
+            result.items[1][0].owner.is(result.items[0][0].owner)
+            serializer.serialize(page)[0] == (byte) CompactCacheValueSerializer.MAGIC
+
+        where:
+            nextCursor << [null, 0, 1234567]
+    }
+
+    def "test null fields round trip"() {
+
+        given:
+            def location = new LocationDTO()
+            location.setName("Home")
+
+        when:
+            LocationDTO result = serializer.deserialize(serializer.serialize([[location]]))[0][0]
+
+        then:
+            result.name == "Home"
+            result.address == null
+            result.owner == null
+    }
+
+    def "test binary values are smaller than JSON"() {
+
+        given:
+            def value = availableLocations(20, 20)
+            def uncompressed = new CompactCacheValueSerializer(jsonSerializer, -1)
+
+        expect:
+            uncompressed.serialize(value).length < jsonSerializer.serialize(value).length / 3
+            serializer.serialize(value).length < uncompressed.serialize(value).length
+    }
+
+    def "test large values are deflated"() {
+
+        given:
+            def value = availableLocations(100, 100)
+
+        when:
+            def bytes = serializer.serialize(value)
+
+        then:
+            bytes[0] == (byte) CompactCacheValueSerializer.MAGIC
+            bytes[2] == 1
+            serializer.deserialize(bytes)[1].size() == 100
+    }
+
+    def "test unsupported values fall back to JSON"() {
+
+        when:
+            def bytes = serializer.serialize(value)
+
+        then:
+            bytes == jsonSerializer.serialize(value)
+            serializer.deserialize(bytes) == value
+
+        where:
+            value << [["name", "email"], [key: "value"]]
+    }
+
+    def "test cached nulls fall back to JSON"() {
+
+        when:
+            def bytes = serializer.serialize(NullValue.INSTANCE)
+
+        then:
+            bytes == jsonSerializer.serialize(NullValue.INSTANCE)
+            serializer.deserialize(bytes) instanceof NullValue
+    }
+
+    def "test entries written as JSON are still readable"() {
+
+        given:
+            def legacy = jsonSerializer.serialize(availableLocations(2, 1))
+
+        when:
+            def result = serializer.deserialize(legacy)
+
+        then:
+            result[0].collect { it.name } == ["Location 0", "Location 1"]
+            result[0][0] instanceof LocationDTO
+    }
+
+    def "test unknown format versions are rejected"() {
+
+        given:
+            def bytes = serializer.serialize(availableLocations(1, 1))
+            bytes[1] = (byte) (CompactCacheValueSerializer.VERSION + 1)
+
+        when:
+            serializer.deserialize(bytes)
+
+        then:
+            thrown(SerializationException)
+    }
+
+    def "test truncated values are rejected"() {
+
+        given:
+            def bytes = serializer.serialize(availableLocations(2, 2))
+
+        when:
+            serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 3))
+
+        then:
+            thrown(SerializationException)
+    }
+
+    def "test forFormat creates the serializer of a cache.redis.serializer setting"() {
+
+        given:
+            def value = availableLocations(2, 1)
+
+        expect:
+            CompactCacheValueSerializer.forFormat("binary", 512).serialize(value)[0] ==
+                (byte) CompactCacheValueSerializer.MAGIC
+            CompactCacheValueSerializer.forFormat("json", 512).serialize(value) == jsonSerializer.serialize(value)
+    }
+
+    def "test the json format still reads the entries written in the binary format"() {
+
+        given:
+            def json = CompactCacheValueSerializer.forFormat("json", 512)
+            def small = serializer.serialize(availableLocations(2, 1))
+            def deflated = serializer.serialize(availableLocations(50, 50))
+
+        when:
+            def smallResult = json.deserialize(small)
+            def deflatedResult = json.deserialize(deflated)
+
+        then:
+            smallResult[0].collect { it.name } == ["Location 0", "Location 1"]
+            deflatedResult[1].size() == 50
+            deflatedResult[1][0].owner.email == "owner@example.com"
+            json.deserialize(jsonSerializer.serialize(availableLocations(1, 0)))[0][0] instanceof LocationDTO
+    }
+
+    def "test forFormat rejects an unknown format"() {
+
+        when:
+            CompactCacheValueSerializer.forFormat("xml", 512)
+
+        then:
+            thrown(IllegalStateException)
+    }
+
+    private static List<List<LocationDTO>> availableLocations(int own, int shared) {
+
+        def owner = new UserDTO()
+        owner.setName("Owner")
+        owner.setEmail("owner@example.com")
+        def ownLocations = (0..<own).collect { location(it, owner) }
+        def sharedLocations = (0..<shared).collect {
+            def sharer = new UserDTO()
+            sharer.setName("Owner")
+            sharer.setEmail("owner@example.com")
+            location(it, sharer)
+        }
+        [ownLocations, sharedLocations]
+    }
+
+    private static LocationDTO location(int index, UserDTO owner) {
+
+        def location = new LocationDTO()
+        location.setName("Location " + index)
+        location.setAddress("Address " + index)
+        location.setOwner(owner)
+        location
+    }
+}
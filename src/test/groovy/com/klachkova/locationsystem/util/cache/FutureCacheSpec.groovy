@@ -0,0 +1,101 @@
+package com.klachkova.locationsystem.util.cache
+
+import org.springframework.cache.Cache
+import org.springframework.cache.CacheManager
+import org.springframework.cache.concurrent.ConcurrentMapCache
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.function.Supplier
+
+class FutureCacheSpec extends Specification {
+
+    ConcurrentMapCache cache = new ConcurrentMapCache(CacheNames.AVAILABLE_LOCATIONS)
+    CacheManager cacheManager = Mock() {
+        getCache(CacheNames.AVAILABLE_LOCATIONS) >> cache
+    }
+    FallbackCacheErrorHandler cacheErrorHandler = new FallbackCacheErrorHandler()
+
+    @Subject
+    FutureCache futureCache = new FutureCache(cacheManager, cacheErrorHandler)
+
+    def "test get loads a value once and serves it from the cache"() {
+
+        given:
+            Supplier<CompletableFuture<String>> loader = Mock()
+
+        when:
+            def first = futureCache.get(CacheNames.AVAILABLE_LOCATIONS, 1, loader).get()
+            def second = futureCache.get(CacheNames.AVAILABLE_LOCATIONS, 1, loader).get()
+
+        then:
+            1 * loader.get() >> CompletableFuture.completedFuture("value")
+            first == "value"
+            second == "value"
+            cache.get(1).get() == "value"
+    }
+
+    def "test get caches the value only once it is loaded"() {
+
+        given:
+            def pending = new CompletableFuture<String>()
+
+        when:
+            def future = futureCache.get(CacheNames.AVAILABLE_LOCATIONS, 1, { pending })
+
+        then:
+            !future.done
+            cache.get(1) == null
+
+        when:
+            pending.complete("value")
+
+        then:
+            future.get() == "value"
+            cache.get(1).get() == "value"
+    }
+
+    def "test get does not cache a failed load"() {
+
+        given:
+            def failed = new CompletableFuture<String>()
+            failed.completeExceptionally(new IllegalStateException("query failed"))
+
+        when:
+            futureCache.get(CacheNames.AVAILABLE_LOCATIONS, 1, { failed }).get()
+
+        then:
+            def e = thrown(ExecutionException)
+            e.cause instanceof IllegalStateException
+            cache.get(1) == null
+    }
+
+    def "test get reads from the loader when the cache fails"() {
+
+        given:
+            Cache failingCache = Mock() {
+                getName() >> CacheNames.AVAILABLE_LOCATIONS
+                get(_) >> { throw new IllegalStateException("Redis is down") }
+            }
+            def failingFutureCache = new FutureCache(Mock(CacheManager) {
+                getCache(CacheNames.AVAILABLE_LOCATIONS) >> failingCache
+            }, cacheErrorHandler)
+
+        when:
+            def value = failingFutureCache.get(CacheNames.AVAILABLE_LOCATIONS, 1, {
+                CompletableFuture.completedFuture("value")
+            }).get()
+
+        then:
+            value == "value"
+            cacheErrorHandler.getFallbackCount == 1
+    }
+
+    def "test get reads from the loader when the cache does not exist"() {
+
+        expect:
+            futureCache.get("unknown", 1, { CompletableFuture.completedFuture("value") }).get() == "value"
+    }
+}
@@ -0,0 +1,141 @@
+package com.klachkova.locationsystem.util.cache
+
+import com.klachkova.locationsystem.modeles.AccessLevel
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.function.Supplier
+
+class LocationPermissionMatrixSpec extends Specification {
+
+    CacheInvalidationPublisher invalidationPublisher = Mock()
+    RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(1, Duration.ofSeconds(1), {}, Mock(ScheduledExecutorService))
+
+    @Subject
+    LocationPermissionMatrix matrix = new LocationPermissionMatrix(invalidationPublisher, circuitBreaker, 100,
+        Duration.ofMinutes(1))
+
+    def cleanup() {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+
+    def "test key packs the user ID in the high bits and the location ID in the low bits"() {
+
+        expect:
+            LocationPermissionMatrix.key(1, 2) == (1L << 32) + 2
+            LocationPermissionMatrix.key(2, 1) != LocationPermissionMatrix.key(1, 2)
+            LocationPermissionMatrix.key(1, -1) == (1L << 32) + 0xFFFFFFFFL
+    }
+
+    def "test getAccessLevel loads each pair once, including the absence of access"() {
+
+        given:
+            Supplier<AccessLevel> adminLoader = Mock()
+            Supplier<AccessLevel> noAccessLoader = Mock()
+
+        when:
+            def first = matrix.getAccessLevel(1, 10, adminLoader)
+            def second = matrix.getAccessLevel(1, 10, adminLoader)
+            def missing = [matrix.getAccessLevel(2, 10, noAccessLoader), matrix.getAccessLevel(2, 10, noAccessLoader)]
+
+        then:
+            1 * adminLoader.get() >> AccessLevel.ADMIN
+            1 * noAccessLoader.get() >> null
+            first == AccessLevel.ADMIN
+            second == AccessLevel.ADMIN
+            missing == [null, null]
+            matrix.size() == 2
+    }
+
+    def "test evictAfterCommit evicts and publishes immediately when there is no transaction"() {
+
+        given:
+            matrix.getAccessLevel(1, 10, { AccessLevel.READ_ONLY })
+
+        when:
+            matrix.evictAfterCommit(1, 10)
+
+        then:
+            1 * invalidationPublisher.publishEvict(CacheNames.LOCATION_PERMISSIONS,
+                Long.toString(LocationPermissionMatrix.key(1, 10)))
+            matrix.getAccessLevel(1, 10, { AccessLevel.ADMIN }) == AccessLevel.ADMIN
+    }
+
+    def "test evictAfterCommit defers eviction until the transaction commits"() {
+
+        given:
+            matrix.getAccessLevel(1, 10, { AccessLevel.READ_ONLY })
+            TransactionSynchronizationManager.initSynchronization()
+
+        when:
+            matrix.evictAfterCommit(1, 10)
+
+        then:
+            0 * invalidationPublisher._
+            matrix.getAccessLevel(1, 10, { AccessLevel.ADMIN }) == AccessLevel.READ_ONLY
+
+        when:
+            TransactionSynchronizationManager.synchronizations.each { it.afterCommit() }
+
+        then:
+            1 * invalidationPublisher.publishEvict(CacheNames.LOCATION_PERMISSIONS, _)
+            matrix.getAccessLevel(1, 10, { AccessLevel.ADMIN }) == AccessLevel.ADMIN
+    }
+
+    def "test evictLocal and clearLocal do not publish"() {
+
+        given:
+            matrix.getAccessLevel(1, 10, { AccessLevel.READ_ONLY })
+            matrix.getAccessLevel(2, 10, { AccessLevel.READ_ONLY })
+
+        when:
+            matrix.evictLocal(LocationPermissionMatrix.key(1, 10))
+
+        then:
+            matrix.size() == 1
+
+        when:
+            matrix.clearLocal()
+
+        then:
+            matrix.size() == 0
+            0 * invalidationPublisher._
+    }
+
+    def "test getAccessLevel reads the database on every check while the Redis circuit is open"() {
+
+        given:
+            Supplier<AccessLevel> loader = Mock()
+            matrix.getAccessLevel(1, 10, { AccessLevel.ADMIN })
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+
+        when:
+            def levels = [matrix.getAccessLevel(1, 10, loader), matrix.getAccessLevel(1, 10, loader)]
+
+        then:
+            2 * loader.get() >> AccessLevel.READ_ONLY
+            levels == [AccessLevel.READ_ONLY, AccessLevel.READ_ONLY]
+    }
+
+    def "test the matrix is cleared before the Redis circuit closes"() {
+
+        given:
+            matrix.getAccessLevel(1, 10, { AccessLevel.ADMIN })
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+
+        when:
+            circuitBreaker.probe()
+
+        then:
+            circuitBreaker.state == RedisCircuitBreaker.State.CLOSED
+            matrix.size() == 0
+            matrix.getAccessLevel(1, 10, { AccessLevel.READ_ONLY }) == AccessLevel.READ_ONLY
+            0 * invalidationPublisher._
+    }
+}
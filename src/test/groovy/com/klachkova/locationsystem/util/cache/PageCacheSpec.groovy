@@ -0,0 +1,127 @@
+package com.klachkova.locationsystem.util.cache
+
+import org.springframework.cache.Cache
+import org.springframework.cache.CacheManager
+import org.springframework.cache.concurrent.ConcurrentMapCache
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.function.Supplier
+
+class PageCacheSpec extends Specification {
+
+    ConcurrentMapCache cache = new ConcurrentMapCache(CacheNames.FRIEND_PAGES)
+    CacheManager cacheManager = Mock() {
+        getCache(CacheNames.FRIEND_PAGES) >> cache
+    }
+    FallbackCacheErrorHandler cacheErrorHandler = new FallbackCacheErrorHandler()
+
+    @Subject
+    PageCache pageCache = new PageCache(cacheManager, cacheErrorHandler)
+
+    def "test get loads a page once and serves it from the cache"() {
+
+        given:
+            Supplier<String> loader = Mock()
+
+        when:
+            def first = pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", loader)
+            def second = pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", loader)
+
+        then:
+            1 * loader.get() >> "page"
+            first == "page"
+            second == "page"
+    }
+
+    def "test get keeps the pages of different owners and page keys apart"() {
+
+        when:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "owner 1" })
+            pageCache.get(CacheNames.FRIEND_PAGES, 2, "0:50", { "owner 2" })
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "7:50", { "owner 1 next" })
+
+        then:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "reloaded" }) == "owner 1"
+            pageCache.get(CacheNames.FRIEND_PAGES, 2, "0:50", { "reloaded" }) == "owner 2"
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "7:50", { "reloaded" }) == "owner 1 next"
+    }
+
+    def "test evicting the owner invalidates all its pages"() {
+
+        given:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "first page" })
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "7:50", { "second page" })
+            pageCache.get(CacheNames.FRIEND_PAGES, 2, "0:50", { "other owner" })
+
+        when:
+            cache.evict(1)
+
+        then:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "fresh first page" }) == "fresh first page"
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "7:50", { "fresh second page" }) == "fresh second page"
+            pageCache.get(CacheNames.FRIEND_PAGES, 2, "0:50", { "reloaded" }) == "other owner"
+    }
+
+    def "test a page loaded before an eviction and written after it is never served"() {
+
+        when:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", {
+                cache.evict(1)
+                "stale page"
+            })
+
+        then:
+            pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "fresh page" }) == "fresh page"
+    }
+
+    def "test get reads from the loader when the cache fails"() {
+
+        given:
+            Cache failingCache = Mock() {
+                getName() >> CacheNames.FRIEND_PAGES
+                get(_, String) >> { throw new IllegalStateException("Redis is down") }
+            }
+            def failingPageCache = new PageCache(Mock(CacheManager) {
+                getCache(CacheNames.FRIEND_PAGES) >> failingCache
+            }, cacheErrorHandler)
+
+        when:
+            def page = failingPageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", { "page" })
+
+        then:
+            page == "page"
+            cacheErrorHandler.getFallbackCount == 1
+    }
+
+    def "test get serves pages from the local tier while the circuit is open"() {
+
+        given:
+            RedisCircuitBreaker circuitBreaker = Mock() {
+                tryAcquirePermission() >> false
+            }
+            def remoteCache = new CircuitBreakingCache(Mock(Cache), circuitBreaker, 10)
+            def localCache = new ConcurrentMapCache(CacheNames.FRIEND_PAGES)
+            def twoTierCache = new TwoTierCache(CacheNames.FRIEND_PAGES, localCache, remoteCache,
+                Mock(CacheInvalidationPublisher))
+            pageCache = new PageCache(Mock(CacheManager) { getCache(CacheNames.FRIEND_PAGES) >> twoTierCache },
+                cacheErrorHandler)
+            Supplier<String> loader = Mock()
+
+        when:
+            def first = pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", loader)
+            def second = pageCache.get(CacheNames.FRIEND_PAGES, 1, "0:50", loader)
+
+        then:
+            1 * loader.get() >> "page"
+            first == "page"
+            second == "page"
+            localCache.nativeCache.size() == 2
+    }
+
+    def "test get reads from the loader when the cache does not exist"() {
+
+        expect:
+            pageCache.get("unknown", 1, "0:50", { "page" }) == "page"
+    }
+}
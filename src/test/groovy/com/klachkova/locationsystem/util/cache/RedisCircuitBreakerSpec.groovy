@@ -0,0 +1,79 @@
+package com.klachkova.locationsystem.util.cache
+
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+
+class RedisCircuitBreakerSpec extends Specification {
+
+    Runnable probe = Mock()
+    ScheduledFuture probeTask = Mock()
+    ScheduledExecutorService scheduler = Mock() {
+        scheduleWithFixedDelay(*_) >> probeTask
+    }
+
+    RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(2, Duration.ofSeconds(1), probe, scheduler)
+
+    def "test circuit opens after consecutive failures and rejects calls"() {
+
+        when:
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+
+        then:
+            circuitBreaker.state == RedisCircuitBreaker.State.CLOSED
+            circuitBreaker.tryAcquirePermission()
+
+        when:
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+
+        then:
+            circuitBreaker.state == RedisCircuitBreaker.State.OPEN
+            !circuitBreaker.tryAcquirePermission()
+            circuitBreaker.failureCount == 2
+            circuitBreaker.rejectedCallCount == 1
+    }
+
+    def "test a success resets the consecutive failure count"() {
+
+        when:
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+            circuitBreaker.onSuccess()
+            circuitBreaker.onFailure(new IllegalStateException("timeout"))
+
+        then:
+            circuitBreaker.state == RedisCircuitBreaker.State.CLOSED
+    }
+
+    def "test successful probe runs recovery actions and closes the circuit"() {
+
+        given:
+            Runnable recoveryAction = Mock()
+            circuitBreaker.addRecoveryAction(recoveryAction)
+            2.times { circuitBreaker.onFailure(new IllegalStateException("timeout")) }
+
+        when:
+            circuitBreaker.probe()
+
+        then:
+            1 * probe.run()
+            1 * recoveryAction.run()
+            1 * probeTask.cancel(false)
+            circuitBreaker.state == RedisCircuitBreaker.State.CLOSED
+    }
+
+    def "test failed probe keeps the circuit open"() {
+
+        given:
+            2.times { circuitBreaker.onFailure(new IllegalStateException("timeout")) }
+            probe.run() >> { throw new IllegalStateException("still down") }
+
+        when:
+            circuitBreaker.probe()
+
+        then:
+            circuitBreaker.state == RedisCircuitBreaker.State.OPEN
+            0 * probeTask.cancel(_)
+    }
+}
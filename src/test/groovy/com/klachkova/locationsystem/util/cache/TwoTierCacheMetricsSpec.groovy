@@ -0,0 +1,60 @@
+package com.klachkova.locationsystem.util.cache
+
+import com.github.benmanes.caffeine.cache.Caffeine
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.cache.Cache
+import org.springframework.cache.caffeine.CaffeineCache
+import org.springframework.cache.support.SimpleValueWrapper
+import spock.lang.Specification
+
+class TwoTierCacheMetricsSpec extends Specification {
+
+    Cache remoteCache = Mock()
+    TwoTierCache cache = new TwoTierCache("test",
+        new CaffeineCache("test", Caffeine.newBuilder().maximumSize(10).build()), remoteCache, Mock(CacheInvalidationPublisher))
+    SimpleMeterRegistry registry = new SimpleMeterRegistry()
+
+    def setup() {
+
+        new TwoTierCacheMetrics(cache).bindTo(registry)
+    }
+
+    def "test gets are counted as hits if either tier has the key and per tier"() {
+
+        given:
+            remoteCache.get(1) >> new SimpleValueWrapper("value")
+            remoteCache.get(2) >> null
+
+        when:
+            cache.get(1)
+            cache.get(1)
+            cache.get(2)
+
+        then:
+            count("cache.gets", [result: "hit"]) == 2
+            count("cache.gets", [result: "miss"]) == 1
+            count("cache.tier.gets", [tier: "local", result: "hit"]) == 1
+            count("cache.tier.gets", [tier: "local", result: "miss"]) == 2
+            count("cache.tier.gets", [tier: "remote", result: "hit"]) == 1
+            count("cache.tier.gets", [tier: "remote", result: "miss"]) == 1
+    }
+
+    def "test puts and evictions are counted"() {
+
+        when:
+            cache.put(1, "value")
+            cache.put(2, "value")
+            cache.evict(1)
+
+        then:
+            registry.get("cache.puts").tag("cache", "test").functionCounter().count() == 2
+            registry.get("cache.evictions").tag("cache", "test").functionCounter().count() == 1
+    }
+
+    private double count(String name, Map<String, String> tags) {
+
+        def search = registry.get(name).tag("cache", "test")
+        tags.each { key, value -> search = search.tag(key, value) }
+        search.functionCounter().count()
+    }
+}
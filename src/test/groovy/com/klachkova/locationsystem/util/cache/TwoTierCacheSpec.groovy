@@ -0,0 +1,164 @@
+package com.klachkova.locationsystem.util.cache
+
+import com.github.benmanes.caffeine.cache.Caffeine
+import org.springframework.cache.Cache
+import org.springframework.cache.caffeine.CaffeineCache
+import org.springframework.cache.support.SimpleValueWrapper
+import spock.lang.Specification
+import spock.lang.Subject
+
+class TwoTierCacheSpec extends Specification {
+
+    CaffeineCache localCache = new CaffeineCache("test", Caffeine.newBuilder().maximumSize(10).build())
+    Cache remoteCache = Mock()
+    CacheInvalidationPublisher invalidationPublisher = Mock()
+
+    @Subject
+    TwoTierCache cache = new TwoTierCache("test", localCache, remoteCache, invalidationPublisher)
+
+    def "test get reads through to the remote tier on a local miss and keeps the value locally"() {
+
+        when:
+            def first = cache.get(1)
+            def second = cache.get(1)
+
+        then:
+            1 * remoteCache.get(1) >> new SimpleValueWrapper("value")
+            first.get() == "value"
+            second.get() == "value"
+            cache.statistics.localMisses == 1
+            cache.statistics.remoteHits == 1
+            cache.statistics.localHits == 1
+    }
+
+    def "test get counts a miss on both tiers when the value is not cached"() {
+
+        given:
+            remoteCache.get(1) >> null
+
+        when:
+            def result = cache.get(1)
+
+        then:
+            result == null
+            cache.statistics.localMisses == 1
+            cache.statistics.remoteMisses == 1
+            localCache.get("1") == null
+    }
+
+    def "test put writes both tiers and invalidates the other nodes"() {
+
+        when:
+            cache.put(1, "value")
+
+        then:
+            1 * remoteCache.put(1, "value")
+            1 * invalidationPublisher.publishEvict("test", "1")
+            localCache.get("1").get() == "value"
+            cache.statistics.puts == 1
+    }
+
+    def "test putIfAbsent keeps the value of the remote tier locally and invalidates the other nodes"() {
+
+        when:
+            def stored = cache.putIfAbsent(1, "value")
+            def existing = cache.putIfAbsent(2, "value")
+
+        then:
+            1 * remoteCache.putIfAbsent(1, "value") >> null
+            1 * remoteCache.putIfAbsent(2, "value") >> new SimpleValueWrapper("existing")
+            1 * invalidationPublisher.publishEvict("test", "1")
+            1 * invalidationPublisher.publishEvict("test", "2")
+            stored == null
+            existing.get() == "existing"
+            localCache.get("1").get() == "value"
+            localCache.get("2").get() == "existing"
+    }
+
+    def "test evict removes the key from both tiers and invalidates the other nodes"() {
+
+        given:
+            localCache.put("1", "value")
+
+        when:
+            cache.evict(1)
+
+        then:
+            1 * remoteCache.evict(1)
+            1 * invalidationPublisher.publishEvict("test", "1")
+            localCache.get("1") == null
+            cache.statistics.evictions == 1
+    }
+
+    def "test evict removes the key from the local tiers even when the remote tier fails"() {
+
+        given:
+            localCache.put("1", "value")
+            remoteCache.evict(1) >> { throw new IllegalStateException("timeout") }
+
+        when:
+            cache.evict(1)
+
+        then:
+            thrown(IllegalStateException)
+            1 * invalidationPublisher.publishEvict("test", "1")
+            localCache.get("1") == null
+    }
+
+    def "test clear clears both tiers and invalidates the other nodes"() {
+
+        given:
+            localCache.put("1", "value")
+
+        when:
+            cache.clear()
+
+        then:
+            1 * remoteCache.clear()
+            1 * invalidationPublisher.publishClear("test")
+            localCache.get("1") == null
+    }
+
+    def "test clear clears the local tiers even when the remote tier fails"() {
+
+        given:
+            localCache.put("1", "value")
+            remoteCache.clear() >> { throw new IllegalStateException("timeout") }
+
+        when:
+            cache.clear()
+
+        then:
+            thrown(IllegalStateException)
+            1 * invalidationPublisher.publishClear("test")
+            localCache.get("1") == null
+    }
+
+    def "test evictLocal only touches the local tier"() {
+
+        given:
+            localCache.put("1", "value")
+
+        when:
+            cache.evictLocal("1")
+
+        then:
+            localCache.get("1") == null
+            0 * remoteCache._
+            0 * invalidationPublisher._
+    }
+
+    def "test get with value loader caches the loaded value"() {
+
+        given:
+            remoteCache.get(1) >> null
+
+        when:
+            def result = cache.get(1, { "loaded" })
+
+        then:
+            result == "loaded"
+            1 * remoteCache.put(1, "loaded")
+            localCache.get("1").get() == "loaded"
+    }
+}
@@ -0,0 +1,83 @@
+package com.klachkova.locationsystem.util.datasource
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.sql.DataSource
+
+/**
+ * Routes between two in-memory H2 databases, each knowing whether it is the primary or the replica.
+ */
+class ReadWriteRoutingDataSourceSpec extends Specification {
+
+    @Shared
+    DataSource primary = database('routing-spec-primary')
+
+    @Shared
+    DataSource replica = database('routing-spec-replica')
+
+    ReplicaLagMonitor replicaLagMonitor = Mock()
+    ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica, replicaLagMonitor)
+    DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource)
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource)
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource)
+
+    def "test a read-only transaction reads from the replica while it is available"() {
+
+        given:
+            replicaLagMonitor.isAvailable() >> true
+
+        expect:
+            inTransaction(true) == 'replica'
+            routingDataSource.replicaReadCount == 1
+            routingDataSource.primaryReadCount == 0
+    }
+
+    def "test a read-only transaction reads from the primary while the replica is unavailable"() {
+
+        given:
+            replicaLagMonitor.isAvailable() >> false
+
+        expect:
+            inTransaction(true) == 'primary'
+            routingDataSource.replicaReadCount == 0
+            routingDataSource.primaryReadCount == 1
+    }
+
+    def "test a read-write transaction and a statement outside a transaction use the primary"() {
+
+        given:
+            replicaLagMonitor.isAvailable() >> true
+
+        expect:
+            inTransaction(false) == 'primary'
+            whoAmI() == 'primary'
+            routingDataSource.replicaReadCount == 0
+            routingDataSource.primaryReadCount == 0
+    }
+
+    private String inTransaction(boolean readOnly) {
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager)
+        transactionTemplate.readOnly = readOnly
+        return transactionTemplate.execute { whoAmI() }
+    }
+
+    private String whoAmI() {
+
+        return jdbcTemplate.queryForObject('select name from role', String)
+    }
+
+    private static DataSource database(String name) {
+
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:${name};DB_CLOSE_DELAY=-1", 'sa', '')
+        new JdbcTemplate(dataSource).execute(
+            "create table if not exists role as select '${name - 'routing-spec-'}' as name")
+        return dataSource
+    }
+}
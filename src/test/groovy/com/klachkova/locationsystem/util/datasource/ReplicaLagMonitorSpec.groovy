@@ -0,0 +1,124 @@
+package com.klachkova.locationsystem.util.datasource
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.sql.SQLException
+import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class ReplicaLagMonitorSpec extends Specification {
+
+    static final String LAG_QUERY = 'select seconds from replica_lag'
+
+    DataSource replica = new DriverManagerDataSource('jdbc:h2:mem:replica-lag-spec;DB_CLOSE_DELAY=-1', 'sa', '')
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(replica)
+    ScheduledExecutorService scheduler = Mock()
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, LAG_QUERY, Duration.ofSeconds(5),
+        Duration.ofSeconds(1), scheduler)
+
+    def setup() {
+
+        jdbcTemplate.execute('create table if not exists replica_lag (seconds double)')
+        jdbcTemplate.update('delete from replica_lag')
+    }
+
+    def "test the replica is unavailable until the first probe, which start runs immediately"() {
+
+        when:
+            monitor.start()
+
+        then:
+            1 * scheduler.scheduleWithFixedDelay(_, 0, 1000, TimeUnit.MILLISECONDS)
+            !monitor.available
+    }
+
+    def "test the replica is available while its lag is within the tolerance"() {
+
+        given:
+            jdbcTemplate.update('insert into replica_lag values (?)', seconds)
+
+        when:
+            monitor.probe()
+
+        then:
+            monitor.available == available
+            monitor.lagMillis == seconds * 1000
+
+        where:
+            seconds | available
+            0       | true
+            4.5     | true
+            5.5     | false
+    }
+
+    def "test the replica is available again once it caught up"() {
+
+        given:
+            jdbcTemplate.update('insert into replica_lag values (?)', 30)
+            monitor.probe()
+
+        when:
+            jdbcTemplate.update('update replica_lag set seconds = 1')
+            monitor.probe()
+
+        then:
+            monitor.available
+            monitor.lagMillis == 1000
+    }
+
+    def "test the replica is unavailable when the lag is unknown"() {
+
+        given:
+            jdbcTemplate.update('insert into replica_lag values (?)', 0)
+            monitor.probe()
+            jdbcTemplate.update('update replica_lag set seconds = null')
+
+        when:
+            monitor.probe()
+
+        then:
+            !monitor.available
+            monitor.lagMillis.naN
+            monitor.failureCount == 0
+    }
+
+    def "test the replica is unavailable when the probe fails"() {
+
+        given:
+            DataSource unreachable = Mock() {
+                getConnection() >> { throw new SQLException('Connection refused') }
+            }
+            monitor = new ReplicaLagMonitor(unreachable, LAG_QUERY, Duration.ofSeconds(5), Duration.ofSeconds(1),
+                scheduler)
+
+        when:
+            monitor.probe()
+
+        then:
+            !monitor.available
+            monitor.failureCount == 1
+    }
+
+    def "test a lag query is required"() {
+
+        when:
+            new ReplicaLagMonitor(replica, lagQuery, Duration.ofSeconds(5), Duration.ofSeconds(1), scheduler)
+
+        then:
+            thrown(IllegalArgumentException)
+
+        where:
+            lagQuery << [null, '', ' ']
+    }
+
+    def "test replica reads are at most as stale as the tolerance plus the probe interval"() {
+
+        expect:
+            monitor.maxStaleness == Duration.ofSeconds(6)
+    }
+}
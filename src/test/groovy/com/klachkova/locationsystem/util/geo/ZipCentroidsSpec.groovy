@@ -0,0 +1,161 @@
+package com.klachkova.locationsystem.util.geo
+
+import org.springframework.core.io.ByteArrayResource
+import org.springframework.core.io.ClassPathResource
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class ZipCentroidsSpec extends Specification {
+
+    def "test the table is read from the Gazetteer columns"() {
+
+        given:
+            def zipCentroids = centroids(
+                "# comment",
+                "GEOID\tALAND\tINTPTLAT\tINTPTLONG",
+                "62704\t1000\t39.772\t-89.688",
+                "",
+                "02108 \t2000\t 42.357\t-71.064 ")
+
+        expect:
+            zipCentroids.size() == 2
+            Math.abs(zipCentroids.find("62704").latitude - 39.772) < 1e-5
+            Math.abs(zipCentroids.find("62704").longitude + 89.688) < 1e-5
+            Math.abs(zipCentroids.find("02108").latitude - 42.357) < 1e-5
+    }
+
+    @Unroll
+    def "test find returns null for the ZIP code '#zipCode'"() {
+
+        given:
+            def zipCentroids = centroids("GEOID\tINTPTLAT\tINTPTLONG", "62704\t39.772\t-89.688")
+
+        expect:
+            zipCentroids.find(zipCode) == null
+
+        where:
+            zipCode << [null, "", "62703", "6270", "627041", "62704-12", "62704 1234", "6270a"]
+    }
+
+    def "test find ignores a ZIP+4 extension"() {
+
+        given:
+            def zipCentroids = centroids("GEOID\tINTPTLAT\tINTPTLONG", "62704\t39.772\t-89.688")
+
+        expect:
+            zipCentroids.find("62704-1234") != null
+    }
+
+    @Unroll
+    def "test isWellFormed is #wellFormed for the ZIP code '#zipCode'"() {
+
+        expect:
+            ZipCentroids.isWellFormed(zipCode) == wellFormed
+
+        where:
+            zipCode      | wellFormed
+            "62704"      | true
+            "62704-1234" | true
+            "00000"      | true
+            null         | false
+            ""           | false
+            "6270"       | false
+            "627041"     | false
+            "62704-12"   | false
+            "62704 1234" | false
+            "6270a"      | false
+    }
+
+    @Unroll
+    def "test findZipCodesWithin returns the ZIP codes within #radiusKm km"() {
+
+        given:
+            def zipCentroids = new ZipCentroids(new ClassPathResource("geo/zcta_centroids.txt"))
+
+        expect:
+            zipCentroids.findZipCodesWithin(zipCentroids.find("62704"), radiusKm) == zipCodes
+
+        where:
+            radiusKm | zipCodes
+            0.001    | ["62704"]
+            10       | ["62701", "62702", "62703", "62704"]
+            400      | ["60601", "62701", "62702", "62703", "62704"]
+    }
+
+    def "test findZipCodesWithin keeps the leading zeros and matches a scan of the table"() {
+
+        given:
+            def random = new Random(42)
+            def lines = ["GEOID\tINTPTLAT\tINTPTLONG"] + (0..<2000).collect {
+                String.format(Locale.ROOT, "%05d\t%.4f\t%.4f", random.nextInt(100_000), 25 + random.nextDouble() * 24,
+                    -124 + random.nextDouble() * 57)
+            }
+            def zipCentroids = centroids(lines as String[])
+            def center = new GeoPoint(39.772, -89.688)
+            def known = (0..<100_000).collect { String.format("%05d", it) }.findAll { zipCentroids.find(it) != null }
+
+        expect:
+            [10, 200, 1000].every { radiusKm ->
+                zipCentroids.findZipCodesWithin(center, radiusKm) == known.findAll {
+                    center.distanceKm(zipCentroids.find(it)) <= radiusKm
+                }
+            }
+            centroids("GEOID\tINTPTLAT\tINTPTLONG", "02108\t42.357\t-71.064")
+                .findZipCodesWithin(new GeoPoint(42.357, -71.064), 1) == ["02108"]
+    }
+
+    def "test the table is rejected when a column is missing or a ZIP code is invalid"() {
+
+        when:
+            centroids("GEOID\tINTPTLAT", "62704\t39.772")
+
+        then:
+            thrown(IllegalStateException)
+
+        when:
+            centroids("GEOID\tINTPTLAT\tINTPTLONG", "6270\t39.772\t-89.688")
+
+        then:
+            thrown(IllegalStateException)
+    }
+
+    def "test the sample table is loaded"() {
+
+        given:
+            def zipCentroids = new ZipCentroids(new ClassPathResource("geo/zcta_centroids.txt"))
+
+        expect:
+            zipCentroids.isLoaded()
+            zipCentroids.size() < ZipCentroids.MIN_ZIP_CODES
+            zipCentroids.find("62704") != null
+    }
+
+    def "test no ZIP code is known without a table"() {
+
+        given:
+            def zipCentroids = new ZipCentroids(null)
+
+        expect:
+            !zipCentroids.isLoaded()
+            zipCentroids.size() == 0
+            zipCentroids.find("62704") == null
+            zipCentroids.findZipCodesWithin(new GeoPoint(39.772, -89.688), 100).isEmpty()
+    }
+
+    def "test no ZIP code is known when the table file is missing"() {
+
+        given:
+            def zipCentroids = new ZipCentroids(new ClassPathResource("geo/missing.txt"))
+
+        expect:
+            !zipCentroids.isLoaded()
+            zipCentroids.find("62704") == null
+    }
+
+    private static ZipCentroids centroids(String... lines) {
+
+        new ZipCentroids(new ByteArrayResource(lines.join("\n").getBytes(StandardCharsets.UTF_8)))
+    }
+}
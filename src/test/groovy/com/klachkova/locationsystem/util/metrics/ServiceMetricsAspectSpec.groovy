@@ -0,0 +1,53 @@
+package com.klachkova.locationsystem.util.metrics
+
+import com.klachkova.locationsystem.repositories.UserRepository
+import com.klachkova.locationsystem.services.UserService
+import com.klachkova.locationsystem.util.converters.UserConverter
+import com.klachkova.locationsystem.util.exceptions.NotFoundException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory
+import spock.lang.Specification
+
+import javax.validation.Validator
+
+class ServiceMetricsAspectSpec extends Specification {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry()
+    UserRepository userRepository = Mock()
+    UserService timedUserService
+
+    def setup() {
+
+        def proxyFactory = new AspectJProxyFactory(new UserService(userRepository, Mock(Validator), Mock(UserConverter)))
+        proxyFactory.proxyTargetClass = true
+        proxyFactory.addAspect(new ServiceMetricsAspect(registry))
+        timedUserService = proxyFactory.getProxy()
+    }
+
+    def "test service calls are timed per service and method"() {
+
+        when:
+            timedUserService.findAll()
+            timedUserService.findAll()
+
+        then:
+            registry.get(ServiceMetricsAspect.METRIC_NAME)
+                .tags("service", "UserService", "method", "findAll", "exception", "None")
+                .timer().count() == 2
+    }
+
+    def "test failed service calls are timed with their exception"() {
+
+        given:
+            userRepository.findById(1) >> Optional.empty()
+
+        when:
+            timedUserService.findById(1)
+
+        then:
+            thrown(NotFoundException)
+            registry.get(ServiceMetricsAspect.METRIC_NAME)
+                .tags("service", "UserService", "method", "findById", "exception", "NotFoundException")
+                .timer().count() == 1
+    }
+}